@@ -0,0 +1,48 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.openjdk.jmh.Main;
+
+/**
+ * Runs the Road Rage benchmarks with JMH, writing results as JSON to jmh-result.json
+ * unless the arguments choose another result format or file.
+ *
+ * @version 1 OCT 2018
+ */
+public final class RoadRageBenchmarks {
+
+    /**
+     * The default result file.
+     */
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private RoadRageBenchmarks() {
+        // do nothing
+    }
+
+    /**
+     * Runs JMH.
+     *
+     * @param theArgs JMH command line arguments
+     * @throws Exception if JMH fails
+     */
+    public static void main(final String... theArgs) throws Exception {
+        final List<String> args = new ArrayList<>(Arrays.asList(theArgs));
+        if (!args.contains("-rf")) {
+            args.add(0, "json");
+            args.add(0, "-rf");
+        }
+        if (!args.contains("-rff")) {
+            args.add(0, RESULT_FILE);
+            args.add(0, "-rff");
+        }
+        Main.main(args.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,81 @@
+package logic;
+
+import java.util.concurrent.TimeUnit;
+import model.TerrainGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures RoadRage's tick on a crowded map with collisions found through the cell
+ * index and by comparing every pair of vehicles, so the cost of the collision loop
+ * shows against the rest of the tick.
+ *
+ * @version 1 OCT 2018
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollisionBenchmark {
+
+    /**
+     * The seed of the map, the vehicles and their choices.
+     */
+    private static final long SEED = 305;
+
+    /**
+     * The number of rows and columns of the map.
+     */
+    private static final int SIDE = 128;
+
+    /**
+     * The number of vehicles.
+     */
+    @Param({"500", "2000", "8000"})
+    private int myVehicles;
+
+    /**
+     * Whether collisions are found through the cell index.
+     */
+    @Param({"true", "false"})
+    private boolean myCellIndex;
+
+    /**
+     * The simulation.
+     */
+    private RoadRage myEngine;
+
+    /**
+     * Builds the city and starts the simulation.
+     */
+    @Setup
+    public void setUp() {
+        final TerrainGrid grid = SyntheticCity.grid(SIDE, SIDE, SEED);
+        myEngine = new RoadRage(grid, SyntheticCity.vehicles(grid, myVehicles, SEED)
+                        .toVehicles(), SEED);
+        myEngine.setCellIndexEnabled(myCellIndex);
+        myEngine.start();
+    }
+
+    /**
+     * Advances the simulation by one tick.
+     *
+     * @return the number of moves so far, so the tick is not optimized away
+     */
+    @Benchmark
+    public long advance() {
+        myEngine.advance();
+        return myEngine.getMoveCount();
+    }
+}
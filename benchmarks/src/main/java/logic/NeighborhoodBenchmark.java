@@ -0,0 +1,105 @@
+package logic;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import model.Direction;
+import model.Terrain;
+import model.TerrainGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the neighborhoods vehicles choose their direction from: building the table
+ * for a whole map, and looking up the neighborhood of every cell either as the Map the
+ * Vehicle classes take or as the packed code ArrayRoadRage reads.
+ *
+ * @version 1 OCT 2018
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NeighborhoodBenchmark {
+
+    /**
+     * The seed of the map.
+     */
+    private static final long SEED = 305;
+
+    /**
+     * The number of rows and columns of the map.
+     */
+    @Param({"64", "256", "1024"})
+    private int mySide;
+
+    /**
+     * The map.
+     */
+    private TerrainGrid myGrid;
+
+    /**
+     * The neighborhoods of the map.
+     */
+    private NeighborhoodTable myTable;
+
+    /**
+     * Builds the city and its neighborhoods.
+     */
+    @Setup
+    public void setUp() {
+        myGrid = SyntheticCity.grid(mySide, mySide, SEED);
+        myTable = new NeighborhoodTable(myGrid);
+    }
+
+    /**
+     * Builds the neighborhood table of the whole map.
+     *
+     * @return the table
+     */
+    @Benchmark
+    public NeighborhoodTable build() {
+        return new NeighborhoodTable(myGrid);
+    }
+
+    /**
+     * Looks up the neighborhood Map of every cell and reads the terrain ahead.
+     *
+     * @param theHole consumes the terrain read
+     */
+    @Benchmark
+    public void lookupMaps(final Blackhole theHole) {
+        for (int y = 0; y < mySide; y++) {
+            for (int x = 0; x < mySide; x++) {
+                final Map<Direction, Terrain> neighbors = myTable.get(x, y);
+                theHole.consume(neighbors.get(Direction.NORTH));
+            }
+        }
+    }
+
+    /**
+     * Looks up the neighborhood code of every cell and reads the terrain ahead.
+     *
+     * @param theHole consumes the terrain read
+     */
+    @Benchmark
+    public void lookupCodes(final Blackhole theHole) {
+        for (int y = 0; y < mySide; y++) {
+            for (int x = 0; x < mySide; x++) {
+                theHole.consume(NeighborhoodTable.side(myTable.code(x, y),
+                                                       Direction.NORTH.ordinal()));
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package logic;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import model.Direction;
+import model.Terrain;
+import model.TerrainGrid;
+import model.VehicleKind;
+
+/**
+ * Builds city maps of any size for the benchmarks: a grid of city blocks separated by
+ * streets, with lights at intersections, crosswalks beside them, and blocks of grass
+ * crossed by the odd trail and wall. The same arguments always build the same city.
+ *
+ * @version 1 OCT 2018
+ */
+public final class SyntheticCity {
+
+    /**
+     * The distance between parallel streets.
+     */
+    private static final int BLOCK = 6;
+
+    /**
+     * One in this many grass cells becomes a trail.
+     */
+    private static final int TRAIL_ODDS = 8;
+
+    /**
+     * One in this many grass cells becomes a wall.
+     */
+    private static final int WALL_ODDS = 16;
+
+    /**
+     * The number of times a random cell is drawn for a vehicle before giving up on
+     * finding one that suits its kind.
+     */
+    private static final int PLACEMENT_TRIES = 64;
+
+    /**
+     * A private constructor, to prevent external instantiation.
+     */
+    private SyntheticCity() { }
+
+    /**
+     * Builds a grid of city blocks.
+     *
+     * @param theWidth the number of columns
+     * @param theHeight the number of rows
+     * @param theSeed the seed of the grass, trail and wall layout
+     * @return the grid
+     */
+    public static TerrainGrid grid(final int theWidth, final int theHeight,
+                                   final long theSeed) {
+        final SplittableRandom random = new SplittableRandom(theSeed);
+        final TerrainGrid grid = TerrainGrid.create(theWidth, theHeight);
+        for (int y = 0; y < theHeight; y++) {
+            for (int x = 0; x < theWidth; x++) {
+                grid.set(x, y, terrainAt(x, y, random));
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Places vehicles on a grid, each on terrain its kind can travel: Humans on grass,
+     * ATVs anywhere but walls, Bicycles on streets or trails, the others on streets.
+     *
+     * @param theGrid the grid
+     * @param theCount the number of vehicles
+     * @param theSeed the seed of the kinds, positions and directions
+     * @return the vehicles
+     */
+    public static VehicleRecords vehicles(final TerrainGrid theGrid, final int theCount,
+                                          final long theSeed) {
+        final SplittableRandom random = new SplittableRandom(theSeed);
+        final VehicleKind[] kinds = VehicleKind.values();
+        final Direction[] directions = Direction.values();
+        final VehicleRecords result = new VehicleRecords(theCount);
+        for (int i = 0; i < theCount; i++) {
+            final VehicleKind kind = kinds[random.nextInt(kinds.length)];
+            int x = 0;
+            int y = 0;
+            for (int tries = 0; tries < PLACEMENT_TRIES; tries++) {
+                x = random.nextInt(theGrid.getWidth());
+                y = random.nextInt(theGrid.getHeight());
+                if (suits(kind, theGrid.get(x, y))) {
+                    break;
+                }
+            }
+            result.add(kind, x, y, directions[random.nextInt(directions.length)]);
+        }
+        return result;
+    }
+
+    /**
+     * Writes a city in the city map file format read by view.util.FileLoader.
+     *
+     * @param theGrid the grid
+     * @param theVehicles the vehicles
+     * @param theFile the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(final TerrainGrid theGrid, final VehicleRecords theVehicles,
+                             final Path theFile) throws IOException {
+        final VehicleKind[] kinds = VehicleKind.values();
+        final Direction[] directions = Direction.values();
+        try (BufferedWriter out = Files.newBufferedWriter(theFile, StandardCharsets.UTF_8)) {
+            out.write(theGrid.getHeight() + " " + theGrid.getWidth());
+            out.newLine();
+            final char[] row = new char[theGrid.getWidth()];
+            for (int y = 0; y < theGrid.getHeight(); y++) {
+                for (int x = 0; x < row.length; x++) {
+                    row[x] = theGrid.get(x, y).letter();
+                }
+                out.write(row);
+                out.newLine();
+            }
+            out.write(Integer.toString(theVehicles.size()));
+            out.newLine();
+            for (int i = 0; i < theVehicles.size(); i++) {
+                out.write(kinds[theVehicles.kind(i)].letter() + " " + theVehicles.x(i) + " "
+                          + theVehicles.y(i) + " "
+                          + directions[theVehicles.direction(i)].letter());
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns the terrain of a cell.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @param theRandom the source of the grass, trail and wall layout
+     * @return the terrain
+     */
+    private static Terrain terrainAt(final int theX, final int theY,
+                                     final SplittableRandom theRandom) {
+        final boolean streetX = theX % BLOCK == 0;
+        final boolean streetY = theY % BLOCK == 0;
+        final Terrain result;
+        if (streetX && streetY) {
+            result = Terrain.LIGHT;
+        } else if (streetX && isNextToStreet(theY) || streetY && isNextToStreet(theX)) {
+            result = Terrain.CROSSWALK;
+        } else if (streetX || streetY) {
+            result = Terrain.STREET;
+        } else if (theRandom.nextInt(WALL_ODDS) == 0) {
+            result = Terrain.WALL;
+        } else if (theRandom.nextInt(TRAIL_ODDS) == 0) {
+            result = Terrain.TRAIL;
+        } else {
+            result = Terrain.GRASS;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether a coordinate along a street is next to a crossing street.
+     *
+     * @param theCoordinate the coordinate along the street
+     * @return whether the neighboring coordinate holds a crossing street
+     */
+    private static boolean isNextToStreet(final int theCoordinate) {
+        final int offset = theCoordinate % BLOCK;
+        return offset == 1 || offset == BLOCK - 1;
+    }
+
+    /**
+     * Returns whether a vehicle of the given kind may start on the given terrain.
+     *
+     * @param theKind the kind of vehicle
+     * @param theTerrain the terrain
+     * @return whether it suits the kind
+     */
+    private static boolean suits(final VehicleKind theKind, final Terrain theTerrain) {
+        final boolean result;
+        switch (theKind) {
+            case HUMAN:
+                result = theTerrain == Terrain.GRASS;
+                break;
+
+            case ATV:
+                result = theTerrain != Terrain.WALL;
+                break;
+
+            case BICYCLE:
+                result = theTerrain == Terrain.STREET || theTerrain == Terrain.TRAIL;
+                break;
+
+            default:
+                result = theTerrain == Terrain.STREET;
+                break;
+        }
+        return result;
+    }
+}
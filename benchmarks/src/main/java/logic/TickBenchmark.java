@@ -0,0 +1,95 @@
+package logic;
+
+import java.util.concurrent.TimeUnit;
+import model.TerrainGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one tick of the simulation at several map sizes and vehicle densities, for
+ * each engine. The simulation keeps running from one invocation to the next, so the
+ * measurement covers its steady state rather than the starting positions.
+ *
+ * @version 1 OCT 2018
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickBenchmark {
+
+    /**
+     * The seed of the map, the vehicles and their choices.
+     */
+    private static final long SEED = 305;
+
+    /**
+     * The number of rows and columns of the map.
+     */
+    @Param({"64", "256", "1024"})
+    private int mySide;
+
+    /**
+     * The number of vehicles per cell of the map.
+     */
+    @Param({"0.01", "0.05"})
+    private double myDensity;
+
+    /**
+     * The engine advanced.
+     */
+    @Param({"OBJECTS", "ARRAYS"})
+    private EngineType myEngineType;
+
+    /**
+     * Whether directions are looked up in compiled routing tables.
+     */
+    @Param({"false", "true"})
+    private boolean myCompiledRouting;
+
+    /**
+     * Whether a tick visits only the active vehicles.
+     */
+    @Param({"true", "false"})
+    private boolean myActiveSet;
+
+    /**
+     * The simulation.
+     */
+    private SimulationEngine myEngine;
+
+    /**
+     * Builds the city and starts the simulation.
+     */
+    @Setup
+    public void setUp() {
+        final TerrainGrid grid = SyntheticCity.grid(mySide, mySide, SEED);
+        final int count = (int) (mySide * (long) mySide * myDensity);
+        myEngine = myEngineType.create(grid, SyntheticCity.vehicles(grid, count, SEED), SEED);
+        myEngine.setCompiledRouting(myCompiledRouting);
+        myEngine.setActiveSetEnabled(myActiveSet);
+        myEngine.start();
+    }
+
+    /**
+     * Advances the simulation by one tick.
+     *
+     * @return the number of moves so far, so the tick is not optimized away
+     */
+    @Benchmark
+    public long advance() {
+        myEngine.advance();
+        return myEngine.getMoveCount();
+    }
+}
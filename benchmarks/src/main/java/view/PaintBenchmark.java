@@ -0,0 +1,110 @@
+package view;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import logic.EngineType;
+import logic.SimulationEngine;
+import logic.SyntheticCity;
+import model.TerrainGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures painting the whole RoadRagePanel into an offscreen image, headless. The
+ * vehicle icons are read from the icons directory, so run it from the repository root.
+ *
+ * @version 1 OCT 2018
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+
+    /**
+     * The seed of the map, the vehicles and their choices.
+     */
+    private static final long SEED = 305;
+
+    /**
+     * The width and height of a map cell in pixels, as drawn by the panel.
+     */
+    private static final int SQUARE_SIZE = 40;
+
+    /**
+     * The number of vehicles per cell of the map.
+     */
+    private static final double DENSITY = 0.05;
+
+    /**
+     * The number of rows and columns of the map.
+     */
+    @Param({"16", "32", "64"})
+    private int mySide;
+
+    /**
+     * The panel painted.
+     */
+    private RoadRagePanel myPanel;
+
+    /**
+     * The image painted into.
+     */
+    private BufferedImage myImage;
+
+    /**
+     * The graphics of the image.
+     */
+    private Graphics2D myGraphics;
+
+    /**
+     * Builds the city and hands its state to the panel.
+     */
+    @Setup
+    public void setUp() {
+        final TerrainGrid grid = SyntheticCity.grid(mySide, mySide, SEED);
+        final int count = (int) (mySide * mySide * DENSITY);
+        final SimulationEngine engine =
+                        EngineType.OBJECTS.create(grid, SyntheticCity.vehicles(grid, count,
+                                                                               SEED), SEED);
+        final int pixels = mySide * SQUARE_SIZE;
+        myPanel = new RoadRagePanel(mySide, mySide);
+        myPanel.setSize(pixels, pixels);
+        myPanel.listenTo(engine);
+        engine.start();
+        myImage = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_RGB);
+        myGraphics = myImage.createGraphics();
+    }
+
+    /**
+     * Releases the graphics of the image.
+     */
+    @TearDown
+    public void tearDown() {
+        myGraphics.dispose();
+    }
+
+    /**
+     * Paints the panel.
+     *
+     * @return the image painted into
+     */
+    @Benchmark
+    public BufferedImage paint() {
+        myPanel.paintComponent(myGraphics);
+        return myImage;
+    }
+}
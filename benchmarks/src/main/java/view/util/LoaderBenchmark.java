@@ -0,0 +1,135 @@
+package view.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import logic.SyntheticCity;
+import logic.VehicleRecords;
+import model.TerrainGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures reading large city map files, without building a simulation: the grid and
+ * vehicle sections as FileLoader parses them with a Scanner, as CityMap reads them
+ * through memory mapping, and as CityMap loads the same map in the binary format.
+ *
+ * @version 1 OCT 2018
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoaderBenchmark {
+
+    /**
+     * The seed of the map and the vehicles.
+     */
+    private static final long SEED = 305;
+
+    /**
+     * The number of vehicles per cell of the map.
+     */
+    private static final double DENSITY = 0.02;
+
+    /**
+     * The number of rows and columns of the map.
+     */
+    @Param({"256", "1024", "2048"})
+    private int mySide;
+
+    /**
+     * The city map file read.
+     */
+    private Path myFile;
+
+    /**
+     * The same city map in the binary format.
+     */
+    private Path myBinaryFile;
+
+    /**
+     * Writes the city map file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        final TerrainGrid grid = SyntheticCity.grid(mySide, mySide, SEED);
+        final int count = (int) (mySide * (long) mySide * DENSITY);
+        myFile = Files.createTempFile("city", ".txt");
+        final VehicleRecords vehicles = SyntheticCity.vehicles(grid, count, SEED);
+        SyntheticCity.write(grid, vehicles, myFile);
+        myBinaryFile = Files.createTempFile("city", ".rrmap");
+        CityMap.writeBinary(grid, vehicles, myBinaryFile);
+    }
+
+    /**
+     * Deletes the city map files.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(myFile);
+        Files.deleteIfExists(myBinaryFile);
+    }
+
+    /**
+     * Reads the grid and the vehicles from the file.
+     *
+     * @param theHole consumes the grid read
+     * @return the vehicles read
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public VehicleRecords read(final Blackhole theHole) throws IOException {
+        try (Scanner input = new Scanner(myFile)) {
+            theHole.consume(FileLoader.readGrid(input));
+            return FileLoader.readVehicles(input);
+        }
+    }
+
+    /**
+     * Reads the grid and the vehicles from the file, memory-mapped.
+     *
+     * @param theHole consumes the grid read
+     * @return the vehicles read
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public VehicleRecords readMapped(final Blackhole theHole) throws IOException {
+        final CityMap city = CityMap.read(myFile);
+        theHole.consume(city.getGrid());
+        return city.getVehicles();
+    }
+
+    /**
+     * Loads the grid and the vehicles from the binary file.
+     *
+     * @param theHole consumes the grid loaded
+     * @return the vehicles loaded
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public VehicleRecords readBinary(final Blackhole theHole) throws IOException {
+        final CityMap city = CityMap.read(myBinaryFile);
+        theHole.consume(city.getGrid());
+        return city.getVehicles();
+    }
+}
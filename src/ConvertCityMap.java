@@ -0,0 +1,58 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+//package view;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import view.util.CityMap;
+
+/**
+ * Converts a city map file to the binary format, which loads without parsing.
+ *
+ * Usage: ConvertCityMap inputFile outputFile
+ *
+ * @version 1 OCT 2018
+ */
+public final class ConvertCityMap {
+
+    /**
+     * The exit status for bad arguments or an unreadable or unwritable map.
+     */
+    private static final int ERROR_STATUS = 2;
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private ConvertCityMap() {
+        // do nothing
+    }
+
+    /**
+     * Reads a city map file, text or binary, and writes it in the binary format.
+     *
+     * @param theArgs Command line arguments: the file to read, then the file to write.
+     */
+    public static void main(final String... theArgs) {
+        if (theArgs.length != 2) {
+            System.err.println("usage: ConvertCityMap inputFile outputFile");
+            System.exit(ERROR_STATUS);
+            return;
+        }
+        final Path input = Paths.get(theArgs[0]);
+        final Path output = Paths.get(theArgs[1]);
+        try {
+            final CityMap city = CityMap.read(input);
+            System.out.println(input + ": " + city.getStats());
+            CityMap.writeBinary(city.getGrid(), city.getVehicles(), city.getSignals(),
+                                output);
+            System.out.println(output + ": " + CityMap.read(output).getStats());
+        } catch (final IOException ioe) {
+            System.err.println("Could not convert city map file " + input + ": "
+                               + ioe.getMessage());
+            System.exit(ERROR_STATUS);
+        }
+    }
+}
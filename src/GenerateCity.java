@@ -0,0 +1,116 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+//package view;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import model.VehicleKind;
+import view.util.CityGenerator;
+
+/**
+ * Writes a generated city map file of any size.
+ *
+ * Usage: GenerateCity width height outputFile [--seed S] [--streets D] [--lights F]
+ * [--crosswalks F] [--trails F] [--wave T] [--bicycle N] [--atv N] [--human N] [--truck N]
+ * [--taxi N] [--car N]
+ *
+ * @version 1 OCT 2018
+ */
+public final class GenerateCity {
+
+    /**
+     * The exit status for bad arguments or an unwritable file.
+     */
+    private static final int ERROR_STATUS = 2;
+
+    /**
+     * The usage message.
+     */
+    private static final String USAGE = "usage: GenerateCity width height outputFile"
+                    + " [--seed S] [--streets D] [--lights F] [--crosswalks F] [--trails F]"
+                    + " [--wave T] [--bicycle N] [--atv N] [--human N] [--truck N] [--taxi N]"
+                    + " [--car N]";
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private GenerateCity() {
+        // do nothing
+    }
+
+    /**
+     * Generates and writes the map.
+     *
+     * @param theArgs Command line arguments, see the class description.
+     */
+    public static void main(final String... theArgs) {
+        final CityGenerator generator;
+        final int width;
+        final int height;
+        final Path file;
+        long seed = new SplittableRandom().nextLong();
+        try {
+            if (theArgs.length < 3 || theArgs.length % 2 == 0) {
+                throw new IllegalArgumentException();
+            }
+            width = Integer.parseInt(theArgs[0]);
+            height = Integer.parseInt(theArgs[1]);
+            file = Paths.get(theArgs[2]);
+            for (int i = 3; i < theArgs.length; i += 2) {
+                if ("--seed".equals(theArgs[i])) {
+                    seed = Long.parseLong(theArgs[i + 1]);
+                }
+            }
+            generator = new CityGenerator(seed);
+            for (int i = 3; i < theArgs.length; i += 2) {
+                final String value = theArgs[i + 1];
+                switch (theArgs[i]) {
+                    case "--seed":
+                        break;
+                    case "--streets":
+                        generator.setStreetDensity(Double.parseDouble(value));
+                        break;
+                    case "--lights":
+                        generator.setLightFrequency(Double.parseDouble(value));
+                        break;
+                    case "--crosswalks":
+                        generator.setCrosswalkFrequency(Double.parseDouble(value));
+                        break;
+                    case "--trails":
+                        generator.setTrailRatio(Double.parseDouble(value));
+                        break;
+                    case "--wave":
+                        generator.setGreenWave(Integer.parseInt(value));
+                        break;
+                    default:
+                        if (!theArgs[i].startsWith("--")) {
+                            throw new IllegalArgumentException(theArgs[i]);
+                        }
+                        generator.setVehicleCount(VehicleKind.valueOf(
+                            theArgs[i].substring(2).toUpperCase(Locale.ROOT)),
+                                                  Integer.parseInt(value));
+                        break;
+                }
+            }
+        } catch (final IllegalArgumentException e) {
+            System.err.println(USAGE);
+            System.exit(ERROR_STATUS);
+            return;
+        }
+
+        try {
+            final int vehicles = generator.write(width, height, file);
+            System.out.printf(Locale.ROOT, "wrote %s: %d x %d, %d vehicles, seed %d%n", file,
+                              width, height, vehicles, seed);
+        } catch (final IOException | IllegalArgumentException e) {
+            System.err.println("Could not write city map file " + file + ": "
+                               + e.getMessage());
+            System.exit(ERROR_STATUS);
+        }
+    }
+}
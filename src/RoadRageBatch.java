@@ -0,0 +1,336 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+//package view;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import logic.Checkpoint;
+import logic.EngineType;
+import logic.LatencyHistogram;
+import logic.RoadRage;
+import logic.SimulationEngine;
+import logic.TickJournal;
+import view.util.CityMap;
+
+/**
+ * Runs the Road Rage simulation without a display, as fast as possible, and reports
+ * its throughput and per-tick latency.
+ *
+ * Usage: RoadRageBatch mapFile [--ticks N | --seconds S] [--warmup N] [--seed S]
+ * [--engine objects|arrays] [--threads T [--parallel-threshold N]] [--routing live|compiled]
+ * [--scheduler active|all] [--restore FILE] [--checkpoint FILE [--checkpoint-every N]]
+ * [--journal FILE [--keyframe-every N]]
+ *
+ * --threads runs the striped tick of the objects engine on T threads; the arrays engine
+ * only runs on one. Ticks of fewer than N vehicles, RoadRage.DEFAULT_PARALLEL_THRESHOLD
+ * unless given, run the stripes on the main thread.
+ *
+ * With --restore, the run goes on from a checkpoint of the same map instead of from
+ * the start. With --checkpoint, a checkpoint is written when the run ends and, with
+ * --checkpoint-every, every N measured ticks, each written on another thread while the
+ * ticks go on; the time taken to capture each is reported apart from the ticks, and
+ * left out of the throughput. With --journal, every tick from the start is written to a
+ * TickJournal, with a keyframe every N frames, for ReplayRoadRage to play back.
+ *
+ * @version 1 OCT 2018
+ */
+public final class RoadRageBatch {
+
+    /**
+     * The number of ticks run when neither a tick count nor a duration is given.
+     */
+    private static final long DEFAULT_TICKS = 10_000;
+
+    /**
+     * The number of ticks run before measuring, when not given.
+     */
+    private static final long DEFAULT_WARMUP = 1_000;
+
+    /**
+     * The exit status for bad arguments or an unreadable map.
+     */
+    private static final int ERROR_STATUS = 2;
+
+    /**
+     * Nanoseconds per microsecond, for reporting latencies.
+     */
+    private static final double NANOS_PER_MICRO = 1e3;
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * The usage message.
+     */
+    private static final String USAGE = "usage: RoadRageBatch mapFile [--ticks N | --seconds S]"
+                    + " [--warmup N] [--seed S] [--engine objects|arrays]"
+                    + " [--threads T [--parallel-threshold N]]"
+                    + " [--routing live|compiled] [--scheduler active|all] [--restore FILE]"
+                    + " [--checkpoint FILE [--checkpoint-every N]]"
+                    + " [--journal FILE [--keyframe-every N]]";
+
+    /**
+     * Private constructor to prevent construction of instances.
+     */
+    private RoadRageBatch() {
+        // do nothing
+    }
+
+    /**
+     * Loads the map and runs the simulation.
+     *
+     * @param theArgs Command line arguments, see the class description.
+     */
+    public static void main(final String... theArgs) {
+        System.setProperty("java.awt.headless", "true");
+        File map = null;
+        long ticks = DEFAULT_TICKS;
+        long seconds = 0;
+        long warmup = DEFAULT_WARMUP;
+        long seed = new SplittableRandom().nextLong();
+        EngineType engineType = EngineType.OBJECTS;
+        int threads = 1;
+        int parallelThreshold = RoadRage.DEFAULT_PARALLEL_THRESHOLD;
+        boolean compiled = false;
+        boolean active = true;
+        Path restore = null;
+        Path checkpoint = null;
+        long checkpointEvery = 0;
+        Path journalFile = null;
+        int keyframeEvery = TickJournal.DEFAULT_KEYFRAME_INTERVAL;
+        try {
+            for (int i = 0; i < theArgs.length; i++) {
+                switch (theArgs[i]) {
+                    case "--ticks":
+                        ticks = Long.parseLong(theArgs[++i]);
+                        seconds = 0;
+                        break;
+                    case "--seconds":
+                        seconds = Long.parseLong(theArgs[++i]);
+                        break;
+                    case "--warmup":
+                        warmup = Long.parseLong(theArgs[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(theArgs[++i]);
+                        break;
+                    case "--engine":
+                        engineType = EngineType.valueOf(theArgs[++i].toUpperCase());
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(theArgs[++i]);
+                        break;
+                    case "--parallel-threshold":
+                        parallelThreshold = Integer.parseInt(theArgs[++i]);
+                        break;
+                    case "--routing":
+                        compiled = "compiled".equals(theArgs[++i]);
+                        if (!compiled && !"live".equals(theArgs[i])) {
+                            throw new IllegalArgumentException(theArgs[i]);
+                        }
+                        break;
+                    case "--scheduler":
+                        active = "active".equals(theArgs[++i]);
+                        if (!active && !"all".equals(theArgs[i])) {
+                            throw new IllegalArgumentException(theArgs[i]);
+                        }
+                        break;
+                    case "--restore":
+                        restore = Paths.get(theArgs[++i]);
+                        break;
+                    case "--checkpoint":
+                        checkpoint = Paths.get(theArgs[++i]);
+                        break;
+                    case "--checkpoint-every":
+                        checkpointEvery = Long.parseLong(theArgs[++i]);
+                        break;
+                    case "--journal":
+                        journalFile = Paths.get(theArgs[++i]);
+                        break;
+                    case "--keyframe-every":
+                        keyframeEvery = Integer.parseInt(theArgs[++i]);
+                        break;
+                    default:
+                        if (map != null || theArgs[i].startsWith("--")) {
+                            throw new IllegalArgumentException(theArgs[i]);
+                        }
+                        map = new File(theArgs[i]);
+                        break;
+                }
+            }
+            if (map == null || ticks < 0 || seconds < 0 || warmup < 0 || threads < 1
+                || threads > 1 && engineType != EngineType.OBJECTS || parallelThreshold < 0
+                || checkpointEvery < 0 || checkpointEvery > 0 && checkpoint == null
+                || keyframeEvery < 1) {
+                throw new IllegalArgumentException();
+            }
+        } catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(USAGE);
+            System.exit(ERROR_STATUS);
+            return;
+        }
+
+        final CityMap city;
+        try {
+            city = CityMap.read(map.toPath());
+        } catch (final IOException ioe) {
+            System.err.println("Could not read city map file " + map + ": "
+                               + ioe.getMessage());
+            System.exit(ERROR_STATUS);
+            return;
+        }
+        System.out.println(city.getStats());
+        final SimulationEngine engine = engineType.create(city.getGrid(), city.getVehicles(),
+                                                          seed);
+        engine.setSignalPlan(city.getSignals());
+        engine.setCompiledRouting(compiled);
+        engine.setActiveSetEnabled(active);
+        ForkJoinPool pool = null;
+        if (threads > 1) {
+            pool = new ForkJoinPool(threads);
+            ((RoadRage) engine).setParallelTick(pool, parallelThreshold);
+        }
+
+        System.out.printf(Locale.ROOT, "map %s: %d x %d, %d vehicles, engine %s, seed %d%n",
+                          map, engine.getWidth(), engine.getHeight(),
+                          engine.getVehicleCount(), engineType, seed);
+        if (compiled) {
+            System.out.printf(Locale.ROOT, "compiled routing tables: %d bytes%n",
+                              engine.getRoutingTableBytes());
+        }
+        TickJournal journal = null;
+        if (journalFile != null) {
+            try {
+                journal = new TickJournal(engine, journalFile, keyframeEvery);
+            } catch (final IOException ioe) {
+                System.err.println("Could not create journal " + journalFile + ": "
+                                   + ioe.getMessage());
+                System.exit(ERROR_STATUS);
+                return;
+            }
+        }
+        engine.start();
+        if (restore != null) {
+            try {
+                engine.restore(Checkpoint.read(restore));
+            } catch (final IOException | IllegalArgumentException e) {
+                System.err.println("Could not restore checkpoint " + restore + ": "
+                                   + e.getMessage());
+                System.exit(ERROR_STATUS);
+                return;
+            }
+            System.out.printf(Locale.ROOT, "restored %s at update # %d%n", restore,
+                              engine.getTimeStep());
+        }
+        for (long t = 0; t < warmup; t++) {
+            engine.advance();
+        }
+
+        CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram capture = new LatencyHistogram();
+        long captureNanos = 0;
+        final long startMoves = engine.getMoveCount();
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        long now = start;
+        while (seconds > 0 ? now - deadline < 0 : latency.count() < ticks) {
+            engine.advance();
+            final long end = System.nanoTime();
+            latency.record(end - now);
+            now = end;
+            if (checkpointEvery > 0 && latency.count() % checkpointEvery == 0) {
+                written = writeAfter(written, engine.checkpoint(), checkpoint);
+                // the copy is timed on its own, not as part of the next tick
+                now = System.nanoTime();
+                capture.record(now - end);
+                captureNanos += now - end;
+            }
+        }
+        final double elapsed = (now - start - captureNanos) / NANOS_PER_SECOND;
+        final long moves = engine.getMoveCount() - startMoves;
+        if (pool != null) {
+            pool.shutdown();
+        }
+
+        report(latency, moves, elapsed);
+        if (capture.count() > 0) {
+            System.out.printf(Locale.ROOT, "checkpoint capture us: %d taken, mean %.1f, "
+                              + "max %.1f%n", capture.count(),
+                              capture.mean() / NANOS_PER_MICRO,
+                              capture.max() / NANOS_PER_MICRO);
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+                System.out.printf(Locale.ROOT, "journal %s: %d frames, %d bytes%n",
+                                  journalFile, journal.getFrameCount(), journal.getBytes());
+            } catch (final IOException ioe) {
+                System.err.println("Could not write journal " + journalFile + ": "
+                                   + ioe.getMessage());
+                System.exit(ERROR_STATUS);
+            }
+        }
+        if (checkpoint != null) {
+            try {
+                writeAfter(written, engine.checkpoint(), checkpoint).join();
+                System.out.printf(Locale.ROOT, "checkpoint %s at update # %d%n", checkpoint,
+                                  engine.getTimeStep());
+            } catch (final CompletionException e) {
+                System.err.println("Could not write checkpoint " + checkpoint + ": "
+                                   + e.getCause().getMessage());
+                System.exit(ERROR_STATUS);
+            }
+        }
+    }
+
+    /**
+     * Writes a checkpoint on another thread once an earlier write is done, so that
+     * checkpoints of the same file are written in order.
+     *
+     * @param theEarlier the earlier write
+     * @param theCheckpoint the checkpoint
+     * @param theFile the file
+     * @return a future completed once both are written
+     */
+    private static CompletableFuture<Void> writeAfter(final CompletableFuture<Void> theEarlier,
+                                                      final Checkpoint theCheckpoint,
+                                                      final Path theFile) {
+        return theEarlier.thenCompose(theDone -> theCheckpoint.writeAsync(theFile));
+    }
+
+    /**
+     * Prints the measured throughput and latency.
+     *
+     * @param theLatency the per-tick latencies in nanoseconds
+     * @param theMoves the number of vehicle moves measured
+     * @param theSeconds the measured wall-clock time in seconds
+     */
+    private static void report(final LatencyHistogram theLatency, final long theMoves,
+                               final double theSeconds) {
+        final double seconds = Math.max(theSeconds, Double.MIN_NORMAL);
+        System.out.printf(Locale.ROOT, "ticks %d in %.3f s: %.1f ticks/s, %.1f moves/s%n",
+                          theLatency.count(), theSeconds, theLatency.count() / seconds,
+                          theMoves / seconds);
+        System.out.printf(Locale.ROOT,
+                          "tick latency us: mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, "
+                          + "max %.1f%n",
+                          theLatency.mean() / NANOS_PER_MICRO,
+                          theLatency.percentile(50) / NANOS_PER_MICRO,
+                          theLatency.percentile(90) / NANOS_PER_MICRO,
+                          theLatency.percentile(99) / NANOS_PER_MICRO,
+                          theLatency.max() / NANOS_PER_MICRO);
+    }
+}
@@ -7,6 +7,9 @@
 import view.RoadRageGUI;
 
 import java.awt.*;
+import java.io.File;
+import logic.EngineType;
+import view.util.FileLoader;
 
 /**
  * Runs the Road Rage program.
@@ -18,6 +21,17 @@ import java.awt.*;
  */
 
 public final class RoadRageMain {
+
+    /**
+     * The exit status for bad arguments.
+     */
+    private static final int ERROR_STATUS = 2;
+
+    /**
+     * The usage message.
+     */
+    private static final String USAGE = "usage: RoadRageMain [--engine objects|arrays] [mapFile]"
+                    + "\n       RoadRageMain replay journalFile [mapFile]";
     
     /**
      * Private constructor to prevent construction of instances.
@@ -29,13 +43,62 @@ public final class RoadRageMain {
     /**
      * Constructs the main GUI window frame.
      * 
-     * @param theArgs Command line arguments (ignored).
+     * @param theArgs Command line arguments: optionally "--engine" and the name of the 
+     *                simulation engine to use, "objects" (the default) or "arrays", and
+     *                optionally the city map file to read. Or "replay", a journal file 
+     *                written by RoadRageBatch, then optionally the city map file the run 
+     *                was of.
      */
     public static void main(final String... theArgs) {
+        if (theArgs.length > 0 && "replay".equalsIgnoreCase(theArgs[0])) {
+            if (theArgs.length < 2 || theArgs.length > 3) {
+                System.err.println(USAGE);
+                System.exit(ERROR_STATUS);
+                return;
+            }
+            final File journal = new File(theArgs[1]);
+            final File city;
+            if (theArgs.length > 2) {
+                city = new File(theArgs[2]);
+            } else {
+                city = new File(FileLoader.CITY_FILE);
+            }
+            EventQueue.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    new RoadRageGUI(journal, city);
+                }
+            });
+            return;
+        }
+        EngineType engineType = EngineType.OBJECTS;
+        File map = null;
+        try {
+            for (int i = 0; i < theArgs.length; i++) {
+                if ("--engine".equals(theArgs[i])) {
+                    engineType = EngineType.valueOf(theArgs[++i].toUpperCase());
+                } else if (map != null || theArgs[i].startsWith("--")) {
+                    throw new IllegalArgumentException(theArgs[i]);
+                } else {
+                    map = new File(theArgs[i]);
+                }
+            }
+        } catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(USAGE);
+            System.exit(ERROR_STATUS);
+            return;
+        }
+        final EngineType engine = engineType;
+        final File city;
+        if (map != null) {
+            city = map;
+        } else {
+            city = new File(FileLoader.CITY_FILE);
+        }
         EventQueue.invokeLater(new Runnable() {
             @Override
             public void run() {
-                new RoadRageGUI();
+                new RoadRageGUI(engine, city);
             }
         });
     }
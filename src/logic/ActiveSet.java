@@ -0,0 +1,326 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * The vehicles a tick has to visit, for engines that skip the others.
+ *
+ * A dead vehicle does nothing but count pokes down to its revival, and a vehicle that
+ * keeps choosing the same blocked move does nothing until the light ahead of it changes.
+ * Either may be put to sleep until the time step it can act again: it leaves the active
+ * set, a bitset walked in id order, and waits in a timing wheel of time step slots. At
+ * the start of each tick the slot of that time step wakes the vehicles due.
+ *
+ * A vehicle asleep since it died missed one poke for every tick it slept; the engine
+ * gives them to it when it wakes, before its own poke of that tick. A vehicle parked at
+ * a light missed nothing, so it may be woken early, as when it is killed where it
+ * stands.
+ *
+ * @version 1 OCT 2018
+ */
+final class ActiveSet {
+
+    /**
+     * The wake time step of a vehicle never woken by the wheel.
+     */
+    static final long NEVER = Long.MAX_VALUE;
+
+    /**
+     * The wake time step of an awake vehicle.
+     */
+    private static final long AWAKE = -1;
+
+    /**
+     * The sleep time step of a vehicle parked alive.
+     */
+    private static final long PARKED = -1;
+
+    /**
+     * The number of slots of the timing wheel, a power of two. A vehicle due further
+     * ahead stays in its slot for more than one turn of the wheel.
+     */
+    private static final int SLOTS = 64;
+
+    /**
+     * The initial capacity of a slot.
+     */
+    private static final int INITIAL_SLOT_SIZE = 8;
+
+    /**
+     * The number of ids in a word of a bitset.
+     */
+    private static final int WORD_BITS = Long.SIZE;
+
+    /**
+     * The number of vehicles.
+     */
+    private final int myCount;
+
+    /**
+     * One bit per vehicle to be visited.
+     */
+    private final long[] myActive;
+
+    /**
+     * One bit per vehicle visited or woken during the current tick.
+     */
+    private final long[] myTouched;
+
+    /**
+     * The time step each vehicle is to be woken, AWAKE, or NEVER.
+     */
+    private final long[] myWake;
+
+    /**
+     * The time step each sleeping dead vehicle fell asleep, or PARKED.
+     */
+    private final long[] mySleep;
+
+    /**
+     * The ids waiting in each slot of the timing wheel.
+     */
+    private final int[][] mySlots;
+
+    /**
+     * The number of ids waiting in each slot.
+     */
+    private final int[] mySlotSizes;
+
+    /**
+     * Creates a set with every vehicle active.
+     *
+     * @param theCount the number of vehicles
+     */
+    ActiveSet(final int theCount) {
+        myCount = theCount;
+        myActive = new long[(theCount + WORD_BITS - 1) / WORD_BITS];
+        myTouched = new long[myActive.length];
+        myWake = new long[theCount];
+        mySleep = new long[theCount];
+        mySlots = new int[SLOTS][INITIAL_SLOT_SIZE];
+        mySlotSizes = new int[SLOTS];
+        clear();
+    }
+
+    /**
+     * Makes every vehicle active and empties the wheel. Vehicles asleep since they died
+     * keep the pokes they missed.
+     */
+    void wakeAll() {
+        Arrays.fill(myActive, -1L);
+        if (myCount % WORD_BITS != 0) {
+            myActive[myActive.length - 1] = (1L << myCount % WORD_BITS) - 1;
+        }
+        Arrays.fill(myTouched, 0);
+        Arrays.fill(myWake, AWAKE);
+        Arrays.fill(mySlotSizes, 0);
+    }
+
+    /**
+     * Forgets every vehicle's sleep, as when the vehicles are reset, and makes them all
+     * active.
+     */
+    void clear() {
+        Arrays.fill(mySleep, PARKED);
+        wakeAll();
+    }
+
+    /**
+     * Starts a tick: wakes the vehicles due at its time step.
+     *
+     * @param theTimeStep the time step being advanced from
+     */
+    void begin(final long theTimeStep) {
+        final int slot = (int) (theTimeStep & (SLOTS - 1));
+        final int[] ids = mySlots[slot];
+        int kept = 0;
+        for (int i = 0; i < mySlotSizes[slot]; i++) {
+            final int id = ids[i];
+            if (myWake[id] == theTimeStep) {
+                activate(id);
+            } else if (myWake[id] > theTimeStep && myWake[id] != NEVER
+                       && (int) (myWake[id] & (SLOTS - 1)) == slot) {
+                ids[kept++] = id;
+            }
+        }
+        mySlotSizes[slot] = kept;
+        System.arraycopy(myActive, 0, myTouched, 0, myActive.length);
+    }
+
+    /**
+     * Returns the first active vehicle at or after an id. Vehicles woken during a tick
+     * are found by the same tick if they come after the vehicle being visited.
+     *
+     * @param theId the id to search from
+     * @return the id of the vehicle, or -1 if there is none
+     */
+    int next(final int theId) {
+        return nextBit(myActive, theId);
+    }
+
+    /**
+     * Returns the first vehicle at or after an id that was visited or woken during the
+     * current tick: the only vehicles whose state may have changed.
+     *
+     * @param theId the id to search from
+     * @return the id of the vehicle, or -1 if there is none
+     */
+    int nextTouched(final int theId) {
+        return nextBit(myTouched, theId);
+    }
+
+    /**
+     * Marks a vehicle awake as it is visited.
+     *
+     * @param theId the vehicle
+     * @param theTimeStep the time step being advanced from
+     * @return the number of pokes it missed asleep since it died
+     */
+    int awaken(final int theId, final long theTimeStep) {
+        int result = 0;
+        if (mySleep[theId] != PARKED) {
+            result = (int) (theTimeStep - mySleep[theId] - 1);
+            mySleep[theId] = PARKED;
+        }
+        myWake[theId] = AWAKE;
+        return result;
+    }
+
+    /**
+     * Puts a dead vehicle to sleep until it revives.
+     *
+     * @param theId the vehicle
+     * @param theTimeStep the time step being advanced from
+     * @param theWake the time step of its reviving poke
+     */
+    void sleepDead(final int theId, final long theTimeStep, final long theWake) {
+        mySleep[theId] = theTimeStep;
+        sleep(theId, theWake);
+    }
+
+    /**
+     * Parks a live vehicle until its move may succeed.
+     *
+     * @param theId the vehicle
+     * @param theWake the time step the light ahead of it changes, or NEVER
+     */
+    void park(final int theId, final long theWake) {
+        mySleep[theId] = PARKED;
+        sleep(theId, theWake);
+    }
+
+    /**
+     * Returns whether a vehicle is parked alive.
+     *
+     * @param theId the vehicle
+     * @return whether it is parked
+     */
+    boolean isParked(final int theId) {
+        return myWake[theId] != AWAKE && mySleep[theId] == PARKED;
+    }
+
+    /**
+     * Wakes a parked vehicle before its time step, to be visited at its next turn.
+     *
+     * @param theId the vehicle
+     */
+    void wake(final int theId) {
+        myWake[theId] = AWAKE;
+        activate(theId);
+        myTouched[theId / WORD_BITS] |= 1L << theId;
+    }
+
+    /**
+     * Returns the number of active vehicles.
+     *
+     * @return the number of vehicles the next tick visits, before any are woken
+     */
+    int size() {
+        int result = 0;
+        for (final long word : myActive) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of pokes a vehicle asleep since it died has missed so far.
+     *
+     * @param theId the vehicle
+     * @param theTimeStep the time step about to be advanced from
+     * @return the number of missed pokes, 0 for a vehicle not asleep since it died
+     */
+    int missedPokes(final int theId, final long theTimeStep) {
+        int result = 0;
+        if (mySleep[theId] != PARKED) {
+            result = (int) (theTimeStep - mySleep[theId] - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of pokes a vehicle asleep since it died has missed so far, and
+     * counts it as asleep only from now on, for an engine that gives it those pokes
+     * without waking it.
+     *
+     * @param theId the vehicle
+     * @param theTimeStep the time step about to be advanced from
+     * @return the number of missed pokes, 0 for a vehicle not asleep since it died
+     */
+    int catchUp(final int theId, final long theTimeStep) {
+        final int result = missedPokes(theId, theTimeStep);
+        if (result > 0) {
+            mySleep[theId] += result;
+        }
+        return result;
+    }
+
+    /**
+     * Takes a vehicle out of the active set and files it in the wheel.
+     *
+     * @param theId the vehicle
+     * @param theWake the time step to wake it, or NEVER
+     */
+    private void sleep(final int theId, final long theWake) {
+        myActive[theId / WORD_BITS] &= ~(1L << theId);
+        myWake[theId] = theWake;
+        if (theWake != NEVER) {
+            final int slot = (int) (theWake & (SLOTS - 1));
+            if (mySlotSizes[slot] == mySlots[slot].length) {
+                mySlots[slot] = Arrays.copyOf(mySlots[slot], mySlotSizes[slot] * 2);
+            }
+            mySlots[slot][mySlotSizes[slot]++] = theId;
+        }
+    }
+
+    /**
+     * Puts a vehicle in the active set.
+     *
+     * @param theId the vehicle
+     */
+    private void activate(final int theId) {
+        myActive[theId / WORD_BITS] |= 1L << theId;
+    }
+
+    /**
+     * Returns the first set bit at or after an index.
+     *
+     * @param theBits the bitset
+     * @param theIndex the index to search from
+     * @return the index of the bit, or -1 if there is none
+     */
+    private int nextBit(final long[] theBits, final int theIndex) {
+        int result = -1;
+        if (theIndex < myCount) {
+            int word = theIndex / WORD_BITS;
+            long bits = theBits[word] & -1L << theIndex;
+            while (bits == 0 && ++word < theBits.length) {
+                bits = theBits[word];
+            }
+            if (bits != 0) {
+                result = word * WORD_BITS + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,1060 @@
+package logic;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import model.Direction;
+import model.LethalityMatrix;
+import model.Light;
+import model.Passability;
+import model.SignalPlan;
+import model.Taxi;
+import model.Terrain;
+import model.TerrainGrid;
+import model.Vehicle;
+import model.VehicleKind;
+import model.VehicleRandom;
+import model.VehicleState;
+
+/**
+ * An implementation of the RoadRage simulation that keeps the state of every vehicle in
+ * parallel primitive arrays instead of one object per vehicle. It follows the same rules
+ * as the vehicle classes in the model package and visits vehicles in the same order as
+ * RoadRage, so it can run maps with far more vehicles in the same heap.
+ *
+ * Listeners of PROPERTY_VEHICLES receive a detached copy of the vehicles after each
+ * tick, as model vehicles created as they are read. Making the copy takes time in the
+ * number of vehicles, so it is only made while someone listens.
+ *
+ * @version 1 OCT 2018
+ */
+public class ArrayRoadRage implements SimulationEngine {
+
+    /** Change in x for each Direction ordinal. */
+    private static final int[] DX = directionDeltas(true);
+
+    /** Change in y for each Direction ordinal. */
+    private static final int[] DY = directionDeltas(false);
+
+    /** Number of directions. */
+    private static final int DIRECTIONS = DX.length;
+
+    /** Cached Direction values, indexed by ordinal. */
+    private static final Direction[] DIRECTION_VALUES = Direction.values();
+
+    /** The ordinal of left() for each Direction ordinal. */
+    private static final int[] LEFT = new int[DIRECTIONS];
+
+    /** The ordinal of right() for each Direction ordinal. */
+    private static final int[] RIGHT = new int[DIRECTIONS];
+
+    /** The ordinal of reverse() for each Direction ordinal. */
+    private static final int[] REVERSE = new int[DIRECTIONS];
+
+    static {
+        for (final Direction dir : DIRECTION_VALUES) {
+            LEFT[dir.ordinal()] = dir.left().ordinal();
+            RIGHT[dir.ordinal()] = dir.right().ordinal();
+            REVERSE[dir.ordinal()] = dir.reverse().ordinal();
+        }
+    }
+
+    /** Cached VehicleKind values, indexed by ordinal. */
+    private static final VehicleKind[] KINDS = VehicleKind.values();
+
+    /** The TAXI ordinal. */
+    private static final int TAXI = VehicleKind.TAXI.ordinal();
+
+    /** Terrain ordinals, named for readability. */
+    private static final int GRASS = Terrain.GRASS.ordinal();
+
+    /** The STREET ordinal. */
+    private static final int STREET = Terrain.STREET.ordinal();
+
+    /** The LIGHT ordinal. */
+    private static final int LIGHT = Terrain.LIGHT.ordinal();
+
+    /** The TRAIL ordinal. */
+    private static final int TRAIL = Terrain.TRAIL.ordinal();
+
+    /** The CROSSWALK ordinal. */
+    private static final int CROSSWALK = Terrain.CROSSWALK.ordinal();
+
+    /**
+     * The terrain grid for the simulation.
+     */
+    private final TerrainGrid myGrid;
+
+    /**
+     * The precomputed neighborhood of every cell of the grid.
+     */
+    private final NeighborhoodTable myNeighborhoods;
+
+    /**
+     * Index of vehicle ids by occupied cell, used to find collisions.
+     */
+    private final CellIndex myCellIndex;
+
+    /**
+     * The number of vehicles.
+     */
+    private final int myCount;
+
+    /** The starting x position of each vehicle. */
+    private final int[] myInitialX;
+
+    /** The starting y position of each vehicle. */
+    private final int[] myInitialY;
+
+    /** The starting direction ordinal of each vehicle. */
+    private final byte[] myInitialDirection;
+
+    /** The VehicleKind ordinal of each vehicle. */
+    private final byte[] myKind;
+
+    /** The current x position of each vehicle. */
+    private final int[] myX;
+
+    /** The current y position of each vehicle. */
+    private final int[] myY;
+
+    /** The current direction ordinal of each vehicle. */
+    private final byte[] myDirection;
+
+    /** Whether each vehicle is alive. */
+    private final boolean[] myAlive;
+
+    /** The remaining death countdown of each vehicle. */
+    private final int[] myDeathTime;
+
+    /**
+     * The red light wait of each Taxi: 0 when it is not stopped, otherwise one more than
+     * the number of pokes left before it moves, as in Taxi.
+     */
+    private final byte[] myRedLightWait;
+
+    /**
+     * The source of random choices of each vehicle.
+     */
+    private final VehicleRandom[] myRandoms;
+
+    /**
+     * The root seed from which every vehicle's source of randomness is split.
+     */
+    private long mySeed;
+
+    /**
+     * Which kinds of vehicle die colliding with which.
+     */
+    private LethalityMatrix myLethality;
+
+    /**
+     * The compiled routing tables, or null to choose every direction live.
+     */
+    private RouteTable myRoutes;
+
+    /**
+     * The vehicles a tick visits, or null to visit every one.
+     */
+    private ActiveSet myActiveSet;
+
+    /**
+     * The choices of the kinds that may be parked, to tell whether a blocked vehicle
+     * will choose the same move again.
+     */
+    private RouteTable myParkRoutes;
+
+    /**
+     * Whether the last tick was run through the active set, so that only the vehicles
+     * it touched may have changed.
+     */
+    private boolean myScheduled;
+
+    /**
+     * The traffic signals.
+     */
+    private SignalPlan mySignals;
+
+    /**
+     * The current timestep of the simulation.
+     */
+    private long myTimestep;
+
+    /**
+     * The number of moves since the last reset.
+     */
+    private long myMoveCount;
+
+    /**
+     * The current light of the city-wide signal group.
+     */
+    private Light myLight;
+
+    /**
+     * The Passability mask of each VehicleKind ordinal under the city-wide light.
+     */
+    private final int[] myPassMasks;
+
+    /**
+     * Finds the vehicles that changed since the last vehicle delta.
+     */
+    private final DeltaTracker myDeltas;
+
+    /**
+     * Manager for Propery Change Listeners.
+     */
+    private final PropertyChangeSupport myPcs;
+
+    /**
+     *
+     * @param theGrid the grid of Terrain that defines the map
+     * @param theVehicles the starting state of the vehicles on the map
+     */
+    public ArrayRoadRage(final TerrainGrid theGrid, final VehicleRecords theVehicles) {
+        this(theGrid, theVehicles, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Creates a simulation whose random choices are split from the given seed the same
+     * way RoadRage splits them, so both make the same choices from the same seed.
+     *
+     * @param theGrid the grid of Terrain that defines the map
+     * @param theVehicles the starting state of the vehicles on the map
+     * @param theSeed the root seed of the vehicles' random choices
+     */
+    public ArrayRoadRage(final TerrainGrid theGrid, final VehicleRecords theVehicles,
+                         final long theSeed) {
+        myGrid = theGrid;
+        myNeighborhoods = new NeighborhoodTable(myGrid);
+        myCount = theVehicles.size();
+        myInitialX = new int[myCount];
+        myInitialY = new int[myCount];
+        myInitialDirection = new byte[myCount];
+        myKind = new byte[myCount];
+        myX = new int[myCount];
+        myY = new int[myCount];
+        myDirection = new byte[myCount];
+        myAlive = new boolean[myCount];
+        myDeathTime = new int[myCount];
+        myRedLightWait = new byte[myCount];
+        myPassMasks = new int[KINDS.length];
+        for (int i = 0; i < myCount; i++) {
+            myInitialX[i] = theVehicles.x(i);
+            myInitialY[i] = theVehicles.y(i);
+            myInitialDirection[i] = (byte) theVehicles.direction(i);
+            myKind[i] = (byte) theVehicles.kind(i);
+            myDeathTime[i] = KINDS[myKind[i]].startingDeathTime();
+        }
+        myCellIndex = new CellIndex(myCount);
+        myRandoms = new VehicleRandom[myCount];
+        myDeltas = new DeltaTracker(myCount);
+        myPcs = new PropertyChangeSupport(this);
+        resetVehicles();
+        myLethality = LethalityMatrix.STANDARD;
+        mySignals = new SignalPlan(myGrid.getWidth(), myGrid.getHeight());
+        setLightColor(Light.GREEN);
+        setSeed(theSeed);
+        setActiveSetEnabled(true);
+    }
+
+    /**
+     * Returns the root seed of the vehicles' random choices.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return mySeed;
+    }
+
+    /**
+     * Sets the root seed of the vehicles' random choices and gives every vehicle a fresh
+     * stream split from it, in order.
+     *
+     * @param theSeed the seed
+     */
+    public void setSeed(final long theSeed) {
+        mySeed = theSeed;
+        final VehicleRandom root = new VehicleRandom(theSeed);
+        for (int i = 0; i < myCount; i++) {
+            myRandoms[i] = root.split();
+        }
+    }
+
+    @Override
+    public void setLethality(final LethalityMatrix theLethality) {
+        myLethality = theLethality;
+        wakeAll();
+    }
+
+    @Override
+    public void setSignalPlan(final SignalPlan theSignals) {
+        if (theSignals.getWidth() != myGrid.getWidth()
+            || theSignals.getHeight() != myGrid.getHeight()) {
+            throw new IllegalArgumentException("Signal plan of " + theSignals.getWidth() + "x"
+                                               + theSignals.getHeight() + " for a grid of "
+                                               + myGrid.getWidth() + "x" + myGrid.getHeight());
+        }
+        mySignals = theSignals;
+        wakeAll();
+        myPcs.firePropertyChange(PROPERTY_SIGNALS, null, mySignals);
+    }
+
+    @Override
+    public void setCompiledRouting(final boolean theEnabled) {
+        if (!theEnabled) {
+            myRoutes = null;
+        } else if (myRoutes == null) {
+            final boolean[] kinds = new boolean[KINDS.length];
+            for (int i = 0; i < myCount; i++) {
+                kinds[myKind[i]] = true;
+            }
+            myRoutes = new RouteTable(kinds);
+        }
+    }
+
+    @Override
+    public long getRoutingTableBytes() {
+        return myRoutes == null ? 0 : myRoutes.bytes();
+    }
+
+    @Override
+    public void setActiveSetEnabled(final boolean theEnabled) {
+        if (!theEnabled) {
+            wakeAll();
+            myActiveSet = null;
+        } else if (myActiveSet == null) {
+            final boolean[] kinds = new boolean[KINDS.length];
+            for (int i = 0; i < myCount; i++) {
+                kinds[myKind[i]] = myKind[i] != TAXI;
+            }
+            myParkRoutes = new RouteTable(kinds);
+            myActiveSet = new ActiveSet(myCount);
+        }
+    }
+
+    @Override
+    public int getActiveVehicleCount() {
+        return myActiveSet == null ? myCount : myActiveSet.size();
+    }
+
+    @Override
+    public void advance() {
+        myScheduled = myActiveSet != null;
+        if (myActiveSet == null) {
+            for (int i = 0; i < myCount; i++) {
+                visit(i);
+            }
+        } else {
+            myActiveSet.begin(myTimestep);
+            for (int i = myActiveSet.next(0); i >= 0; i = myActiveSet.next(i + 1)) {
+                myDeathTime[i] -= myActiveSet.awaken(i, myTimestep);
+                schedule(i, visit(i));
+            }
+        }
+        advanceTimeStep();
+        setLightColor(mySignals.lightOf(SignalPlan.CITY_WIDE, myTimestep));
+        fireVehicleChange();
+    }
+
+    /**
+     * Gives a vehicle its turn of the tick.
+     *
+     * @param theId the vehicle
+     * @return whether the vehicle was alive and the light kept it from moving
+     */
+    private boolean visit(final int theId) {
+        final int i = theId;
+        final int oldX = myX[i];
+        final int oldY = myY[i];
+        boolean blocked = false;
+
+        // move the vehicle
+        if (myAlive[i]) {
+            final int code = myNeighborhoods.code(oldX, oldY);
+            final int newDirection;
+            if (myRoutes != null && myRoutes.isRouted(myKind[i])) {
+                newDirection = myRoutes.route(myKind[i], code, myDirection[i]);
+            } else {
+                newDirection = chooseDirection(i, code);
+            }
+            myDirection[i] = (byte) newDirection;
+
+            // move one square in current direction, if it's okay to do so
+            final int toX = oldX + DX[newDirection];
+            final int toY = oldY + DY[newDirection];
+            if (canPass(i, NeighborhoodTable.side(code, newDirection), lightAt(toX, toY))) {
+                myX[i] = toX;
+                myY[i] = toY;
+                myCellIndex.move(i, oldX, oldY, myX[i], myY[i]);
+                myMoveCount++;
+            } else {
+                blocked = true;
+            }
+        } else {
+            // become one move closer to revival
+            poke(i);
+        }
+
+        // look for collisions
+        collideInCell(i);
+        return blocked;
+    }
+
+    /**
+     * Puts a vehicle to sleep after its turn if it cannot act again soon: a dead one
+     * until its reviving poke, and a blocked one of a kind that may be parked, that will
+     * choose the same blocked move again, until the light ahead of it changes.
+     *
+     * @param theId the vehicle
+     * @param theBlocked whether the light kept it from moving
+     */
+    private void schedule(final int theId, final boolean theBlocked) {
+        if (!myAlive[theId]) {
+            myActiveSet.sleepDead(theId, myTimestep, myTimestep + myDeathTime[theId] + 1);
+        } else if (theBlocked && myParkRoutes.isRouted(myKind[theId])) {
+            final int heading = myDirection[theId];
+            final int code = myNeighborhoods.code(myX[theId], myY[theId]);
+            if (myParkRoutes.route(myKind[theId], code, heading) == heading) {
+                myActiveSet.park(theId, mySignals.nextChange(myX[theId] + DX[heading],
+                                                             myY[theId] + DY[heading],
+                                                             myTimestep));
+            }
+        }
+    }
+
+    /**
+     * Wakes every vehicle, first giving the vehicles asleep since they died the pokes
+     * they missed, as before anything that may change what the sleeping would do.
+     */
+    private void wakeAll() {
+        if (myActiveSet != null) {
+            for (int i = 0; i < myCount; i++) {
+                myDeathTime[i] -= myActiveSet.missedPokes(i, myTimestep);
+            }
+            myActiveSet.clear();
+        }
+    }
+
+    /**
+     * Returns the death countdown of a vehicle, counting the pokes it missed asleep.
+     *
+     * @param theId the vehicle
+     * @return its remaining death countdown
+     */
+    private int deathTime(final int theId) {
+        int result = myDeathTime[theId];
+        if (myActiveSet != null) {
+            result -= myActiveSet.missedPokes(theId, myTimestep);
+        }
+        return result;
+    }
+
+    @Override
+    public Checkpoint checkpoint() {
+        wakeAll();
+        final Checkpoint result = new Checkpoint(myGrid.getWidth(), myGrid.getHeight(),
+                                                 myCount, myTimestep, myMoveCount, mySeed,
+                                                 myLight);
+        for (int i = 0; i < myCount; i++) {
+            result.set(i, myKind[i], myX[i], myY[i], myDirection[i], myAlive[i],
+                       myDeathTime[i], myRedLightWait[i], myRandoms[i].getSeed(),
+                       myRandoms[i].getGamma());
+        }
+        return result;
+    }
+
+    @Override
+    public void restore(final Checkpoint theCheckpoint) {
+        theCheckpoint.checkFits(myGrid.getWidth(), myGrid.getHeight(), myKind);
+        myCellIndex.clear();
+        for (int i = 0; i < myCount; i++) {
+            myX[i] = theCheckpoint.x(i);
+            myY[i] = theCheckpoint.y(i);
+            myDirection[i] = (byte) theCheckpoint.direction(i);
+            myAlive[i] = theCheckpoint.isAlive(i);
+            myDeathTime[i] = theCheckpoint.deathTime(i);
+            myRedLightWait[i] = (byte) theCheckpoint.redLightWait(i);
+            myRandoms[i] = theCheckpoint.random(i);
+            myCellIndex.add(i, myX[i], myY[i]);
+        }
+        if (myActiveSet != null) {
+            myActiveSet.clear();
+        }
+        mySeed = theCheckpoint.getSeed();
+        myMoveCount = theCheckpoint.getMoveCount();
+        myDeltas.invalidate();
+        setLightColor(theCheckpoint.getLight());
+        setTimeStep(theCheckpoint.getTimeStep());
+        fireGridChange();
+        fireVehicleChange();
+    }
+
+    @Override
+    public void start() {
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        wakeAll();
+        resetVehicles();
+        setSeed(mySeed);
+        myMoveCount = 0;
+        myDeltas.invalidate();
+        setLightColor(Light.GREEN);
+        setTimeStep(0);
+        fireGridChange();
+        fireVehicleChange();
+    }
+
+    @Override
+    public int getHeight() {
+        return myGrid.getHeight();
+    }
+
+    @Override
+    public int getWidth() {
+        return myGrid.getWidth();
+    }
+
+    @Override
+    public long getTimeStep() {
+        return myTimestep;
+    }
+
+    @Override
+    public long getMoveCount() {
+        return myMoveCount;
+    }
+
+    @Override
+    public int getVehicleCount() {
+        return myCount;
+    }
+
+    @Override
+    public void addPropertyChangeListener(final PropertyChangeListener theListener) {
+        myPcs.addPropertyChangeListener(theListener);
+    }
+
+    @Override
+    public void removePropertyChangeListener(final PropertyChangeListener theListener) {
+        myPcs.removePropertyChangeListener(theListener);
+    }
+
+    @Override
+    public void addPropertyChangeListener(final String thePropertyName,
+                                          final PropertyChangeListener theListener) {
+        myPcs.addPropertyChangeListener(thePropertyName, theListener);
+    }
+
+    @Override
+    public void removePropertyChangeListener(final String thePropertyName,
+                                             final PropertyChangeListener theListener) {
+        myPcs.removePropertyChangeListener(thePropertyName, theListener);
+    }
+
+    /**
+     * Returns the direction a vehicle would like to move, following the
+     * chooseDirection rules of its kind.
+     *
+     * @param theId the vehicle
+     * @param theCode the neighborhood code of the vehicle's cell
+     * @return the Direction ordinal chosen
+     */
+    private int chooseDirection(final int theId, final int theCode) {
+        final int dir = myDirection[theId];
+        final int left = left(dir);
+        final int right = right(dir);
+        final int ahead = NeighborhoodTable.side(theCode, dir);
+        final int onLeft = NeighborhoodTable.side(theCode, left);
+        final int onRight = NeighborhoodTable.side(theCode, right);
+        final int result;
+        switch (KINDS[myKind[theId]]) {
+            case ATV:
+                result = randomNonReverse(theId, dir);
+                break;
+
+            case BICYCLE:
+                if (ahead == TRAIL) {
+                    result = dir;
+                } else if (onLeft == TRAIL) {
+                    result = left;
+                } else if (onRight == TRAIL) {
+                    result = right;
+                } else {
+                    result = firstRoad(dir, ahead, onLeft, onRight);
+                }
+                break;
+
+            case HUMAN:
+                if (onLeft == CROSSWALK) {
+                    result = left;
+                } else if (onRight == CROSSWALK) {
+                    result = right;
+                } else if (ahead == CROSSWALK) {
+                    result = dir;
+                } else {
+                    result = randomAmong(theId, dir, onLeft == GRASS, onRight == GRASS,
+                                         ahead == GRASS);
+                }
+                break;
+
+            case TRUCK:
+                result = randomAmong(theId, dir, isRoad(onLeft), isRoad(onRight), isRoad(ahead));
+                break;
+
+            default: // CAR and TAXI
+                result = firstRoad(dir, ahead, onLeft, onRight);
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Picks straight ahead, left or right, in that order of preference, whichever is a
+     * road, or reverses if none is.
+     *
+     * @param theDir the current Direction ordinal
+     * @param theAhead the terrain ahead
+     * @param theLeft the terrain to the left
+     * @param theRight the terrain to the right
+     * @return the Direction ordinal chosen
+     */
+    private static int firstRoad(final int theDir, final int theAhead, final int theLeft,
+                                 final int theRight) {
+        final int result;
+        if (isRoad(theAhead)) {
+            result = theDir;
+        } else if (isRoad(theLeft)) {
+            result = left(theDir);
+        } else if (isRoad(theRight)) {
+            result = right(theDir);
+        } else {
+            result = reverse(theDir);
+        }
+        return result;
+    }
+
+    /**
+     * Picks uniformly at random among the allowed turns, listed left, right, ahead, or
+     * reverses if none is allowed.
+     *
+     * @param theId the vehicle choosing
+     * @param theDir the current Direction ordinal
+     * @param theLeft whether turning left is allowed
+     * @param theRight whether turning right is allowed
+     * @param theAhead whether going straight is allowed
+     * @return the Direction ordinal chosen
+     */
+    private int randomAmong(final int theId, final int theDir, final boolean theLeft,
+                            final boolean theRight, final boolean theAhead) {
+        final int count = (theLeft ? 1 : 0) + (theRight ? 1 : 0) + (theAhead ? 1 : 0);
+        int result = reverse(theDir);
+        if (count > 0) {
+            int pick = myRandoms[theId].nextInt(count);
+            if (theLeft && pick-- == 0) {
+                result = left(theDir);
+            } else if (theRight && pick-- == 0) {
+                result = right(theDir);
+            } else {
+                result = theDir;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Picks a random direction other than the reverse of the given one.
+     *
+     * @param theId the vehicle choosing
+     * @param theDir the current Direction ordinal
+     * @return the Direction ordinal chosen
+     */
+    private int randomNonReverse(final int theId, final int theDir) {
+        int result = randomDirection(theId);
+        while (result == reverse(theDir)) {
+            result = randomDirection(theId);
+        }
+        return result;
+    }
+
+    /**
+     * Picks a random direction.
+     *
+     * @param theId the vehicle choosing
+     * @return a random Direction ordinal
+     */
+    private int randomDirection(final int theId) {
+        return myRandoms[theId].nextInt(DIRECTIONS);
+    }
+
+    /**
+     * Returns the light of a cell now.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @return the light of the cell's signal group
+     */
+    private Light lightAt(final int theX, final int theY) {
+        final Light result;
+        if (mySignals.isUniform()) {
+            result = myLight;
+        } else {
+            result = mySignals.lightAt(theX, theY, myTimestep);
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether a vehicle may move onto the given terrain under the given light,
+     * following the Passability mask of its kind. Updates a Taxi's red light wait.
+     *
+     * @param theId the vehicle
+     * @param theTerrain the Terrain ordinal, or NeighborhoodTable.OFF_MAP
+     * @param theLight the light of the cell moved onto
+     * @return whether the vehicle may move
+     */
+    private boolean canPass(final int theId, final int theTerrain, final Light theLight) {
+        final int kind = myKind[theId];
+        final int mask;
+        if (theLight == myLight) {
+            mask = myPassMasks[kind];
+        } else {
+            mask = Passability.mask(kind, theLight.ordinal());
+        }
+        final boolean result;
+        if (kind == TAXI) {
+            result = taxiCanPass(theId, theTerrain, theLight, mask);
+        } else {
+            result = (mask >>> theTerrain & 1) != 0;
+        }
+        return result;
+    }
+
+    /**
+     * The Taxi canPass rules: its Passability mask, except that a Taxi stopped at a red
+     * crosswalk goes through once it has waited.
+     *
+     * @param theId the Taxi
+     * @param theTerrain the Terrain ordinal, or NeighborhoodTable.OFF_MAP
+     * @param theLight the light of the cell moved onto
+     * @param theMask the Taxi Passability mask under that light
+     * @return whether the Taxi may move
+     */
+    private boolean taxiCanPass(final int theId, final int theTerrain, final Light theLight,
+                                final int theMask) {
+        if (myRedLightWait[theId] > 1) {
+            myRedLightWait[theId]--;
+        }
+        final int wait = myRedLightWait[theId];
+        boolean result = false;
+        if (theTerrain != CROSSWALK || theLight == Light.YELLOW) {
+            result = (theMask >>> theTerrain & 1) != 0;
+        } else if (theLight == Light.GREEN) {
+            myRedLightWait[theId] = 0;
+            result = true;
+        } else if (wait == 0) {
+            myRedLightWait[theId] = Taxi.RED_LIGHT_WAIT + 1;
+        } else if (wait == 1) {
+            myRedLightWait[theId] = 0;
+            result = true;
+        }
+        return result;
+    }
+
+    /**
+     * Counts a dead vehicle one move closer to revival, reviving it facing a random
+     * direction when its countdown has run out.
+     *
+     * @param theId the vehicle
+     */
+    private void poke(final int theId) {
+        if (myDeathTime[theId] > 0) {
+            myDeathTime[theId]--;
+        } else {
+            myDeathTime[theId] = KINDS[myKind[theId]].deathTime();
+            myAlive[theId] = true;
+            myDirection[theId] = (byte) randomDirection(theId);
+        }
+    }
+
+    /**
+     * Collides a vehicle with every other vehicle sharing its cell, visiting the others
+     * in id order, exactly as RoadRage does.
+     *
+     * @param theId the vehicle
+     */
+    private void collideInCell(final int theId) {
+        final int x = myX[theId];
+        final int y = myY[theId];
+        for (int id = myCellIndex.first(x, y); id != CellIndex.NONE;
+                        id = myCellIndex.next(id)) {
+            if (id != theId && x == myX[id] && y == myY[id]) {
+                collide(theId, id);
+                collide(id, theId);
+                if (!myAlive[id] && myActiveSet != null && myActiveSet.isParked(id)) {
+                    // killed where it stands; it starts counting down at its next turn
+                    myActiveSet.wake(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the collide rules of a vehicle's kind when it hits another vehicle.
+     *
+     * @param theId the vehicle being told about the collision
+     * @param theOther the vehicle it collided with
+     */
+    private void collide(final int theId, final int theOther) {
+        if (myAlive[theId] && myAlive[theOther]
+                        && myLethality.isLethal(myKind[theId], myKind[theOther])) {
+            myAlive[theId] = false;
+        }
+    }
+
+    /**
+     * Tests whether a terrain is one that cars, taxis, trucks and bicycles drive on.
+     *
+     * @param theTerrain the Terrain ordinal, or NeighborhoodTable.OFF_MAP
+     * @return true for STREET, LIGHT and CROSSWALK
+     */
+    private static boolean isRoad(final int theTerrain) {
+        return theTerrain == CROSSWALK || theTerrain == STREET || theTerrain == LIGHT;
+    }
+
+    /**
+     * Rotates a direction counter-clockwise by 90 degrees.
+     *
+     * @param theDir a Direction ordinal
+     * @return the Direction ordinal to the left
+     */
+    private static int left(final int theDir) {
+        return LEFT[theDir];
+    }
+
+    /**
+     * Rotates a direction clockwise by 90 degrees.
+     *
+     * @param theDir a Direction ordinal
+     * @return the Direction ordinal to the right
+     */
+    private static int right(final int theDir) {
+        return RIGHT[theDir];
+    }
+
+    /**
+     * Reverses a direction.
+     *
+     * @param theDir a Direction ordinal
+     * @return the opposite Direction ordinal
+     */
+    private static int reverse(final int theDir) {
+        return REVERSE[theDir];
+    }
+
+    /**
+     * Tabulates the change in x or y of a move in each direction.
+     *
+     * @param theX true for x, false for y
+     * @return the deltas indexed by Direction ordinal
+     */
+    private static int[] directionDeltas(final boolean theX) {
+        final Direction[] dirs = Direction.values();
+        final int[] result = new int[dirs.length];
+        for (final Direction dir : dirs) {
+            result[dir.ordinal()] = theX ? dir.dx() : dir.dy();
+        }
+        return result;
+    }
+
+    /**
+     * Sets the paint color appropriately for the current lights.
+     *
+     * @param theLight The Light to base the color on.
+     */
+    private void setLightColor(final Light theLight) {
+        final Light old = myLight;
+        myLight = theLight;
+        for (int kind = 0; kind < myPassMasks.length; kind++) {
+            myPassMasks[kind] = Passability.mask(kind, myLight.ordinal());
+        }
+        myPcs.firePropertyChange(PROPERTY_LIGHT, old, myLight);
+    }
+
+    /**
+     * Sets the time step for the simulation.
+     *
+     * @param theTimestep the time to set.
+     */
+    private void setTimeStep(final long theTimestep) {
+        final long old = myTimestep;
+        myTimestep = theTimestep;
+        myPcs.firePropertyChange(PROPERTY_TIME, old, myTimestep);
+    }
+
+    /**
+     * Advances the time step by 1 for the simulation.
+     */
+    private void advanceTimeStep() {
+        setTimeStep(myTimestep + 1);
+    }
+
+    /**
+     * Inform PropertyChagneListeners of the current state of vehicles, as a detached copy
+     * and as the vehicles that changed. Each is only built when someone is listening.
+     */
+    private void fireVehicleChange() {
+        if (myPcs.hasListeners(PROPERTY_VEHICLES)) {
+            myPcs.firePropertyChange(PROPERTY_VEHICLES, null, new SnapshotList(this));
+        }
+        if (myPcs.hasListeners(PROPERTY_VEHICLE_DELTA)) {
+            myDeltas.begin(myTimestep);
+            if (myScheduled && !myDeltas.isStale()) {
+                // the vehicles the tick neither visited nor woke are as they were
+                for (int i = myActiveSet.nextTouched(0); i >= 0;
+                                i = myActiveSet.nextTouched(i + 1)) {
+                    myDeltas.record(i, myKind[i], myX[i], myY[i], myDirection[i], myAlive[i]);
+                }
+            } else {
+                for (int i = 0; i < myCount; i++) {
+                    myDeltas.record(i, myKind[i], myX[i], myY[i], myDirection[i], myAlive[i]);
+                }
+            }
+            myPcs.firePropertyChange(PROPERTY_VEHICLE_DELTA, null, myDeltas.end());
+        } else {
+            myDeltas.invalidate();
+        }
+    }
+
+    /**
+     * Inform PropertyChagneListeners of the current Terrain grid state.
+     */
+    private void fireGridChange() {
+        myPcs.firePropertyChange(PROPERTY_GRID, null, myGrid);
+        myPcs.firePropertyChange(PROPERTY_SIGNALS, null, mySignals);
+    }
+
+    /**
+     * Reset all of the vehicles to their original position and direction, alive.
+     */
+    private void resetVehicles() {
+        System.arraycopy(myInitialX, 0, myX, 0, myCount);
+        System.arraycopy(myInitialY, 0, myY, 0, myCount);
+        System.arraycopy(myInitialDirection, 0, myDirection, 0, myCount);
+        Arrays.fill(myAlive, true);
+        myCellIndex.clear();
+        for (int i = 0; i < myCount; i++) {
+            myCellIndex.add(i, myX[i], myY[i]);
+        }
+    }
+
+    /**
+     * A detached copy of the state of every vehicle when it was made, read as model
+     * vehicles of their kinds. Each vehicle is created when it is first read and is the
+     * same object on every later read of the list. Every method of a vehicle works as on
+     * the vehicle classes, and changing one changes only the copy, never the simulation.
+     */
+    private static final class SnapshotList extends AbstractList<Vehicle> {
+
+        /** The VehicleKind ordinal of each vehicle, which never changes. */
+        private final byte[] myKind;
+
+        /** The starting x position of each vehicle, which never changes. */
+        private final int[] myInitialX;
+
+        /** The starting y position of each vehicle, which never changes. */
+        private final int[] myInitialY;
+
+        /** The starting direction ordinal of each vehicle, which never changes. */
+        private final byte[] myInitialDirection;
+
+        /** The x position of each vehicle. */
+        private final int[] myX;
+
+        /** The y position of each vehicle. */
+        private final int[] myY;
+
+        /** The direction ordinal of each vehicle. */
+        private final byte[] myDirection;
+
+        /** Whether each vehicle is alive. */
+        private final boolean[] myAlive;
+
+        /** The death countdown of each vehicle. */
+        private final int[] myDeathTime;
+
+        /** The red light wait of each Taxi. */
+        private final byte[] myRedLightWait;
+
+        /** The seed of the source of random choices of each vehicle. */
+        private final long[] myRandomSeed;
+
+        /** The gamma of the source of random choices of each vehicle. */
+        private final long[] myRandomGamma;
+
+        /** Which kinds of vehicle die colliding with which. */
+        private final LethalityMatrix myLethality;
+
+        /** The vehicles read so far, by index. */
+        private final Vehicle[] myVehicles;
+
+        /**
+         * Copies the current state of every vehicle of a simulation.
+         *
+         * @param theEngine the simulation
+         */
+        SnapshotList(final ArrayRoadRage theEngine) {
+            final int count = theEngine.myCount;
+            myKind = theEngine.myKind;
+            myInitialX = theEngine.myInitialX;
+            myInitialY = theEngine.myInitialY;
+            myInitialDirection = theEngine.myInitialDirection;
+            myX = Arrays.copyOf(theEngine.myX, count);
+            myY = Arrays.copyOf(theEngine.myY, count);
+            myDirection = Arrays.copyOf(theEngine.myDirection, count);
+            myAlive = Arrays.copyOf(theEngine.myAlive, count);
+            myRedLightWait = Arrays.copyOf(theEngine.myRedLightWait, count);
+            myDeathTime = new int[count];
+            myRandomSeed = new long[count];
+            myRandomGamma = new long[count];
+            for (int i = 0; i < count; i++) {
+                myDeathTime[i] = theEngine.deathTime(i);
+                myRandomSeed[i] = theEngine.myRandoms[i].getSeed();
+                myRandomGamma[i] = theEngine.myRandoms[i].getGamma();
+            }
+            myLethality = theEngine.myLethality;
+            myVehicles = new Vehicle[count];
+        }
+
+        @Override
+        public Vehicle get(final int theIndex) {
+            if (theIndex < 0 || theIndex >= myVehicles.length) {
+                throw new IndexOutOfBoundsException(String.valueOf(theIndex));
+            }
+            Vehicle result = myVehicles[theIndex];
+            if (result == null) {
+                result = KINDS[myKind[theIndex]].newVehicle(
+                    myInitialX[theIndex], myInitialY[theIndex],
+                    DIRECTION_VALUES[myInitialDirection[theIndex]]);
+                VehicleState.restore(result, myX[theIndex], myY[theIndex],
+                                     DIRECTION_VALUES[myDirection[theIndex]],
+                                     myAlive[theIndex], myDeathTime[theIndex],
+                                     myRedLightWait[theIndex]);
+                VehicleState.setRandom(result, new VehicleRandom(myRandomSeed[theIndex],
+                                                                 myRandomGamma[theIndex]));
+                VehicleState.setLethality(result, myLethality);
+                myVehicles[theIndex] = result;
+            }
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return myVehicles.length;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * A spatial hash of vehicle ids keyed by the grid cell each vehicle occupies.
+ *
+ * Every id lives in exactly one bucket chain. Chains are kept sorted by id so that the
+ * occupants of a cell are visited in the same order as the simulation's vehicle list.
+ * Different cells may share a bucket, so callers must still compare coordinates of the
+ * ids they visit.
+ *
+ * @version 1 OCT 2018
+ */
+final class CellIndex {
+
+    /**
+     * Marks the end of a bucket chain.
+     */
+    static final int NONE = -1;
+
+    /**
+     * The smallest number of buckets used.
+     */
+    private static final int MIN_BUCKETS = 16;
+
+    /**
+     * Mixing constant for the x coordinate.
+     */
+    private static final int X_MIX = 0x9E3779B1;
+
+    /**
+     * Mixing constant for the y coordinate.
+     */
+    private static final int Y_MIX = 0x85EBCA77;
+
+    /**
+     * The first id of each bucket chain.
+     */
+    private final int[] myHeads;
+
+    /**
+     * The next id in the chain for each id.
+     */
+    private final int[] myNext;
+
+    /**
+     * Mask used to reduce a hash to a bucket.
+     */
+    private final int myMask;
+
+    /**
+     * Creates an empty index for ids 0 (inclusive) to theCapacity (exclusive).
+     *
+     * @param theCapacity the number of ids the index may hold
+     */
+    CellIndex(final int theCapacity) {
+        int buckets = MIN_BUCKETS;
+        while (buckets < theCapacity * 2 && buckets < 1 << 30) {
+            buckets <<= 1;
+        }
+        myHeads = new int[buckets];
+        myNext = new int[theCapacity];
+        myMask = buckets - 1;
+        clear();
+    }
+
+    /**
+     * Returns the number of ids the index may hold.
+     *
+     * @return the capacity given when the index was created
+     */
+    int capacity() {
+        return myNext.length;
+    }
+
+    /**
+     * Removes every id from the index.
+     */
+    void clear() {
+        Arrays.fill(myHeads, NONE);
+        Arrays.fill(myNext, NONE);
+    }
+
+    /**
+     * Adds an id to the chain of the given cell.
+     *
+     * @param theId the id to add
+     * @param theX the x position of the cell
+     * @param theY the y position of the cell
+     */
+    void add(final int theId, final int theX, final int theY) {
+        final int bucket = bucket(theX, theY);
+        int prev = NONE;
+        int cur = myHeads[bucket];
+        while (cur != NONE && cur < theId) {
+            prev = cur;
+            cur = myNext[cur];
+        }
+        myNext[theId] = cur;
+        if (prev == NONE) {
+            myHeads[bucket] = theId;
+        } else {
+            myNext[prev] = theId;
+        }
+    }
+
+    /**
+     * Removes an id from the chain of the given cell.
+     *
+     * @param theId the id to remove
+     * @param theX the x position of the cell the id was added with
+     * @param theY the y position of the cell the id was added with
+     */
+    void remove(final int theId, final int theX, final int theY) {
+        final int bucket = bucket(theX, theY);
+        int prev = NONE;
+        int cur = myHeads[bucket];
+        while (cur != NONE && cur != theId) {
+            prev = cur;
+            cur = myNext[cur];
+        }
+        if (cur == NONE) {
+            return;
+        }
+        if (prev == NONE) {
+            myHeads[bucket] = myNext[cur];
+        } else {
+            myNext[prev] = myNext[cur];
+        }
+        myNext[cur] = NONE;
+    }
+
+    /**
+     * Moves an id from one cell to another. Does nothing when both cells share a bucket.
+     *
+     * @param theId the id to move
+     * @param theOldX the previous x position
+     * @param theOldY the previous y position
+     * @param theNewX the new x position
+     * @param theNewY the new y position
+     */
+    void move(final int theId, final int theOldX, final int theOldY,
+              final int theNewX, final int theNewY) {
+        if (bucket(theOldX, theOldY) != bucket(theNewX, theNewY)) {
+            remove(theId, theOldX, theOldY);
+            add(theId, theNewX, theNewY);
+        }
+    }
+
+    /**
+     * Returns the lowest id in the bucket holding the given cell.
+     *
+     * @param theX the x position of the cell
+     * @param theY the y position of the cell
+     * @return the first id in the chain, or NONE
+     */
+    int first(final int theX, final int theY) {
+        return myHeads[bucket(theX, theY)];
+    }
+
+    /**
+     * Returns the id following the given one in its bucket chain.
+     *
+     * @param theId an id currently in the index
+     * @return the next id in the chain, or NONE
+     */
+    int next(final int theId) {
+        return myNext[theId];
+    }
+
+    /**
+     * Hashes a cell to a bucket.
+     *
+     * @param theX the x position of the cell
+     * @param theY the y position of the cell
+     * @return the bucket index
+     */
+    private int bucket(final int theX, final int theY) {
+        final int h = theX * X_MIX ^ theY * Y_MIX;
+        return (h ^ h >>> 16) & myMask;
+    }
+}
@@ -0,0 +1,540 @@
+package logic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import model.Direction;
+import model.Light;
+import model.VehicleKind;
+import model.VehicleRandom;
+
+/**
+ * The full state of a simulation between two ticks, to be saved to a file and restored
+ * later into a simulation of the same map, of either engine.
+ *
+ * A checkpoint is taken on the simulation's thread by copying its state into the arrays
+ * here, and nothing else; encoding and writing the file may then happen on another
+ * thread while the simulation goes on ticking.
+ *
+ * A file is a header and a table of vehicles, all big-endian:
+ * <pre>
+ *  0  int   MAGIC, "RRCK"
+ *  4  short VERSION
+ *  6  short HEADER_BYTES, the offset of the vehicles
+ *  8  int   columns
+ * 12  int   rows
+ * 16  int   vehicles
+ * 20  byte  Light ordinal of the city-wide group
+ * 21  byte  RECORD_BYTES, the size of one vehicle record
+ * 22  short zero
+ * 24  long  time step
+ * 32  long  moves since the last reset
+ * 40  long  root seed
+ * </pre>
+ * Each vehicle record is its VehicleKind ordinal, Direction ordinal, 1 if it is alive
+ * and otherwise 0, and red light wait as bytes, then its x, y and death countdown as
+ * ints, then the seed and gamma of its source of random choices as longs.
+ *
+ * Taking a checkpoint only reads the simulation: the state of every vehicle's
+ * VehicleRandom is saved as it is, so a run goes on the same whether or not checkpoints
+ * are taken of it.
+ *
+ * @version 1 OCT 2018
+ */
+public final class Checkpoint {
+
+    /**
+     * The first four bytes of every checkpoint file.
+     */
+    static final int MAGIC = 'R' << 24 | 'R' << 16 | 'C' << 8 | 'K';
+
+    /**
+     * The version of the format written, and the newest read.
+     */
+    static final short VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    static final short HEADER_BYTES = 48;
+
+    /**
+     * The size of one vehicle record in bytes.
+     */
+    static final byte RECORD_BYTES = 32;
+
+    /**
+     * The number of vehicle records written at once.
+     */
+    private static final int RECORDS_PER_WRITE = 4096;
+
+    /**
+     * The offset of the number of columns in the header.
+     */
+    private static final int COLUMNS_OFFSET = 8;
+
+    /**
+     * The offset of the number of vehicles in the header.
+     */
+    private static final int VEHICLES_OFFSET = 16;
+
+    /**
+     * The offset of the light in the header.
+     */
+    private static final int LIGHT_OFFSET = 20;
+
+    /**
+     * The offset of the time step in the header.
+     */
+    private static final int TIME_STEP_OFFSET = 24;
+
+    /** Cached VehicleKind values, indexed by ordinal. */
+    private static final VehicleKind[] KINDS = VehicleKind.values();
+
+    /** Cached Direction values, indexed by ordinal. */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** Cached Light values, indexed by ordinal. */
+    private static final Light[] LIGHTS = Light.values();
+
+    /**
+     * The number of columns of the map.
+     */
+    private final int myWidth;
+
+    /**
+     * The number of rows of the map.
+     */
+    private final int myHeight;
+
+    /**
+     * The time step.
+     */
+    private final long myTimeStep;
+
+    /**
+     * The number of moves since the last reset.
+     */
+    private final long myMoveCount;
+
+    /**
+     * The root seed that a reset splits the vehicles' random choices from.
+     */
+    private final long mySeed;
+
+    /**
+     * The light of the city-wide signal group.
+     */
+    private final Light myLight;
+
+    /** The VehicleKind ordinal of each vehicle. */
+    private final byte[] myKinds;
+
+    /** The x position of each vehicle. */
+    private final int[] myXs;
+
+    /** The y position of each vehicle. */
+    private final int[] myYs;
+
+    /** The Direction ordinal of each vehicle. */
+    private final byte[] myDirections;
+
+    /** Whether each vehicle is alive. */
+    private final boolean[] myAlive;
+
+    /** The death countdown of each vehicle. */
+    private final int[] myDeathTimes;
+
+    /** The red light wait of each vehicle, as kept by Taxi, 0 for other kinds. */
+    private final byte[] myRedLightWaits;
+
+    /** The seed of each vehicle's source of random choices. */
+    private final long[] myRandomSeeds;
+
+    /** The gamma of each vehicle's source of random choices. */
+    private final long[] myRandomGammas;
+
+    /**
+     * Creates a checkpoint whose vehicles are then filled in with set.
+     *
+     * @param theWidth the number of columns of the map
+     * @param theHeight the number of rows of the map
+     * @param theCount the number of vehicles
+     * @param theTimeStep the time step
+     * @param theMoveCount the number of moves since the last reset
+     * @param theSeed the root seed
+     * @param theLight the light of the city-wide signal group
+     */
+    Checkpoint(final int theWidth, final int theHeight, final int theCount,
+               final long theTimeStep, final long theMoveCount, final long theSeed,
+               final Light theLight) {
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myTimeStep = theTimeStep;
+        myMoveCount = theMoveCount;
+        mySeed = theSeed;
+        myLight = theLight;
+        myKinds = new byte[theCount];
+        myXs = new int[theCount];
+        myYs = new int[theCount];
+        myDirections = new byte[theCount];
+        myAlive = new boolean[theCount];
+        myDeathTimes = new int[theCount];
+        myRedLightWaits = new byte[theCount];
+        myRandomSeeds = new long[theCount];
+        myRandomGammas = new long[theCount];
+    }
+
+    /**
+     * Fills in a vehicle.
+     *
+     * @param theId the vehicle
+     * @param theKind the VehicleKind ordinal
+     * @param theX the x position
+     * @param theY the y position
+     * @param theDirection the Direction ordinal
+     * @param theAlive whether it is alive
+     * @param theDeathTime its death countdown
+     * @param theRedLightWait its red light wait
+     * @param theRandomSeed the seed of its source of random choices
+     * @param theRandomGamma the gamma of its source of random choices
+     */
+    void set(final int theId, final int theKind, final int theX, final int theY,
+             final int theDirection, final boolean theAlive, final int theDeathTime,
+             final int theRedLightWait, final long theRandomSeed,
+             final long theRandomGamma) {
+        myKinds[theId] = (byte) theKind;
+        myXs[theId] = theX;
+        myYs[theId] = theY;
+        myDirections[theId] = (byte) theDirection;
+        myAlive[theId] = theAlive;
+        myDeathTimes[theId] = theDeathTime;
+        myRedLightWaits[theId] = (byte) theRedLightWait;
+        myRandomSeeds[theId] = theRandomSeed;
+        myRandomGammas[theId] = theRandomGamma;
+    }
+
+    /**
+     * Checks that the checkpoint can be restored into a simulation.
+     *
+     * @param theWidth the number of columns of the simulation's map
+     * @param theHeight the number of rows of the simulation's map
+     * @param theKinds the VehicleKind ordinal of each of its vehicles
+     * @throws IllegalArgumentException if the map size or the vehicles differ
+     */
+    void checkFits(final int theWidth, final int theHeight, final byte[] theKinds) {
+        if (theWidth != myWidth || theHeight != myHeight) {
+            throw new IllegalArgumentException("Checkpoint of a " + myWidth + "x" + myHeight
+                                               + " map for a map of " + theWidth + "x"
+                                               + theHeight);
+        }
+        if (theKinds.length != myKinds.length) {
+            throw new IllegalArgumentException("Checkpoint of " + myKinds.length
+                                               + " vehicles for " + theKinds.length);
+        }
+        for (int i = 0; i < theKinds.length; i++) {
+            if (theKinds[i] != myKinds[i]) {
+                throw new IllegalArgumentException("Vehicle " + i + " is a "
+                                                   + KINDS[myKinds[i]] + " in the checkpoint");
+            }
+        }
+    }
+
+    /**
+     * Access the time step.
+     *
+     * @return the time step
+     */
+    public long getTimeStep() {
+        return myTimeStep;
+    }
+
+    /**
+     * Access the number of moves since the last reset.
+     *
+     * @return the number of moves
+     */
+    public long getMoveCount() {
+        return myMoveCount;
+    }
+
+    /**
+     * Access the root seed that a reset splits the vehicles' random choices from.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return mySeed;
+    }
+
+    /**
+     * Access the light of the city-wide signal group.
+     *
+     * @return the light
+     */
+    public Light getLight() {
+        return myLight;
+    }
+
+    /**
+     * Access the number of columns of the map.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Access the number of rows of the map.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Access the number of vehicles.
+     *
+     * @return the number of vehicles
+     */
+    public int getVehicleCount() {
+        return myKinds.length;
+    }
+
+    /**
+     * Returns the x position of a vehicle.
+     *
+     * @param theId the vehicle
+     * @return the x position
+     */
+    int x(final int theId) {
+        return myXs[theId];
+    }
+
+    /**
+     * Returns the y position of a vehicle.
+     *
+     * @param theId the vehicle
+     * @return the y position
+     */
+    int y(final int theId) {
+        return myYs[theId];
+    }
+
+    /**
+     * Returns the Direction ordinal of a vehicle.
+     *
+     * @param theId the vehicle
+     * @return the Direction ordinal
+     */
+    int direction(final int theId) {
+        return myDirections[theId];
+    }
+
+    /**
+     * Returns whether a vehicle is alive.
+     *
+     * @param theId the vehicle
+     * @return whether it is alive
+     */
+    boolean isAlive(final int theId) {
+        return myAlive[theId];
+    }
+
+    /**
+     * Returns the death countdown of a vehicle.
+     *
+     * @param theId the vehicle
+     * @return its death countdown
+     */
+    int deathTime(final int theId) {
+        return myDeathTimes[theId];
+    }
+
+    /**
+     * Returns the red light wait of a vehicle.
+     *
+     * @param theId the vehicle
+     * @return its red light wait
+     */
+    int redLightWait(final int theId) {
+        return myRedLightWaits[theId];
+    }
+
+    /**
+     * Returns a copy of a vehicle's source of random choices, in the state it was in.
+     *
+     * @param theId the vehicle
+     * @return the source of random choices
+     */
+    VehicleRandom random(final int theId) {
+        return new VehicleRandom(myRandomSeeds[theId], myRandomGammas[theId]);
+    }
+
+    /**
+     * Writes the checkpoint on another thread. The checkpoint is not changed by the
+     * simulation it came from, so the simulation may keep ticking meanwhile.
+     *
+     * @param theFile the file, replaced once the whole checkpoint is written
+     * @return a future completed once the file is written, or exceptionally with an
+     *         UncheckedIOException if it cannot be
+     */
+    public CompletableFuture<Void> writeAsync(final Path theFile) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                write(theFile);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Writes the checkpoint. It is written next to the file first and then moved over
+     * it, so a failed or interrupted write leaves any older checkpoint of that name
+     * whole.
+     *
+     * @param theFile the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final Path theFile) throws IOException {
+        final Path partial = theFile.resolveSibling(theFile.getFileName() + ".part");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putShort(VERSION).putShort(HEADER_BYTES);
+            header.putInt(myWidth).putInt(myHeight).putInt(myKinds.length);
+            header.put((byte) myLight.ordinal()).put(RECORD_BYTES).putShort((short) 0);
+            header.putLong(myTimeStep).putLong(myMoveCount).putLong(mySeed);
+            header.flip();
+            writeFully(channel, header);
+
+            final ByteBuffer table = ByteBuffer.allocate(RECORD_BYTES * RECORDS_PER_WRITE);
+            for (int i = 0; i < myKinds.length; i++) {
+                table.put(myKinds[i]).put(myDirections[i]).put((byte) (myAlive[i] ? 1 : 0));
+                table.put(myRedLightWaits[i]).putInt(myXs[i]).putInt(myYs[i]);
+                table.putInt(myDeathTimes[i]).putLong(myRandomSeeds[i]);
+                table.putLong(myRandomGammas[i]);
+                if (!table.hasRemaining()) {
+                    table.flip();
+                    writeFully(channel, table);
+                    table.clear();
+                }
+            }
+            table.flip();
+            writeFully(channel, table);
+            channel.force(false);
+        }
+        try {
+            Files.move(partial, theFile, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(partial, theFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a checkpoint file, mapping the whole vehicle table at once.
+     *
+     * @param theFile the file
+     * @return the checkpoint
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    public static Checkpoint read(final Path theFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(theFile, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw malformed(theFile, "truncated header");
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                  HEADER_BYTES);
+            final short version = header.getShort(Integer.BYTES);
+            if (header.getInt(0) != MAGIC) {
+                throw malformed(theFile, "not a checkpoint");
+            }
+            if (version < 1 || version > VERSION) {
+                throw malformed(theFile, "unsupported version " + version);
+            }
+            final int headerBytes = header.getShort(Integer.BYTES + Short.BYTES);
+            final int columns = header.getInt(COLUMNS_OFFSET);
+            final int rows = header.getInt(COLUMNS_OFFSET + Integer.BYTES);
+            final int count = header.getInt(VEHICLES_OFFSET);
+            final int light = header.get(LIGHT_OFFSET);
+            if (header.get(LIGHT_OFFSET + 1) != RECORD_BYTES) {
+                throw malformed(theFile, "unknown vehicle record size");
+            }
+            if (headerBytes < HEADER_BYTES || columns < 0 || rows < 0 || count < 0
+                || light < 0 || light >= LIGHTS.length) {
+                throw malformed(theFile, "bad header");
+            }
+            if (headerBytes + (long) count * RECORD_BYTES > size) {
+                throw malformed(theFile, "truncated vehicles");
+            }
+            final Checkpoint result =
+                new Checkpoint(columns, rows, count, header.getLong(TIME_STEP_OFFSET),
+                               header.getLong(TIME_STEP_OFFSET + Long.BYTES),
+                               header.getLong(TIME_STEP_OFFSET + 2 * Long.BYTES),
+                               LIGHTS[light]);
+
+            final ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, headerBytes,
+                                                 (long) count * RECORD_BYTES);
+            for (int i = 0; i < count; i++) {
+                final int kind = table.get();
+                final int direction = table.get();
+                final int alive = table.get();
+                final int wait = table.get();
+                final int x = table.getInt();
+                final int y = table.getInt();
+                final int deathTime = table.getInt();
+                final long seed = table.getLong();
+                final long gamma = table.getLong();
+                if (kind < 0 || kind >= KINDS.length || direction < 0
+                    || direction >= DIRECTIONS.length || alive >>> 1 != 0 || wait < 0
+                    || (gamma & 1) == 0) {
+                    throw malformed(theFile, "vehicle " + i + " has kind " + kind
+                                             + ", direction " + direction + ", alive "
+                                             + alive + ", wait " + wait + " and gamma "
+                                             + gamma);
+                }
+                result.set(i, kind, x, y, direction, alive == 1, deathTime, wait, seed,
+                           gamma);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Writes every remaining byte of a buffer.
+     *
+     * @param theChannel the file
+     * @param theBuffer the bytes
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFully(final FileChannel theChannel, final ByteBuffer theBuffer)
+        throws IOException {
+        while (theBuffer.hasRemaining()) {
+            theChannel.write(theBuffer);
+        }
+    }
+
+    /**
+     * Creates the exception for a file that is not a checkpoint.
+     *
+     * @param theFile the file
+     * @param theProblem what is wrong with it
+     * @return the exception
+     */
+    private static IOException malformed(final Path theFile, final String theProblem) {
+        return new IOException("Malformed checkpoint file " + theFile + ": " + theProblem);
+    }
+}
@@ -0,0 +1,127 @@
+package logic;
+
+/**
+ * Remembers the state of every vehicle as of the last delta, and fills a VehicleDelta
+ * with the vehicles whose state differs from it.
+ *
+ * @version 1 OCT 2018
+ */
+final class DeltaTracker {
+
+    /**
+     * The x position of each vehicle at the last delta.
+     */
+    private final int[] myX;
+
+    /**
+     * The y position of each vehicle at the last delta.
+     */
+    private final int[] myY;
+
+    /**
+     * The Direction ordinal of each vehicle at the last delta.
+     */
+    private final byte[] myDirection;
+
+    /**
+     * Whether each vehicle was alive at the last delta.
+     */
+    private final boolean[] myAlive;
+
+    /**
+     * The buffer filled, reused from tick to tick.
+     */
+    private final VehicleDelta myDelta;
+
+    /**
+     * Whether the remembered state is out of date, so the next delta lists everything.
+     */
+    private boolean myStale;
+
+    /**
+     * Creates a tracker whose first delta lists every vehicle.
+     *
+     * @param theCount the number of vehicles
+     */
+    DeltaTracker(final int theCount) {
+        myX = new int[theCount];
+        myY = new int[theCount];
+        myDirection = new byte[theCount];
+        myAlive = new boolean[theCount];
+        myDelta = new VehicleDelta();
+        myStale = true;
+    }
+
+    /**
+     * Makes the next delta list every vehicle, as when the simulation is reset or when
+     * ticks went by without a delta being made.
+     */
+    void invalidate() {
+        myStale = true;
+    }
+
+    /**
+     * Returns whether the next delta lists every vehicle.
+     *
+     * @return whether the remembered state is out of date
+     */
+    boolean isStale() {
+        return myStale;
+    }
+
+    /**
+     * Starts a delta. Every vehicle that may have changed since the last delta must then
+     * be recorded, in id order; every vehicle, if the tracker is stale.
+     *
+     * @param theTimeStep the time step the delta leads to
+     */
+    void begin(final long theTimeStep) {
+        myDelta.begin(theTimeStep, myX.length, myStale);
+    }
+
+    /**
+     * Records the current state of a vehicle, adding it to the delta if it changed.
+     *
+     * @param theId the vehicle id
+     * @param theKind the VehicleKind ordinal, or -1
+     * @param theX the x position
+     * @param theY the y position
+     * @param theDirection the Direction ordinal
+     * @param theAlive whether the vehicle is alive
+     */
+    void record(final int theId, final int theKind, final int theX, final int theY,
+                final int theDirection, final boolean theAlive) {
+        int flags = 0;
+        if (!myStale) {
+            if (theX != myX[theId] || theY != myY[theId]) {
+                flags |= VehicleDelta.MOVED;
+            }
+            if (theDirection != myDirection[theId]) {
+                flags |= VehicleDelta.TURNED;
+            }
+            if (theAlive != myAlive[theId]) {
+                flags |= theAlive ? VehicleDelta.REVIVED : VehicleDelta.DIED;
+            }
+        }
+        if (myStale || flags != 0) {
+            if (theAlive) {
+                flags |= VehicleDelta.ALIVE;
+            }
+            myDelta.add(theId, flags, theKind, theX, theY, theDirection);
+            myX[theId] = theX;
+            myY[theId] = theY;
+            myDirection[theId] = (byte) theDirection;
+            myAlive[theId] = theAlive;
+        }
+    }
+
+    /**
+     * Finishes a delta.
+     *
+     * @return the delta
+     */
+    VehicleDelta end() {
+        myStale = false;
+        return myDelta;
+    }
+}
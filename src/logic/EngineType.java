@@ -0,0 +1,60 @@
+package logic;
+
+import model.TerrainGrid;
+
+/**
+ * The available implementations of the Road Rage simulation.
+ * 
+ * @version 1 OCT 2018
+ */
+public enum EngineType {
+    
+    /**
+     * RoadRage, which moves one Vehicle object per vehicle.
+     */
+    OBJECTS,
+    
+    /**
+     * ArrayRoadRage, which keeps vehicle state in parallel primitive arrays.
+     */
+    ARRAYS;
+    
+    /**
+     * Creates a simulation of this type.
+     * 
+     * @param theGrid the grid of Terrain that defines the map
+     * @param theVehicles the starting state of the vehicles on the map
+     * @return the new simulation
+     */
+    public SimulationEngine create(final TerrainGrid theGrid,
+                                   final VehicleRecords theVehicles) {
+        final SimulationEngine result;
+        if (this == ARRAYS) {
+            result = new ArrayRoadRage(theGrid, theVehicles);
+        } else {
+            result = new RoadRage(theGrid, theVehicles.toVehicles());
+        }
+        return result;
+    }
+    
+    /**
+     * Creates a simulation of this type whose random choices follow from a seed. Both
+     * types make the same choices from the same seed.
+     * 
+     * @param theGrid the grid of Terrain that defines the map
+     * @param theVehicles the starting state of the vehicles on the map
+     * @param theSeed the root seed of the vehicles' random choices
+     * @return the new simulation
+     */
+    public SimulationEngine create(final TerrainGrid theGrid,
+                                   final VehicleRecords theVehicles,
+                                   final long theSeed) {
+        final SimulationEngine result;
+        if (this == ARRAYS) {
+            result = new ArrayRoadRage(theGrid, theVehicles, theSeed);
+        } else {
+            result = new RoadRage(theGrid, theVehicles.toVehicles(), theSeed);
+        }
+        return result;
+    }
+}
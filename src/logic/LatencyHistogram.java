@@ -0,0 +1,188 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size histogram of non-negative durations with log-linear buckets: values
+ * below 32 get a bucket each, and every power of two above that is split into 16
+ * buckets. Any recorded value is known to within about 6%, whatever its magnitude,
+ * and recording never allocates.
+ *
+ * @version 1 OCT 2018
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The number of bits of a value kept below its highest set bit.
+     */
+    private static final int SUB_BITS = 4;
+
+    /**
+     * The number of buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * The number of values that get a bucket each.
+     */
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+    /**
+     * The number of buckets, enough for any non-negative long.
+     */
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * The number of values recorded in each bucket.
+     */
+    private final long[] myCounts;
+
+    /**
+     * The number of values recorded.
+     */
+    private long myTotal;
+
+    /**
+     * The sum of the values recorded.
+     */
+    private long mySum;
+
+    /**
+     * The smallest value recorded.
+     */
+    private long myMin;
+
+    /**
+     * The largest value recorded.
+     */
+    private long myMax;
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        myCounts = new long[BUCKETS];
+        clear();
+    }
+
+    /**
+     * Removes every recorded value.
+     */
+    public void clear() {
+        Arrays.fill(myCounts, 0);
+        myTotal = 0;
+        mySum = 0;
+        myMin = Long.MAX_VALUE;
+        myMax = 0;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param theValue the value, such as a duration in nanoseconds
+     */
+    public void record(final long theValue) {
+        final long value = Math.max(theValue, 0);
+        myCounts[bucket(value)]++;
+        myTotal++;
+        mySum += value;
+        myMin = Math.min(myMin, value);
+        myMax = Math.max(myMax, value);
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the count
+     */
+    public long count() {
+        return myTotal;
+    }
+
+    /**
+     * Returns the smallest value recorded.
+     *
+     * @return the minimum, or 0 if nothing was recorded
+     */
+    public long min() {
+        return myTotal == 0 ? 0 : myMin;
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return the maximum, or 0 if nothing was recorded
+     */
+    public long max() {
+        return myMax;
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double mean() {
+        return myTotal == 0 ? 0 : (double) mySum / myTotal;
+    }
+
+    /**
+     * Returns a value that at least the given percentage of recorded values do not
+     * exceed: the upper end of the bucket holding that rank, capped at the maximum.
+     *
+     * @param thePercent the percentile, from 0 to 100
+     * @return the percentile value, or 0 if nothing was recorded
+     */
+    public long percentile(final double thePercent) {
+        if (thePercent < 0 || thePercent > 100) {
+            throw new IllegalArgumentException("percentile out of range: " + thePercent);
+        }
+        long result = 0;
+        if (myTotal > 0) {
+            final long rank = Math.max(1, (long) Math.ceil(thePercent / 100 * myTotal));
+            long seen = 0;
+            int bucket = 0;
+            while (seen + myCounts[bucket] < rank) {
+                seen += myCounts[bucket];
+                bucket++;
+            }
+            result = Math.min(upperBound(bucket), myMax);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bucket of a value.
+     *
+     * @param theValue a non-negative value
+     * @return the bucket index
+     */
+    private static int bucket(final long theValue) {
+        final int result;
+        if (theValue < LINEAR_LIMIT) {
+            result = (int) theValue;
+        } else {
+            final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(theValue) - SUB_BITS;
+            result = shift * SUB_BUCKETS + (int) (theValue >>> shift);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket.
+     *
+     * @param theBucket the bucket index
+     * @return the upper bound of the bucket
+     */
+    private static long upperBound(final int theBucket) {
+        final long result;
+        if (theBucket < LINEAR_LIMIT) {
+            result = theBucket;
+        } else {
+            final int shift = theBucket / SUB_BUCKETS - 1;
+            final long top = theBucket % SUB_BUCKETS + SUB_BUCKETS;
+            result = ((top + 1) << shift) - 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,132 @@
+package logic;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import model.Direction;
+import model.Terrain;
+
+/**
+ * A read-only map from Direction to the neighboring Terrain, backed by an array indexed 
+ * by Direction ordinal. Directions that lead off the map have no entry.
+ * 
+ * Instances are shared by every cell with the same surroundings, so they must never 
+ * change once built.
+ * 
+ * @version 1 OCT 2018
+ */
+final class Neighborhood extends AbstractMap<Direction, Terrain> {
+    
+    /**
+     * The neighboring terrain for each Direction ordinal, null where off the map.
+     */
+    private final Terrain[] myTerrain;
+    
+    /**
+     * The number of directions that have a neighbor.
+     */
+    private final int mySize;
+    
+    /**
+     * The lazily created entry set view.
+     */
+    private Set<Map.Entry<Direction, Terrain>> myEntries;
+    
+    /**
+     * Creates a neighborhood from terrain indexed by Direction ordinal.
+     * 
+     * @param theTerrain the neighboring terrain, null where off the map
+     */
+    Neighborhood(final Terrain[] theTerrain) {
+        super();
+        myTerrain = theTerrain.clone();
+        int size = 0;
+        for (final Terrain t : myTerrain) {
+            if (t != null) {
+                size++;
+            }
+        }
+        mySize = size;
+    }
+    
+    @Override
+    public Terrain get(final Object theKey) {
+        Terrain result = null;
+        if (theKey instanceof Direction) {
+            result = myTerrain[((Direction) theKey).ordinal()];
+        }
+        return result;
+    }
+    
+    @Override
+    public boolean containsKey(final Object theKey) {
+        return get(theKey) != null;
+    }
+    
+    @Override
+    public int size() {
+        return mySize;
+    }
+    
+    @Override
+    public Set<Map.Entry<Direction, Terrain>> entrySet() {
+        if (myEntries == null) {
+            myEntries = new EntrySet();
+        }
+        return myEntries;
+    }
+    
+    /**
+     * The entry set view, listing entries in Direction order.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<Direction, Terrain>> {
+        
+        @Override
+        public int size() {
+            return mySize;
+        }
+        
+        @Override
+        public Iterator<Map.Entry<Direction, Terrain>> iterator() {
+            return new Iterator<Map.Entry<Direction, Terrain>>() {
+                
+                /** The ordinal of the next entry, or the array length when done. */
+                private int myNext = advanceFrom(0);
+                
+                @Override
+                public boolean hasNext() {
+                    return myNext < myTerrain.length;
+                }
+                
+                @Override
+                public Map.Entry<Direction, Terrain> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final Direction dir = Direction.values()[myNext];
+                    final Map.Entry<Direction, Terrain> entry =
+                                    new SimpleImmutableEntry<>(dir, myTerrain[myNext]);
+                    myNext = advanceFrom(myNext + 1);
+                    return entry;
+                }
+                
+                /**
+                 * Finds the first ordinal at or after the given one that has a neighbor.
+                 * 
+                 * @param theStart the ordinal to start from
+                 * @return the ordinal found, or the array length
+                 */
+                private int advanceFrom(final int theStart) {
+                    int i = theStart;
+                    while (i < myTerrain.length && myTerrain[i] == null) {
+                        i++;
+                    }
+                    return i;
+                }
+            };
+        }
+    }
+}
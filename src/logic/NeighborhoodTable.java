@@ -0,0 +1,265 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.Map;
+import model.Direction;
+import model.Passability;
+import model.Terrain;
+import model.TerrainGrid;
+
+/**
+ * The neighborhood of every cell of a terrain grid, computed once when the grid is loaded.
+ *
+ * Each cell stores a small code describing the terrain on its four sides, and every
+ * code maps to one shared, immutable Neighborhood. The codes are built from rows of the
+ * grid surrounded by a sentinel border meaning "off the map", so no bounds checks are
+ * needed while building, and the cells of that border get codes too so a vehicle
+ * standing just outside the grid can still be looked up directly.
+ *
+ * With seven values a side, the 2401 codes need a short per cell, twice the memory of
+ * the grid itself when it keeps a byte per cell.
+ *
+ * @version 1 OCT 2018
+ */
+final class NeighborhoodTable {
+
+    /**
+     * The value of a side that is off the map, which is also its Passability mask bit.
+     */
+    static final int OFF_MAP = Passability.OFF_MAP;
+
+    /**
+     * The number of values a side of a cell may take: every Terrain plus off the map.
+     */
+    private static final int SIDE_VALUES = OFF_MAP + 1;
+
+    /**
+     * The number of sides of a cell.
+     */
+    private static final int DIRECTIONS = Direction.values().length;
+
+    /**
+     * The shared neighborhood for each code.
+     */
+    private static final Neighborhood[] NEIGHBORHOODS = buildNeighborhoods();
+
+    /**
+     * Every code decoded, DIRECTIONS entries per code, indexed by Direction ordinal.
+     */
+    private static final byte[] SIDES = buildSides();
+
+    /**
+     * The code of each cell, row-major, including a one cell border around the grid.
+     * The codes do not fit in a byte.
+     */
+    private final short[] myCodes;
+
+    /**
+     * The width of a row of codes, including the border.
+     */
+    private final int myStride;
+
+    /**
+     * The number of rows of codes, including the border.
+     */
+    private final int myRows;
+
+    /**
+     * The grid the table was built from, used for positions beyond the border.
+     */
+    private final TerrainGrid myGrid;
+
+    /**
+     * Builds the table for a grid.
+     *
+     * @param theGrid the terrain grid; it must not change afterwards
+     */
+    NeighborhoodTable(final TerrainGrid theGrid) {
+        myGrid = theGrid;
+        final int height = theGrid.getHeight();
+        final int width = theGrid.getWidth();
+        myStride = width + 2;
+        myRows = height + 2;
+        if ((long) myStride * myRows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid of " + width + "x" + height
+                                               + " cells is too large for a neighborhood table");
+        }
+        myCodes = new short[myStride * myRows];
+
+        // three consecutive grid rows surrounded by a border of OFF_MAP two cells thick,
+        // so that the border cells of the code table can look one cell further out
+        final int padStride = width + 4;
+        byte[] above = paddedRow(theGrid, -2, new byte[padStride]);
+        byte[] center = paddedRow(theGrid, -1, new byte[padStride]);
+        byte[] below = paddedRow(theGrid, 0, new byte[padStride]);
+        final Direction[] dirs = Direction.values();
+        for (int row = 0; row < myRows; row++) {
+            for (int col = 0; col < myStride; col++) {
+                final int x = col + 1;
+                int code = 0;
+                for (int d = dirs.length - 1; d >= 0; d--) {
+                    final byte[] line;
+                    if (dirs[d].dy() < 0) {
+                        line = above;
+                    } else if (dirs[d].dy() > 0) {
+                        line = below;
+                    } else {
+                        line = center;
+                    }
+                    code = code * SIDE_VALUES + line[x + dirs[d].dx()];
+                }
+                myCodes[row * myStride + col] = (short) code;
+            }
+            final byte[] recycled = above;
+            above = center;
+            center = below;
+            below = paddedRow(theGrid, row + 1, recycled);
+        }
+    }
+
+    /**
+     * Fills a buffer with one grid row surrounded by two OFF_MAP cells on each side, or
+     * with OFF_MAP entirely when the row is outside the grid.
+     *
+     * @param theGrid the terrain grid
+     * @param theY the grid row
+     * @param theBuffer the buffer to fill, width + 4 long
+     * @return the buffer
+     */
+    private static byte[] paddedRow(final TerrainGrid theGrid, final int theY,
+                                    final byte[] theBuffer) {
+        Arrays.fill(theBuffer, (byte) OFF_MAP);
+        if (0 <= theY && theY < theGrid.getHeight()) {
+            for (int x = 0; x < theGrid.getWidth(); x++) {
+                theBuffer[x + 2] = (byte) theGrid.ordinal(x, theY);
+            }
+        }
+        return theBuffer;
+    }
+
+    /**
+     * Returns the read-only neighbors map for a position. No allocation takes place.
+     *
+     * @param theX the x position
+     * @param theY the y position
+     * @return the neighbors map
+     */
+    Map<Direction, Terrain> get(final int theX, final int theY) {
+        return NEIGHBORHOODS[code(theX, theY)];
+    }
+
+    /**
+     * Returns the code describing the four sides of a position.
+     *
+     * @param theX the x position
+     * @param theY the y position
+     * @return the code, to be decoded with side()
+     */
+    int code(final int theX, final int theY) {
+        final int col = theX + 1;
+        final int row = theY + 1;
+        final int result;
+        if (col >= 0 && col < myStride && row >= 0 && row < myRows) {
+            result = myCodes[row * myStride + col];
+        } else {
+            result = codeOf(theX, theY);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of distinct neighborhood codes.
+     *
+     * @return one more than the largest code
+     */
+    static int codeCount() {
+        return NEIGHBORHOODS.length;
+    }
+
+    /**
+     * Returns the read-only neighbors map of a code.
+     *
+     * @param theCode a neighborhood code
+     * @return the neighbors map
+     */
+    static Map<Direction, Terrain> neighborhood(final int theCode) {
+        return NEIGHBORHOODS[theCode];
+    }
+
+    /**
+     * Decodes one side of a neighborhood code.
+     *
+     * @param theCode the code of a position
+     * @param theDirection the Direction ordinal of the side
+     * @return the Terrain ordinal on that side, or OFF_MAP
+     */
+    static int side(final int theCode, final int theDirection) {
+        return SIDES[theCode * DIRECTIONS + theDirection];
+    }
+
+    /**
+     * Computes the code of a position with bounds checks. Only used for positions
+     * beyond the table's border.
+     *
+     * @param theX the x position
+     * @param theY the y position
+     * @return the code
+     */
+    private int codeOf(final int theX, final int theY) {
+        final Direction[] dirs = Direction.values();
+        int code = 0;
+        for (int d = dirs.length - 1; d >= 0; d--) {
+            final int x = theX + dirs[d].dx();
+            final int y = theY + dirs[d].dy();
+            int side = OFF_MAP;
+            if (myGrid.isValidIndex(x, y)) {
+                side = myGrid.ordinal(x, y);
+            }
+            code = code * SIDE_VALUES + side;
+        }
+        return code;
+    }
+
+    /**
+     * Decodes every possible code.
+     *
+     * @return the side values, DIRECTIONS per code
+     */
+    private static byte[] buildSides() {
+        final byte[] result = new byte[NEIGHBORHOODS.length * DIRECTIONS];
+        for (int code = 0; code < NEIGHBORHOODS.length; code++) {
+            int rest = code;
+            for (int d = 0; d < DIRECTIONS; d++) {
+                result[code * DIRECTIONS + d] = (byte) (rest % SIDE_VALUES);
+                rest /= SIDE_VALUES;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds the neighborhood for every possible code.
+     *
+     * @return the neighborhoods indexed by code
+     */
+    private static Neighborhood[] buildNeighborhoods() {
+        final Direction[] dirs = Direction.values();
+        final Terrain[] terrains = Terrain.values();
+        int count = 1;
+        for (int d = 0; d < dirs.length; d++) {
+            count *= SIDE_VALUES;
+        }
+        final Neighborhood[] result = new Neighborhood[count];
+        final Terrain[] sides = new Terrain[dirs.length];
+        for (int code = 0; code < count; code++) {
+            int rest = code;
+            for (int d = 0; d < dirs.length; d++) {
+                final int side = rest % SIDE_VALUES;
+                rest /= SIDE_VALUES;
+                sides[d] = side == OFF_MAP ? null : terrains[side];
+            }
+            result[code] = new Neighborhood(sides);
+        }
+        return result;
+    }
+}
@@ -28,17 +28,32 @@ public interface PropertyChangeEnabledRoadRageControls extends RoadRageControls
     String PROPERTY_EXAMPLE = " THIS IS AN EXAMPLE";
     
     /**
-     * A property name for the current Light in the simulation.
+     * A property name for the current Light in the simulation: the light of the 
+     * city-wide signal group, which is the light of every cell under a uniform plan.
      */
     String PROPERTY_LIGHT = "light";
     
+    /**
+     * A property name for the traffic signals of the simulation. The new value is a 
+     * model.SignalPlan, which with the time step gives the light of every cell.
+     */
+    String PROPERTY_SIGNALS = "the signal plan";
+    
     /**
      * A property name for the current vehicle state in the simulation.
      */
     String PROPERTY_VEHICLES = "vehicles";
     
     /**
-     * A property name for the current 2D grid of Terrains in the simulation.
+     * A property name for the vehicles that changed during the last tick. The new value 
+     * is a VehicleDelta, which the simulation reuses, so it must be read during the event. 
+     * After a reset, or when no one listened on the previous tick, it lists every vehicle.
+     */
+    String PROPERTY_VEHICLE_DELTA = "vehicle delta";
+    
+    /**
+     * A property name for the current grid of Terrains in the simulation. The new value 
+     * is a model.TerrainGrid.
      */
     String PROPERTY_GRID = "the terrain grid";
     
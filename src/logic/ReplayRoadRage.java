@@ -0,0 +1,560 @@
+package logic;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import model.Direction;
+import model.Light;
+import model.SignalPlan;
+import model.TerrainGrid;
+import model.VehicleKind;
+
+/**
+ * Plays back a TickJournal in place of a simulation, so that a display can step through
+ * a recorded run, jump to any frame and go backwards without running the simulation
+ * again.
+ *
+ * Frames are counted from zero, the first frame of the journal, and each advance moves
+ * to the next one; a reset in the recorded run shows as its time step going back.
+ * Seeking reads the nearest keyframe at or before the frame and applies the deltas
+ * after it, so it costs at most the keyframe interval of the journal, forwards or
+ * backwards. Only the keyframes are indexed when the journal is opened.
+ *
+ * The journal holds only the vehicles, so the terrain and signals are given as read
+ * from the city map the run was of. Listeners are sent the grid, signals, light, time
+ * step and vehicle deltas, as from a simulation, with a full delta after every seek;
+ * vehicle snapshots are not sent.
+ *
+ * @version 1 OCT 2018
+ */
+public final class ReplayRoadRage implements PropertyChangeEnabledRoadRageControls, Closeable {
+
+    /**
+     * The least number of bytes mapped at once.
+     */
+    private static final int WINDOW_BYTES = 1 << 26;
+
+    /** The vehicle kinds, by ordinal. */
+    private static final VehicleKind[] KINDS = VehicleKind.values();
+
+    /** The directions, by ordinal. */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** The lights, by ordinal. */
+    private static final Light[] LIGHTS = Light.values();
+
+    /**
+     * The terrain.
+     */
+    private final TerrainGrid myGrid;
+
+    /**
+     * The traffic signals.
+     */
+    private final SignalPlan mySignals;
+
+    /**
+     * The journal file, for messages.
+     */
+    private final Path myFile;
+
+    /**
+     * The journal.
+     */
+    private final FileChannel myChannel;
+
+    /**
+     * The file offset of the first frame.
+     */
+    private final int myHeaderBytes;
+
+    /**
+     * The file offset of the end of the last frame.
+     */
+    private final long myEnd;
+
+    /**
+     * The number of frames.
+     */
+    private final long myFrameCount;
+
+    /**
+     * The number of frames between keyframes the journal was written with.
+     */
+    private final int myInterval;
+
+    /**
+     * The frame number of each keyframe, in increasing order.
+     */
+    private long[] myKeyframes;
+
+    /**
+     * The file offset of each keyframe.
+     */
+    private long[] myKeyframeOffsets;
+
+    /**
+     * The number of keyframes.
+     */
+    private int myKeyframeCount;
+
+    /**
+     * The mapping frames are read from, or null before the first.
+     */
+    private ByteBuffer myWindow;
+
+    /**
+     * The file offset of the start of the window.
+     */
+    private long myWindowStart;
+
+    /**
+     * The current frame, or -1 before the first.
+     */
+    private long myFrame;
+
+    /**
+     * The file offset of the frame after the current one.
+     */
+    private long myNext;
+
+    /**
+     * The time step of the current frame.
+     */
+    private long myTimeStep;
+
+    /**
+     * The light of the city-wide group in the current frame.
+     */
+    private Light myLight;
+
+    /** The VehicleKind ordinal of each vehicle, or -1. */
+    private final byte[] myKinds;
+
+    /** The x position of each vehicle. */
+    private final int[] myXs;
+
+    /** The y position of each vehicle. */
+    private final int[] myYs;
+
+    /** The Direction ordinal of each vehicle. */
+    private final byte[] myDirections;
+
+    /** Whether each vehicle is alive. */
+    private final boolean[] myAlive;
+
+    /**
+     * The delta sent to listeners, reused every frame.
+     */
+    private final VehicleDelta myDelta;
+
+    /**
+     * Manager for Property Change Listeners.
+     */
+    private final PropertyChangeSupport myPcs;
+
+    /**
+     * Opens a journal and indexes its keyframes.
+     *
+     * @param theGrid the terrain of the city the journal is of
+     * @param theSignals the traffic signals of the city
+     * @param theFile the journal file
+     * @throws IOException if the file cannot be read or is not a journal
+     * @throws IllegalArgumentException if the journal is of a city of another size
+     */
+    public ReplayRoadRage(final TerrainGrid theGrid, final SignalPlan theSignals,
+                          final Path theFile) throws IOException {
+        myGrid = theGrid;
+        mySignals = theSignals;
+        myFile = theFile;
+        myChannel = FileChannel.open(theFile, StandardOpenOption.READ);
+        try {
+            final long size = myChannel.size();
+            if (size < TickJournal.HEADER_BYTES) {
+                throw malformed("truncated header");
+            }
+            final ByteBuffer header = myChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                    TickJournal.HEADER_BYTES);
+            final short version = header.getShort(Integer.BYTES);
+            if (header.getInt(0) != TickJournal.MAGIC) {
+                throw malformed("not a journal");
+            }
+            if (version < 1 || version > TickJournal.VERSION) {
+                throw malformed("unsupported version " + version);
+            }
+            myHeaderBytes = header.getShort(Integer.BYTES + Short.BYTES);
+            final int columns = header.getInt(TickJournal.COLUMNS_OFFSET);
+            final int rows = header.getInt(TickJournal.COLUMNS_OFFSET + Integer.BYTES);
+            final int count = header.getInt(TickJournal.VEHICLES_OFFSET);
+            myInterval = header.getInt(TickJournal.INTERVAL_OFFSET);
+            myFrameCount = header.getLong(TickJournal.FRAMES_OFFSET);
+            myEnd = header.getLong(TickJournal.END_OFFSET);
+            if (myHeaderBytes < TickJournal.HEADER_BYTES || count < 0 || myInterval < 1
+                || myFrameCount < 0 || myEnd < myHeaderBytes || myEnd > size) {
+                throw malformed("bad header");
+            }
+            if (columns != theGrid.getWidth() || rows != theGrid.getHeight()) {
+                throw new IllegalArgumentException("Journal of a " + columns + " by " + rows
+                                                   + " city, not " + theGrid.getWidth()
+                                                   + " by " + theGrid.getHeight());
+            }
+            myKinds = new byte[count];
+            myXs = new int[count];
+            myYs = new int[count];
+            myDirections = new byte[count];
+            myAlive = new boolean[count];
+            index();
+        } catch (final IOException | RuntimeException e) {
+            myChannel.close();
+            throw e;
+        }
+        myDelta = new VehicleDelta();
+        myPcs = new PropertyChangeSupport(this);
+        myLight = Light.GREEN;
+        myFrame = -1;
+    }
+
+    /**
+     * Access the number of frames in the journal.
+     *
+     * @return the number of frames
+     */
+    public long getFrameCount() {
+        return myFrameCount;
+    }
+
+    /**
+     * Access the current frame.
+     *
+     * @return the frame number, or -1 before the first
+     */
+    public long getFrame() {
+        return myFrame;
+    }
+
+    /**
+     * Access the time step of the current frame.
+     *
+     * @return the time step
+     */
+    public long getTimeStep() {
+        return myTimeStep;
+    }
+
+    /**
+     * Access the number of frames between keyframes the journal was written with.
+     *
+     * @return the keyframe interval
+     */
+    public int getKeyframeInterval() {
+        return myInterval;
+    }
+
+    /**
+     * Moves to the first frame and informs listeners of the grid and signals.
+     */
+    @Override
+    public void start() {
+        reset();
+    }
+
+    /**
+     * Moves to the first frame and informs listeners of the grid and signals.
+     */
+    @Override
+    public void reset() {
+        myPcs.firePropertyChange(PROPERTY_GRID, null, myGrid);
+        myPcs.firePropertyChange(PROPERTY_SIGNALS, null, mySignals);
+        if (myFrameCount > 0) {
+            seek(0);
+        } else {
+            fireSeek();
+        }
+    }
+
+    /**
+     * Moves to the next frame. Does nothing at the last frame.
+     */
+    @Override
+    public void advance() {
+        if (myFrame < 0) {
+            reset();
+        } else if (myFrame + 1 < myFrameCount) {
+            final Light old = myLight;
+            myNext = read(myNext, true);
+            myFrame++;
+            myPcs.firePropertyChange(PROPERTY_LIGHT, old, myLight);
+            myPcs.firePropertyChange(PROPERTY_TIME, null, myTimeStep);
+            myPcs.firePropertyChange(PROPERTY_VEHICLE_DELTA, null, myDelta);
+        }
+    }
+
+    /**
+     * Moves to the previous frame. Does nothing at the first frame.
+     */
+    public void stepBack() {
+        if (myFrame > 0) {
+            seek(myFrame - 1);
+        }
+    }
+
+    /**
+     * Moves to a frame, from the keyframe at or before it.
+     *
+     * @param theFrame the frame number
+     * @throws IllegalArgumentException if there is no such frame
+     */
+    public void seek(final long theFrame) {
+        if (theFrame < 0 || theFrame >= myFrameCount) {
+            throw new IllegalArgumentException("No frame " + theFrame + " of "
+                                               + myFrameCount);
+        }
+        int keyframe = Arrays.binarySearch(myKeyframes, 0, myKeyframeCount, theFrame);
+        if (keyframe < 0) {
+            keyframe = -keyframe - 2;
+        }
+        myFrame = myKeyframes[keyframe];
+        myNext = read(myKeyframeOffsets[keyframe], false);
+        while (myFrame < theFrame) {
+            myNext = read(myNext, false);
+            myFrame++;
+        }
+        fireSeek();
+    }
+
+    @Override
+    public int getHeight() {
+        return myGrid.getHeight();
+    }
+
+    @Override
+    public int getWidth() {
+        return myGrid.getWidth();
+    }
+
+    @Override
+    public void addPropertyChangeListener(final PropertyChangeListener theListener) {
+        myPcs.addPropertyChangeListener(theListener);
+    }
+
+    @Override
+    public void removePropertyChangeListener(final PropertyChangeListener theListener) {
+        myPcs.removePropertyChangeListener(theListener);
+    }
+
+    @Override
+    public void addPropertyChangeListener(final String thePropertyName,
+                                          final PropertyChangeListener theListener) {
+        myPcs.addPropertyChangeListener(thePropertyName, theListener);
+    }
+
+    @Override
+    public void removePropertyChangeListener(final String thePropertyName,
+                                             final PropertyChangeListener theListener) {
+        myPcs.removePropertyChangeListener(thePropertyName, theListener);
+    }
+
+    /**
+     * Closes the journal.
+     *
+     * @throws IOException if it cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        myWindow = null;
+        myChannel.close();
+    }
+
+    /**
+     * Informs listeners of the whole of the current frame.
+     */
+    private void fireSeek() {
+        myDelta.begin(myTimeStep, myKinds.length, true);
+        for (int id = 0; id < myKinds.length; id++) {
+            myDelta.add(id, myAlive[id] ? VehicleDelta.ALIVE : 0, myKinds[id], myXs[id],
+                        myYs[id], myDirections[id]);
+        }
+        myPcs.firePropertyChange(PROPERTY_LIGHT, null, myLight);
+        myPcs.firePropertyChange(PROPERTY_TIME, null, myTimeStep);
+        myPcs.firePropertyChange(PROPERTY_VEHICLE_DELTA, null, myDelta);
+    }
+
+    /**
+     * Walks the frame headers, checking them and noting where the keyframes are.
+     *
+     * @throws IOException if the file cannot be read or the frames are malformed
+     */
+    private void index() throws IOException {
+        final int capacity = (int) Math.min(myFrameCount / myInterval + 1, 1 << 20);
+        myKeyframes = new long[capacity];
+        myKeyframeOffsets = new long[capacity];
+        long offset = myHeaderBytes;
+        for (long frame = 0; frame < myFrameCount; frame++) {
+            if (offset + TickJournal.FRAME_BYTES > myEnd) {
+                throw malformed("truncated frame " + frame);
+            }
+            final ByteBuffer window = window(offset, TickJournal.FRAME_BYTES);
+            final int start = window.position();
+            final byte type = window.get(start);
+            final int light = window.get(start + 1);
+            final int entries = window.getInt(start + Integer.BYTES);
+            final long size;
+            if (type == TickJournal.KEYFRAME && entries == myKinds.length) {
+                size = (long) entries * TickJournal.KEYFRAME_ENTRY_BYTES;
+                if (myKeyframeCount == myKeyframes.length) {
+                    myKeyframes = Arrays.copyOf(myKeyframes, myKeyframeCount * 2);
+                    myKeyframeOffsets = Arrays.copyOf(myKeyframeOffsets, myKeyframeCount * 2);
+                }
+                myKeyframes[myKeyframeCount] = frame;
+                myKeyframeOffsets[myKeyframeCount] = offset;
+                myKeyframeCount++;
+            } else if (type == TickJournal.DELTA && frame > 0 && entries >= 0
+                       && entries <= myKinds.length) {
+                size = (long) entries * TickJournal.DELTA_ENTRY_BYTES;
+            } else {
+                throw malformed("frame " + frame + " has type " + type + " and "
+                                + entries + " entries");
+            }
+            if (light < 0 || light >= LIGHTS.length) {
+                throw malformed("frame " + frame + " has light " + light);
+            }
+            offset += TickJournal.FRAME_BYTES + size;
+        }
+        if (offset > myEnd) {
+            throw malformed("truncated frame " + (myFrameCount - 1));
+        }
+    }
+
+    /**
+     * Reads a frame into the current state. Deltas only list what changed since the
+     * frame before; a keyframe lists every vehicle.
+     *
+     * @param theOffset the file offset of the frame
+     * @param theRecord whether to add what changed to the delta sent to listeners
+     * @return the file offset of the next frame
+     */
+    private long read(final long theOffset, final boolean theRecord) {
+        final ByteBuffer frame = window(theOffset, TickJournal.FRAME_BYTES);
+        final byte type = frame.get();
+        myLight = LIGHTS[frame.get()];
+        frame.getShort();
+        final int entries = frame.getInt();
+        myTimeStep = frame.getLong();
+        if (theRecord) {
+            myDelta.begin(myTimeStep, myKinds.length, false);
+        }
+        final boolean keyframe = type == TickJournal.KEYFRAME;
+        final int entryBytes;
+        if (keyframe) {
+            entryBytes = TickJournal.KEYFRAME_ENTRY_BYTES;
+        } else {
+            entryBytes = TickJournal.DELTA_ENTRY_BYTES;
+        }
+        final long body = theOffset + TickJournal.FRAME_BYTES;
+        final ByteBuffer table = window(body, (long) entries * entryBytes);
+        for (int i = 0; i < entries; i++) {
+            final int id;
+            if (keyframe) {
+                id = i;
+            } else {
+                id = table.getInt();
+            }
+            final int kind = table.get();
+            final int direction = table.get();
+            final int flags = table.get();
+            table.get();
+            final int x = table.getInt();
+            final int y = table.getInt();
+            if (id < 0 || id >= myKinds.length || kind < -1 || kind >= KINDS.length
+                || direction < 0 || direction >= DIRECTIONS.length) {
+                throw new UncheckedIOException(malformed(
+                    "entry " + i + " at " + theOffset + " has id " + id + ", kind " + kind
+                    + " and direction " + direction));
+            }
+            final boolean alive = (flags & VehicleDelta.ALIVE) != 0;
+            if (theRecord) {
+                record(id, kind, x, y, direction, alive);
+            }
+            myKinds[id] = (byte) kind;
+            myXs[id] = x;
+            myYs[id] = y;
+            myDirections[id] = (byte) direction;
+            myAlive[id] = alive;
+        }
+        return body + (long) entries * entryBytes;
+    }
+
+    /**
+     * Adds a vehicle to the delta sent to listeners if it changed from the current state,
+     * flagged with what changed.
+     *
+     * @param theId the vehicle id
+     * @param theKind the VehicleKind ordinal, or -1
+     * @param theX the x position
+     * @param theY the y position
+     * @param theDirection the Direction ordinal
+     * @param theAlive whether the vehicle is alive
+     */
+    private void record(final int theId, final int theKind, final int theX, final int theY,
+                        final int theDirection, final boolean theAlive) {
+        int flags = 0;
+        if (theX != myXs[theId] || theY != myYs[theId]) {
+            flags |= VehicleDelta.MOVED;
+        }
+        if (theDirection != myDirections[theId]) {
+            flags |= VehicleDelta.TURNED;
+        }
+        if (theAlive != myAlive[theId]) {
+            flags |= theAlive ? VehicleDelta.REVIVED : VehicleDelta.DIED;
+        }
+        if (flags != 0 || theKind != myKinds[theId]) {
+            if (theAlive) {
+                flags |= VehicleDelta.ALIVE;
+            }
+            myDelta.add(theId, flags, theKind, theX, theY, theDirection);
+        }
+    }
+
+    /**
+     * Returns the window positioned at a part of the file, mapping another part of the
+     * file if it is not all in the window. A new window reaches back as far as forward,
+     * for stepping backwards.
+     *
+     * @param theOffset the file offset
+     * @param theSize the number of bytes wanted
+     * @return the window, positioned at the offset
+     */
+    private ByteBuffer window(final long theOffset, final long theSize) {
+        if (myWindow == null || theOffset < myWindowStart
+            || theOffset + theSize > myWindowStart + myWindow.capacity()) {
+            final long start = Math.max(myHeaderBytes, theOffset - WINDOW_BYTES / 2);
+            final long size = Math.min(Math.max(WINDOW_BYTES, theOffset + theSize - start),
+                                       myEnd - start);
+            try {
+                myWindow = myChannel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            myWindowStart = start;
+        }
+        myWindow.position((int) (theOffset - myWindowStart));
+        return myWindow;
+    }
+
+    /**
+     * Creates the exception for a file that is not a journal.
+     *
+     * @param theProblem what is wrong with it
+     * @return the exception
+     */
+    private IOException malformed(final String theProblem) {
+        return new IOException("Malformed journal file " + myFile + ": " + theProblem);
+    }
+}
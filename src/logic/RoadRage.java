@@ -3,14 +3,22 @@ package logic;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 import model.Direction;
+import model.LethalityMatrix;
 import model.Light;
+import model.Passability;
+import model.SignalPlan;
 import model.Terrain;
+import model.TerrainGrid;
 import model.Vehicle;
+import model.VehicleKind;
+import model.VehicleRandom;
+import model.VehicleState;
 
 /**
  * Implementation the behaviors of the RoadRage simulation. 
@@ -18,87 +26,596 @@ import model.Vehicle;
  * @author Charles Bryan
  * @version 1 OCT 2018
  */
-public class RoadRage implements PropertyChangeEnabledRoadRageControls {
+public class RoadRage implements SimulationEngine {
     
     /**
-     * The number of clock ticks between light changes.
+     * The number of vehicles below which a striped tick runs on the calling thread 
+     * unless told otherwise: with fewer, handing the stripes to a pool costs more than 
+     * running them.
      */
-    private static final int LIGHT_CHANGE_TICKS = 15;
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 2_000;
     
     /**
      * The terrain grid for the simulation.
      */
-    private final Terrain[][] myGrid;
+    private final TerrainGrid myGrid;
+    
+    /**
+     * The precomputed neighborhood of every cell of the grid.
+     */
+    private final NeighborhoodTable myNeighborhoods;
     
     /**
      * The current timestep of the simulation.
      */
     private long myTimestep;
     
+    /**
+     * The number of moves since the last reset.
+     */
+    private long myMoveCount;
+    
     /**
      * The current status of lights.
      */
     private Light myLight;
     
+    /**
+     * The traffic signals.
+     */
+    private SignalPlan mySignals;
+    
     /**
      * The vehicles to move and display. 
      */
     private final List<Vehicle> myVehicles;
     
+    /**
+     * The VehicleKind ordinal of each vehicle, or -1 for an unknown kind.
+     */
+    private final byte[] myKinds;
+    
+    /**
+     * The VehicleKind ordinal of each vehicle whose canPass is its kind's Passability
+     * mask, or -1 for a vehicle that decides for itself.
+     */
+    private final byte[] myPassKinds;
+    
+    /**
+     * The VehicleKind ordinal of each vehicle whose choices compiled routing may look 
+     * up, or -1 for a vehicle that is always asked.
+     */
+    private final byte[] myRouteKinds;
+    
+    /**
+     * The compiled routing tables, or null to choose every direction live.
+     */
+    private RouteTable myRoutes;
+    
+    /**
+     * Whether every vehicle follows its kind's rules for dying, reviving and colliding, 
+     * so that vehicles may be skipped while they cannot act.
+     */
+    private final boolean mySchedulable;
+    
+    /**
+     * The vehicles the serial tick visits, or null to visit every one.
+     */
+    private ActiveSet myActiveSet;
+    
+    /**
+     * The choices of the kinds that may be parked, to tell whether a blocked vehicle 
+     * will choose the same move again.
+     */
+    private RouteTable myParkRoutes;
+    
+    /**
+     * Whether the last tick was run through the active set, so that only the vehicles 
+     * it touched may have changed.
+     */
+    private boolean myScheduled;
+    
+    /**
+     * Finds the vehicles that changed since the last vehicle delta.
+     */
+    private final DeltaTracker myDeltas;
+    
     /**
      * Manager for Propery Change Listeners. 
      */
     private final PropertyChangeSupport myPcs;
     
+    /**
+     * Index of vehicle list positions by occupied cell, used to find collisions.
+     */
+    private final CellIndex myCellIndex;
+    
+    /**
+     * Whether collisions are found through the cell index rather than by
+     * comparing every pair of vehicles.
+     */
+    private boolean myCellIndexEnabled;
+    
+    /**
+     * The root seed from which every vehicle's source of randomness is split.
+     */
+    private long mySeed;
+
+    /**
+     * The source of random choices given to each vehicle.
+     */
+    private final VehicleRandom[] myRandoms;
+    
+    /**
+     * The two-phase striped tick, or null when ticks run serially in list order.
+     */
+    private StripedTick myStripedTick;
+    
+    /**
+     * The pool striped ticks run on.
+     */
+    private ForkJoinPool myPool;
+    
+    /**
+     * The number of vehicles below which a striped tick runs on the calling thread.
+     */
+    private int myParallelThreshold;
+    
     /**
      * 
-     * @param theGrid the 2D grid of Terrain that defines the map
+     * @param theGrid the grid of Terrain that defines the map
      * @param theVehicles the Vehicles on the map
      */
-    public RoadRage(final Terrain[][] theGrid, final List<Vehicle> theVehicles) {
+    public RoadRage(final TerrainGrid theGrid, final List<Vehicle> theVehicles) {
+        this(theGrid, theVehicles, new SplittableRandom().nextLong());
+    }
+    
+    /**
+     * 
+     * @param theGrid the grid of Terrain that defines the map
+     * @param theVehicles the Vehicles on the map
+     * @param theSeed the root seed of the vehicles' random choices
+     */
+    public RoadRage(final TerrainGrid theGrid, final List<Vehicle> theVehicles,
+                    final long theSeed) {
         myVehicles = new ArrayList<Vehicle>(theVehicles);
-        myGrid = theGrid.clone();
+        myGrid = theGrid;
+        mySignals = new SignalPlan(myGrid.getWidth(), myGrid.getHeight());
+        myNeighborhoods = new NeighborhoodTable(myGrid);
         myPcs = new PropertyChangeSupport(this);            
+        myKinds = new byte[myVehicles.size()];
+        for (int i = 0; i < myKinds.length; i++) {
+            final VehicleKind kind = myVehicles.get(i).getKind();
+            myKinds[i] = (byte) (kind == null ? -1 : kind.ordinal());
+        }
+        myPassKinds = passKinds(myVehicles);
+        myRouteKinds = RouteTable.routeKinds(myVehicles);
+        myDeltas = new DeltaTracker(myVehicles.size());
+        myCellIndex = new CellIndex(myVehicles.size());
+        myCellIndexEnabled = true;
+        rebuildCellIndex();
+        myRandoms = new VehicleRandom[myVehicles.size()];
+        setSeed(theSeed);
+        mySchedulable = followsKindRules(myVehicles);
+        setActiveSetEnabled(true);
+    }
+    
+    /**
+     * Returns the root seed of the vehicles' random choices.
+     * 
+     * @return the seed
+     */
+    public long getSeed() {
+        return mySeed;
+    }
+    
+    /**
+     * Sets the root seed of the vehicles' random choices and gives every vehicle a fresh 
+     * stream split from it, in list order. Runs from the same seed, map and starting 
+     * state make the same choices, whether ticks run serially or striped on any number 
+     * of threads. Vehicles that do not extend the model's AbstractVehicle make their own
+     * choices and are not seeded.
+     * 
+     * @param theSeed the seed
+     */
+    public void setSeed(final long theSeed) {
+        mySeed = theSeed;
+        final VehicleRandom root = new VehicleRandom(theSeed);
+        for (int i = 0; i < myRandoms.length; i++) {
+            myRandoms[i] = root.split();
+            VehicleState.setRandom(myVehicles.get(i), myRandoms[i]);
+        }
     }
     
     @Override
-    public void advance() {
+    public void setLethality(final LethalityMatrix theLethality) {
         for (final Vehicle v : myVehicles) {
-            final Map<Direction, Terrain> neighbors = generateNeighbors(v);
+            VehicleState.setLethality(v, theLethality);
+        }
+        wakeAll();
+    }
+    
+    @Override
+    public void setSignalPlan(final SignalPlan theSignals) {
+        if (theSignals.getWidth() != myGrid.getWidth()
+            || theSignals.getHeight() != myGrid.getHeight()) {
+            throw new IllegalArgumentException("Signal plan of " + theSignals.getWidth() + "x"
+                                               + theSignals.getHeight() + " for a grid of "
+                                               + myGrid.getWidth() + "x" + myGrid.getHeight());
+        }
+        mySignals = theSignals;
+        wakeAll();
+        myPcs.firePropertyChange(PROPERTY_SIGNALS, null, mySignals);
+    }
+    
+    /**
+     * Chooses how collisions are detected. With the cell index, each moved vehicle is 
+     * only compared to vehicles hashed to its cell; without it, every other vehicle is 
+     * compared. Both find the same collisions in the same order.
+     * 
+     * @param theEnabled true to use the cell index, false to compare every pair
+     */
+    public void setCellIndexEnabled(final boolean theEnabled) {
+        if (theEnabled && !myCellIndexEnabled) {
+            rebuildCellIndex();
+        }
+        myCellIndexEnabled = theEnabled;
+    }
+    
+    @Override
+    public void setCompiledRouting(final boolean theEnabled) {
+        if (!theEnabled) {
+            myRoutes = null;
+        } else if (myRoutes == null) {
+            final boolean[] kinds = new boolean[VehicleKind.values().length];
+            for (final byte kind : myRouteKinds) {
+                if (kind >= 0) {
+                    kinds[kind] = true;
+                }
+            }
+            myRoutes = new RouteTable(kinds);
+        }
+    }
+    
+    @Override
+    public long getRoutingTableBytes() {
+        return myRoutes == null ? 0 : myRoutes.bytes();
+    }
+    
+    @Override
+    public void setActiveSetEnabled(final boolean theEnabled) {
+        if (!theEnabled) {
+            wakeAll();
+            myActiveSet = null;
+        } else if (myActiveSet == null && mySchedulable) {
+            final boolean[] kinds = new boolean[VehicleKind.values().length];
+            for (int i = 0; i < myRouteKinds.length; i++) {
+                if (isParkable(i)) {
+                    kinds[myRouteKinds[i]] = true;
+                }
+            }
+            myParkRoutes = new RouteTable(kinds);
+            myActiveSet = new ActiveSet(myVehicles.size());
+        }
+    }
+    
+    @Override
+    public int getActiveVehicleCount() {
+        return myActiveSet == null || myStripedTick != null ? myVehicles.size()
+                        : myActiveSet.size();
+    }
+    
+    /**
+     * Switches to the two-phase striped tick, run on the given pool. In this mode every 
+     * vehicle moves before collisions are resolved, so the outcome is the same whatever 
+     * the number of threads, but may differ from the serial tick.
+     * 
+     * @param thePool the pool to run stripes on, or null to return to the serial tick
+     * @param theThreshold the number of vehicles below which stripes are run on the 
+     *                     calling thread instead of the pool, such as 
+     *                     DEFAULT_PARALLEL_THRESHOLD
+     */
+    public void setParallelTick(final ForkJoinPool thePool, final int theThreshold) {
+        // the striped tick visits every vehicle
+        wakeAll();
+        if (thePool == null) {
+            if (myStripedTick != null) {
+                // the striped tick does not maintain the cell index
+                rebuildCellIndex();
+            }
+            myStripedTick = null;
+        } else if (myStripedTick == null) {
+            myStripedTick = new StripedTick(myVehicles, myPassKinds, myRouteKinds,
+                                           myNeighborhoods, myGrid.getHeight());
+        }
+        myPool = thePool;
+        myParallelThreshold = theThreshold;
+    }
+    
+    @Override
+    public void advance() {
+        myScheduled = false;
+        if (myStripedTick == null) {
+            advanceSerially();
+        } else if (myVehicles.size() < myParallelThreshold) {
+            myMoveCount += myStripedTick.advance(mySignals, myTimestep, myRoutes, null);
+        } else {
+            myMoveCount += myStripedTick.advance(mySignals, myTimestep, myRoutes, myPool);
+        }
+        advanceTimeStep();
+        setLightColor(mySignals.lightOf(SignalPlan.CITY_WIDE, myTimestep));
+        fireVehicleChange();
+    }
+    
+    /**
+     * Moves each vehicle in list order, colliding it with the vehicles in its new cell 
+     * before the next vehicle moves. With the active set, only the active vehicles are 
+     * visited, still in list order, and each is put to sleep afterwards if it cannot 
+     * act again soon.
+     */
+    private void advanceSerially() {
+        if (myActiveSet == null) {
+            for (int i = 0; i < myVehicles.size(); i++) {
+                visit(i);
+            }
+        } else {
+            myScheduled = true;
+            myActiveSet.begin(myTimestep);
+            for (int i = myActiveSet.next(0); i >= 0; i = myActiveSet.next(i + 1)) {
+                final Vehicle v = myVehicles.get(i);
+                for (int missed = myActiveSet.awaken(i, myTimestep); missed > 0; missed--) {
+                    v.poke();
+                }
+                schedule(i, visit(i));
+            }
+        }
+    }
+    
+    /**
+     * Gives a vehicle its turn of the serial tick.
+     * 
+     * @param theIndex the list position of the vehicle
+     * @return whether the vehicle was alive and the light kept it from moving
+     */
+    private boolean visit(final int theIndex) {
+        final Vehicle v = myVehicles.get(theIndex);
+        final Map<Direction, Terrain> neighbors = myNeighborhoods.get(v.getX(), v.getY());
+        final int oldX = v.getX();
+        final int oldY = v.getY();
+        boolean blocked = false;
 
-            // move the vehicle
-            if (v.isAlive()) {
-                final Direction newDirection = v.chooseDirection(neighbors);
-                v.setDirection(newDirection);
+        // move the vehicle
+        if (v.isAlive()) {
+            final int routed = myRoutes == null ? -1 : myRouteKinds[theIndex];
+            final Direction newDirection;
+            if (routed < 0) {
+                newDirection = v.chooseDirection(neighbors);
+            } else {
+                newDirection = myRoutes.direction(routed, myNeighborhoods.code(oldX, oldY),
+                                                  v.getDirection());
+            }
+            v.setDirection(newDirection);
 
-                // move one square in current direction, if it's okay to do so
-                if (v.canPass(neighbors.get(newDirection), myLight)) {
-                    v.setX(v.getX() + newDirection.dx());
-                    v.setY(v.getY() + newDirection.dy());
-                }
+            // move one square in current direction, if it's okay to do so
+            if (canPass(v, myPassKinds[theIndex], neighbors.get(newDirection),
+                        lightAt(oldX + newDirection.dx(), oldY + newDirection.dy()))) {
+                v.setX(v.getX() + newDirection.dx());
+                v.setY(v.getY() + newDirection.dy());
+                myMoveCount++;
             } else {
-                // become one move closer to revival
-                v.poke();
+                blocked = true;
             }
+        } else {
+            // become one move closer to revival
+            v.poke();
+        }
 
-            // look for collisions
-            for (final Vehicle other : myVehicles) {
-                if (v.equals(other)) { // use of == is intentional - checking for same object
-                    // don't collide with self
-                    continue;
-                }
+        // look for collisions
+        if (myCellIndexEnabled) {
+            myCellIndex.move(theIndex, oldX, oldY, v.getX(), v.getY());
+            collideInCell(theIndex, v);
+        } else {
+            collideWithAll(v);
+        }
+        return blocked;
+    }
+
+    /**
+     * Puts a vehicle to sleep after its turn if it cannot act again soon: a dead vehicle
+     * until the tick of its reviving poke, a parkable vehicle kept from moving until the
+     * light ahead of it changes, if it will choose the same move again until then.
+     * 
+     * @param theIndex the list position of the vehicle
+     * @param theBlocked whether the light kept the vehicle from moving this turn
+     */
+    private void schedule(final int theIndex, final boolean theBlocked) {
+        final Vehicle v = myVehicles.get(theIndex);
+        if (!v.isAlive()) {
+            myActiveSet.sleepDead(theIndex, myTimestep, myTimestep + v.getDeathTime() + 1);
+        } else if (theBlocked && isParkable(theIndex)) {
+            final Direction heading = v.getDirection();
+            final int code = myNeighborhoods.code(v.getX(), v.getY());
+            if (myParkRoutes.route(myRouteKinds[theIndex], code, heading.ordinal())
+                == heading.ordinal()) {
+                myActiveSet.park(theIndex, mySignals.nextChange(v.getX() + heading.dx(),
+                                                                v.getY() + heading.dy(),
+                                                                myTimestep));
+            }
+        }
+    }
 
-                if (v.getX() == other.getX() && v.getY() == other.getY()) {
-                    // tell both vehicles they have collided
-                    v.collide(other);
-                    other.collide(v);
+    /**
+     * Returns whether a vehicle may be parked while blocked: whether both its choices 
+     * and its canPass are those of its kind, so a blocked move stays blocked until the 
+     * light changes.
+     * 
+     * @param theIndex the list position of the vehicle
+     * @return whether it may be parked
+     */
+    private boolean isParkable(final int theIndex) {
+        return myRouteKinds[theIndex] >= 0 && myPassKinds[theIndex] >= 0;
+    }
+
+    /**
+     * Wakes every vehicle, first giving the vehicles asleep since they died the pokes 
+     * they missed, as before anything that may change what the sleeping would do.
+     */
+    private void wakeAll() {
+        if (myActiveSet != null) {
+            for (int i = 0; i < myVehicles.size(); i++) {
+                final Vehicle v = myVehicles.get(i);
+                for (int missed = myActiveSet.missedPokes(i, myTimestep); missed > 0;
+                                missed--) {
+                    v.poke();
                 }
             }
+            myActiveSet.clear();
         }
-        advanceTimeStep();
-        if (myTimestep % LIGHT_CHANGE_TICKS == 0) {
-            setLightColor(myLight.advance());
+    }
+
+    /**
+     * Returns whether every vehicle follows the rules of its kind for dying, reviving 
+     * and colliding: whether each is of a known kind and inherits poke, collide, 
+     * isAlive and getDeathTime from where that kind's own class does.
+     * 
+     * @param theVehicles the vehicles
+     * @return whether they all do
+     */
+    private static boolean followsKindRules(final List<Vehicle> theVehicles) {
+        final Map<Class<?>, Boolean> checked = new HashMap<>();
+        boolean result = true;
+        for (int i = 0; i < theVehicles.size() && result; i++) {
+            final Vehicle v = theVehicles.get(i);
+            result = v.getKind() != null
+                     && checked.computeIfAbsent(v.getClass(), theClass -> sameRules(
+                         theClass, v.getKind().newVehicle(0, 0, Direction.NORTH).getClass()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether two classes of vehicle inherit poke, collide, isAlive and 
+     * getDeathTime from the same classes.
+     * 
+     * @param theClass the class of a vehicle
+     * @param theKindClass the class of a vehicle of its kind
+     * @return whether they do
+     */
+    private static boolean sameRules(final Class<?> theClass, final Class<?> theKindClass) {
+        boolean result;
+        try {
+            result = theClass.getMethod("poke").getDeclaringClass()
+                            == theKindClass.getMethod("poke").getDeclaringClass()
+                     && theClass.getMethod("collide", Vehicle.class).getDeclaringClass()
+                            == theKindClass.getMethod("collide", Vehicle.class)
+                                .getDeclaringClass()
+                     && theClass.getMethod("isAlive").getDeclaringClass()
+                            == theKindClass.getMethod("isAlive").getDeclaringClass()
+                     && theClass.getMethod("getDeathTime").getDeclaringClass()
+                            == theKindClass.getMethod("getDeathTime").getDeclaringClass();
+        } catch (final NoSuchMethodException e) {
+            result = false;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the light a vehicle moving onto a cell obeys during the current tick.
+     * 
+     * @param theX the column of the cell
+     * @param theY the row of the cell
+     * @return the light of the cell's signal group
+     */
+    private Light lightAt(final int theX, final int theY) {
+        return mySignals.isUniform() ? myLight : mySignals.lightAt(theX, theY, myTimestep);
+    }
+
+    /**
+     * Returns whether a vehicle may move onto a terrain, looking the answer up in its
+     * kind's Passability mask when it has one rather than asking the vehicle.
+     *
+     * @param theVehicle the vehicle
+     * @param thePassKind its entry of passKinds
+     * @param theTerrain the terrain, or null for off the map
+     * @param theLight the current light
+     * @return whether the vehicle may move
+     */
+    static boolean canPass(final Vehicle theVehicle, final int thePassKind,
+                           final Terrain theTerrain, final Light theLight) {
+        final boolean result;
+        if (thePassKind < 0) {
+            result = theVehicle.canPass(theTerrain, theLight);
+        } else {
+            result = Passability.canPass(thePassKind, Passability.side(theTerrain),
+                                         theLight.ordinal());
         }
+        return result;
+    }
+
+    /**
+     * Finds the vehicles whose canPass is the Passability mask of their kind. A Taxi, or
+     * any vehicle that overrides canPass, keeps being asked.
+     *
+     * @param theVehicles the vehicles
+     * @return the VehicleKind ordinal of each such vehicle, and -1 for every other
+     */
+    static byte[] passKinds(final List<Vehicle> theVehicles) {
+        final byte[] result = new byte[theVehicles.size()];
+        for (int i = 0; i < result.length; i++) {
+            final Vehicle v = theVehicles.get(i);
+            result[i] = (byte) (Passability.isTabled(v) ? v.getKind().ordinal() : -1);
+        }
+        return result;
+    }
+    
+    @Override
+    public Checkpoint checkpoint() {
+        for (final Vehicle v : myVehicles) {
+            if (!VehicleState.isRestorable(v)) {
+                throw new UnsupportedOperationException("Cannot checkpoint " + v);
+            }
+        }
+        wakeAll();
+        final Checkpoint result = new Checkpoint(myGrid.getWidth(), myGrid.getHeight(),
+                                                 myVehicles.size(), myTimestep, myMoveCount,
+                                                 mySeed, myLight);
+        for (int i = 0; i < myRandoms.length; i++) {
+            final Vehicle v = myVehicles.get(i);
+            result.set(i, myKinds[i], v.getX(), v.getY(), v.getDirection().ordinal(),
+                       v.isAlive(), v.getDeathTime(), VehicleState.redLightWait(v),
+                       myRandoms[i].getSeed(), myRandoms[i].getGamma());
+        }
+        return result;
+    }
+    
+    @Override
+    public void restore(final Checkpoint theCheckpoint) {
+        theCheckpoint.checkFits(myGrid.getWidth(), myGrid.getHeight(), myKinds);
+        for (final Vehicle v : myVehicles) {
+            if (!VehicleState.isRestorable(v)) {
+                throw new UnsupportedOperationException("Cannot restore " + v);
+            }
+        }
+        final Direction[] directions = Direction.values();
+        for (int i = 0; i < myRandoms.length; i++) {
+            final Vehicle v = myVehicles.get(i);
+            VehicleState.restore(v, theCheckpoint.x(i), theCheckpoint.y(i),
+                                 directions[theCheckpoint.direction(i)],
+                                 theCheckpoint.isAlive(i), theCheckpoint.deathTime(i),
+                                 theCheckpoint.redLightWait(i));
+            myRandoms[i] = theCheckpoint.random(i);
+            VehicleState.setRandom(v, myRandoms[i]);
+        }
+        if (myActiveSet != null) {
+            myActiveSet.clear();
+        }
+        rebuildCellIndex();
+        mySeed = theCheckpoint.getSeed();
+        myMoveCount = theCheckpoint.getMoveCount();
+        myDeltas.invalidate();
+        setLightColor(theCheckpoint.getLight());
+        setTimeStep(theCheckpoint.getTimeStep());
+        fireGridChange();
         fireVehicleChange();
     }
     
@@ -109,7 +626,12 @@ public class RoadRage implements PropertyChangeEnabledRoadRageControls {
     
     @Override
     public void reset() {
+        wakeAll();
         resetVehicles();
+        rebuildCellIndex();
+        setSeed(mySeed);
+        myMoveCount = 0;
+        myDeltas.invalidate();
         setLightColor(Light.GREEN);
         setTimeStep(0);
         fireGridChange();
@@ -118,12 +640,27 @@ public class RoadRage implements PropertyChangeEnabledRoadRageControls {
     
     @Override
     public int getHeight() {
-        return myGrid.length;
+        return myGrid.getHeight();
     }
 
     @Override
     public int getWidth() {
-        return myGrid[0].length;
+        return myGrid.getWidth();
+    }
+    
+    @Override
+    public long getTimeStep() {
+        return myTimestep;
+    }
+    
+    @Override
+    public long getMoveCount() {
+        return myMoveCount;
+    }
+    
+    @Override
+    public int getVehicleCount() {
+        return myVehicles.size();
     }
     
  
@@ -153,34 +690,76 @@ public class RoadRage implements PropertyChangeEnabledRoadRageControls {
     }
     
     /**
-     * Tests whether the square at the given x/y position exists on the map.
+     * Tells the vehicle at the given list position and every other vehicle sharing its 
+     * cell that they have collided, visiting the others in list order.
      * 
-     * @param theX The x position.
-     * @param theY The y position.
-     * @return true if the position exists on the map, false otherwise.
+     * @param theIndex the list position of the vehicle
+     * @param theVehicle the vehicle
      */
-    private boolean isValidIndex(final int theY, final int theX) {
-        return 0 <= theY && theY < myGrid.length
-            && 0 <= theX && theX < myGrid[theY].length;
+    private void collideInCell(final int theIndex, final Vehicle theVehicle) {
+        final int x = theVehicle.getX();
+        final int y = theVehicle.getY();
+        for (int id = myCellIndex.first(x, y); id != CellIndex.NONE; 
+                        id = myCellIndex.next(id)) {
+            if (id == theIndex) {
+                // don't collide with self
+                continue;
+            }
+            final Vehicle other = myVehicles.get(id);
+            if (x == other.getX() && y == other.getY()) {
+                // tell both vehicles they have collided
+                theVehicle.collide(other);
+                other.collide(theVehicle);
+                wakeIfKilled(id, other);
+            }
+        }
     }
     
     /**
-     * Generates a read-only neighbors map for the specified vehicle.
+     * Tells the vehicle and every other vehicle sharing its cell that they have
+     * collided, by comparing the vehicle against the whole list.
      * 
-     * @param theMover The vehicle.
-     * @return The neighbors map.
+     * @param theVehicle the vehicle
      */
-    private Map<Direction, Terrain> generateNeighbors(final Vehicle theMover) {
-        final int x = theMover.getX();
-        final int y = theMover.getY();
-        final Map<Direction, Terrain> result = new HashMap<Direction, Terrain>();
+    private void collideWithAll(final Vehicle theVehicle) {
+        for (int id = 0; id < myVehicles.size(); id++) {
+            final Vehicle other = myVehicles.get(id);
+            if (theVehicle.equals(other)) { // use of == is intentional - checking for same object
+                // don't collide with self
+                continue;
+            }
 
-        for (final Direction dir : Direction.values()) {
-            if (isValidIndex(y + dir.dy(), x + dir.dx())) {
-                result.put(dir, myGrid[y + dir.dy()][x + dir.dx()]);
+            if (theVehicle.getX() == other.getX() && theVehicle.getY() == other.getY()) {
+                // tell both vehicles they have collided
+                theVehicle.collide(other);
+                other.collide(theVehicle);
+                wakeIfKilled(id, other);
             }
         }
-        return Collections.unmodifiableMap(result);
+    }
+    
+    /**
+     * Wakes a parked vehicle that has just been killed where it stands, so that it 
+     * starts counting down to its revival at its next turn.
+     * 
+     * @param theIndex the list position of the vehicle
+     * @param theVehicle the vehicle
+     */
+    private void wakeIfKilled(final int theIndex, final Vehicle theVehicle) {
+        if (myActiveSet != null && !theVehicle.isAlive() && myActiveSet.isParked(theIndex)) {
+            myActiveSet.wake(theIndex);
+        }
+    }
+    
+    /**
+     * Refills the cell index from the current vehicle positions.
+     */
+    private void rebuildCellIndex() {
+        myCellIndex.clear();
+        for (int i = 0; i < myVehicles.size(); i++) {
+            final Vehicle v = myVehicles.get(i);
+            myCellIndex.add(i, v.getX(), v.getY());
+        }
     }
     
     /**
@@ -213,17 +792,58 @@ public class RoadRage implements PropertyChangeEnabledRoadRageControls {
     }
     
     /**
-     * Inform PropertyChagneListeners of the current state of vehicles.
+     * Inform PropertyChagneListeners of the current state of vehicles, as a full list and 
+     * as the vehicles that changed. Each is only built when someone is listening.
      */
     private void fireVehicleChange() {
-        myPcs.firePropertyChange(PROPERTY_VEHICLES, null, new ArrayList<>(myVehicles));
+        if (myPcs.hasListeners(PROPERTY_VEHICLES)) {
+            if (myActiveSet != null) {
+                // listeners see the vehicles themselves, death countdowns and all
+                for (int i = 0; i < myVehicles.size(); i++) {
+                    for (int missed = myActiveSet.catchUp(i, myTimestep); missed > 0;
+                                    missed--) {
+                        myVehicles.get(i).poke();
+                    }
+                }
+            }
+            myPcs.firePropertyChange(PROPERTY_VEHICLES, null, new ArrayList<>(myVehicles));
+        }
+        if (myPcs.hasListeners(PROPERTY_VEHICLE_DELTA)) {
+            myDeltas.begin(myTimestep);
+            if (myScheduled && !myDeltas.isStale()) {
+                // the vehicles the tick neither visited nor woke are as they were
+                for (int i = myActiveSet.nextTouched(0); i >= 0;
+                                i = myActiveSet.nextTouched(i + 1)) {
+                    recordDelta(i);
+                }
+            } else {
+                for (int i = 0; i < myVehicles.size(); i++) {
+                    recordDelta(i);
+                }
+            }
+            myPcs.firePropertyChange(PROPERTY_VEHICLE_DELTA, null, myDeltas.end());
+        } else {
+            myDeltas.invalidate();
+        }
+    }
+    
+    /**
+     * Records the current state of a vehicle in the delta being built.
+     * 
+     * @param theIndex the list position of the vehicle
+     */
+    private void recordDelta(final int theIndex) {
+        final Vehicle v = myVehicles.get(theIndex);
+        myDeltas.record(theIndex, myKinds[theIndex], v.getX(), v.getY(),
+                        v.getDirection().ordinal(), v.isAlive());
     }
     
     /**
-     * Inform PropertyChagneListeners of the current 2D Terrain grid state.
+     * Inform PropertyChagneListeners of the current Terrain grid state and its signals.
      */
     private void fireGridChange() {
-        myPcs.firePropertyChange(PROPERTY_GRID, null, myGrid.clone());
+        myPcs.firePropertyChange(PROPERTY_GRID, null, myGrid);
+        myPcs.firePropertyChange(PROPERTY_SIGNALS, null, mySignals);
     }
     
     /**
@@ -0,0 +1,179 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import model.Direction;
+import model.Vehicle;
+import model.VehicleKind;
+
+/**
+ * Compiled routing: the direction every deterministic kind of vehicle chooses, for
+ * every neighborhood code and heading, worked out once by asking a vehicle of that kind.
+ *
+ * A Bicycle, Car or Taxi chooses from its heading and the four sides of its cell alone,
+ * and a cell's neighborhood code captures those sides, so one table per kind covers
+ * every cell of any grid: choosing becomes an array read. Kinds that choose at random
+ * have no table and are still asked. Kinds whose tables come out the same share one.
+ *
+ * @version 1 OCT 2018
+ */
+final class RouteTable {
+
+    /**
+     * The kinds whose chooseDirection depends on nothing but the heading and neighbors.
+     */
+    private static final VehicleKind[] DETERMINISTIC = {
+        VehicleKind.BICYCLE, VehicleKind.CAR, VehicleKind.TAXI
+    };
+
+    /** Cached Direction values, indexed by ordinal. */
+    private static final Direction[] DIRECTION_VALUES = Direction.values();
+
+    /** Number of directions. */
+    private static final int DIRECTIONS = DIRECTION_VALUES.length;
+
+    /**
+     * The Direction ordinal chosen, indexed by code * DIRECTIONS + heading ordinal, for
+     * each VehicleKind ordinal; null for a kind chosen live.
+     */
+    private final byte[][] myRoutes;
+
+    /**
+     * The memory taken by the distinct tables.
+     */
+    private final long myBytes;
+
+    /**
+     * Compiles the tables of the deterministic kinds among those given.
+     *
+     * @param theKinds whether each VehicleKind ordinal needs a table
+     */
+    RouteTable(final boolean[] theKinds) {
+        myRoutes = new byte[VehicleKind.values().length][];
+        long bytes = 0;
+        for (final VehicleKind kind : DETERMINISTIC) {
+            if (theKinds[kind.ordinal()]) {
+                final byte[] routes = compile(kind);
+                myRoutes[kind.ordinal()] = routes;
+                for (final byte[] other : myRoutes) {
+                    if (other != routes && Arrays.equals(other, routes)) {
+                        myRoutes[kind.ordinal()] = other;
+                        break;
+                    }
+                }
+                if (myRoutes[kind.ordinal()] == routes) {
+                    bytes += routes.length;
+                }
+            }
+        }
+        myBytes = bytes;
+    }
+
+    /**
+     * Returns whether a kind's choices are compiled.
+     *
+     * @param theKind the VehicleKind ordinal
+     * @return whether route may be used for the kind
+     */
+    boolean isRouted(final int theKind) {
+        return myRoutes[theKind] != null;
+    }
+
+    /**
+     * Returns the direction a vehicle of a compiled kind chooses.
+     *
+     * @param theKind the VehicleKind ordinal
+     * @param theCode the neighborhood code of the vehicle's cell
+     * @param theHeading the Direction ordinal the vehicle is heading
+     * @return the Direction ordinal chosen
+     */
+    int route(final int theKind, final int theCode, final int theHeading) {
+        return myRoutes[theKind][theCode * DIRECTIONS + theHeading];
+    }
+
+    /**
+     * Returns the direction a vehicle of a compiled kind chooses.
+     *
+     * @param theKind the VehicleKind ordinal
+     * @param theCode the neighborhood code of the vehicle's cell
+     * @param theHeading the direction the vehicle is heading
+     * @return the Direction chosen
+     */
+    Direction direction(final int theKind, final int theCode, final Direction theHeading) {
+        return DIRECTION_VALUES[route(theKind, theCode, theHeading.ordinal())];
+    }
+
+    /**
+     * Returns the memory taken by the tables.
+     *
+     * @return the number of bytes of the distinct tables
+     */
+    long bytes() {
+        return myBytes;
+    }
+
+    /**
+     * Finds the vehicles whose choices may be compiled: those of a deterministic kind
+     * whose chooseDirection is the one of that kind's own class.
+     *
+     * @param theVehicles the vehicles
+     * @return the VehicleKind ordinal of each such vehicle, and -1 for every other
+     */
+    static byte[] routeKinds(final List<Vehicle> theVehicles) {
+        final Class<?>[] kindClasses = new Class<?>[VehicleKind.values().length];
+        for (final VehicleKind kind : DETERMINISTIC) {
+            kindClasses[kind.ordinal()] =
+                kind.newVehicle(0, 0, DIRECTION_VALUES[0]).getClass();
+        }
+        final Map<Class<?>, Class<?>> choosers = new HashMap<>();
+        final byte[] result = new byte[theVehicles.size()];
+        for (int i = 0; i < result.length; i++) {
+            final Vehicle v = theVehicles.get(i);
+            final VehicleKind kind = v.getKind();
+            result[i] = -1;
+            if (kind != null && kindClasses[kind.ordinal()] != null
+                && choosers.computeIfAbsent(v.getClass(), RouteTable::chooser)
+                    == kindClasses[kind.ordinal()]) {
+                result[i] = (byte) kind.ordinal();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the class that declares the chooseDirection of a class of vehicle.
+     *
+     * @param theClass the class of vehicle
+     * @return the declaring class, or null if there is none
+     */
+    private static Class<?> chooser(final Class<?> theClass) {
+        try {
+            return theClass.getMethod("chooseDirection", Map.class).getDeclaringClass();
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Asks a vehicle of a kind for its choice in every neighborhood and heading.
+     *
+     * @param theKind the kind
+     * @return its table
+     */
+    private static byte[] compile(final VehicleKind theKind) {
+        final int codes = NeighborhoodTable.codeCount();
+        final byte[] result = new byte[codes * DIRECTIONS];
+        final Vehicle probe = theKind.newVehicle(0, 0, DIRECTION_VALUES[0]);
+        for (int heading = 0; heading < DIRECTIONS; heading++) {
+            probe.setDirection(DIRECTION_VALUES[heading]);
+            for (int code = 0; code < codes; code++) {
+                final Direction choice =
+                    probe.chooseDirection(NeighborhoodTable.neighborhood(code));
+                result[code * DIRECTIONS + heading] = (byte) choice.ordinal();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package logic;
+
+import model.LethalityMatrix;
+import model.SignalPlan;
+
+/**
+ * A Road Rage simulation that can also report counters about its own progress, for 
+ * callers that drive it without a display.
+ * 
+ * @version 1 OCT 2018
+ */
+public interface SimulationEngine extends PropertyChangeEnabledRoadRageControls {
+    
+    /**
+     * Access the number of ticks advanced since the last reset.
+     * 
+     * @return the current time step
+     */
+    long getTimeStep();
+    
+    /**
+     * Access the number of times a vehicle has moved to another cell since the last 
+     * reset. A vehicle that turns or stays put for a tick does not count.
+     * 
+     * @return the number of moves
+     */
+    long getMoveCount();
+    
+    /**
+     * Access the number of vehicles in the simulation, alive or dead.
+     * 
+     * @return the number of vehicles
+     */
+    int getVehicleCount();
+    
+    /**
+     * Sets which kinds of vehicle die colliding with which. Until set, collisions follow 
+     * LethalityMatrix.STANDARD.
+     * 
+     * @param theLethality the matrix of lethal collisions
+     */
+    void setLethality(LethalityMatrix theLethality);
+    
+    /**
+     * Sets the traffic signals. A vehicle moving onto a cell obeys the light of that 
+     * cell's signal group. Until set, every cell follows the city-wide group.
+     * 
+     * @param theSignals the plan, the size of the grid
+     * @throws IllegalArgumentException if the plan is not the size of the grid
+     */
+    void setSignalPlan(SignalPlan theSignals);
+    
+    /**
+     * Switches compiled routing on or off. When on, vehicles of the kinds that choose a 
+     * direction from their heading and neighbors alone look their choice up in tables 
+     * built for every neighborhood and heading, instead of working it out each tick; 
+     * the simulation runs the same either way. Off until set.
+     * 
+     * @param theEnabled true to compile routing, false to choose live
+     */
+    void setCompiledRouting(boolean theEnabled);
+    
+    /**
+     * Access the memory taken by the compiled routing tables.
+     * 
+     * @return the number of bytes, 0 when compiled routing is off
+     */
+    long getRoutingTableBytes();
+    
+    /**
+     * Switches the active set on or off. When on, a tick visits only the vehicles that 
+     * can act: a dead vehicle sleeps until the tick it revives, and a vehicle that keeps 
+     * choosing a move its light forbids is parked until that light changes. The 
+     * simulation runs the same either way. On until set, unless some vehicle does not 
+     * follow the rules of its kind.
+     * 
+     * @param theEnabled true to skip vehicles that cannot act, false to visit every one
+     */
+    void setActiveSetEnabled(boolean theEnabled);
+    
+    /**
+     * Access the number of vehicles the next tick visits.
+     * 
+     * @return the number of active vehicles, every vehicle when the active set is off
+     */
+    int getActiveVehicleCount();
+    
+    /**
+     * Captures the state of the simulation between ticks: the time step, the light, the 
+     * position, direction, life, death countdown and red light wait of every vehicle, 
+     * and the state of each vehicle's source of random choices. Taking a checkpoint 
+     * only reads the simulation, so a run goes on the same whether it carries on, is 
+     * restored, or had no checkpoint taken. The lethality and signals are not captured.
+     * 
+     * @return the checkpoint, which later ticks do not change
+     * @throws UnsupportedOperationException if some vehicle's state cannot be read
+     */
+    Checkpoint checkpoint();
+    
+    /**
+     * Puts the simulation in the state of a checkpoint taken from a simulation of the 
+     * same map, of either engine. A later reset goes back to the start of the map.
+     * 
+     * @param theCheckpoint the checkpoint
+     * @throws IllegalArgumentException if the checkpoint is of another map
+     * @throws UnsupportedOperationException if some vehicle's state cannot be restored
+     */
+    void restore(Checkpoint theCheckpoint);
+}
@@ -0,0 +1,499 @@
+package logic;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Runs a simulation on its own thread at a steady number of ticks per second and
+ * publishes a WorldSnapshot after every frame through a TripleBuffer, so that a display
+ * can paint the latest state whenever it likes without waiting for a tick.
+ *
+ * Only the loop thread touches the simulation. Controls such as play, pause and step
+ * are queued as commands and run on the loop thread between ticks.
+ *
+ * Ticks are paced against the wall clock. When ticks fall behind, up to a number of
+ * catch-up ticks are run back to back and only the last of them is published, skipping
+ * the frames in between. Anything still behind after that is dropped, so the
+ * simulation slows down instead of running ever further behind.
+ *
+ * The loop can also fast-forward: run ticks back to back as fast as the simulation
+ * allows, publishing only as often as a display can show them, optionally until a
+ * time step or some other condition is reached.
+ *
+ * If the simulation throws, the loop stops for good: it pauses, fails any run to a
+ * target under way with the exception, keeps the last frame published and ends its
+ * thread, handing the exception to the thread's uncaught exception handler. Commands
+ * given after that are never run.
+ *
+ * @version 1 OCT 2018
+ */
+public final class SimulationLoop {
+
+    /**
+     * The number of catch-up ticks allowed per frame, unless set otherwise.
+     */
+    public static final int DEFAULT_MAX_CATCH_UP = 4;
+
+    /**
+     * The number of frames per second published while fast-forwarding.
+     */
+    public static final int FAST_FORWARD_FRAMES_PER_SECOND = 60;
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Nanoseconds between frames published while fast-forwarding.
+     */
+    private static final long FAST_FORWARD_PERIOD =
+                    NANOS_PER_SECOND / FAST_FORWARD_FRAMES_PER_SECOND;
+
+    /**
+     * The simulation.
+     */
+    private final PropertyChangeEnabledRoadRageControls mySimulation;
+
+    /**
+     * The commands waiting for the loop thread.
+     */
+    private final BlockingQueue<Runnable> myCommands;
+
+    /**
+     * The published snapshots.
+     */
+    private final TripleBuffer<WorldSnapshot> mySnapshots;
+
+    /**
+     * The state of the simulation as of its last event. Only the loop thread uses it.
+     */
+    private final WorldSnapshot myWorld;
+
+    /**
+     * Told after every published frame, on the loop thread.
+     */
+    private final Runnable myFrameListener;
+
+    /**
+     * The loop thread.
+     */
+    private final Thread myThread;
+
+    /**
+     * Whether ticks run on their own.
+     */
+    private boolean myRunning;
+
+    /**
+     * Whether the loop thread should end.
+     */
+    private boolean myShutdown;
+
+    /**
+     * Nanoseconds between ticks.
+     */
+    private long myPeriod;
+
+    /**
+     * The System.nanoTime at which the next tick is due.
+     */
+    private long myNextTick;
+
+    /**
+     * The number of catch-up ticks allowed per frame.
+     */
+    private int myMaxCatchUp;
+
+    /**
+     * The number of ticks dropped because the simulation could not keep up.
+     */
+    private volatile long myDroppedTicks;
+
+    /**
+     * Whether ticks run back to back.
+     */
+    private boolean myFastForward;
+
+    /**
+     * The condition that ends fast-forwarding, or null to go on until told otherwise.
+     */
+    private Predicate<? super WorldSnapshot> myTarget;
+
+    /**
+     * Completed with the time step at which the target was reached.
+     */
+    private CompletableFuture<Long> myTargetReached;
+
+    /**
+     * The System.nanoTime of the last published frame.
+     */
+    private long myLastPublish;
+
+    /**
+     * The exception that stopped the loop, or null while it runs.
+     */
+    private volatile RuntimeException myFailure;
+
+    /**
+     * Creates a loop for a simulation and starts its thread, paused. The thread first
+     * puts the simulation in its starting state and publishes it.
+     *
+     * @param theSimulation the simulation, which no other thread may use from now on
+     * @param theTicksPerSecond the initial rate of ticks
+     * @param theFrameListener told on the loop thread after each published frame
+     */
+    public SimulationLoop(final PropertyChangeEnabledRoadRageControls theSimulation,
+                          final double theTicksPerSecond, final Runnable theFrameListener) {
+        mySimulation = theSimulation;
+        myCommands = new LinkedBlockingQueue<>();
+        mySnapshots = new TripleBuffer<>(new WorldSnapshot(), new WorldSnapshot(),
+                                         new WorldSnapshot());
+        myWorld = new WorldSnapshot();
+        myFrameListener = theFrameListener;
+        myPeriod = periodOf(theTicksPerSecond);
+        myMaxCatchUp = DEFAULT_MAX_CATCH_UP;
+        for (final String property : WorldSnapshot.PROPERTIES) {
+            theSimulation.addPropertyChangeListener(property, myWorld::update);
+        }
+        myCommands.add(() -> {
+            mySimulation.start();
+            publish();
+        });
+        myThread = new Thread(this::runLoop, "Road Rage simulation");
+        myThread.setDaemon(true);
+        myThread.start();
+    }
+
+    /**
+     * Returns the published snapshots. Only one thread may read them.
+     *
+     * @return the snapshots
+     */
+    public TripleBuffer<WorldSnapshot> snapshots() {
+        return mySnapshots;
+    }
+
+    /**
+     * Returns the number of ticks dropped so far because the simulation could not keep
+     * up with its rate.
+     *
+     * @return the number of dropped ticks
+     */
+    public long getDroppedTicks() {
+        return myDroppedTicks;
+    }
+
+    /**
+     * Returns the exception thrown by the simulation that stopped the loop.
+     *
+     * @return the exception, or null if the loop has not failed
+     */
+    public RuntimeException getFailure() {
+        return myFailure;
+    }
+
+    /**
+     * Sets the handler the loop thread reports an exception that stops it to. Until set,
+     * the thread's group reports it, as for any thread.
+     *
+     * @param theHandler the handler
+     */
+    public void setUncaughtExceptionHandler(final Thread.UncaughtExceptionHandler theHandler) {
+        myThread.setUncaughtExceptionHandler(theHandler);
+    }
+
+    /**
+     * Starts ticking at the current rate.
+     */
+    public void play() {
+        myCommands.add(() -> {
+            endFastForward();
+            myRunning = true;
+            myNextTick = System.nanoTime() + myPeriod;
+        });
+    }
+
+    /**
+     * Stops ticking.
+     */
+    public void pause() {
+        myCommands.add(() -> {
+            endFastForward();
+            myRunning = false;
+        });
+    }
+
+    /**
+     * Runs ticks back to back, as fast as the simulation allows, until paused, played or
+     * reset. Frames are published FAST_FORWARD_FRAMES_PER_SECOND times a second.
+     */
+    public void fastForward() {
+        myCommands.add(() -> startFastForward(null, new CompletableFuture<>()));
+    }
+
+    /**
+     * Fast-forwards until the simulation reaches a time step, then pauses.
+     *
+     * @param theTimeStep the time step to stop at
+     * @return a future completed with the time step reached, cancelled if the loop is
+     *         paused, played, stepped or reset first, or failed if the simulation throws
+     */
+    public CompletableFuture<Long> runUntil(final long theTimeStep) {
+        return runUntil(theWorld -> theWorld.timeStep() >= theTimeStep);
+    }
+
+    /**
+     * Fast-forwards until a condition holds after a tick, then pauses. The condition is
+     * tested on the loop thread, once before the first tick and then after every tick,
+     * against the state of the simulation as of that tick; it may keep state of its own
+     * between tests.
+     *
+     * @param theCondition the condition to stop at
+     * @return a future completed with the time step at which the condition held,
+     *         cancelled if the loop is paused, played, stepped or reset first, or failed
+     *         if the simulation throws
+     */
+    public CompletableFuture<Long> runUntil(final Predicate<? super WorldSnapshot> theCondition) {
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+        myCommands.add(() -> startFastForward(theCondition, result));
+        return result;
+    }
+
+    /**
+     * Advances the simulation by one tick and publishes it.
+     */
+    public void step() {
+        myCommands.add(() -> {
+            endFastForward();
+            mySimulation.advance();
+            publish();
+        });
+    }
+
+    /**
+     * Stops ticking, resets the simulation and publishes it.
+     */
+    public void reset() {
+        myCommands.add(() -> {
+            endFastForward();
+            myRunning = false;
+            mySimulation.reset();
+            publish();
+        });
+    }
+
+    /**
+     * Stops ticking, runs a command against the simulation on the loop thread and
+     * publishes the result. This is for controls of a particular simulation, such as
+     * seeking a ReplayRoadRage.
+     *
+     * @param theCommand the command, which may use the simulation
+     */
+    public void execute(final Runnable theCommand) {
+        myCommands.add(() -> {
+            endFastForward();
+            myRunning = false;
+            theCommand.run();
+            publish();
+        });
+    }
+
+    /**
+     * Sets the rate of ticks.
+     *
+     * @param theTicksPerSecond the number of ticks per second, greater than zero
+     */
+    public void setTicksPerSecond(final double theTicksPerSecond) {
+        final long period = periodOf(theTicksPerSecond);
+        myCommands.add(() -> {
+            myPeriod = period;
+            myNextTick = System.nanoTime() + period;
+        });
+    }
+
+    /**
+     * Sets how many ticks may be run back to back, without publishing, to catch up
+     * when ticks fall behind. With zero, late ticks are dropped at once.
+     *
+     * @param theMaxCatchUp the number of catch-up ticks per frame, zero or more
+     */
+    public void setMaxCatchUp(final int theMaxCatchUp) {
+        if (theMaxCatchUp < 0) {
+            throw new IllegalArgumentException("negative catch-up: " + theMaxCatchUp);
+        }
+        myCommands.add(() -> myMaxCatchUp = theMaxCatchUp);
+    }
+
+    /**
+     * Ends the loop thread once the commands before this one have run.
+     */
+    public void shutdown() {
+        myCommands.add(() -> myShutdown = true);
+    }
+
+    /**
+     * Waits for the loop thread to end.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void join() throws InterruptedException {
+        myThread.join();
+    }
+
+    /**
+     * The body of the loop thread: runs commands as they arrive and ticks when due.
+     */
+    private void runLoop() {
+        try {
+            while (!myShutdown) {
+                final Runnable command;
+                if (myFastForward) {
+                    command = myCommands.poll();
+                } else if (myRunning) {
+                    final long wait = myNextTick - System.nanoTime();
+                    command = myCommands.poll(wait, TimeUnit.NANOSECONDS);
+                } else {
+                    command = myCommands.take();
+                }
+                if (command != null) {
+                    command.run();
+                } else if (myFastForward) {
+                    fastTick();
+                } else {
+                    tick();
+                }
+            }
+        } catch (final InterruptedException ie) {
+            // end the loop
+            Thread.currentThread().interrupt();
+        } catch (final RuntimeException re) {
+            fail(re);
+            throw re;
+        }
+    }
+
+    /**
+     * Stops the loop for good after the simulation threw: pauses, fails any run to a
+     * target under way and records the exception.
+     *
+     * @param theFailure the exception
+     */
+    private void fail(final RuntimeException theFailure) {
+        myFailure = theFailure;
+        myShutdown = true;
+        myRunning = false;
+        myFastForward = false;
+        myTarget = null;
+        if (myTargetReached != null) {
+            myTargetReached.completeExceptionally(theFailure);
+            myTargetReached = null;
+        }
+    }
+
+    /**
+     * Runs the tick that is due, and catch-up ticks while more are due, then publishes.
+     */
+    private void tick() {
+        final long now = System.nanoTime();
+        int ticks = 0;
+        do {
+            mySimulation.advance();
+            myNextTick += myPeriod;
+            ticks++;
+        } while (ticks <= myMaxCatchUp && myNextTick - now <= 0);
+
+        if (myNextTick - now <= 0) {
+            // still behind: give up on the missed ticks
+            myDroppedTicks += (now - myNextTick) / myPeriod + 1;
+            myNextTick = now + myPeriod;
+        }
+        publish();
+    }
+
+    /**
+     * Starts fast-forwarding, ending any fast-forward already under way. Stops at once
+     * if the target already holds.
+     *
+     * @param theTarget the condition to stop at, or null for none
+     * @param theReached completed with the time step at which the target holds
+     */
+    private void startFastForward(final Predicate<? super WorldSnapshot> theTarget,
+                                  final CompletableFuture<Long> theReached) {
+        endFastForward();
+        myRunning = false;
+        myTarget = theTarget;
+        myTargetReached = theReached;
+        myFastForward = true;
+        if (theTarget != null && theTarget.test(myWorld)) {
+            reachTarget();
+        }
+    }
+
+    /**
+     * Runs one fast-forward tick, and publishes if a frame is due or the target is
+     * reached.
+     */
+    private void fastTick() {
+        mySimulation.advance();
+        if (myTarget != null && myTarget.test(myWorld)) {
+            reachTarget();
+        } else if (System.nanoTime() - myLastPublish >= FAST_FORWARD_PERIOD) {
+            publish();
+        }
+    }
+
+    /**
+     * Stops fast-forwarding at the target, paused, and publishes the state reached.
+     */
+    private void reachTarget() {
+        final CompletableFuture<Long> reached = myTargetReached;
+        myFastForward = false;
+        myTarget = null;
+        myTargetReached = null;
+        publish();
+        reached.complete(myWorld.timeStep());
+    }
+
+    /**
+     * Stops any fast-forward under way short of its target, and publishes the state it
+     * got to.
+     */
+    private void endFastForward() {
+        if (myFastForward) {
+            final CompletableFuture<Long> reached = myTargetReached;
+            myFastForward = false;
+            myTarget = null;
+            myTargetReached = null;
+            publish();
+            reached.cancel(false);
+        }
+    }
+
+    /**
+     * Copies the current state into the back snapshot, publishes it and tells the frame
+     * listener.
+     */
+    private void publish() {
+        myLastPublish = System.nanoTime();
+        mySnapshots.back().copyFrom(myWorld);
+        mySnapshots.publish();
+        myFrameListener.run();
+    }
+
+    /**
+     * Converts a rate of ticks to the nanoseconds between them.
+     *
+     * @param theTicksPerSecond the number of ticks per second
+     * @return the period
+     */
+    private static long periodOf(final double theTicksPerSecond) {
+        if (!(theTicksPerSecond > 0)) {
+            throw new IllegalArgumentException("rate must be positive: " + theTicksPerSecond);
+        }
+        return Math.max(1, (long) (NANOS_PER_SECOND / theTicksPerSecond));
+    }
+}
@@ -0,0 +1,386 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import model.Direction;
+import model.Light;
+import model.SignalPlan;
+import model.Terrain;
+import model.Vehicle;
+
+/**
+ * Advances a list of vehicles by one tick in two phases over horizontal stripes of the
+ * grid, so that stripes can be processed on different threads.
+ *
+ * In the intent phase every vehicle chooses its direction, checks whether it may pass
+ * and records the cell it will end up in, touching only its own state. In the commit
+ * phase the vehicles are grouped by the stripe of that cell; each stripe moves its
+ * vehicles and then collides the vehicles sharing a cell, in list order. Since every
+ * cell belongs to exactly one stripe, the outcome does not depend on the number of
+ * stripes or threads.
+ *
+ * Unlike RoadRage's serial tick, where a vehicle collides with others as soon as it
+ * moves, all vehicles move before any collision is resolved.
+ *
+ * @version 1 OCT 2018
+ */
+final class StripedTick {
+
+    /**
+     * The number of stripes created per thread of the pool, to balance uneven stripes.
+     */
+    private static final int STRIPES_PER_THREAD = 4;
+
+    /**
+     * The vehicles, in list order.
+     */
+    private final List<Vehicle> myVehicles;
+
+    /**
+     * The precomputed neighborhood of every cell of the grid.
+     */
+    private final NeighborhoodTable myNeighborhoods;
+
+    /**
+     * The Passability kind of each vehicle, as found by RoadRage.passKinds.
+     */
+    private final byte[] myPassKinds;
+
+    /**
+     * The routed kind of each vehicle, as found by RouteTable.routeKinds.
+     */
+    private final byte[] myRouteKinds;
+
+    /**
+     * The number of rows of the grid.
+     */
+    private final int myHeight;
+
+    /**
+     * The x position each vehicle ends the tick in.
+     */
+    private final int[] myTargetX;
+
+    /**
+     * The y position each vehicle ends the tick in.
+     */
+    private final int[] myTargetY;
+
+    /**
+     * Vehicle list positions grouped by stripe, ascending within each stripe.
+     */
+    private final int[] myOrder;
+
+    /**
+     * A cell index per stripe, reused from tick to tick.
+     */
+    private CellIndex[] myStripeIndexes;
+
+    /**
+     * The number of vehicles each stripe moved to another cell in the current tick.
+     */
+    private int[] myStripeMoves;
+
+    /**
+     * The start of each stripe's group in myOrder, plus the end of the last group.
+     */
+    private int[] myStripeStarts;
+
+    /**
+     * The number of rows in each stripe, except possibly the last.
+     */
+    private int myStripeRows;
+
+    /**
+     * The traffic signals during the tick being advanced.
+     */
+    private SignalPlan mySignals;
+
+    /**
+     * The time step being advanced from.
+     */
+    private long myTimeStep;
+
+    /**
+     * The city-wide light during the tick being advanced.
+     */
+    private Light myLight;
+
+    /**
+     * The compiled routing in effect during the tick being advanced, or null.
+     */
+    private RouteTable myRoutes;
+
+    /**
+     * Creates a striped tick over the given vehicles.
+     *
+     * @param theVehicles the vehicles, in list order
+     * @param thePassKinds the Passability kind of each vehicle
+     * @param theRouteKinds the routed kind of each vehicle
+     * @param theNeighborhoods the neighborhoods of the grid
+     * @param theHeight the number of rows of the grid
+     */
+    StripedTick(final List<Vehicle> theVehicles, final byte[] thePassKinds,
+                final byte[] theRouteKinds, final NeighborhoodTable theNeighborhoods,
+                final int theHeight) {
+        myVehicles = theVehicles;
+        myPassKinds = thePassKinds;
+        myRouteKinds = theRouteKinds;
+        myNeighborhoods = theNeighborhoods;
+        myHeight = Math.max(theHeight, 1);
+        final int count = theVehicles.size();
+        myTargetX = new int[count];
+        myTargetY = new int[count];
+        myOrder = new int[count];
+        myStripeIndexes = new CellIndex[0];
+        myStripeStarts = new int[1];
+        myStripeMoves = new int[0];
+    }
+
+    /**
+     * Advances every vehicle by one tick.
+     *
+     * @param theSignals the traffic signals
+     * @param theTimeStep the current time step
+     * @param theRoutes the compiled routing, or null to choose every direction live
+     * @param thePool the pool to run stripes on, or null to run them on this thread
+     * @return the number of vehicles that moved to another cell
+     */
+    int advance(final SignalPlan theSignals, final long theTimeStep,
+                final RouteTable theRoutes, final ForkJoinPool thePool) {
+        mySignals = theSignals;
+        myTimeStep = theTimeStep;
+        myLight = theSignals.lightOf(SignalPlan.CITY_WIDE, theTimeStep);
+        myRoutes = theRoutes;
+        final int stripes;
+        if (thePool == null) {
+            stripes = 1;
+        } else {
+            stripes = Math.min(myHeight, thePool.getParallelism() * STRIPES_PER_THREAD);
+        }
+        setStripes(stripes);
+
+        groupByStripe(true);
+        runStripes(thePool, this::intend);
+
+        groupByStripe(false);
+        runStripes(thePool, this::commit);
+
+        int moves = 0;
+        for (final int stripeMoves : myStripeMoves) {
+            moves += stripeMoves;
+        }
+        return moves;
+    }
+
+    /**
+     * Prepares the per-stripe structures for a number of stripes.
+     *
+     * @param theStripes the number of stripes
+     */
+    private void setStripes(final int theStripes) {
+        myStripeRows = (myHeight + theStripes - 1) / theStripes;
+        if (myStripeStarts.length != theStripes + 1) {
+            myStripeStarts = new int[theStripes + 1];
+            myStripeIndexes = new CellIndex[theStripes];
+            myStripeMoves = new int[theStripes];
+        }
+    }
+
+    /**
+     * Runs an action once per stripe, in parallel when a pool is given.
+     *
+     * @param thePool the pool, or null
+     * @param theAction the action, given a stripe number
+     */
+    private void runStripes(final ForkJoinPool thePool, final IntConsumer theAction) {
+        final int stripes = myStripeStarts.length - 1;
+        if (thePool == null || stripes == 1) {
+            for (int s = 0; s < stripes; s++) {
+                theAction.accept(s);
+            }
+        } else {
+            thePool.invoke(new StripeAction(0, stripes, theAction));
+        }
+    }
+
+    /**
+     * Groups vehicle list positions by stripe with a stable counting sort.
+     *
+     * @param theCurrent true to group by current row, false by target row
+     */
+    private void groupByStripe(final boolean theCurrent) {
+        final int stripes = myStripeStarts.length - 1;
+        final int count = myOrder.length;
+        final int[] starts = myStripeStarts;
+        Arrays.fill(starts, 0);
+        for (int i = 0; i < count; i++) {
+            starts[stripeOf(rowOf(i, theCurrent)) + 1]++;
+        }
+        for (int s = 0; s < stripes; s++) {
+            starts[s + 1] += starts[s];
+        }
+        final int[] next = Arrays.copyOf(starts, stripes);
+        for (int i = 0; i < count; i++) {
+            myOrder[next[stripeOf(rowOf(i, theCurrent))]++] = i;
+        }
+    }
+
+    /**
+     * Returns the row a vehicle is grouped by.
+     *
+     * @param theId the vehicle list position
+     * @param theCurrent true for its current row, false for its target row
+     * @return the row
+     */
+    private int rowOf(final int theId, final boolean theCurrent) {
+        return theCurrent ? myVehicles.get(theId).getY() : myTargetY[theId];
+    }
+
+    /**
+     * Returns the stripe of a row. Rows off the map belong to the nearest stripe.
+     *
+     * @param theY the row
+     * @return the stripe number
+     */
+    private int stripeOf(final int theY) {
+        final int row = Math.max(0, Math.min(myHeight - 1, theY));
+        return row / myStripeRows;
+    }
+
+    /**
+     * The intent phase for one stripe: each vehicle turns, checks whether it may pass and
+     * records where it will end up; dead vehicles are poked instead.
+     *
+     * @param theStripe the stripe number
+     */
+    private void intend(final int theStripe) {
+        int moves = 0;
+        for (int k = myStripeStarts[theStripe]; k < myStripeStarts[theStripe + 1]; k++) {
+            final int id = myOrder[k];
+            final Vehicle v = myVehicles.get(id);
+            int x = v.getX();
+            int y = v.getY();
+            if (v.isAlive()) {
+                final Map<Direction, Terrain> neighbors = myNeighborhoods.get(x, y);
+                final int routed = myRoutes == null ? -1 : myRouteKinds[id];
+                final Direction newDirection;
+                if (routed < 0) {
+                    newDirection = v.chooseDirection(neighbors);
+                } else {
+                    newDirection = myRoutes.direction(routed, myNeighborhoods.code(x, y),
+                                                      v.getDirection());
+                }
+                v.setDirection(newDirection);
+                final int toX = x + newDirection.dx();
+                final int toY = y + newDirection.dy();
+                final Light light;
+                if (mySignals.isUniform()) {
+                    light = myLight;
+                } else {
+                    light = mySignals.lightAt(toX, toY, myTimeStep);
+                }
+                if (RoadRage.canPass(v, myPassKinds[id], neighbors.get(newDirection), light)) {
+                    x = toX;
+                    y = toY;
+                    moves++;
+                }
+            } else {
+                v.poke();
+            }
+            myTargetX[id] = x;
+            myTargetY[id] = y;
+        }
+        myStripeMoves[theStripe] = moves;
+    }
+
+    /**
+     * The commit phase for one stripe: moves the vehicles ending up in the stripe, then
+     * tells every pair of vehicles sharing a cell that they have collided, in list order.
+     *
+     * @param theStripe the stripe number
+     */
+    private void commit(final int theStripe) {
+        final int start = myStripeStarts[theStripe];
+        final int size = myStripeStarts[theStripe + 1] - start;
+        CellIndex index = myStripeIndexes[theStripe];
+        if (index == null || index.capacity() < size) {
+            index = new CellIndex(Math.max(size, size + size / 2));
+            myStripeIndexes[theStripe] = index;
+        } else {
+            index.clear();
+        }
+
+        // local ids follow list order, so chains visit vehicles in list order
+        for (int local = 0; local < size; local++) {
+            final int id = myOrder[start + local];
+            final Vehicle v = myVehicles.get(id);
+            v.setX(myTargetX[id]);
+            v.setY(myTargetY[id]);
+            index.add(local, myTargetX[id], myTargetY[id]);
+        }
+
+        for (int local = 0; local < size; local++) {
+            final int id = myOrder[start + local];
+            final Vehicle v = myVehicles.get(id);
+            final int x = myTargetX[id];
+            final int y = myTargetY[id];
+            for (int other = index.first(x, y); other != CellIndex.NONE;
+                            other = index.next(other)) {
+                final int otherId = myOrder[start + other];
+                if (other != local && myTargetX[otherId] == x && myTargetY[otherId] == y) {
+                    final Vehicle o = myVehicles.get(otherId);
+                    v.collide(o);
+                    o.collide(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs an action over a range of stripes, splitting the range across the pool.
+     */
+    private static final class StripeAction extends RecursiveAction {
+
+        /** The serial version UID. */
+        private static final long serialVersionUID = 1L;
+
+        /** The first stripe of the range. */
+        private final int myLow;
+
+        /** One past the last stripe of the range. */
+        private final int myHigh;
+
+        /** The action to run per stripe. */
+        private final transient IntConsumer myAction;
+
+        /**
+         * Creates an action over a range of stripes.
+         *
+         * @param theLow the first stripe
+         * @param theHigh one past the last stripe
+         * @param theAction the action to run per stripe
+         */
+        StripeAction(final int theLow, final int theHigh, final IntConsumer theAction) {
+            super();
+            myLow = theLow;
+            myHigh = theHigh;
+            myAction = theAction;
+        }
+
+        @Override
+        protected void compute() {
+            if (myHigh - myLow == 1) {
+                myAction.accept(myLow);
+            } else {
+                final int mid = (myLow + myHigh) >>> 1;
+                invokeAll(new StripeAction(myLow, mid, myAction),
+                          new StripeAction(mid, myHigh, myAction));
+            }
+        }
+    }
+}
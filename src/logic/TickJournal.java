@@ -0,0 +1,388 @@
+package logic;
+
+import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_LIGHT;
+import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_VEHICLE_DELTA;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import model.Light;
+
+/**
+ * An append-only journal of a simulation's ticks, written through a memory mapping of
+ * the file as the ticks happen, for ReplayRoadRage to play back, seek and rewind without
+ * running the simulation again.
+ *
+ * The journal listens to a simulation's vehicle deltas and writes one frame per delta:
+ * the delta itself, or every so many frames a keyframe holding every vehicle, so that
+ * any frame can be rebuilt from the keyframe before it and at most that many deltas.
+ * A full delta, as after a reset or restore, is always written as a keyframe. Deltas
+ * before the first full one are skipped, so a journal should be attached before the
+ * simulation starts.
+ *
+ * A file is a header followed by frames, all big-endian:
+ * <pre>
+ *  0  int   MAGIC, "RRJN"
+ *  4  short VERSION
+ *  6  short HEADER_BYTES, the offset of the first frame
+ *  8  int   columns
+ * 12  int   rows
+ * 16  int   vehicles, 0 until the first frame
+ * 20  int   keyframe interval
+ * 24  long  number of frames written
+ * 32  long  end offset of the last frame written
+ * 40  long  zero
+ * </pre>
+ * Each frame is its type, KEYFRAME or DELTA, and the Light ordinal of the city-wide
+ * group as bytes, a zero short, the number of entries as an int and the time step as a
+ * long, then the entries. A keyframe entry is the VehicleKind ordinal, Direction ordinal
+ * and VehicleDelta flags of a vehicle as bytes, a zero byte, then its x and y as ints,
+ * for every vehicle in id order. A delta entry is the vehicle id as an int followed by
+ * the same twelve bytes.
+ *
+ * The header is brought up to date after every frame, and a reader goes no further
+ * than the end it gives, so a journal cut off by a crash is read up to its last whole
+ * frame.
+ *
+ * @version 1 OCT 2018
+ */
+public final class TickJournal implements PropertyChangeListener, Closeable {
+
+    /**
+     * The first four bytes of every journal file.
+     */
+    static final int MAGIC = 'R' << 24 | 'R' << 16 | 'J' << 8 | 'N';
+
+    /**
+     * The version of the format written, and the newest read.
+     */
+    static final short VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    static final short HEADER_BYTES = 48;
+
+    /**
+     * The size of a frame header in bytes.
+     */
+    static final int FRAME_BYTES = 16;
+
+    /**
+     * The frame type of a keyframe.
+     */
+    static final byte KEYFRAME = 1;
+
+    /**
+     * The frame type of a delta.
+     */
+    static final byte DELTA = 2;
+
+    /**
+     * The size of a keyframe entry in bytes.
+     */
+    static final int KEYFRAME_ENTRY_BYTES = 12;
+
+    /**
+     * The size of a delta entry in bytes.
+     */
+    static final int DELTA_ENTRY_BYTES = 16;
+
+    /**
+     * The number of frames between keyframes, unless given.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    /**
+     * The offset of the number of columns in the header.
+     */
+    static final int COLUMNS_OFFSET = 8;
+
+    /**
+     * The offset of the number of vehicles in the header.
+     */
+    static final int VEHICLES_OFFSET = 16;
+
+    /**
+     * The offset of the keyframe interval in the header.
+     */
+    static final int INTERVAL_OFFSET = 20;
+
+    /**
+     * The offset of the number of frames in the header.
+     */
+    static final int FRAMES_OFFSET = 24;
+
+    /**
+     * The offset of the end of the last frame in the header.
+     */
+    static final int END_OFFSET = 32;
+
+    /**
+     * The least number of bytes mapped at once past the end of the journal.
+     */
+    private static final int WINDOW_BYTES = 1 << 26;
+
+    /**
+     * The simulation journaled.
+     */
+    private final PropertyChangeEnabledRoadRageControls mySimulation;
+
+    /**
+     * The file.
+     */
+    private final FileChannel myChannel;
+
+    /**
+     * The header, mapped, or null once closed.
+     */
+    private MappedByteBuffer myHeader;
+
+    /**
+     * The number of frames between keyframes.
+     */
+    private final int myInterval;
+
+    /**
+     * The mapping frames are written to, or null before the first.
+     */
+    private MappedByteBuffer myWindow;
+
+    /**
+     * The file offset of the start of the window.
+     */
+    private long myWindowStart;
+
+    /**
+     * The file offset at which the next frame goes.
+     */
+    private long myEnd;
+
+    /**
+     * The number of frames written.
+     */
+    private long myFrames;
+
+    /**
+     * The number of deltas written since the last keyframe.
+     */
+    private int mySinceKeyframe;
+
+    /**
+     * The light of the city-wide group as of the last event.
+     */
+    private Light myLight;
+
+    /** The VehicleKind ordinal of each vehicle, or -1. */
+    private byte[] myKinds;
+
+    /** The x position of each vehicle. */
+    private int[] myXs;
+
+    /** The y position of each vehicle. */
+    private int[] myYs;
+
+    /** The Direction ordinal of each vehicle. */
+    private byte[] myDirections;
+
+    /** Whether each vehicle is alive. */
+    private boolean[] myAlive;
+
+    /**
+     * Creates a journal file, replacing any file of the same name, and starts listening
+     * to a simulation.
+     *
+     * @param theSimulation the simulation, not yet started
+     * @param theFile the file
+     * @param theKeyframeInterval the number of frames between keyframes, at least 1
+     * @throws IOException if the file cannot be created
+     */
+    public TickJournal(final PropertyChangeEnabledRoadRageControls theSimulation,
+                       final Path theFile, final int theKeyframeInterval) throws IOException {
+        if (theKeyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval " + theKeyframeInterval);
+        }
+        mySimulation = theSimulation;
+        myInterval = theKeyframeInterval;
+        myLight = Light.GREEN;
+        myChannel = FileChannel.open(theFile, StandardOpenOption.READ,
+                                     StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                                     StandardOpenOption.TRUNCATE_EXISTING);
+        myHeader = myChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        myHeader.putInt(MAGIC).putShort(VERSION).putShort(HEADER_BYTES);
+        myHeader.putInt(theSimulation.getWidth()).putInt(theSimulation.getHeight());
+        myHeader.putInt(0).putInt(theKeyframeInterval);
+        myHeader.putLong(0).putLong(HEADER_BYTES).putLong(0);
+        myEnd = HEADER_BYTES;
+        theSimulation.addPropertyChangeListener(PROPERTY_LIGHT, this);
+        theSimulation.addPropertyChangeListener(PROPERTY_VEHICLE_DELTA, this);
+    }
+
+    /**
+     * Access the number of frames written.
+     *
+     * @return the number of frames
+     */
+    public long getFrameCount() {
+        return myFrames;
+    }
+
+    /**
+     * Access the size of the journal.
+     *
+     * @return the number of bytes written
+     */
+    public long getBytes() {
+        return myEnd;
+    }
+
+    @Override
+    public void propertyChange(final PropertyChangeEvent theEvent) {
+        if (PROPERTY_LIGHT.equals(theEvent.getPropertyName())) {
+            myLight = (Light) theEvent.getNewValue();
+        } else {
+            try {
+                append((VehicleDelta) theEvent.getNewValue());
+            } catch (final IOException e) {
+                throw new IllegalStateException("Could not append to the journal", e);
+            }
+        }
+    }
+
+    /**
+     * Stops listening, forces the frames and header out to the file, and cuts the file
+     * off after the last frame. The mappings are dropped before the file is cut, but
+     * Java cannot unmap them at once; where a file still mapped cannot be cut, as on
+     * Windows, it keeps its length, and readers stop at the end the header gives.
+     *
+     * @throws IOException if the file cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        mySimulation.removePropertyChangeListener(PROPERTY_LIGHT, this);
+        mySimulation.removePropertyChangeListener(PROPERTY_VEHICLE_DELTA, this);
+        if (myWindow != null) {
+            myWindow.force();
+            myWindow = null;
+        }
+        myHeader.force();
+        myHeader = null;
+        try {
+            myChannel.truncate(myEnd);
+        } catch (final IOException e) {
+            // still mapped: the header's end is what counts
+        }
+        myChannel.close();
+    }
+
+    /**
+     * Writes the frame of a delta.
+     *
+     * @param theDelta the delta
+     * @throws IOException if the file cannot be grown
+     */
+    private void append(final VehicleDelta theDelta) throws IOException {
+        if (theDelta.isFull()) {
+            resize(theDelta.vehicleCount());
+        }
+        if (myKinds != null) {
+            for (int i = 0; i < theDelta.size(); i++) {
+                final int id = theDelta.id(i);
+                myKinds[id] = (byte) theDelta.kind(i);
+                myXs[id] = theDelta.x(i);
+                myYs[id] = theDelta.y(i);
+                myDirections[id] = (byte) theDelta.direction(i);
+                myAlive[id] = theDelta.isAlive(i);
+            }
+            if (theDelta.isFull() || mySinceKeyframe + 1 >= myInterval) {
+                writeKeyframe(theDelta.timeStep());
+            } else {
+                writeDelta(theDelta);
+            }
+            myFrames++;
+            myHeader.putLong(FRAMES_OFFSET, myFrames);
+            myHeader.putLong(END_OFFSET, myEnd);
+        }
+    }
+
+    /**
+     * Writes a keyframe of the current state of every vehicle.
+     *
+     * @param theTimeStep the time step
+     * @throws IOException if the file cannot be grown
+     */
+    private void writeKeyframe(final long theTimeStep) throws IOException {
+        final MappedByteBuffer frame = frame(KEYFRAME, myKinds.length, theTimeStep,
+                                             KEYFRAME_ENTRY_BYTES);
+        for (int id = 0; id < myKinds.length; id++) {
+            frame.put(myKinds[id]).put(myDirections[id]);
+            frame.put((byte) (myAlive[id] ? VehicleDelta.ALIVE : 0)).put((byte) 0);
+            frame.putInt(myXs[id]).putInt(myYs[id]);
+        }
+        mySinceKeyframe = 0;
+    }
+
+    /**
+     * Writes the frame of a delta that lists only the vehicles that changed.
+     *
+     * @param theDelta the delta
+     * @throws IOException if the file cannot be grown
+     */
+    private void writeDelta(final VehicleDelta theDelta) throws IOException {
+        final MappedByteBuffer frame = frame(DELTA, theDelta.size(), theDelta.timeStep(),
+                                             DELTA_ENTRY_BYTES);
+        for (int i = 0; i < theDelta.size(); i++) {
+            frame.putInt(theDelta.id(i)).put((byte) theDelta.kind(i));
+            frame.put((byte) theDelta.direction(i)).put((byte) theDelta.flags(i));
+            frame.put((byte) 0).putInt(theDelta.x(i)).putInt(theDelta.y(i));
+        }
+        mySinceKeyframe++;
+    }
+
+    /**
+     * Starts a frame, mapping more of the file if it does not fit in the window.
+     *
+     * @param theType KEYFRAME or DELTA
+     * @param theEntries the number of entries
+     * @param theTimeStep the time step
+     * @param theEntryBytes the size of an entry
+     * @return the window, positioned at the first entry
+     * @throws IOException if the file cannot be grown
+     */
+    private MappedByteBuffer frame(final byte theType, final int theEntries,
+                                   final long theTimeStep, final int theEntryBytes)
+        throws IOException {
+        final long size = FRAME_BYTES + (long) theEntries * theEntryBytes;
+        if (myWindow == null || myEnd + size > myWindowStart + myWindow.capacity()) {
+            myWindowStart = myEnd;
+            myWindow = myChannel.map(FileChannel.MapMode.READ_WRITE, myEnd,
+                                     Math.max(WINDOW_BYTES, size));
+        }
+        myWindow.position((int) (myEnd - myWindowStart));
+        myWindow.put(theType).put((byte) myLight.ordinal()).putShort((short) 0);
+        myWindow.putInt(theEntries).putLong(theTimeStep);
+        myEnd += size;
+        return myWindow;
+    }
+
+    /**
+     * Sets the number of vehicles, as given by a full delta.
+     *
+     * @param theCount the number of vehicles
+     */
+    private void resize(final int theCount) {
+        if (myKinds == null || myKinds.length != theCount) {
+            myKinds = new byte[theCount];
+            myXs = new int[theCount];
+            myYs = new int[theCount];
+            myDirections = new byte[theCount];
+            myAlive = new boolean[theCount];
+            myHeader.putInt(VEHICLES_OFFSET, theCount);
+        }
+    }
+}
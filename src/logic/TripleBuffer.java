@@ -0,0 +1,106 @@
+package logic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the latest of a stream of values from one writer thread to one reader thread
+ * without locks and without either thread waiting for the other.
+ *
+ * Three slots rotate between the writer's back slot, a middle slot, and the reader's
+ * front slot. The writer fills the back slot and publishes it by swapping it with the
+ * middle one. The reader swaps the front slot with the middle one whenever something
+ * newer was published. Each thread has its own slot to itself until it swaps, so
+ * neither ever sees a value that is being written. Values the reader never got to are
+ * simply overwritten.
+ *
+ * @param <T> the type of value
+ * @version 1 OCT 2018
+ */
+public final class TripleBuffer<T> {
+
+    /**
+     * The bits of the middle word holding a slot index.
+     */
+    private static final int INDEX_MASK = 3;
+
+    /**
+     * The bit of the middle word set when the middle slot was published after the
+     * reader last swapped.
+     */
+    private static final int FRESH = 4;
+
+    /**
+     * The three slots.
+     */
+    private final Object[] mySlots;
+
+    /**
+     * The index of the middle slot, plus FRESH.
+     */
+    private final AtomicInteger myMiddle;
+
+    /**
+     * The index of the writer's slot. Only the writer uses it.
+     */
+    private int myBack;
+
+    /**
+     * The index of the reader's slot. Only the reader uses it.
+     */
+    private int myFront;
+
+    /**
+     * Creates a buffer over three distinct values. The reader starts with the first.
+     *
+     * @param theFirst the first value
+     * @param theSecond the second value
+     * @param theThird the third value
+     */
+    public TripleBuffer(final T theFirst, final T theSecond, final T theThird) {
+        mySlots = new Object[] {theFirst, theSecond, theThird};
+        myFront = 0;
+        myMiddle = new AtomicInteger(1);
+        myBack = 2;
+    }
+
+    /**
+     * Returns the value the writer may fill. Call only from the writer thread.
+     *
+     * @return the back value
+     */
+    public T back() {
+        return slot(myBack);
+    }
+
+    /**
+     * Publishes the back value and gives the writer another to fill. Call only from the
+     * writer thread.
+     */
+    public void publish() {
+        myBack = myMiddle.getAndSet(myBack | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Returns the latest published value. It is the reader's until its next call. Call
+     * only from the reader thread.
+     *
+     * @return the front value
+     */
+    public T read() {
+        if ((myMiddle.get() & FRESH) != 0) {
+            myFront = myMiddle.getAndSet(myFront) & INDEX_MASK;
+        }
+        return slot(myFront);
+    }
+
+    /**
+     * Returns a slot.
+     *
+     * @param theIndex the index of the slot
+     * @return its value
+     */
+    @SuppressWarnings("unchecked")
+    private T slot(final int theIndex) {
+        return (T) mySlots[theIndex];
+    }
+}
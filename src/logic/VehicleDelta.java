@@ -0,0 +1,260 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * The vehicles whose state changed during one tick, in vehicle id order. A vehicle's id
+ * is its position in the simulation's vehicle list, and stays the same for the life of
+ * the simulation. Each entry holds the full current state of a vehicle and flags
+ * telling what changed.
+ *
+ * A simulation reuses one buffer for every tick, so listeners must read it during the
+ * property change event and copy whatever they want to keep.
+ *
+ * @version 1 OCT 2018
+ */
+public final class VehicleDelta {
+
+    /**
+     * Flag: the vehicle moved to another cell.
+     */
+    public static final int MOVED = 1;
+
+    /**
+     * Flag: the vehicle faces another direction.
+     */
+    public static final int TURNED = 1 << 1;
+
+    /**
+     * Flag: the vehicle died.
+     */
+    public static final int DIED = 1 << 2;
+
+    /**
+     * Flag: the vehicle revived.
+     */
+    public static final int REVIVED = 1 << 3;
+
+    /**
+     * State bit: the vehicle is alive. Set on every entry of a live vehicle.
+     */
+    public static final int ALIVE = 1 << 4;
+
+    /**
+     * The initial capacity of the buffer.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The id of each entry.
+     */
+    private int[] myIds;
+
+    /**
+     * The flags of each entry.
+     */
+    private byte[] myFlags;
+
+    /**
+     * The VehicleKind ordinal of each entry, or -1 for an unknown kind.
+     */
+    private byte[] myKinds;
+
+    /**
+     * The x position of each entry.
+     */
+    private int[] myXs;
+
+    /**
+     * The y position of each entry.
+     */
+    private int[] myYs;
+
+    /**
+     * The Direction ordinal of each entry.
+     */
+    private byte[] myDirections;
+
+    /**
+     * The number of entries.
+     */
+    private int mySize;
+
+    /**
+     * The number of vehicles in the simulation.
+     */
+    private int myVehicleCount;
+
+    /**
+     * The time step the delta leads to.
+     */
+    private long myTimeStep;
+
+    /**
+     * Whether every vehicle is listed.
+     */
+    private boolean myFull;
+
+    /**
+     * Creates an empty buffer.
+     */
+    VehicleDelta() {
+        myIds = new int[INITIAL_CAPACITY];
+        myFlags = new byte[INITIAL_CAPACITY];
+        myKinds = new byte[INITIAL_CAPACITY];
+        myXs = new int[INITIAL_CAPACITY];
+        myYs = new int[INITIAL_CAPACITY];
+        myDirections = new byte[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Empties the buffer for a new tick.
+     *
+     * @param theTimeStep the time step the delta leads to
+     * @param theVehicleCount the number of vehicles in the simulation
+     * @param theFull whether every vehicle will be listed
+     */
+    void begin(final long theTimeStep, final int theVehicleCount, final boolean theFull) {
+        mySize = 0;
+        myTimeStep = theTimeStep;
+        myVehicleCount = theVehicleCount;
+        myFull = theFull;
+    }
+
+    /**
+     * Appends an entry. Entries must be added in increasing id order.
+     *
+     * @param theId the vehicle id
+     * @param theFlags what changed, plus ALIVE for a live vehicle
+     * @param theKind the VehicleKind ordinal, or -1
+     * @param theX the x position
+     * @param theY the y position
+     * @param theDirection the Direction ordinal
+     */
+    void add(final int theId, final int theFlags, final int theKind, final int theX,
+             final int theY, final int theDirection) {
+        if (mySize == myIds.length) {
+            final int capacity = mySize * 2;
+            myIds = Arrays.copyOf(myIds, capacity);
+            myFlags = Arrays.copyOf(myFlags, capacity);
+            myKinds = Arrays.copyOf(myKinds, capacity);
+            myXs = Arrays.copyOf(myXs, capacity);
+            myYs = Arrays.copyOf(myYs, capacity);
+            myDirections = Arrays.copyOf(myDirections, capacity);
+        }
+        myIds[mySize] = theId;
+        myFlags[mySize] = (byte) theFlags;
+        myKinds[mySize] = (byte) theKind;
+        myXs[mySize] = theX;
+        myYs[mySize] = theY;
+        myDirections[mySize] = (byte) theDirection;
+        mySize++;
+    }
+
+    /**
+     * Returns whether every vehicle is listed, as after a reset. Listeners keeping their
+     * own copy of the vehicles should rebuild it from a full delta.
+     *
+     * @return whether the delta lists every vehicle
+     */
+    public boolean isFull() {
+        return myFull;
+    }
+
+    /**
+     * Returns the number of vehicles in the simulation.
+     *
+     * @return the number of vehicles
+     */
+    public int vehicleCount() {
+        return myVehicleCount;
+    }
+
+    /**
+     * Returns the time step the delta leads to.
+     *
+     * @return the time step
+     */
+    public long timeStep() {
+        return myTimeStep;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of vehicles listed
+     */
+    public int size() {
+        return mySize;
+    }
+
+    /**
+     * Returns the id of an entry.
+     *
+     * @param theIndex the entry
+     * @return the vehicle id
+     */
+    public int id(final int theIndex) {
+        return myIds[theIndex];
+    }
+
+    /**
+     * Returns the flags of an entry.
+     *
+     * @param theIndex the entry
+     * @return the MOVED, TURNED, DIED, REVIVED and ALIVE bits
+     */
+    public int flags(final int theIndex) {
+        return myFlags[theIndex];
+    }
+
+    /**
+     * Returns whether the vehicle of an entry is alive.
+     *
+     * @param theIndex the entry
+     * @return whether the vehicle is alive
+     */
+    public boolean isAlive(final int theIndex) {
+        return (myFlags[theIndex] & ALIVE) != 0;
+    }
+
+    /**
+     * Returns the kind of the vehicle of an entry.
+     *
+     * @param theIndex the entry
+     * @return the VehicleKind ordinal, or -1 if the vehicle is not of a known kind
+     */
+    public int kind(final int theIndex) {
+        return myKinds[theIndex];
+    }
+
+    /**
+     * Returns the x position of an entry.
+     *
+     * @param theIndex the entry
+     * @return the x position
+     */
+    public int x(final int theIndex) {
+        return myXs[theIndex];
+    }
+
+    /**
+     * Returns the y position of an entry.
+     *
+     * @param theIndex the entry
+     * @return the y position
+     */
+    public int y(final int theIndex) {
+        return myYs[theIndex];
+    }
+
+    /**
+     * Returns the direction of an entry.
+     *
+     * @param theIndex the entry
+     * @return the Direction ordinal
+     */
+    public int direction(final int theIndex) {
+        return myDirections[theIndex];
+    }
+}
@@ -0,0 +1,156 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.Direction;
+import model.Vehicle;
+import model.VehicleKind;
+
+/**
+ * The starting kind, position and direction of each vehicle on a map, stored in
+ * parallel primitive arrays so that large maps can be loaded without creating a
+ * Vehicle object per entry.
+ *
+ * @version 1 OCT 2018
+ */
+public final class VehicleRecords {
+
+    /**
+     * The initial capacity of the arrays.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The kind ordinal of each record.
+     */
+    private byte[] myKinds;
+
+    /**
+     * The x position of each record.
+     */
+    private int[] myXs;
+
+    /**
+     * The y position of each record.
+     */
+    private int[] myYs;
+
+    /**
+     * The direction ordinal of each record.
+     */
+    private byte[] myDirections;
+
+    /**
+     * The number of records.
+     */
+    private int mySize;
+
+    /**
+     * Creates an empty set of records.
+     */
+    public VehicleRecords() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty set of records with room for the given number of vehicles.
+     *
+     * @param theCapacity the expected number of vehicles
+     */
+    public VehicleRecords(final int theCapacity) {
+        final int capacity = Math.max(theCapacity, 1);
+        myKinds = new byte[capacity];
+        myXs = new int[capacity];
+        myYs = new int[capacity];
+        myDirections = new byte[capacity];
+    }
+
+    /**
+     * Appends a vehicle.
+     *
+     * @param theKind the kind of vehicle
+     * @param theX the starting x position
+     * @param theY the starting y position
+     * @param theDir the starting direction
+     */
+    public void add(final VehicleKind theKind, final int theX, final int theY,
+                    final Direction theDir) {
+        if (mySize == myKinds.length) {
+            final int capacity = mySize * 2;
+            myKinds = Arrays.copyOf(myKinds, capacity);
+            myXs = Arrays.copyOf(myXs, capacity);
+            myYs = Arrays.copyOf(myYs, capacity);
+            myDirections = Arrays.copyOf(myDirections, capacity);
+        }
+        myKinds[mySize] = (byte) theKind.ordinal();
+        myXs[mySize] = theX;
+        myYs[mySize] = theY;
+        myDirections[mySize] = (byte) theDir.ordinal();
+        mySize++;
+    }
+
+    /**
+     * Returns the number of vehicles.
+     *
+     * @return the number of vehicles
+     */
+    public int size() {
+        return mySize;
+    }
+
+    /**
+     * Returns the kind ordinal of a vehicle.
+     *
+     * @param theIndex the position of the vehicle
+     * @return the VehicleKind ordinal
+     */
+    public int kind(final int theIndex) {
+        return myKinds[theIndex];
+    }
+
+    /**
+     * Returns the starting x position of a vehicle.
+     *
+     * @param theIndex the position of the vehicle
+     * @return the x position
+     */
+    public int x(final int theIndex) {
+        return myXs[theIndex];
+    }
+
+    /**
+     * Returns the starting y position of a vehicle.
+     *
+     * @param theIndex the position of the vehicle
+     * @return the y position
+     */
+    public int y(final int theIndex) {
+        return myYs[theIndex];
+    }
+
+    /**
+     * Returns the starting direction ordinal of a vehicle.
+     *
+     * @param theIndex the position of the vehicle
+     * @return the Direction ordinal
+     */
+    public int direction(final int theIndex) {
+        return myDirections[theIndex];
+    }
+
+    /**
+     * Creates a Vehicle object for every record, in order.
+     *
+     * @return the new Vehicles
+     */
+    public List<Vehicle> toVehicles() {
+        final VehicleKind[] kinds = VehicleKind.values();
+        final Direction[] dirs = Direction.values();
+        final List<Vehicle> result = new ArrayList<Vehicle>(mySize);
+        for (int i = 0; i < mySize; i++) {
+            result.add(kinds[myKinds[i]].newVehicle(myXs[i], myYs[i], dirs[myDirections[i]]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,263 @@
+package logic;
+
+import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_GRID;
+import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_LIGHT;
+import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_SIGNALS;
+import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_TIME;
+import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_VEHICLE_DELTA;
+
+import java.beans.PropertyChangeEvent;
+import java.util.Arrays;
+import java.util.List;
+import model.Direction;
+import model.Light;
+import model.SignalPlan;
+import model.TerrainGrid;
+import model.VehicleKind;
+
+/**
+ * A copy of what a simulation shows: its grid, signals, light, time step and the state
+ * of every vehicle. It is kept up to date from the simulation's property change events, applying
+ * the VehicleDelta of each tick, for listeners that draw or inspect the simulation
+ * without holding on to its own objects.
+ *
+ * @version 1 OCT 2018
+ */
+public final class WorldSnapshot {
+
+    /**
+     * The properties a snapshot is kept up to date from.
+     */
+    public static final List<String> PROPERTIES =
+                    List.of(PROPERTY_GRID, PROPERTY_SIGNALS, PROPERTY_LIGHT, PROPERTY_TIME,
+                            PROPERTY_VEHICLE_DELTA);
+
+    /** Cached VehicleKind values, indexed by ordinal. */
+    private static final VehicleKind[] KINDS = VehicleKind.values();
+
+    /** Cached Direction values, indexed by ordinal. */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** The VehicleKind ordinal of each vehicle, or -1 for an unknown kind. */
+    private byte[] myKind;
+
+    /** The x position of each vehicle. */
+    private int[] myX;
+
+    /** The y position of each vehicle. */
+    private int[] myY;
+
+    /** The Direction ordinal of each vehicle. */
+    private byte[] myDirection;
+
+    /** Whether each vehicle is alive. */
+    private boolean[] myAlive;
+
+    /** The number of vehicles. */
+    private int mySize;
+
+    /** The time step of the state. */
+    private long myTimeStep;
+
+    /** The grid. The simulation never changes a grid once it has fired it. */
+    private TerrainGrid myGrid;
+
+    /** The signals. The simulation never changes a plan once it has fired it. */
+    private SignalPlan mySignals;
+
+    /** The light of the city-wide signal group. */
+    private Light myLight;
+
+    /**
+     * Creates a snapshot of an empty grid without vehicles.
+     */
+    public WorldSnapshot() {
+        myGrid = TerrainGrid.create(0, 0);
+        mySignals = new SignalPlan(0, 0);
+        myLight = Light.GREEN;
+        myKind = new byte[0];
+        myX = new int[0];
+        myY = new int[0];
+        myDirection = new byte[0];
+        myAlive = new boolean[0];
+    }
+
+    /**
+     * Brings the snapshot up to date with a property change event of the simulation.
+     * Events for other properties are ignored.
+     *
+     * @param theEvent the event
+     */
+    public void update(final PropertyChangeEvent theEvent) {
+        switch (theEvent.getPropertyName()) {
+            case PROPERTY_GRID:
+                myGrid = (TerrainGrid) theEvent.getNewValue();
+                break;
+            case PROPERTY_SIGNALS:
+                mySignals = (SignalPlan) theEvent.getNewValue();
+                break;
+            case PROPERTY_LIGHT:
+                myLight = (Light) theEvent.getNewValue();
+                break;
+            case PROPERTY_TIME:
+                myTimeStep = (Long) theEvent.getNewValue();
+                break;
+            case PROPERTY_VEHICLE_DELTA:
+                apply((VehicleDelta) theEvent.getNewValue());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Brings the snapshot up to date with the changes of one tick. A full delta
+     * replaces the vehicles; any other delta must follow the one applied before it.
+     *
+     * @param theDelta the changes
+     */
+    public void apply(final VehicleDelta theDelta) {
+        if (theDelta.isFull()) {
+            resize(theDelta.vehicleCount());
+        }
+        for (int i = 0; i < theDelta.size(); i++) {
+            final int id = theDelta.id(i);
+            myKind[id] = (byte) theDelta.kind(i);
+            myX[id] = theDelta.x(i);
+            myY[id] = theDelta.y(i);
+            myDirection[id] = (byte) theDelta.direction(i);
+            myAlive[id] = theDelta.isAlive(i);
+        }
+        myTimeStep = theDelta.timeStep();
+    }
+
+    /**
+     * Makes this snapshot a copy of another.
+     *
+     * @param theOther the snapshot to copy
+     */
+    public void copyFrom(final WorldSnapshot theOther) {
+        resize(theOther.mySize);
+        System.arraycopy(theOther.myKind, 0, myKind, 0, mySize);
+        System.arraycopy(theOther.myX, 0, myX, 0, mySize);
+        System.arraycopy(theOther.myY, 0, myY, 0, mySize);
+        System.arraycopy(theOther.myDirection, 0, myDirection, 0, mySize);
+        System.arraycopy(theOther.myAlive, 0, myAlive, 0, mySize);
+        myTimeStep = theOther.myTimeStep;
+        myGrid = theOther.myGrid;
+        mySignals = theOther.mySignals;
+        myLight = theOther.myLight;
+    }
+
+    /**
+     * Returns the number of vehicles.
+     *
+     * @return the number of vehicles
+     */
+    public int size() {
+        return mySize;
+    }
+
+    /**
+     * Returns the time step of the state.
+     *
+     * @return the time step
+     */
+    public long timeStep() {
+        return myTimeStep;
+    }
+
+    /**
+     * Returns the grid.
+     *
+     * @return the grid
+     */
+    public TerrainGrid grid() {
+        return myGrid;
+    }
+
+    /**
+     * Returns the signals.
+     *
+     * @return the signal plan
+     */
+    public SignalPlan signals() {
+        return mySignals;
+    }
+
+    /**
+     * Returns the light of the city-wide signal group.
+     *
+     * @return the light
+     */
+    public Light light() {
+        return myLight;
+    }
+
+    /**
+     * Returns the kind of a vehicle.
+     *
+     * @param theId the vehicle id
+     * @return the kind, or null if the vehicle is not of a known kind
+     */
+    public VehicleKind kind(final int theId) {
+        final int kind = myKind[theId];
+        return kind < 0 ? null : KINDS[kind];
+    }
+
+    /**
+     * Returns the x position of a vehicle.
+     *
+     * @param theId the vehicle id
+     * @return the x position
+     */
+    public int x(final int theId) {
+        return myX[theId];
+    }
+
+    /**
+     * Returns the y position of a vehicle.
+     *
+     * @param theId the vehicle id
+     * @return the y position
+     */
+    public int y(final int theId) {
+        return myY[theId];
+    }
+
+    /**
+     * Returns the direction of a vehicle.
+     *
+     * @param theId the vehicle id
+     * @return the direction
+     */
+    public Direction direction(final int theId) {
+        return DIRECTIONS[myDirection[theId]];
+    }
+
+    /**
+     * Returns whether a vehicle is alive.
+     *
+     * @param theId the vehicle id
+     * @return whether the vehicle is alive
+     */
+    public boolean isAlive(final int theId) {
+        return myAlive[theId];
+    }
+
+    /**
+     * Sets the number of vehicles, growing the arrays when needed.
+     *
+     * @param theSize the number of vehicles
+     */
+    private void resize(final int theSize) {
+        if (myX.length < theSize) {
+            myKind = Arrays.copyOf(myKind, theSize);
+            myX = Arrays.copyOf(myX, theSize);
+            myY = Arrays.copyOf(myY, theSize);
+            myDirection = Arrays.copyOf(myDirection, theSize);
+            myAlive = Arrays.copyOf(myAlive, theSize);
+        }
+        mySize = theSize;
+    }
+}
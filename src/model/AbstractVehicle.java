@@ -1,6 +1,7 @@
 package model;
 
 import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
  * An AbstractClass and the parent class for all types of vehicle
@@ -52,6 +53,11 @@ abstract class AbstractVehicle implements Vehicle {
     private String aliveImageFileName;
 
 
+    /**
+     * Which kinds of vehicle this vehicle dies colliding with
+     * */
+    private LethalityMatrix lethality = LethalityMatrix.STANDARD;
+
     /**
      * The vehicle's current X position
      * */
@@ -67,6 +73,11 @@ abstract class AbstractVehicle implements Vehicle {
      * */
     private Direction theDir;
 
+    /**
+     * The source of the vehicle's random choices
+     * */
+    private VehicleRandom random = new VehicleRandom(new SplittableRandom().nextLong());
+
     /**
      * A private constructor, to prevent external instantiation.
      */
@@ -100,6 +111,17 @@ abstract class AbstractVehicle implements Vehicle {
         this.Alive = bool;
     }
 
+    /**
+     * Puts the vehicle back in a saved state of being alive or dead, with the image to match
+     * @param alive a boolean value, true if the vehicle is alive
+     * @param deathTime an int value, the pokes left before the vehicle revives if it is dead
+     * */
+    void restoreState(boolean alive, int deathTime){
+        this.setAlive(alive);
+        this.setDeathTime(deathTime);
+        this.setImageFileName(alive ? this.getAliveImageFileName() : this.getDeathImageFileName());
+    }
+
     /**
      * Returns a string value of the vehicles image when it is alive
      * */
@@ -121,6 +143,13 @@ abstract class AbstractVehicle implements Vehicle {
         return this.deathImageFileName;
     }
 
+    /**
+     * Returns the source of the vehicle's random choices
+     * */
+    protected VehicleRandom getRandom(){
+        return this.random;
+    }
+
     /**
      * Returns the vehicle's DeathTime
      * */
@@ -189,12 +218,13 @@ abstract class AbstractVehicle implements Vehicle {
 
     /**
      * Returns a boolean value that checks whether a vehicle can cross a certain terrain and/or light.
+     * the answer is looked up in the passability table of the vehicle's kind.
      * @param theTerrain a Terrain object, the type of Terrain the vehicle is trying to go to.
      * @param theLight a Light object, if the terrain has a light, checks whether the vehicle will pass the terrain at a certain light.
      * */
     @Override
     public boolean canPass(Terrain theTerrain, Light theLight) {
-        return false;
+        return Passability.canPass(getKind(), theTerrain, theLight);
     }
 
 
@@ -209,10 +239,26 @@ abstract class AbstractVehicle implements Vehicle {
 
     /**
      * Determines what happens if the vehicle collides with another vehicle.
+     * if both are alive and the lethality matrix says the other's kind kills this one's, this vehicle dies
+     * and its image file name is set to its death image file name.
+     * A vehicle of no known kind is harmless.
      * @param theOther a Vehicle object, the Vehicle that this Vehicle collides with.
      * */
     @Override
     public void collide(Vehicle theOther) {
+        if (isAlive() && theOther.isAlive() && theOther.getKind() != null
+                && lethality.isLethal(getKind(), theOther.getKind())) {
+            this.setAlive(false);
+            this.setImageFileName(this.getDeathImageFileName());
+        }
+    }
+
+    /**
+     * Sets which kinds of vehicle this vehicle dies colliding with.
+     * @param theLethality the matrix of lethal collisions
+     * */
+    void setLethality(LethalityMatrix theLethality) {
+        this.lethality = theLethality;
     }
 
     /**
@@ -229,7 +275,7 @@ abstract class AbstractVehicle implements Vehicle {
                 this.setDeathTime(this.initialDeathTime);
                 this.setAlive(true);
                 this.setImageFileName(this.getAliveImageFileName());
-                this.setDirection(Direction.random());
+                this.setDirection(Direction.random(getRandom()));
             }
         }
     }
@@ -255,6 +301,14 @@ abstract class AbstractVehicle implements Vehicle {
         this.theDir = theDir;
     }
 
+    /**
+     * Set's the source of the vehicle's random choices to theRandom
+     * @param theRandom a VehicleRandom object
+     * */
+    void setRandom(VehicleRandom theRandom) {
+        this.random = theRandom;
+    }
+
     /**
      * Set's the vehicle's current X position to theX
      * @param theX an int value
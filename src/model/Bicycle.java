@@ -23,22 +23,6 @@ public class Bicycle extends AbstractVehicle{
         this.setInitials(theX, theY, theDir, 35, "bicycle_dead.gif", "bicycle.gif");
     }
 
-    /**
-     * Returns a boolean value that checks whether the Bicycle can cross a certain terrain and/or light.
-     * if the terrain is a STREET they will pass
-     * if the terrain is a TRAIL they will pass
-     * if the terrain is a LIGHT or CROSSWALK and theLight is GREEN they will pass
-     * otherwise they will not pass
-     * @param terrain a Terrain object, the type of Terrain the vehicle is trying to go to.
-     * @param theLight a Light object, if the terrain has a light, checks whether the vehicle will pass the terrain at a certain light.
-     * */
-    @Override
-    public boolean canPass(Terrain terrain, Light theLight){
-        if (terrain == Terrain.STREET) return true;
-        else if (terrain == Terrain.TRAIL) return true;
-        else return terrain == Terrain.LIGHT || terrain == Terrain.CROSSWALK && theLight == Light.GREEN;
-    }
-
     /**
      * Returns a Direction object of where the Bicycle prefers to go.
      * Bicycles prefer to turn towards, leftwards, or rightwards to a Trail if they can
@@ -83,19 +67,10 @@ public class Bicycle extends AbstractVehicle{
     }
 
     /**
-     * Determines what happens if the vehicle collides with another vehicle.
-     * if the vehicle is alive and theOther vehicle is alive, and they are a truck/car/taxi/atv they will die
-     * and their image file name is set to its death image file name.
-     * @param theOther a Vehicle object, the Vehicle that this Vehicle collides with.
+     * Returns the kind of this vehicle, always Bicycle.
      * */
     @Override
-    public void collide (Vehicle theOther){
-        if (isAlive() && theOther.isAlive() && (theOther.getImageFileName().equals("truck.gif"))
-                || theOther.getImageFileName().equals("car.gif")
-                || theOther.getImageFileName().equals("taxi.gif")
-                || theOther.getImageFileName().equals("atv.gif")) {
-            this.setAlive(false);
-            this.setImageFileName(this.getDeathImageFileName());
-        }
+    public VehicleKind getKind() {
+        return VehicleKind.BICYCLE;
     }
 }
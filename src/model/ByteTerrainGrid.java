@@ -0,0 +1,87 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A TerrainGrid holding one Terrain ordinal per byte.
+ *
+ * @version 1.0
+ */
+final class ByteTerrainGrid extends TerrainGrid {
+
+    /**
+     * The bits of one cell when packed.
+     */
+    private static final int NIBBLE_MASK = 0xF;
+
+    /**
+     * The number of bits of one cell when packed.
+     */
+    private static final int NIBBLE_BITS = 4;
+
+    /**
+     * The Terrain ordinal of every cell, row-major.
+     */
+    private final byte[] myCells;
+
+    /**
+     * Creates a grid of GRASS.
+     *
+     * @param theWidth the number of columns
+     * @param theHeight the number of rows
+     */
+    ByteTerrainGrid(final int theWidth, final int theHeight) {
+        super(theWidth, theHeight);
+        final long cells = (long) theWidth * theHeight;
+        if (cells > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("Grid of " + cells
+                                               + " cells is too large for one byte per cell");
+        }
+        myCells = new byte[(int) cells];
+    }
+
+    @Override
+    public int ordinal(final int theX, final int theY) {
+        return myCells[index(theX, theY)];
+    }
+
+    @Override
+    public void setOrdinal(final int theX, final int theY, final int theOrdinal) {
+        myCells[index(theX, theY)] = (byte) theOrdinal;
+    }
+
+    @Override
+    public long storageBytes() {
+        return myCells.length;
+    }
+
+    @Override
+    public void readPacked(final long theOffset, final ByteBuffer theBuffer) {
+        int cell = (int) (theOffset * 2);
+        while (theBuffer.hasRemaining()) {
+            final int pair = theBuffer.get();
+            myCells[cell] = (byte) (pair & NIBBLE_MASK);
+            if (cell + 1 < myCells.length) {
+                myCells[cell + 1] = (byte) (pair >>> NIBBLE_BITS & NIBBLE_MASK);
+            }
+            cell += 2;
+        }
+    }
+
+    @Override
+    public void writePacked(final long theOffset, final ByteBuffer theBuffer) {
+        int cell = (int) (theOffset * 2);
+        while (theBuffer.hasRemaining()) {
+            int pair = myCells[cell];
+            if (cell + 1 < myCells.length) {
+                pair |= myCells[cell + 1] << NIBBLE_BITS;
+            }
+            theBuffer.put((byte) pair);
+            cell += 2;
+        }
+    }
+}
@@ -23,23 +23,6 @@ public class Car extends AbstractVehicle{
         this.setInitials(theX, theY, theDir, 15, "car_dead.gif", "car.gif");
     }
 
-    /**
-     * Returns a boolean value that checks whether a Car can cross a certain terrain and/or light.
-     * if the terrain the car would like to go to is STREET they will pass
-     * if the terrain is LIGHT and theLight is GREEN OR YELLOW they will pass
-     * if the terrain is CROSSWALK and theLight is GREEN they will pass
-     * otherwise they will not pass
-     * @param terrain a Terrain object, the type of Terrain the vehicle is trying to go to.
-     * @param theLight a Light object, if the terrain has a light, checks whether the vehicle will pass the terrain at a certain light.
-     * */
-    @Override
-    public boolean canPass(Terrain terrain, Light theLight){
-        if (terrain == Terrain.STREET) return true;
-        else if (terrain == Terrain.LIGHT && theLight == Light.GREEN) return true;
-        else if (terrain == Terrain.LIGHT && theLight == Light.YELLOW) return true;
-        else return terrain == Terrain.CROSSWALK && theLight == Light.GREEN;
-    }
-
     /**
      * Returns a Direction object of where the Car prefers to go.
      * They prefer to drive straight if they can, left, if not forwards, right not forwards or leftwards
@@ -71,16 +54,10 @@ public class Car extends AbstractVehicle{
     }
 
     /**
-     * Determines what happens if the vehicle collides with another vehicle.
-     * if the Car is alive and the vehicle they are colliding with is alive, and it is a truck they will die
-     * and their current image file name turns into their death image file name
-     * @param theOther a Vehicle object, the Vehicle that this Vehicle collides with.
+     * Returns the kind of this vehicle, always Car.
      * */
     @Override
-    public void collide (Vehicle theOther){
-        if (isAlive() && theOther.isAlive() && (theOther.getImageFileName().equals("truck.gif"))) {
-            this.setAlive(false);
-            this.setImageFileName(this.getDeathImageFileName());
-        }
+    public VehicleKind getKind() {
+        return VehicleKind.CAR;
     }
 }
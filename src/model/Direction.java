@@ -43,6 +43,11 @@ public enum Direction {
      */
     private static final Random RANDOM = new Random();
 
+    /**
+     * The values of the enumeration, cached to avoid copying them on every random draw.
+     */
+    private static final Direction[] VALUES = values();
+
     /**
      * The letter corresponding to a particular value of the enumeration.
      */
@@ -130,7 +135,17 @@ public enum Direction {
      * @return a random Direction.
      */
     public static Direction random() {
-        return values()[RANDOM.nextInt(values().length)];
+        return VALUES[RANDOM.nextInt(VALUES.length)];
+    }
+
+    /**
+     * Returns a random Direction drawn from the given source of randomness.
+     * 
+     * @param theRandom The source of randomness.
+     * @return a random Direction.
+     */
+    public static Direction random(final VehicleRandom theRandom) {
+        return VALUES[theRandom.nextInt(VALUES.length)];
     }
 
     /**
@@ -3,7 +3,6 @@ package model;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 /**
  * A concrete class responsible for constructing Human type vehicles
@@ -27,24 +26,6 @@ public class Human extends AbstractVehicle{
         this.setInitials(theX, theY, theDir, 45, "human_dead.gif", "human.gif");
     }
 
-    /**
-     * Returns a boolean value that checks whether a Human can cross a certain terrain and/or light.
-     * if the terrain they are trying to pass is GRASS they will pass
-     * if the terrain they are passing is a CROSSWALK and theLight is RED OR YELLOW they will pass
-     * otherwise they will not pass
-     * @param terrain a Terrain object, the type of Terrain the vehicle is trying to go to.
-     * @param theLight a Light object, if the terrain has a light, checks whether the vehicle will pass the terrain at a certain light.
-     * */
-    @Override
-    public boolean canPass(Terrain terrain, Light theLight){
-        //if the terrain they are trying to pass is GRASS they will pass
-        //if the terrain they are passing is a CROSSWALK and theLight is RED OR YELLOW they will pass
-        //otherwise they will not pass
-        if (terrain == Terrain.GRASS) return true;
-        else if (terrain == Terrain.CROSSWALK && theLight == Light.RED) return true;
-        else return terrain == Terrain.CROSSWALK && theLight == Light.YELLOW;
-    }
-
 
     /**
      * Returns a Direction object of where the Human prefers to go.
@@ -88,8 +69,7 @@ public class Human extends AbstractVehicle{
         }
         //for all the possible turns that a human can take, randomly pick one that they can turn to
         else {
-            Random random = new Random();
-            final int randomIndex = random.nextInt(possibleDirections.size());
+            final int randomIndex = getRandom().nextInt(possibleDirections.size());
             newDirection = possibleDirections.get(randomIndex);
         }
 
@@ -97,21 +77,11 @@ public class Human extends AbstractVehicle{
     }
 
     /**
-     * Determines what happens if the vehicle collides with another vehicle.
-     * Humans die when they collide with a truck, car, atc, or taxi
-     * @param theOther a Vehicle object, the Vehicle that this Vehicle collides with.
+     * Returns the kind of this vehicle, always Human.
      * */
     @Override
-    public void collide(Vehicle theOther){
-        //if the human is alive, and it collides with a vehicle that is a car, truck, atv, or taxi
-        if (isAlive() && theOther.isAlive() && (theOther.toString().equals("car.gif")
-                || theOther.getImageFileName().equals("truck.gif")
-                || theOther.getImageFileName().equals("atv.gif")
-                || theOther.getImageFileName().equals("taxi.gif"))) {
-            //set Alive to false, and change their image file name to their death image file name
-            this.setAlive(false);
-            this.setImageFileName(this.getDeathImageFileName());
-        }
+    public VehicleKind getKind() {
+        return VehicleKind.HUMAN;
     }
 
 }
@@ -0,0 +1,130 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Which kinds of vehicle kill which when they collide, as one row of bits per kind: bit
+ * k of a kind's row is set when a live vehicle of that kind dies on colliding with a
+ * live vehicle of the kind with ordinal k.
+ *
+ * A matrix never changes; with returns a changed copy, so a new kind of vehicle needs
+ * only its row and column set here rather than a change to every collide method.
+ *
+ * @version 1.0
+ */
+public final class LethalityMatrix {
+
+    /**
+     * A matrix in which no collision is lethal.
+     */
+    public static final LethalityMatrix NONE = new LethalityMatrix(
+        new long[VehicleKind.values().length]);
+
+    /**
+     * The rules of the original vehicle classes: Trucks kill every other kind; Cars and
+     * Taxis kill ATVs and Bicycles; Taxis also kill Humans; ATVs kill Bicycles and
+     * Humans. Human.collide compared toString() with "car.gif", so Cars never killed
+     * Humans, and still do not.
+     */
+    public static final LethalityMatrix STANDARD = NONE
+        .with(VehicleKind.ATV, VehicleKind.TRUCK, true)
+        .with(VehicleKind.ATV, VehicleKind.CAR, true)
+        .with(VehicleKind.ATV, VehicleKind.TAXI, true)
+        .with(VehicleKind.BICYCLE, VehicleKind.TRUCK, true)
+        .with(VehicleKind.BICYCLE, VehicleKind.CAR, true)
+        .with(VehicleKind.BICYCLE, VehicleKind.TAXI, true)
+        .with(VehicleKind.BICYCLE, VehicleKind.ATV, true)
+        .with(VehicleKind.HUMAN, VehicleKind.TRUCK, true)
+        .with(VehicleKind.HUMAN, VehicleKind.ATV, true)
+        .with(VehicleKind.HUMAN, VehicleKind.TAXI, true)
+        .with(VehicleKind.CAR, VehicleKind.TRUCK, true)
+        .with(VehicleKind.TAXI, VehicleKind.TRUCK, true);
+
+    /**
+     * The kinds that kill each kind, one bit per kind ordinal, indexed by victim ordinal.
+     */
+    private final long[] myRows;
+
+    /**
+     * Creates a matrix from its rows.
+     *
+     * @param theRows the rows, which the matrix keeps
+     */
+    private LethalityMatrix(final long[] theRows) {
+        myRows = theRows;
+    }
+
+    /**
+     * Returns whether a live vehicle of one kind dies on colliding with a live vehicle of
+     * another.
+     *
+     * @param theVictim the kind being hit
+     * @param theOther the kind it collided with
+     * @return whether the victim dies
+     */
+    public boolean isLethal(final VehicleKind theVictim, final VehicleKind theOther) {
+        return isLethal(theVictim.ordinal(), theOther.ordinal());
+    }
+
+    /**
+     * Returns whether a live vehicle of one kind dies on colliding with a live vehicle of
+     * another.
+     *
+     * @param theVictim the VehicleKind ordinal being hit
+     * @param theOther the VehicleKind ordinal it collided with
+     * @return whether the victim dies
+     */
+    public boolean isLethal(final int theVictim, final int theOther) {
+        return (myRows[theVictim] >>> theOther & 1) != 0;
+    }
+
+    /**
+     * Returns a copy of this matrix with one entry changed.
+     *
+     * @param theVictim the kind being hit
+     * @param theOther the kind it collides with
+     * @param theLethal whether the victim dies
+     * @return the changed copy
+     */
+    public LethalityMatrix with(final VehicleKind theVictim, final VehicleKind theOther,
+                                final boolean theLethal) {
+        final long[] rows = myRows.clone();
+        final long bit = 1L << theOther.ordinal();
+        if (theLethal) {
+            rows[theVictim.ordinal()] |= bit;
+        } else {
+            rows[theVictim.ordinal()] &= ~bit;
+        }
+        return new LethalityMatrix(rows);
+    }
+
+    @Override
+    public boolean equals(final Object theOther) {
+        return theOther instanceof LethalityMatrix
+               && Arrays.equals(myRows, ((LethalityMatrix) theOther).myRows);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(myRows);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        for (final VehicleKind victim : VehicleKind.values()) {
+            result.append(victim.letter()).append(':');
+            for (final VehicleKind other : VehicleKind.values()) {
+                if (isLethal(victim, other)) {
+                    result.append(other.letter());
+                }
+            }
+            result.append(' ');
+        }
+        return result.toString().trim();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A TerrainGrid holding two Terrain ordinals per byte, four bits each, for maps too large
+ * to store one byte per cell.
+ *
+ * @version 1.0
+ */
+final class PackedTerrainGrid extends TerrainGrid {
+
+    /**
+     * The bits of one cell.
+     */
+    private static final int NIBBLE_MASK = 0xF;
+
+    /**
+     * The number of bits of one cell.
+     */
+    private static final int NIBBLE_BITS = 4;
+
+    /**
+     * The Terrain ordinals, row-major, even cells in the low four bits of each byte.
+     */
+    private final byte[] myCells;
+
+    /**
+     * Creates a grid of GRASS.
+     *
+     * @param theWidth the number of columns
+     * @param theHeight the number of rows
+     */
+    PackedTerrainGrid(final int theWidth, final int theHeight) {
+        super(theWidth, theHeight);
+        final long bytes = ((long) theWidth * theHeight + 1) / 2;
+        if (bytes > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("Grid of " + theWidth + "x" + theHeight
+                                               + " cells is too large");
+        }
+        myCells = new byte[(int) bytes];
+    }
+
+    @Override
+    public int ordinal(final int theX, final int theY) {
+        final long cell = cell(theX, theY);
+        return myCells[(int) (cell >>> 1)] >>> shift(cell) & NIBBLE_MASK;
+    }
+
+    @Override
+    public void setOrdinal(final int theX, final int theY, final int theOrdinal) {
+        final long cell = cell(theX, theY);
+        final int i = (int) (cell >>> 1);
+        final int shift = shift(cell);
+        myCells[i] = (byte) (myCells[i] & ~(NIBBLE_MASK << shift)
+                        | (theOrdinal & NIBBLE_MASK) << shift);
+    }
+
+    @Override
+    public long storageBytes() {
+        return myCells.length;
+    }
+
+    @Override
+    public void readPacked(final long theOffset, final ByteBuffer theBuffer) {
+        theBuffer.get(myCells, (int) theOffset, theBuffer.remaining());
+    }
+
+    @Override
+    public void writePacked(final long theOffset, final ByteBuffer theBuffer) {
+        theBuffer.put(myCells, (int) theOffset, theBuffer.remaining());
+    }
+
+    /**
+     * Computes the row-major cell number of a position, which may exceed the int range.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the cell number.
+     */
+    private long cell(final int theX, final int theY) {
+        if (!isValidIndex(theX, theY)) {
+            throw new IndexOutOfBoundsException("(" + theX + ", " + theY + ") is outside a "
+                                                + getWidth() + "x" + getHeight() + " grid");
+        }
+        return (long) theY * getWidth() + theX;
+    }
+
+    /**
+     * Returns the bit position of a cell within its byte.
+     *
+     * @param theCell the cell number
+     * @return 0 or 4
+     */
+    private static int shift(final long theCell) {
+        return (int) (theCell & 1) * NIBBLE_BITS;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package model;
+
+import java.lang.reflect.Method;
+
+/**
+ * The canPass rules of every kind of vehicle as a table: for each kind and Light, a mask
+ * with one bit per Terrain ordinal the kind may move onto, and bit OFF_MAP for moving off
+ * the map. Looking a move up is a shift and a mask, where canPass was a chain of
+ * comparisons behind an interface call.
+ *
+ * A Taxi is the one kind whose rules need state. Its mask is what it may pass without
+ * waiting; a Taxi stopped at a red crosswalk also passes once its wait is over, which
+ * Taxi and the engines count per vehicle.
+ *
+ * @version 1.0
+ */
+public final class Passability {
+
+    /**
+     * The bit of a mask for moving off the map.
+     */
+    public static final int OFF_MAP = Terrain.values().length;
+
+    /**
+     * The number of Lights.
+     */
+    private static final int LIGHTS = Light.values().length;
+
+    /**
+     * The masks, indexed by VehicleKind ordinal times LIGHTS plus Light ordinal.
+     */
+    private static final int[] MASKS = new int[VehicleKind.values().length * LIGHTS];
+
+    static {
+        final int anyTerrain = (1 << OFF_MAP + 1) - 1;
+        for (final Light light : Light.values()) {
+            final boolean green = light == Light.GREEN;
+            final boolean red = light == Light.RED;
+            set(VehicleKind.ATV, light, anyTerrain & ~bit(Terrain.WALL));
+            set(VehicleKind.BICYCLE, light, bit(Terrain.STREET) | bit(Terrain.TRAIL)
+                                            | bit(Terrain.LIGHT)
+                                            | (green ? bit(Terrain.CROSSWALK) : 0));
+            set(VehicleKind.HUMAN, light, bit(Terrain.GRASS)
+                                          | (green ? 0 : bit(Terrain.CROSSWALK)));
+            set(VehicleKind.TRUCK, light, bit(Terrain.STREET) | bit(Terrain.LIGHT)
+                                          | (red ? 0 : bit(Terrain.CROSSWALK)));
+            set(VehicleKind.CAR, light, bit(Terrain.STREET)
+                                        | (red ? 0 : bit(Terrain.LIGHT))
+                                        | (green ? bit(Terrain.CROSSWALK) : 0));
+            set(VehicleKind.TAXI, light, bit(Terrain.STREET)
+                                         | (red ? 0 : bit(Terrain.LIGHT))
+                                         | (red ? 0 : bit(Terrain.CROSSWALK)));
+        }
+    }
+
+    /**
+     * A private constructor, to prevent external instantiation.
+     */
+    private Passability() { }
+
+    /**
+     * Returns the mask of what a kind may move onto under a light.
+     *
+     * @param theKind the VehicleKind ordinal
+     * @param theLight the Light ordinal
+     * @return one bit per Terrain ordinal, and bit OFF_MAP
+     */
+    public static int mask(final int theKind, final int theLight) {
+        return MASKS[theKind * LIGHTS + theLight];
+    }
+
+    /**
+     * Returns whether a kind may move onto a side of its cell under a light.
+     *
+     * @param theKind the VehicleKind ordinal
+     * @param theSide the Terrain ordinal, or OFF_MAP
+     * @param theLight the Light ordinal
+     * @return whether it may move
+     */
+    public static boolean canPass(final int theKind, final int theSide, final int theLight) {
+        return (mask(theKind, theLight) >>> theSide & 1) != 0;
+    }
+
+    /**
+     * Returns whether a kind may move onto a terrain under a light.
+     *
+     * @param theKind the kind
+     * @param theTerrain the terrain, or null for off the map
+     * @param theLight the light
+     * @return whether it may move
+     */
+    public static boolean canPass(final VehicleKind theKind, final Terrain theTerrain,
+                                  final Light theLight) {
+        return canPass(theKind.ordinal(), side(theTerrain), theLight.ordinal());
+    }
+
+    /**
+     * Returns whether a vehicle's canPass is the mask of its kind, so that a caller may
+     * look its moves up here instead of asking it. That holds for a vehicle of a known
+     * kind whose canPass is the one AbstractVehicle declares; a Taxi overrides it.
+     *
+     * The canPass that runs is the first one declared walking up from the vehicle's
+     * class. Since AbstractVehicle is not public, the compiler gives each public subclass
+     * a bridge that only calls the inherited canPass, so bridges are passed over.
+     *
+     * @param theVehicle the vehicle
+     * @return whether its canPass is its kind's mask
+     */
+    public static boolean isTabled(final Vehicle theVehicle) {
+        boolean result = false;
+        if (theVehicle.getKind() != null) {
+            Class<?> type = theVehicle.getClass();
+            Method canPass = null;
+            while (canPass == null && type != null) {
+                try {
+                    final Method declared =
+                        type.getDeclaredMethod("canPass", Terrain.class, Light.class);
+                    if (!declared.isBridge() && !declared.isSynthetic()) {
+                        canPass = declared;
+                    }
+                } catch (final NoSuchMethodException e) {
+                    // inherited: look further up
+                }
+                type = type.getSuperclass();
+            }
+            result = canPass != null && canPass.getDeclaringClass() == AbstractVehicle.class;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the mask bit number of a terrain.
+     *
+     * @param theTerrain the terrain, or null for off the map
+     * @return the Terrain ordinal, or OFF_MAP
+     */
+    public static int side(final Terrain theTerrain) {
+        return theTerrain == null ? OFF_MAP : theTerrain.ordinal();
+    }
+
+    /**
+     * Sets the mask of a kind under a light.
+     *
+     * @param theKind the kind
+     * @param theLight the light
+     * @param theMask the mask
+     */
+    private static void set(final VehicleKind theKind, final Light theLight,
+                            final int theMask) {
+        MASKS[theKind.ordinal() * LIGHTS + theLight.ordinal()] = theMask;
+    }
+
+    /**
+     * Returns the mask bit of a terrain.
+     *
+     * @param theTerrain the terrain
+     * @return the bit
+     */
+    private static int bit(final Terrain theTerrain) {
+        return 1 << theTerrain.ordinal();
+    }
+}
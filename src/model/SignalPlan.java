@@ -0,0 +1,333 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The traffic signals of a map: signal groups, each cycling GREEN, YELLOW, RED with its
+ * own durations and phase offset, and the group of every cell.
+ *
+ * Group CITY_WIDE is the one light of the original simulation, DEFAULT_DURATION ticks of
+ * each color starting GREEN at time step 0, and is the group of every cell not given
+ * another. A light is computed from the time step when asked for, so nothing is stepped
+ * as time passes and asking costs the same however many groups there are.
+ *
+ * A plan is filled in while a map is loaded and must not change once a simulation has
+ * been given it.
+ *
+ * @version 1.0
+ */
+public final class SignalPlan {
+
+    /**
+     * The group of every cell not given another.
+     */
+    public static final int CITY_WIDE = 0;
+
+    /**
+     * The number of ticks of each color of the city-wide group.
+     */
+    public static final int DEFAULT_DURATION = 15;
+
+    /**
+     * The most groups a plan may have.
+     */
+    public static final int MAX_GROUPS = Short.MAX_VALUE + 1;
+
+    /**
+     * The number of initial group slots.
+     */
+    private static final int INITIAL_GROUPS = 4;
+
+    /**
+     * The number of columns.
+     */
+    private final int myWidth;
+
+    /**
+     * The number of rows.
+     */
+    private final int myHeight;
+
+    /**
+     * The number of groups.
+     */
+    private int myCount;
+
+    /**
+     * The phase offset of each group: its light at time step t is the city-wide
+     * pattern's light at t plus the offset.
+     */
+    private int[] myOffsets;
+
+    /**
+     * The number of GREEN ticks of each group.
+     */
+    private int[] myGreen;
+
+    /**
+     * The number of GREEN and YELLOW ticks of each group.
+     */
+    private int[] myGreenYellow;
+
+    /**
+     * The length of the cycle of each group.
+     */
+    private int[] myCycle;
+
+    /**
+     * The group of each cell, row-major, or null while every cell is CITY_WIDE.
+     */
+    private short[] myGroups;
+
+    /**
+     * Creates a plan for a map of the given size with only the city-wide group.
+     *
+     * @param theWidth the number of columns
+     * @param theHeight the number of rows
+     */
+    public SignalPlan(final int theWidth, final int theHeight) {
+        if (theWidth < 0 || theHeight < 0) {
+            throw new IllegalArgumentException("Negative plan size " + theWidth + "x"
+                                               + theHeight);
+        }
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myOffsets = new int[INITIAL_GROUPS];
+        myGreen = new int[INITIAL_GROUPS];
+        myGreenYellow = new int[INITIAL_GROUPS];
+        myCycle = new int[INITIAL_GROUPS];
+        addGroup(0, DEFAULT_DURATION, DEFAULT_DURATION, DEFAULT_DURATION);
+    }
+
+    /**
+     * Adds a signal group.
+     *
+     * @param theOffset the phase offset in ticks
+     * @param theGreen the number of GREEN ticks
+     * @param theYellow the number of YELLOW ticks
+     * @param theRed the number of RED ticks
+     * @return the number of the new group
+     */
+    public int addGroup(final int theOffset, final int theGreen, final int theYellow,
+                        final int theRed) {
+        final long cycle = (long) theGreen + theYellow + theRed;
+        if (theGreen < 0 || theYellow < 0 || theRed < 0 || cycle == 0
+            || cycle > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bad signal durations " + theGreen + "/"
+                                               + theYellow + "/" + theRed);
+        }
+        if (myCount == MAX_GROUPS) {
+            throw new IllegalStateException("More than " + MAX_GROUPS + " signal groups");
+        }
+        if (myCount == myCycle.length) {
+            final int length = Math.min(MAX_GROUPS, myCount * 2);
+            myOffsets = Arrays.copyOf(myOffsets, length);
+            myGreen = Arrays.copyOf(myGreen, length);
+            myGreenYellow = Arrays.copyOf(myGreenYellow, length);
+            myCycle = Arrays.copyOf(myCycle, length);
+        }
+        myOffsets[myCount] = Math.floorMod(theOffset, (int) cycle);
+        myGreen[myCount] = theGreen;
+        myGreenYellow[myCount] = theGreen + theYellow;
+        myCycle[myCount] = (int) cycle;
+        return myCount++;
+    }
+
+    /**
+     * Puts a cell in a group.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @param theGroup the group
+     */
+    public void setGroup(final int theX, final int theY, final int theGroup) {
+        if (!isValidIndex(theX, theY)) {
+            throw new IndexOutOfBoundsException("No cell " + theX + ", " + theY);
+        }
+        if (theGroup < 0 || theGroup >= myCount) {
+            throw new IllegalArgumentException("No signal group " + theGroup);
+        }
+        if (myGroups == null && theGroup != CITY_WIDE) {
+            if ((long) myWidth * myHeight > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Map of " + myWidth + "x" + myHeight
+                                                + " cells is too large for signal groups");
+            }
+            myGroups = new short[myWidth * myHeight];
+        }
+        if (myGroups != null) {
+            myGroups[theY * myWidth + theX] = (short) theGroup;
+        }
+    }
+
+    /**
+     * Returns the group of a cell.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @return the group, CITY_WIDE for a cell off the map
+     */
+    public int getGroup(final int theX, final int theY) {
+        int result = CITY_WIDE;
+        if (myGroups != null && isValidIndex(theX, theY)) {
+            result = myGroups[theY * myWidth + theX];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the light of a cell at a time step.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @param theTimeStep the time step
+     * @return the light
+     */
+    public Light lightAt(final int theX, final int theY, final long theTimeStep) {
+        return lightOf(getGroup(theX, theY), theTimeStep);
+    }
+
+    /**
+     * Returns the light of a group at a time step.
+     *
+     * @param theGroup the group
+     * @param theTimeStep the time step
+     * @return the light
+     */
+    public Light lightOf(final int theGroup, final long theTimeStep) {
+        final long phase = Math.floorMod(theTimeStep + myOffsets[theGroup], myCycle[theGroup]);
+        final Light result;
+        if (phase < myGreen[theGroup]) {
+            result = Light.GREEN;
+        } else if (phase < myGreenYellow[theGroup]) {
+            result = Light.YELLOW;
+        } else {
+            result = Light.RED;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first time step after a given one at which a cell's light changes.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @param theTimeStep the time step
+     * @return the time step of the next change
+     */
+    public long nextChange(final int theX, final int theY, final long theTimeStep) {
+        return nextChangeOf(getGroup(theX, theY), theTimeStep);
+    }
+
+    /**
+     * Returns the first time step after a given one at which a group's light changes.
+     * A group with only one color reports the end of its cycle.
+     *
+     * @param theGroup the group
+     * @param theTimeStep the time step
+     * @return the time step of the next change
+     */
+    public long nextChangeOf(final int theGroup, final long theTimeStep) {
+        final long phase = Math.floorMod(theTimeStep + myOffsets[theGroup], myCycle[theGroup]);
+        final long end;
+        if (phase < myGreen[theGroup]) {
+            end = myGreen[theGroup];
+        } else if (phase < myGreenYellow[theGroup]) {
+            end = myGreenYellow[theGroup];
+        } else {
+            end = myCycle[theGroup];
+        }
+        return theTimeStep + end - phase;
+    }
+
+    /**
+     * Returns whether every cell is in the city-wide group, so that one light holds
+     * for the whole map.
+     *
+     * @return whether the plan is uniform
+     */
+    public boolean isUniform() {
+        return myGroups == null;
+    }
+
+    /**
+     * Returns the number of groups, including the city-wide group.
+     *
+     * @return the number of groups
+     */
+    public int getGroupCount() {
+        return myCount;
+    }
+
+    /**
+     * Returns the phase offset of a group.
+     *
+     * @param theGroup the group
+     * @return the offset in ticks, from 0 up to its cycle length
+     */
+    public int getOffset(final int theGroup) {
+        return myOffsets[theGroup];
+    }
+
+    /**
+     * Returns the number of GREEN ticks of a group.
+     *
+     * @param theGroup the group
+     * @return the duration
+     */
+    public int getGreen(final int theGroup) {
+        return myGreen[theGroup];
+    }
+
+    /**
+     * Returns the number of YELLOW ticks of a group.
+     *
+     * @param theGroup the group
+     * @return the duration
+     */
+    public int getYellow(final int theGroup) {
+        return myGreenYellow[theGroup] - myGreen[theGroup];
+    }
+
+    /**
+     * Returns the number of RED ticks of a group.
+     *
+     * @param theGroup the group
+     * @return the duration
+     */
+    public int getRed(final int theGroup) {
+        return myCycle[theGroup] - myGreenYellow[theGroup];
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns whether a cell is on the map.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @return whether it is on the map
+     */
+    private boolean isValidIndex(final int theX, final int theY) {
+        return theX >= 0 && theY >= 0 && theX < myWidth && theY < myHeight;
+    }
+}
@@ -7,14 +7,15 @@ import java.util.Map;
  * */
 public class Taxi extends AbstractVehicle{
     /**
-     * The taxis timer at a red ligth
+     * The number of pokes a taxi waits at a red crosswalk before moving.
      * */
-    private int redLightTimer;
+    public static final int RED_LIGHT_WAIT = 3;
 
     /**
-     * If the vehicle is stopped
+     * The taxis wait at a red light: 0 when it is not stopped, otherwise one more than the
+     * number of pokes left before it moves
      * */
-    private boolean stopped = false;
+    private int redLightWait;
 
     /**
      * The main constructor of the Taxi class
@@ -33,36 +34,6 @@ public class Taxi extends AbstractVehicle{
         this.setInitials(theX, theY, theDir, 15, "taxi_dead.gif", "taxi.gif");
     }
 
-    /**
-     * Sets the {@link Taxi#stopped} field to true or false whenever the vehicle is stopped or not
-     * */
-    private void setStopped(boolean bool){
-        this.stopped = bool;
-    }
-
-    /**
-     * Returns a boolean value that checks if the vehicle is currently stopped
-     * */
-    private boolean getStopped(){
-        return this.stopped;
-    }
-
-    /**
-     * Sets the {@link Taxi#redLightTimer} field to some int value  that determines
-     * how long the vehicle should stop when at a red light.
-     * @param time an int value for how many pokes does it take for the vehicle to stop when at a red light and then move
-     * */
-    private void setRedLightTimer(int time){
-        this.redLightTimer = time;
-    }
-
-    /**
-     * Returns the int value of {@link Taxi#redLightTimer}
-     * */
-    private int getRedLightTimer(){
-        return this.redLightTimer;
-    }
-
     /**
      * Returns a boolean value that checks whether a Taxi can cross a certain terrain and/or light.
      * if the terrain is a STREET they will pass
@@ -70,41 +41,30 @@ public class Taxi extends AbstractVehicle{
      * if the terrain is a CROSSWALK and theLight is GREEN they will pass
      * if the terrain is a CROSSWALK and theLight is YELLOW they will pass
      * if the terrain is CROSSWALK and theLight is Red they will wait for three pokes and then move.
+     * everything but the red light wait is looked up in the passability table.
      * @param terrain a Terrain object, the type of Terrain the vehicle is trying to go to.
      * @param theLight a Light object, if the terrain has a light, checks whether the vehicle will pass the terrain at a certain light.
      * */
     @Override
     public boolean canPass(Terrain terrain, Light theLight){
-        //if the RedLightTimer is greater than zero then subtract 1 from it
-        if (this.getRedLightTimer()> 0) {
-            this.setRedLightTimer(this.getRedLightTimer()- 1);
+        //if the taxi is stopped with pokes left to wait then count one off
+        if (redLightWait > 1) redLightWait--;
+        if (terrain != Terrain.CROSSWALK || theLight == Light.YELLOW) {
+            return super.canPass(terrain, theLight);
         }
-        if (terrain == Terrain.STREET) return true;
-        else if (terrain == Terrain.LIGHT && theLight == Light.GREEN) return true;
-        else if (terrain == Terrain.LIGHT && theLight == Light.YELLOW) return true;
-        else if (terrain == Terrain.CROSSWALK && theLight == Light.GREEN){
-            //sets the red light timer to zero
-            this.setRedLightTimer(0);
-            //sets the stopped value of the vehicle to false
-            if (getStopped()) setStopped(false);
-            //then return true
+        else if (theLight == Light.GREEN) {
+            //a green light ends any wait
+            redLightWait = 0;
             return true;
         }
-        else if (terrain == Terrain.CROSSWALK && theLight == Light.YELLOW) return true;
-        //if the terrain is CROSSWALK AND theLight is red and the vehicle has not stopped yet
-        else if (terrain == Terrain.CROSSWALK && theLight == Light.RED && !getStopped()){
-            //then set the vehicle to stop
-            this.setStopped(true);
-            //start the red light timer
-            this.setRedLightTimer(3);
-            //then return false
+        //the light is red: stop and start waiting if the taxi has not stopped yet
+        else if (redLightWait == 0) {
+            redLightWait = RED_LIGHT_WAIT + 1;
             return false;
         }
-        //if the terrain is a CROSSWALK and the red light timer is 0 (this is only executed when the vehicle is at a red light and is stopped)
-        else if (terrain == Terrain.CROSSWALK && theLight == Light.RED && this.getRedLightTimer() == 0){
-            //set stopped to false
-            this.setStopped(false);
-            //then return to true
+        //move on once the wait is over
+        else if (redLightWait == 1) {
+            redLightWait = 0;
             return true;
         }
         else return false;
@@ -141,16 +101,26 @@ public class Taxi extends AbstractVehicle{
     }
 
     /**
-     * Determines what happens if the vehicle collides with another vehicle.
-     * if the taxi is alive and the vehicle they are colliding with is alive, and it is a truck they will die
-     * and their current image file name turns into their death image file name
-     * @param theOther a Vehicle object, the Vehicle that this Vehicle collides with.
+     * Returns the taxis wait at a red light, as kept by canPass
+     * */
+    int getRedLightWait() {
+        return redLightWait;
+    }
+
+    /**
+     * Sets the taxis wait at a red light, as when restoring a saved state
+     * @param wait an int value, 0 when the taxi is not stopped, otherwise one more than the
+     *             number of pokes left before it moves
+     * */
+    void setRedLightWait(int wait) {
+        redLightWait = wait;
+    }
+
+    /**
+     * Returns the kind of this vehicle, always Taxi.
      * */
     @Override
-    public void collide (Vehicle theOther){
-        if (isAlive() && theOther.isAlive() && (theOther.getImageFileName().equals("truck.gif"))) {
-            this.setAlive(false);
-            this.setImageFileName(this.getDeathImageFileName());
-        }
+    public VehicleKind getKind() {
+        return VehicleKind.TAXI;
     }
 }
@@ -4,6 +4,8 @@
 
 package model;
 
+import java.util.Arrays;
+
 /**
  * An enumeration (and associated functionality) for types of terrain that may
  * appear on the map.
@@ -45,6 +47,23 @@ public enum Terrain {
      */
     CROSSWALK('#');
 
+    /**
+     * The number of letters looked up in a table; other letters are GRASS.
+     */
+    private static final int TABLE_SIZE = 256;
+
+    /**
+     * The Terrain of each letter below TABLE_SIZE, GRASS for letters of none.
+     */
+    private static final Terrain[] BY_LETTER = new Terrain[TABLE_SIZE];
+
+    static {
+        Arrays.fill(BY_LETTER, GRASS);
+        for (final Terrain terrain : values()) {
+            BY_LETTER[terrain.myLetter] = terrain;
+        }
+    }
+
     /**
      * The character corresponding to a particular value of the enumeration.
      */
@@ -72,17 +91,21 @@ public enum Terrain {
      */
     public static Terrain valueOf(final char theLetter) {
         Terrain result = GRASS;
-
-        for (final Terrain terrain : Terrain.values()) {
-            if (terrain.myLetter == theLetter) {
-                result = terrain;
-                break;
-            }
+        if (theLetter < TABLE_SIZE) {
+            result = BY_LETTER[theLetter];
         }
-
         return result;
     }
 
+    /**
+     * Returns the letter corresponding to this Terrain.
+     * 
+     * @return the letter corresponding to this Terrain.
+     */
+    public char letter() {
+        return myLetter;
+    }
+
     /**
      * Returns a String representation of this Terrain, such as "WALL (X)".
      * 
@@ -0,0 +1,225 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A rectangular grid of Terrain forming the map, stored as Terrain ordinals in a single
+ * row-major array rather than an array of rows of references.
+ * 
+ * A grid is filled in while a map is loaded and must not change once a simulation has 
+ * been built from it. Threads may fill in separate bands of rows at once, provided each
+ * band starts at an even row: a large grid packs two cells into a byte.
+ *
+ * @version 1.0
+ */
+public abstract class TerrainGrid {
+
+    /**
+     * The largest number of elements a Java array can reliably hold.
+     */
+    protected static final long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /**
+     * Cached Terrain values, indexed by ordinal.
+     */
+    private static final Terrain[] TERRAINS = Terrain.values();
+
+    /**
+     * The number of columns.
+     */
+    private final int myWidth;
+
+    /**
+     * The number of rows.
+     */
+    private final int myHeight;
+
+    /**
+     * Creates a grid of the given size.
+     *
+     * @param theWidth the number of columns
+     * @param theHeight the number of rows
+     */
+    protected TerrainGrid(final int theWidth, final int theHeight) {
+        if (theWidth < 0 || theHeight < 0) {
+            throw new IllegalArgumentException("Negative grid size " + theWidth + "x"
+                                               + theHeight);
+        }
+        myWidth = theWidth;
+        myHeight = theHeight;
+    }
+
+    /**
+     * Creates a grid of GRASS holding one byte per cell, or half a byte per cell when
+     * the map is too large for one byte per cell.
+     *
+     * @param theWidth the number of columns
+     * @param theHeight the number of rows
+     * @return the new grid
+     */
+    public static TerrainGrid create(final int theWidth, final int theHeight) {
+        return create(theWidth, theHeight, (long) theWidth * theHeight > MAX_ARRAY_LENGTH);
+    }
+
+    /**
+     * Creates a grid of GRASS.
+     *
+     * @param theWidth the number of columns
+     * @param theHeight the number of rows
+     * @param thePacked true to store half a byte per cell, false for one byte per cell
+     * @return the new grid
+     */
+    public static TerrainGrid create(final int theWidth, final int theHeight,
+                                     final boolean thePacked) {
+        final TerrainGrid result;
+        if (thePacked) {
+            result = new PackedTerrainGrid(theWidth, theHeight);
+        } else {
+            result = new ByteTerrainGrid(theWidth, theHeight);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a grid from a 2D array of Terrain, indexed [row][column].
+     *
+     * @param theRows the rows of the map
+     * @return the new grid
+     */
+    public static TerrainGrid of(final Terrain[][] theRows) {
+        final int height = theRows.length;
+        final int width = height == 0 ? 0 : theRows[0].length;
+        final TerrainGrid result = create(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                result.set(x, y, theRows[y][x]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return the width of the grid
+     */
+    public final int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the height of the grid
+     */
+    public final int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Tests whether the square at the given x/y position exists on the map.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return true if the position exists on the map, false otherwise.
+     */
+    public final boolean isValidIndex(final int theX, final int theY) {
+        return 0 <= theY && theY < myHeight && 0 <= theX && theX < myWidth;
+    }
+
+    /**
+     * Returns the Terrain at a position on the map.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the Terrain.
+     */
+    public final Terrain get(final int theX, final int theY) {
+        return TERRAINS[ordinal(theX, theY)];
+    }
+
+    /**
+     * Returns the Terrain ordinal at a position on the map.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the Terrain ordinal.
+     */
+    public abstract int ordinal(int theX, int theY);
+
+    /**
+     * Sets the Terrain at a position on the map.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @param theTerrain The Terrain.
+     */
+    public final void set(final int theX, final int theY, final Terrain theTerrain) {
+        setOrdinal(theX, theY, theTerrain.ordinal());
+    }
+
+    /**
+     * Sets the Terrain ordinal at a position on the map.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @param theOrdinal The Terrain ordinal.
+     */
+    public abstract void setOrdinal(int theX, int theY, int theOrdinal);
+
+    /**
+     * Returns the number of bytes used to store the cells.
+     *
+     * @return the size of the cell storage in bytes.
+     */
+    public abstract long storageBytes();
+
+    /**
+     * Returns the number of bytes of the cells packed two to a byte, as read and written
+     * by readPacked and writePacked.
+     *
+     * @return the packed size in bytes.
+     */
+    public final long packedBytes() {
+        return ((long) myWidth * myHeight + 1) / 2;
+    }
+
+    /**
+     * Sets cells from Terrain ordinals packed two to a byte, row-major, even cells in the
+     * low four bits of each byte. Reads every remaining byte of the buffer.
+     *
+     * @param theOffset the packed byte the buffer starts at, half the first cell set.
+     * @param theBuffer the packed ordinals.
+     */
+    public abstract void readPacked(long theOffset, ByteBuffer theBuffer);
+
+    /**
+     * Writes Terrain ordinals packed two to a byte, row-major, even cells in the low four
+     * bits of each byte. Fills every remaining byte of the buffer.
+     *
+     * @param theOffset the packed byte the buffer starts at, half the first cell written.
+     * @param theBuffer the buffer to fill.
+     */
+    public abstract void writePacked(long theOffset, ByteBuffer theBuffer);
+
+    /**
+     * Computes the row-major index of a position, checking that it is on the map.
+     *
+     * @param theX The x position.
+     * @param theY The y position.
+     * @return the index of the cell.
+     */
+    protected final int index(final int theX, final int theY) {
+        if (!isValidIndex(theX, theY)) {
+            throw new IndexOutOfBoundsException("(" + theX + ", " + theY + ") is outside a "
+                                                + myWidth + "x" + myHeight + " grid");
+        }
+        return theY * myWidth + theX;
+    }
+}
+
+// end of class TerrainGrid
@@ -3,7 +3,6 @@ package model;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 /**
  * A concrete class responsible for constructing of Truck type vehicles
@@ -26,23 +25,6 @@ public class Truck extends AbstractVehicle{
         this.setInitials(theX, theY, theDir,0, "truck_dead.gif", "truck.gif");
     }
 
-    /**
-     * Returns a boolean value that checks whether a Truck can cross a certain terrain and/or light.
-     * if the terrain is a STREET they will pass
-     * if the terrain is a Light they will pass
-     * if the terrain is a CROSSWALK and theLight is GREEN or YELLOW they will pass
-     * otherwise they will not pass
-     * @param terrain a Terrain object, the type of Terrain the vehicle is trying to go to.
-     * @param theLight a Light object, if the terrain has a light, checks whether the vehicle will pass the terrain at a certain light.
-     * */
-    @Override
-    public boolean canPass(Terrain terrain, Light theLight){
-        if (terrain == Terrain.STREET) return true;
-        else if (terrain == Terrain.LIGHT) return true;
-        else if (terrain == Terrain.CROSSWALK && theLight == Light.GREEN) return true;
-        else return terrain == Terrain.CROSSWALK && theLight == Light.YELLOW;
-    }
-
     /**
      * Returns a Direction object of where the Truck prefers to go.
      * The truck randomly picks to travel forwards, leftwards, or rightwards if the terrain is a STREET, LIGHT, OR CROSSWALK
@@ -80,11 +62,18 @@ public class Truck extends AbstractVehicle{
         }
         //randomly selects any of the possible directions to go to.
         else {
-            Random random = new Random();
-            final int randomIndex = random.nextInt(possibleDirections.size());
+            final int randomIndex = getRandom().nextInt(possibleDirections.size());
             newDirection = possibleDirections.get(randomIndex);
         }
 
         return newDirection;
     }
+
+    /**
+     * Returns the kind of this vehicle, always Truck.
+     * */
+    @Override
+    public VehicleKind getKind() {
+        return VehicleKind.TRUCK;
+    }
 }
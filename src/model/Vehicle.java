@@ -66,6 +66,15 @@ public interface Vehicle {
      */
     Direction getDirection();
 
+    /**
+     * Returns the kind of this Vehicle object.
+     * 
+     * @return the kind, or null if it is not one of the kinds of VehicleKind.
+     */
+    default VehicleKind getKind() {
+        return null;
+    }
+
     /**
      * Returns this Vehicle object's x-coordinate.
      * 
@@ -0,0 +1,203 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package model;
+
+/**
+ * An enumeration of the kinds of vehicle that may appear on the map, with the
+ * properties every vehicle of a kind shares.
+ *
+ * @version 1.0
+ */
+public enum VehicleKind {
+
+    /**
+     * A Bicycle.
+     */
+    BICYCLE('B', "bicycle", 35, 0),
+
+    /**
+     * An ATV.
+     */
+    ATV('A', "atv", 25, 0),
+
+    /**
+     * A Human.
+     */
+    HUMAN('H', "human", 45, 45),
+
+    /**
+     * A Truck.
+     */
+    TRUCK('T', "truck", 0, 0),
+
+    /**
+     * A Taxi.
+     */
+    TAXI('X', "taxi", 15, 15),
+
+    /**
+     * A Car.
+     */
+    CAR('C', "car", 15, 15);
+
+    /**
+     * The letter used for this kind in city map files.
+     */
+    private final char myLetter;
+
+    /**
+     * The image file name of a live vehicle of this kind.
+     */
+    private final String myAliveImage;
+
+    /**
+     * The image file name of a dead vehicle of this kind.
+     */
+    private final String myDeadImage;
+
+    /**
+     * The number of pokes a vehicle of this kind stays dead once it has revived before.
+     */
+    private final int myDeathTime;
+
+    /**
+     * The death countdown a newly constructed vehicle of this kind starts with.
+     */
+    private final int myStartingDeathTime;
+
+    /**
+     * The name used when displaying this kind, such as "Car".
+     */
+    private final String myDisplayName;
+
+    // Constructor
+
+    /**
+     * Constructs a new VehicleKind.
+     *
+     * @param theLetter The letter used in city map files.
+     * @param theImageBase The image file name without extension, such as "car".
+     * @param theDeathTime The death time restored on every revival.
+     * @param theStartingDeathTime The death countdown of a newly constructed vehicle.
+     */
+    VehicleKind(final char theLetter, final String theImageBase, final int theDeathTime,
+                final int theStartingDeathTime) {
+        myLetter = theLetter;
+        myAliveImage = theImageBase + ".gif";
+        myDeadImage = theImageBase + "_dead.gif";
+        myDeathTime = theDeathTime;
+        myStartingDeathTime = theStartingDeathTime;
+        myDisplayName = name().charAt(0) + name().substring(1).toLowerCase();
+    }
+
+    // Instance Methods
+
+    /**
+     * Returns the VehicleKind represented by the given letter.
+     *
+     * @param theLetter The letter.
+     * @return the VehicleKind represented by the given letter, or null if no
+     *         VehicleKind is represented by the given letter.
+     */
+    public static VehicleKind valueOf(final char theLetter) {
+        VehicleKind result = null;
+
+        for (final VehicleKind kind : VehicleKind.values()) {
+            if (kind.myLetter == theLetter) {
+                result = kind;
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the letter corresponding to this kind.
+     *
+     * @return the letter corresponding to this kind.
+     */
+    public char letter() {
+        return myLetter;
+    }
+
+    /**
+     * Returns the image file name of a vehicle of this kind, such as "car.gif".
+     *
+     * @param theAlive Whether the vehicle is alive.
+     * @return the image file name.
+     */
+    public String imageFileName(final boolean theAlive) {
+        return theAlive ? myAliveImage : myDeadImage;
+    }
+
+    /**
+     * Returns the number of pokes a vehicle of this kind stays dead after a revival.
+     *
+     * @return the death time.
+     */
+    public int deathTime() {
+        return myDeathTime;
+    }
+
+    /**
+     * Returns the death countdown a newly constructed vehicle of this kind starts with.
+     * Only Humans, Taxis and Cars set it in their constructors; the others start at zero.
+     *
+     * @return the starting death countdown.
+     */
+    public int startingDeathTime() {
+        return myStartingDeathTime;
+    }
+
+    /**
+     * Returns the name used when displaying this kind, such as "Car".
+     *
+     * @return the display name.
+     */
+    public String displayName() {
+        return myDisplayName;
+    }
+
+    /**
+     * Creates a new Vehicle object of this kind.
+     *
+     * @param theX The starting x position.
+     * @param theY The starting y position.
+     * @param theDir The starting direction.
+     * @return the new Vehicle.
+     */
+    public Vehicle newVehicle(final int theX, final int theY, final Direction theDir) {
+        final Vehicle result;
+        switch (this) {
+            case BICYCLE:
+                result = new Bicycle(theX, theY, theDir);
+                break;
+
+            case ATV:
+                result = new Atv(theX, theY, theDir);
+                break;
+
+            case HUMAN:
+                result = new Human(theX, theY, theDir);
+                break;
+
+            case TRUCK:
+                result = new Truck(theX, theY, theDir);
+                break;
+
+            case TAXI:
+                result = new Taxi(theX, theY, theDir);
+                break;
+
+            default:
+                result = new Car(theX, theY, theDir);
+                break;
+        }
+        return result;
+    }
+}
+
+// end of class VehicleKind
@@ -0,0 +1,181 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package model;
+
+/**
+ * A source of random choices for one vehicle whose whole state can be read and set, so
+ * that the state of a run can be saved and picked up again where its vehicles' choices
+ * left off. The position in a java.util.SplittableRandom cannot be read.
+ *
+ * This is the SplitMix64 generator of java.util.SplittableRandom, and gives the same
+ * values: a seed that a gamma is added to before each value is mixed from it. Only the
+ * methods the vehicles and engines use are here.
+ *
+ * @version 1.0
+ */
+public final class VehicleRandom {
+
+    /**
+     * The gamma of a generator that is not split from another.
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * The seed, advanced by the gamma before each value.
+     */
+    private long mySeed;
+
+    /**
+     * The odd step added to the seed.
+     */
+    private final long myGamma;
+
+    /**
+     * Creates a generator from a seed, as new SplittableRandom(theSeed) does.
+     *
+     * @param theSeed the seed
+     */
+    public VehicleRandom(final long theSeed) {
+        this(theSeed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Creates a generator in a state read from another with getSeed and getGamma.
+     *
+     * @param theSeed the seed
+     * @param theGamma the gamma, which is odd
+     * @throws IllegalArgumentException if the gamma is even
+     */
+    public VehicleRandom(final long theSeed, final long theGamma) {
+        if ((theGamma & 1) == 0) {
+            throw new IllegalArgumentException("Even gamma " + theGamma);
+        }
+        mySeed = theSeed;
+        myGamma = theGamma;
+    }
+
+    /**
+     * Access the seed.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return mySeed;
+    }
+
+    /**
+     * Access the gamma.
+     *
+     * @return the gamma
+     */
+    public long getGamma() {
+        return myGamma;
+    }
+
+    /**
+     * Returns a new generator, split from this one as SplittableRandom.split does.
+     *
+     * @return the new generator
+     */
+    public VehicleRandom split() {
+        final long seed = nextLong();
+        return new VehicleRandom(seed, mixGamma(nextSeed()));
+    }
+
+    /**
+     * Returns a random long.
+     *
+     * @return the value
+     */
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    /**
+     * Returns a random int.
+     *
+     * @return the value
+     */
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    /**
+     * Returns a random int from zero up to a bound, rejecting values that would make
+     * some results more likely than others.
+     *
+     * @param theBound the bound, greater than zero
+     * @return the value, at least zero and less than the bound
+     * @throws IllegalArgumentException if the bound is not positive
+     */
+    public int nextInt(final int theBound) {
+        if (theBound <= 0) {
+            throw new IllegalArgumentException("Bound " + theBound);
+        }
+        final int m = theBound - 1;
+        int result = nextInt();
+        if ((theBound & m) == 0) {
+            result &= m;
+        } else {
+            int u = result >>> 1;
+            result = u % theBound;
+            while (u + m - result < 0) {
+                u = nextInt() >>> 1;
+                result = u % theBound;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Advances the seed.
+     *
+     * @return the new seed
+     */
+    private long nextSeed() {
+        mySeed += myGamma;
+        return mySeed;
+    }
+
+    /**
+     * Mixes a seed into a long, with Stafford's variant 13 of the MurmurHash3 finalizer.
+     *
+     * @param theSeed the seed
+     * @return the value
+     */
+    private static long mix64(final long theSeed) {
+        long z = (theSeed ^ theSeed >>> 30) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ z >>> 27) * 0x94d049bb133111ebL;
+        return z ^ z >>> 31;
+    }
+
+    /**
+     * Mixes a seed into an int, the high half of Stafford's variant 4.
+     *
+     * @param theSeed the seed
+     * @return the value
+     */
+    private static int mix32(final long theSeed) {
+        final long z = (theSeed ^ theSeed >>> 33) * 0x62a9d9ed799705f5L;
+        return (int) ((z ^ z >>> 28) * 0xcb24d0a5c88c35b3L >>> 32);
+    }
+
+    /**
+     * Mixes a seed into the gamma of a split generator: odd, and with enough bit
+     * transitions to step well.
+     *
+     * @param theSeed the seed
+     * @return the gamma
+     */
+    private static long mixGamma(final long theSeed) {
+        long z = (theSeed ^ theSeed >>> 33) * 0xff51afd7ed558ccdL;
+        z = (z ^ z >>> 33) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ z >>> 33) | 1L;
+        if (Long.bitCount(z ^ z >>> 1) < 24) {
+            z ^= 0xaaaaaaaaaaaaaaaaL;
+        }
+        return z;
+    }
+}
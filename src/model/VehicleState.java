@@ -0,0 +1,102 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package model;
+
+/**
+ * Reads and restores the parts of a vehicle's state that the Vehicle interface does not
+ * expose: whether it is alive, its death countdown, a Taxi's red light wait, the source
+ * of its random choices and which collisions kill it. Only vehicles of a known kind that
+ * extend AbstractVehicle can be restored; the state a subclass adds of its own is not
+ * seen.
+ *
+ * @version 1.0
+ */
+public final class VehicleState {
+
+    /**
+     * A private constructor, to prevent external instantiation.
+     */
+    private VehicleState() { }
+
+    /**
+     * Returns whether a vehicle's whole state can be read and restored here.
+     *
+     * @param theVehicle the vehicle
+     * @return whether it is of a known kind and extends AbstractVehicle
+     */
+    public static boolean isRestorable(final Vehicle theVehicle) {
+        return theVehicle instanceof AbstractVehicle && theVehicle.getKind() != null;
+    }
+
+    /**
+     * Returns a vehicle's wait at a red light.
+     *
+     * @param theVehicle the vehicle
+     * @return 0 when it is not stopped or is not a Taxi, otherwise one more than the
+     *         number of pokes left before it moves
+     */
+    public static int redLightWait(final Vehicle theVehicle) {
+        int result = 0;
+        if (theVehicle instanceof Taxi) {
+            result = ((Taxi) theVehicle).getRedLightWait();
+        }
+        return result;
+    }
+
+    /**
+     * Sets the source of the random choices a vehicle makes, such as the direction it
+     * faces when it is revived. A vehicle that does not extend AbstractVehicle keeps
+     * making its own choices.
+     *
+     * @param theVehicle the vehicle
+     * @param theRandom the source of randomness
+     */
+    public static void setRandom(final Vehicle theVehicle, final VehicleRandom theRandom) {
+        if (theVehicle instanceof AbstractVehicle) {
+            ((AbstractVehicle) theVehicle).setRandom(theRandom);
+        }
+    }
+
+    /**
+     * Sets which kinds of vehicle a vehicle dies colliding with. A vehicle that does not
+     * extend AbstractVehicle decides its collisions itself.
+     *
+     * @param theVehicle the vehicle
+     * @param theLethality the matrix of lethal collisions
+     */
+    public static void setLethality(final Vehicle theVehicle,
+                                    final LethalityMatrix theLethality) {
+        if (theVehicle instanceof AbstractVehicle) {
+            ((AbstractVehicle) theVehicle).setLethality(theLethality);
+        }
+    }
+
+    /**
+     * Puts a vehicle in a saved state.
+     *
+     * @param theVehicle the vehicle, which must be restorable
+     * @param theX the x position
+     * @param theY the y position
+     * @param theDir the direction
+     * @param theAlive whether it is alive
+     * @param theDeathTime the pokes left before it revives, if it is dead
+     * @param theRedLightWait its wait at a red light, ignored unless it is a Taxi
+     * @throws IllegalArgumentException if the vehicle is not restorable
+     */
+    public static void restore(final Vehicle theVehicle, final int theX, final int theY,
+                               final Direction theDir, final boolean theAlive,
+                               final int theDeathTime, final int theRedLightWait) {
+        if (!isRestorable(theVehicle)) {
+            throw new IllegalArgumentException("Cannot restore " + theVehicle);
+        }
+        theVehicle.setX(theX);
+        theVehicle.setY(theY);
+        theVehicle.setDirection(theDir);
+        ((AbstractVehicle) theVehicle).restoreState(theAlive, theDeathTime);
+        if (theVehicle instanceof Taxi) {
+            ((Taxi) theVehicle).setRedLightWait(theRedLightWait);
+        }
+    }
+}
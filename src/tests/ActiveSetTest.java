@@ -0,0 +1,107 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import logic.EngineType;
+import logic.PropertyChangeEnabledRoadRageControls;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import view.util.CityMap;
+
+/**
+ * Unit tests that visiting only the active vehicles each tick, parking blocked and dead
+ * vehicles until they can next move, changes nothing about a run.
+ *
+ * @version 1 OCT 2018
+ */
+public class ActiveSetTest {
+
+    /** The number of ticks compared, several cycles of the lights. */
+    private static final int TICKS = 600;
+
+    /** The least number of light changes the run must see. */
+    private static final int LIGHT_CHANGES = 12;
+
+    /** A scratch directory for the city. */
+    @TempDir
+    Path myDirectory;
+
+    /** The city. */
+    private CityMap myCity;
+
+    /** The number of light changes seen. */
+    private int myLightChanges;
+
+    /**
+     * Reads the city.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        myCity = CrowdedCity.read(myDirectory);
+    }
+
+    /**
+     * Test that RoadRage moves every vehicle the same with the active set on and off.
+     */
+    @Test
+    public void testActiveSetHasNoEffectObjects() {
+        compareActiveSet(EngineType.OBJECTS);
+    }
+
+    /**
+     * Test that ArrayRoadRage moves every vehicle the same with the active set on and off.
+     */
+    @Test
+    public void testActiveSetHasNoEffectArrays() {
+        compareActiveSet(EngineType.ARRAYS);
+    }
+
+    /**
+     * Runs the city with the active set on and off side by side and compares the
+     * vehicles and move counts after every tick. The run must see live vehicles parked
+     * while blocked, and the lights change often enough to wake them.
+     *
+     * @param theType the engine
+     */
+    private void compareActiveSet(final EngineType theType) {
+        final CrowdedCity.Run on = new CrowdedCity.Run(myCity, theType);
+        final CrowdedCity.Run off = new CrowdedCity.Run(myCity, theType);
+        on.engine().setActiveSetEnabled(true);
+        off.engine().setActiveSetEnabled(false);
+        on.engine().addPropertyChangeListener(
+            PropertyChangeEnabledRoadRageControls.PROPERTY_LIGHT,
+            theEvent -> myLightChanges++);
+        on.start();
+        off.start();
+
+        boolean parked = false;
+        for (int t = 0; t < TICKS; t++) {
+            final List<String> expected = off.run(1);
+            assertEquals(expected, on.run(1), "tick " + t);
+            assertEquals(off.engine().getMoveCount(), on.engine().getMoveCount(),
+                         "moves, tick " + t);
+            assertEquals(off.engine().getVehicleCount(), off.engine().getActiveVehicleCount(),
+                         "active with the active set off, tick " + t);
+            int alive = 0;
+            for (final String vehicle : expected) {
+                if (vehicle.contains(" true ")) {
+                    alive++;
+                }
+            }
+            parked |= on.engine().getActiveVehicleCount() < alive;
+        }
+        assertTrue(parked, "no live vehicle parked");
+        assertTrue(myLightChanges >= LIGHT_CHANGES, "light changes " + myLightChanges);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import logic.EngineType;
+import logic.RoadRage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import view.util.CityMap;
+
+/**
+ * Unit tests that finding collisions through the cell index of class RoadRage, instead
+ * of comparing every pair of vehicles, changes nothing about a run.
+ *
+ * @version 1 OCT 2018
+ */
+public class CellIndexTest {
+
+    /** The number of ticks compared. */
+    private static final int TICKS = 400;
+
+    /** A scratch directory for the city. */
+    @TempDir
+    Path myDirectory;
+
+    /**
+     * Test that the crowded generated city runs the same with the cell index on and off,
+     * through vehicles dying in collisions, with the active set on.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @Test
+    public void testCellIndexHasNoEffectActiveSetOn() throws IOException {
+        compareCellIndex(CrowdedCity.generate(myDirectory), true);
+    }
+
+    /**
+     * Test that the crowded generated city runs the same with the cell index on and off,
+     * through vehicles dying in collisions, with the active set off.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @Test
+    public void testCellIndexHasNoEffectActiveSetOff() throws IOException {
+        compareCellIndex(CrowdedCity.generate(myDirectory), false);
+    }
+
+    /**
+     * Runs a city with the cell index on and off side by side and compares the vehicles
+     * and move counts after every tick. The run must see vehicles die.
+     *
+     * @param theCity the city
+     * @param theActiveSet whether the active set is on
+     */
+    private static void compareCellIndex(final CityMap theCity, final boolean theActiveSet) {
+        final CrowdedCity.Run indexed = new CrowdedCity.Run(theCity, EngineType.OBJECTS);
+        final CrowdedCity.Run pairs = new CrowdedCity.Run(theCity, EngineType.OBJECTS);
+        ((RoadRage) indexed.engine()).setCellIndexEnabled(true);
+        ((RoadRage) pairs.engine()).setCellIndexEnabled(false);
+        indexed.engine().setActiveSetEnabled(theActiveSet);
+        pairs.engine().setActiveSetEnabled(theActiveSet);
+        indexed.start();
+        pairs.start();
+
+        int deaths = 0;
+        List<String> before = null;
+        for (int t = 0; t < TICKS; t++) {
+            final List<String> expected = pairs.run(1);
+            assertEquals(expected, indexed.run(1), "tick " + t);
+            assertEquals(pairs.engine().getMoveCount(), indexed.engine().getMoveCount(),
+                         "moves, tick " + t);
+            if (before != null) {
+                for (int i = 0; i < expected.size(); i++) {
+                    if (before.get(i).contains(" true ") && expected.get(i).contains(" false ")) {
+                        deaths++;
+                    }
+                }
+            }
+            before = expected;
+        }
+        assertTrue(deaths > 0, "no vehicle died");
+    }
+}
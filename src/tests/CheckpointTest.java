@@ -0,0 +1,168 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import logic.Checkpoint;
+import logic.EngineType;
+import logic.SimulationEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import view.util.CityMap;
+
+/**
+ * Unit tests for saving and restoring the state of a simulation with class Checkpoint.
+ *
+ * @version 1 OCT 2018
+ */
+public class CheckpointTest {
+
+    /** The time step at which the checkpoint is taken. */
+    private static final long CHECKPOINT_TIME = 200;
+
+    /** The number of ticks run after the checkpoint. */
+    private static final int TICKS_AFTER = 300;
+
+    /** The number of ticks between checkpoints of a run that goes on. */
+    private static final int CHECKPOINT_EVERY = 7;
+
+    /** A scratch directory for the files. */
+    @TempDir
+    Path myDirectory;
+
+    /** The city. */
+    private CityMap myCity;
+
+    /**
+     * Reads the city.
+     *
+     * @throws IOException if it cannot be written or read
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        myCity = CrowdedCity.read(myDirectory);
+    }
+
+    /**
+     * Test that a run restored from a checkpoint file, into either engine, goes on
+     * exactly as the run the checkpoint was taken from.
+     *
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testRestoredRunGoesOn() throws IOException {
+        final Path file = myDirectory.resolve("run.rrck");
+        for (final EngineType from : EngineType.values()) {
+            for (final EngineType to : EngineType.values()) {
+                final CrowdedCity.Run original = startRun(from);
+                while (original.engine().getTimeStep() < CHECKPOINT_TIME) {
+                    original.engine().advance();
+                }
+                original.engine().checkpoint().writeAsync(file).join();
+                final List<String> expected = original.run(TICKS_AFTER);
+
+                final CrowdedCity.Run restored = startRun(to);
+                restored.engine().restore(Checkpoint.read(file));
+                assertEquals(CHECKPOINT_TIME, restored.engine().getTimeStep(), "time step");
+                assertEquals(expected, restored.run(TICKS_AFTER), from + " to " + to);
+                assertEquals(original.engine().getMoveCount(),
+                             restored.engine().getMoveCount(), "moves");
+            }
+        }
+    }
+
+    /**
+     * Test that taking checkpoints does not change a run: a run checkpointed every few
+     * ticks goes on exactly as one that is not, in either engine.
+     */
+    @Test
+    public void testCheckpointHasNoEffect() {
+        for (final EngineType type : EngineType.values()) {
+            final CrowdedCity.Run plain = startRun(type);
+            final CrowdedCity.Run checkpointed = startRun(type);
+            for (int t = 0; t < TICKS_AFTER; t++) {
+                if (t % CHECKPOINT_EVERY == 0) {
+                    checkpointed.engine().checkpoint();
+                }
+                assertEquals(plain.run(1), checkpointed.run(1), type + " tick " + t);
+                assertEquals(plain.engine().getMoveCount(),
+                             checkpointed.engine().getMoveCount(), type + " moves");
+            }
+        }
+    }
+
+    /**
+     * Test that the header of a checkpoint reads back unchanged.
+     *
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testHeaderRoundTrip() throws IOException {
+        final Path file = myDirectory.resolve("header.rrck");
+        final SimulationEngine engine = startRun(EngineType.ARRAYS).engine();
+        for (int i = 0; i < CHECKPOINT_TIME; i++) {
+            engine.advance();
+        }
+        final Checkpoint written = engine.checkpoint();
+        written.write(file);
+        final Checkpoint read = Checkpoint.read(file);
+        assertEquals(written.getTimeStep(), read.getTimeStep(), "time step");
+        assertEquals(written.getMoveCount(), read.getMoveCount(), "moves");
+        assertEquals(CrowdedCity.SEED, read.getSeed(), "seed");
+        assertEquals(written.getLight(), read.getLight(), "light");
+        assertEquals(myCity.getGrid().getWidth(), read.getWidth(), "width");
+        assertEquals(myCity.getGrid().getHeight(), read.getHeight(), "height");
+        assertEquals(myCity.getVehicles().size(), read.getVehicleCount(), "vehicles");
+    }
+
+    /**
+     * Test that a checkpoint of another map is refused.
+     *
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testOtherMapRefused() throws IOException {
+        final Path other = myDirectory.resolve("other.txt");
+        Files.write(other, CrowdedCity.TEXT.replace("B 2 2 N", "A 2 2 N")
+                        .getBytes(StandardCharsets.US_ASCII));
+        final CityMap city = CityMap.read(other);
+        final Checkpoint checkpoint =
+            EngineType.OBJECTS.create(city.getGrid(), city.getVehicles(), CrowdedCity.SEED)
+                .checkpoint();
+        for (final EngineType type : EngineType.values()) {
+            final SimulationEngine engine = startRun(type).engine();
+            assertThrows(IllegalArgumentException.class, () -> engine.restore(checkpoint));
+        }
+    }
+
+    /**
+     * Test that a file that is not a checkpoint is refused.
+     *
+     * @throws IOException if a file cannot be written
+     */
+    @Test
+    public void testNotACheckpointRefused() throws IOException {
+        final Path file = myDirectory.resolve(CrowdedCity.FILE_NAME);
+        assertThrows(IOException.class, () -> Checkpoint.read(file));
+    }
+
+    /**
+     * Creates and starts a run of the city.
+     *
+     * @param theType the engine
+     * @return the run
+     */
+    private CrowdedCity.Run startRun(final EngineType theType) {
+        return new CrowdedCity.Run(myCity, theType).start();
+    }
+}
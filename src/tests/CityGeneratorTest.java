@@ -0,0 +1,136 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import logic.VehicleRecords;
+import model.Direction;
+import model.Light;
+import model.Terrain;
+import model.TerrainGrid;
+import model.VehicleKind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import view.util.CityGenerator;
+import view.util.CityMap;
+
+/**
+ * Unit tests for generating city map files with class CityGenerator.
+ *
+ * @version 1 OCT 2018
+ */
+public class CityGeneratorTest {
+
+    /** The seed of the maps compared. */
+    private static final long SEED = 305;
+
+    /** The number of columns of the maps. */
+    private static final int WIDTH = 61;
+
+    /** The number of rows of the maps. */
+    private static final int HEIGHT = 37;
+
+    /** The number of vehicles of each kind asked for. */
+    private static final int PER_KIND = 25;
+
+    /** The ticks to drive one block of the green wave. */
+    private static final int WAVE = 4;
+
+    /** A scratch directory for the maps. */
+    @TempDir
+    Path myDirectory;
+
+    /**
+     * Test that the same settings and seed write byte for byte the same file, and that
+     * another seed writes another.
+     *
+     * @throws IOException if a file cannot be written or read
+     */
+    @Test
+    public void testSameSeedSameFile() throws IOException {
+        final byte[] first = Files.readAllBytes(write(SEED, "first.txt"));
+        final byte[] second = Files.readAllBytes(write(SEED, "second.txt"));
+        final byte[] other = Files.readAllBytes(write(SEED + 1, "other.txt"));
+        assertArrayEquals(first, second, "same seed");
+        assertFalse(Arrays.equals(first, other), "another seed wrote the same file");
+    }
+
+    /**
+     * Test that CityMap reads a generated map: its size, the wall around it, a signal
+     * group for the green wave, and every vehicle written on terrain it can move on.
+     *
+     * @throws IOException if a file cannot be written or read
+     */
+    @Test
+    public void testGeneratedMapReads() throws IOException {
+        final Path file = myDirectory.resolve("city.txt");
+        final int count = generator(SEED).write(WIDTH, HEIGHT, file);
+        final CityMap city = CityMap.read(file);
+
+        final TerrainGrid grid = city.getGrid();
+        assertEquals(WIDTH, grid.getWidth(), "width");
+        assertEquals(HEIGHT, grid.getHeight(), "height");
+        for (int x = 0; x < WIDTH; x++) {
+            assertEquals(Terrain.WALL, grid.get(x, 0), "top wall at " + x);
+            assertEquals(Terrain.WALL, grid.get(x, HEIGHT - 1), "bottom wall at " + x);
+        }
+        for (int y = 0; y < HEIGHT; y++) {
+            assertEquals(Terrain.WALL, grid.get(0, y), "left wall at " + y);
+            assertEquals(Terrain.WALL, grid.get(WIDTH - 1, y), "right wall at " + y);
+        }
+        assertFalse(city.getSignals().isUniform(), "no green wave");
+
+        final VehicleRecords vehicles = city.getVehicles();
+        assertEquals(count, vehicles.size(), "vehicles");
+        assertTrue(count > PER_KIND, count + " vehicles");
+        final VehicleKind[] kinds = VehicleKind.values();
+        final Direction[] directions = Direction.values();
+        for (int i = 0; i < count; i++) {
+            final int x = vehicles.x(i);
+            final int y = vehicles.y(i);
+            final VehicleKind kind = kinds[vehicles.kind(i)];
+            assertTrue(kind.newVehicle(x, y, directions[vehicles.direction(i)])
+                           .canPass(grid.get(x, y), Light.GREEN),
+                       kind + " " + i + " on " + grid.get(x, y));
+        }
+    }
+
+    /**
+     * Writes a map.
+     *
+     * @param theSeed the seed
+     * @param theName the name of the file
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    private Path write(final long theSeed, final String theName) throws IOException {
+        final Path result = myDirectory.resolve(theName);
+        generator(theSeed).write(WIDTH, HEIGHT, result);
+        return result;
+    }
+
+    /**
+     * Returns a generator with a green wave and vehicles of every kind.
+     *
+     * @param theSeed the seed
+     * @return the generator
+     */
+    private static CityGenerator generator(final long theSeed) {
+        final CityGenerator result = new CityGenerator(theSeed);
+        result.setGreenWave(WAVE);
+        for (final VehicleKind kind : VehicleKind.values()) {
+            result.setVehicleCount(kind, PER_KIND);
+        }
+        return result;
+    }
+}
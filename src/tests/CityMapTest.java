@@ -0,0 +1,237 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import logic.VehicleRecords;
+import model.Direction;
+import model.Light;
+import model.SignalPlan;
+import model.Terrain;
+import model.TerrainGrid;
+import model.VehicleKind;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import view.util.CityMap;
+
+/**
+ * Unit tests for reading and writing city map files with class CityMap.
+ *
+ * @version 1 OCT 2018
+ */
+public class CityMapTest {
+
+    /**
+     * A small city in the text format, with a ragged row and a blank line ending.
+     */
+    private static final String TEXT = "3 5\n"
+                                       + "-|+X.\n"
+                                       + "#-|+X  \n"
+                                       + ".#-|+\n"
+                                       + "3\n"
+                                       + "B 0 1 N .\n"
+                                       + "C 4 2 W .\n"
+                                       + "H 2 0 S .\n";
+
+    /** A scratch directory for the files. */
+    private Path myDirectory;
+
+    /**
+     * Creates the scratch directory.
+     *
+     * @throws IOException if it cannot be created
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        myDirectory = Files.createTempDirectory("citymap");
+    }
+
+    /**
+     * Deletes the scratch directory.
+     *
+     * @throws IOException if it cannot be deleted
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (var files = Files.list(myDirectory)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(myDirectory);
+    }
+
+    /**
+     * Test that a text map converts to binary and reads back unchanged.
+     *
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testTextToBinaryRoundTrip() throws IOException {
+        final Path text = myDirectory.resolve("city.txt");
+        Files.write(text, TEXT.getBytes(StandardCharsets.US_ASCII));
+        final CityMap city = CityMap.read(text);
+        assertEquals(Terrain.CROSSWALK, city.getGrid().get(0, 1), "Text cell misread!");
+        assertEquals(3, city.getVehicles().size(), "Text vehicles misread!");
+
+        final Path binary = myDirectory.resolve("city.rrmap");
+        CityMap.writeBinary(city.getGrid(), city.getVehicles(), binary);
+        final CityMap copy = CityMap.read(binary);
+        assertSameGrid(city.getGrid(), copy.getGrid());
+        assertSameVehicles(city.getVehicles(), copy.getVehicles());
+    }
+
+    /**
+     * Test that packed grids of an odd number of cells round trip in both storages.
+     *
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testPackedGridRoundTrip() throws IOException {
+        final Terrain[] terrains = Terrain.values();
+        final VehicleRecords vehicles = new VehicleRecords();
+        vehicles.add(VehicleKind.TAXI, 6, 4, Direction.EAST);
+        for (final boolean packed : new boolean[] {false, true}) {
+            final TerrainGrid grid = TerrainGrid.create(7, 5, packed);
+            for (int y = 0; y < grid.getHeight(); y++) {
+                for (int x = 0; x < grid.getWidth(); x++) {
+                    grid.set(x, y, terrains[(x * 3 + y) % terrains.length]);
+                }
+            }
+            final Path binary = myDirectory.resolve("grid" + packed + ".rrmap");
+            CityMap.writeBinary(grid, vehicles, binary);
+            assertEquals(32 + (7 * 5 + 1) / 2 + 12 + 8, Files.size(binary),
+                         "Binary file has the wrong size!");
+            final CityMap copy = CityMap.read(binary);
+            assertSameGrid(grid, copy.getGrid());
+            assertSameVehicles(vehicles, copy.getVehicles());
+        }
+    }
+
+    /**
+     * Test that the signals of a text map are read and survive conversion to binary.
+     *
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testSignalsRoundTrip() throws IOException {
+        final Path text = myDirectory.resolve("signals.txt");
+        Files.write(text, (TEXT + "signals 2\n"
+                           + "5 10 2 8\n"
+                           + "-3 1 1 1\n"
+                           + "2\n"
+                           + "1 1 2\n"
+                           + "3 2 1\n").getBytes(StandardCharsets.US_ASCII));
+        final SignalPlan signals = CityMap.read(text).getSignals();
+        assertEquals(3, signals.getGroupCount(), "Signal groups misread!");
+        assertEquals(2, signals.getGroup(1, 1), "Signal cell misread!");
+        assertEquals(SignalPlan.CITY_WIDE, signals.getGroup(0, 0), "Default group wrong!");
+        assertEquals(Light.YELLOW, signals.lightAt(3, 2, 5), "Offset light wrong!");
+        assertEquals(Light.GREEN, signals.lightAt(1, 1, 3), "Negative offset light wrong!");
+        assertEquals(Light.GREEN, signals.lightAt(0, 0, 14), "City-wide light wrong!");
+        assertEquals(Light.YELLOW, signals.lightAt(0, 0, 15), "City-wide light wrong!");
+
+        final CityMap city = CityMap.read(text);
+        final Path binary = myDirectory.resolve("signals.rrmap");
+        CityMap.writeBinary(city.getGrid(), city.getVehicles(), signals, binary);
+        final SignalPlan copy = CityMap.read(binary).getSignals();
+        assertEquals(signals.getGroupCount(), copy.getGroupCount(), "Groups not copied!");
+        for (int g = 0; g < signals.getGroupCount(); g++) {
+            assertEquals(signals.getOffset(g), copy.getOffset(g), "Offset not copied!");
+            assertEquals(signals.getGreen(g), copy.getGreen(g), "Green not copied!");
+            assertEquals(signals.getYellow(g), copy.getYellow(g), "Yellow not copied!");
+            assertEquals(signals.getRed(g), copy.getRed(g), "Red not copied!");
+        }
+        for (int y = 0; y < signals.getHeight(); y++) {
+            for (int x = 0; x < signals.getWidth(); x++) {
+                assertEquals(signals.getGroup(x, y), copy.getGroup(x, y),
+                             "Signal cell " + x + ", " + y + " not copied!");
+            }
+        }
+    }
+
+    /**
+     * Test that a binary file of version 1, without signals, is still read.
+     *
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testVersionOneRead() throws IOException {
+        final Path binary = myDirectory.resolve("old.rrmap");
+        final VehicleRecords vehicles = new VehicleRecords();
+        vehicles.add(VehicleKind.CAR, 1, 0, Direction.WEST);
+        CityMap.writeBinary(TerrainGrid.create(2, 2), vehicles, binary);
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(2).putShort(0, (short) 1), 4);
+            channel.truncate(channel.size() - 8);
+        }
+        final CityMap city = CityMap.read(binary);
+        assertSameVehicles(vehicles, city.getVehicles());
+        assertTrue(city.getSignals().isUniform(), "Version 1 file has signals!");
+    }
+
+    /**
+     * Test that a binary file of a newer version is refused.
+     *
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testNewerVersionRefused() throws IOException {
+        final Path binary = myDirectory.resolve("new.rrmap");
+        CityMap.writeBinary(TerrainGrid.create(2, 2), new VehicleRecords(), binary);
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(2).putShort(0, (short) 3), 4);
+        }
+        assertThrows(IOException.class, () -> CityMap.read(binary),
+                     "Newer binary version was read!");
+    }
+
+    /**
+     * Asserts that two grids hold the same Terrain everywhere.
+     *
+     * @param theExpected the expected grid
+     * @param theActual the grid read
+     */
+    private static void assertSameGrid(final TerrainGrid theExpected,
+                                       final TerrainGrid theActual) {
+        assertEquals(theExpected.getWidth(), theActual.getWidth(), "Width changed!");
+        assertEquals(theExpected.getHeight(), theActual.getHeight(), "Height changed!");
+        for (int y = 0; y < theExpected.getHeight(); y++) {
+            for (int x = 0; x < theExpected.getWidth(); x++) {
+                assertEquals(theExpected.get(x, y), theActual.get(x, y),
+                             "Terrain at (" + x + ", " + y + ") changed!");
+            }
+        }
+    }
+
+    /**
+     * Asserts that two sets of vehicle records are the same.
+     *
+     * @param theExpected the expected records
+     * @param theActual the records read
+     */
+    private static void assertSameVehicles(final VehicleRecords theExpected,
+                                           final VehicleRecords theActual) {
+        assertEquals(theExpected.size(), theActual.size(), "Vehicle count changed!");
+        for (int i = 0; i < theExpected.size(); i++) {
+            assertEquals(theExpected.kind(i), theActual.kind(i), "Vehicle kind changed!");
+            assertEquals(theExpected.x(i), theActual.x(i), "Vehicle x changed!");
+            assertEquals(theExpected.y(i), theActual.y(i), "Vehicle y changed!");
+            assertEquals(theExpected.direction(i), theActual.direction(i),
+                         "Vehicle direction changed!");
+        }
+    }
+}
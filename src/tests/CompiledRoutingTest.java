@@ -0,0 +1,91 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import logic.EngineType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import view.util.CityMap;
+
+/**
+ * Unit tests that compiled routing, looking each choice of direction up in tables,
+ * changes nothing about a run.
+ *
+ * @version 1 OCT 2018
+ */
+public class CompiledRoutingTest {
+
+    /** The number of ticks compared. */
+    private static final int TICKS = 400;
+
+    /** A scratch directory for the cities. */
+    @TempDir
+    Path myDirectory;
+
+    /**
+     * Test that RoadRage moves every vehicle of the small city the same with compiled
+     * routing on and off.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @Test
+    public void testCompiledRoutingHasNoEffectObjects() throws IOException {
+        compareRouting(CrowdedCity.read(myDirectory), EngineType.OBJECTS);
+    }
+
+    /**
+     * Test that ArrayRoadRage moves every vehicle of the small city the same with
+     * compiled routing on and off.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @Test
+    public void testCompiledRoutingHasNoEffectArrays() throws IOException {
+        compareRouting(CrowdedCity.read(myDirectory), EngineType.ARRAYS);
+    }
+
+    /**
+     * Test that both engines move every vehicle of the generated city the same with
+     * compiled routing on and off.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @Test
+    public void testCompiledRoutingHasNoEffectGenerated() throws IOException {
+        final CityMap city = CrowdedCity.generate(myDirectory);
+        compareRouting(city, EngineType.OBJECTS);
+        compareRouting(city, EngineType.ARRAYS);
+    }
+
+    /**
+     * Runs a city with compiled routing on and off side by side and compares the
+     * vehicles and move counts after every tick.
+     *
+     * @param theCity the city
+     * @param theType the engine
+     */
+    private static void compareRouting(final CityMap theCity, final EngineType theType) {
+        final CrowdedCity.Run compiled = new CrowdedCity.Run(theCity, theType);
+        final CrowdedCity.Run live = new CrowdedCity.Run(theCity, theType);
+        compiled.engine().setCompiledRouting(true);
+        live.engine().setCompiledRouting(false);
+        assertTrue(compiled.engine().getRoutingTableBytes() > 0, theType + " tables");
+        compiled.start();
+        live.start();
+
+        for (int t = 0; t < TICKS; t++) {
+            final List<String> expected = live.run(1);
+            assertEquals(expected, compiled.run(1), theType + ", tick " + t);
+            assertEquals(live.engine().getMoveCount(), compiled.engine().getMoveCount(),
+                         theType + " moves, tick " + t);
+        }
+    }
+}
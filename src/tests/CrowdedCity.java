@@ -0,0 +1,192 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import logic.EngineType;
+import logic.PropertyChangeEnabledRoadRageControls;
+import logic.SimulationEngine;
+import model.Vehicle;
+import model.VehicleKind;
+import view.util.CityGenerator;
+import view.util.CityMap;
+
+/**
+ * The city the simulation tests share: small, ringed by street with lights and
+ * crosswalks, and crowded enough that vehicles of every kind die, revive and wait at
+ * the lights within a few hundred ticks.
+ *
+ * @version 1 OCT 2018
+ */
+final class CrowdedCity {
+
+    /** The city map. */
+    static final String TEXT = "5 7\n"
+                               + "|||+|||\n"
+                               + "#-.-.-|\n"
+                               + "|-...-#\n"
+                               + "|-.-.-|\n"
+                               + "||#|+||\n"
+                               + "12\n"
+                               + "C 0 0 E .\n"
+                               + "C 6 4 W .\n"
+                               + "X 3 4 E .\n"
+                               + "X 0 2 S .\n"
+                               + "B 2 2 N .\n"
+                               + "B 0 4 E .\n"
+                               + "H 1 1 S .\n"
+                               + "H 5 3 N .\n"
+                               + "A 2 1 E .\n"
+                               + "A 4 2 W .\n"
+                               + "T 6 0 S .\n"
+                               + "T 1 4 E .\n";
+
+    /** The seed of every run. */
+    static final long SEED = 305;
+
+    /** The name of the map file written. */
+    static final String FILE_NAME = "city.txt";
+
+    /** The name of the generated map file written. */
+    static final String GENERATED_FILE_NAME = "generated.txt";
+
+    /** The number of columns of the generated city. */
+    static final int GENERATED_WIDTH = 48;
+
+    /** The number of rows of the generated city. */
+    static final int GENERATED_HEIGHT = 32;
+
+    /** The number of vehicles of each kind in the generated city. */
+    static final int GENERATED_PER_KIND = 40;
+
+    /** The ticks to drive one block of the generated city's green wave. */
+    static final int GENERATED_WAVE = 3;
+
+    /**
+     * A private constructor, to prevent external instantiation.
+     */
+    private CrowdedCity() { }
+
+    /**
+     * Writes the city to a directory and reads it back.
+     *
+     * @param theDirectory the directory
+     * @return the city
+     * @throws IOException if the file cannot be written or read
+     */
+    static CityMap read(final Path theDirectory) throws IOException {
+        final Path text = theDirectory.resolve(FILE_NAME);
+        Files.write(text, TEXT.getBytes(StandardCharsets.US_ASCII));
+        return CityMap.read(text);
+    }
+
+    /**
+     * Generates a larger city with the seed SEED, dense with vehicles of every kind and
+     * with a green wave, writes it to a directory and reads it back.
+     *
+     * @param theDirectory the directory
+     * @return the city
+     * @throws IOException if the file cannot be written or read
+     */
+    static CityMap generate(final Path theDirectory) throws IOException {
+        final Path text = theDirectory.resolve(GENERATED_FILE_NAME);
+        final CityGenerator generator = new CityGenerator(SEED);
+        generator.setGreenWave(GENERATED_WAVE);
+        for (final VehicleKind kind : VehicleKind.values()) {
+            generator.setVehicleCount(kind, GENERATED_PER_KIND);
+        }
+        generator.write(GENERATED_WIDTH, GENERATED_HEIGHT, text);
+        return CityMap.read(text);
+    }
+
+    /**
+     * A simulation of a city that describes the state of every vehicle after each tick.
+     */
+    static final class Run {
+
+        /** The simulation. */
+        private final SimulationEngine myEngine;
+
+        /** The state of the vehicles after the last tick. */
+        private List<Vehicle> myVehicles;
+
+        /**
+         * Creates a simulation, seeded with SEED, without starting it.
+         *
+         * @param theCity the city
+         * @param theType the engine
+         */
+        Run(final CityMap theCity, final EngineType theType) {
+            myEngine = theType.create(theCity.getGrid(), theCity.getVehicles(), SEED);
+            myEngine.setSignalPlan(theCity.getSignals());
+            myEngine.addPropertyChangeListener(
+                PropertyChangeEnabledRoadRageControls.PROPERTY_VEHICLES,
+                theEvent -> myVehicles = castVehicles(theEvent.getNewValue()));
+        }
+
+        /**
+         * Returns the simulation.
+         *
+         * @return the simulation
+         */
+        SimulationEngine engine() {
+            return myEngine;
+        }
+
+        /**
+         * Returns the vehicles sent after the last tick.
+         *
+         * @return the vehicles
+         */
+        List<Vehicle> vehicles() {
+            return myVehicles;
+        }
+
+        /**
+         * Starts the simulation.
+         *
+         * @return this run
+         */
+        Run start() {
+            myEngine.start();
+            return this;
+        }
+
+        /**
+         * Runs ticks and describes every vehicle after each.
+         *
+         * @param theTicks the number of ticks
+         * @return the descriptions
+         */
+        List<String> run(final int theTicks) {
+            final List<String> result = new ArrayList<>();
+            for (int t = 0; t < theTicks; t++) {
+                myEngine.advance();
+                for (final Vehicle v : myVehicles) {
+                    result.add(v.getKind() + " " + v.getX() + "," + v.getY() + " "
+                               + v.getDirection() + " " + v.isAlive() + " "
+                               + v.getDeathTime());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the vehicles of a PROPERTY_VEHICLES event.
+         *
+         * @param theValue the new value of the event
+         * @return the vehicles
+         */
+        @SuppressWarnings("unchecked")
+        private static List<Vehicle> castVehicles(final Object theValue) {
+            return (List<Vehicle>) theValue;
+        }
+    }
+}
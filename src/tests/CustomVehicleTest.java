@@ -0,0 +1,181 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import logic.RoadRage;
+import model.Car;
+import model.Direction;
+import model.LethalityMatrix;
+import model.Light;
+import model.Terrain;
+import model.TerrainGrid;
+import model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests that RoadRage runs vehicles implemented outside the model package, written
+ * against the Vehicle interface alone.
+ *
+ * @version 1 OCT 2018
+ */
+public class CustomVehicleTest {
+
+    /** The length of the street. */
+    private static final int LENGTH = 5;
+
+    /** The number of ticks run. */
+    private static final int TICKS = 20;
+
+    /**
+     * Test that a vehicle of no known kind is seeded, given a lethality matrix and run
+     * alongside a Car, and that it harms no one when they collide.
+     */
+    @Test
+    public void testCustomVehicleRuns() {
+        final Terrain[] street = new Terrain[LENGTH];
+        Arrays.fill(street, Terrain.STREET);
+        final Walker walker = new Walker(0, 0, Direction.EAST);
+        final Car car = new Car(LENGTH - 1, 0, Direction.WEST);
+        final RoadRage rage = new RoadRage(TerrainGrid.of(new Terrain[][] {street}),
+                                           Arrays.asList(walker, car));
+        rage.setSeed(1);
+        rage.setLethality(LethalityMatrix.STANDARD);
+        rage.start();
+        for (int t = 0; t < TICKS; t++) {
+            rage.advance();
+        }
+        assertNull(walker.getKind(), "kind");
+        assertTrue(walker.myCollisions > 0, "never collided");
+        assertTrue(car.isAlive(), "the Car died");
+        assertEquals(TICKS, walker.myMoves, "moves");
+    }
+
+    /**
+     * A vehicle that walks the street, turning back at its ends, and never dies.
+     */
+    private static final class Walker implements Vehicle {
+
+        /** The starting x position. */
+        private final int myStartX;
+
+        /** The starting y position. */
+        private final int myStartY;
+
+        /** The starting direction. */
+        private final Direction myStartDirection;
+
+        /** The x position. */
+        private int myX;
+
+        /** The y position. */
+        private int myY;
+
+        /** The direction. */
+        private Direction myDirection;
+
+        /** The number of directions chosen. */
+        private int myMoves;
+
+        /** The number of collisions. */
+        private int myCollisions;
+
+        /**
+         * Creates a walker.
+         *
+         * @param theX the x position
+         * @param theY the y position
+         * @param theDirection the direction
+         */
+        Walker(final int theX, final int theY, final Direction theDirection) {
+            myStartX = theX;
+            myStartY = theY;
+            myStartDirection = theDirection;
+            reset();
+        }
+
+        @Override
+        public boolean canPass(final Terrain theTerrain, final Light theLight) {
+            return theTerrain == Terrain.STREET;
+        }
+
+        @Override
+        public Direction chooseDirection(final Map<Direction, Terrain> theNeighbors) {
+            myMoves++;
+            Direction result = myDirection;
+            if (theNeighbors.get(result) != Terrain.STREET) {
+                result = result.reverse();
+            }
+            return result;
+        }
+
+        @Override
+        public void collide(final Vehicle theOther) {
+            myCollisions++;
+        }
+
+        @Override
+        public int getDeathTime() {
+            return 0;
+        }
+
+        @Override
+        public String getImageFileName() {
+            return "human.gif";
+        }
+
+        @Override
+        public Direction getDirection() {
+            return myDirection;
+        }
+
+        @Override
+        public int getX() {
+            return myX;
+        }
+
+        @Override
+        public int getY() {
+            return myY;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return true;
+        }
+
+        @Override
+        public void poke() {
+            // never dead
+        }
+
+        @Override
+        public void reset() {
+            myX = myStartX;
+            myY = myStartY;
+            myDirection = myStartDirection;
+        }
+
+        @Override
+        public void setDirection(final Direction theDir) {
+            myDirection = theDir;
+        }
+
+        @Override
+        public void setX(final int theX) {
+            myX = theX;
+        }
+
+        @Override
+        public void setY(final int theY) {
+            myY = theY;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import logic.EngineType;
+import logic.WorldSnapshot;
+import model.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import view.util.CityMap;
+
+/**
+ * Unit tests that the PROPERTY_VEHICLE_DELTA events of a simulation, applied in turn to
+ * a WorldSnapshot, keep it the same as the vehicles the simulation sends.
+ *
+ * @version 1 OCT 2018
+ */
+public class DeltaReplayTest {
+
+    /** The number of ticks compared. */
+    private static final int TICKS = 400;
+
+    /** The tick after which the simulation is reset. */
+    private static final int RESET_TICK = 250;
+
+    /** A scratch directory for the city. */
+    @TempDir
+    Path myDirectory;
+
+    /** The city. */
+    private CityMap myCity;
+
+    /**
+     * Generates the city.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        myCity = CrowdedCity.generate(myDirectory);
+    }
+
+    /**
+     * Test the deltas of RoadRage with the active set on.
+     */
+    @Test
+    public void testDeltasObjectsActiveSetOn() {
+        compareReplay(EngineType.OBJECTS, true);
+    }
+
+    /**
+     * Test the deltas of RoadRage with the active set off.
+     */
+    @Test
+    public void testDeltasObjectsActiveSetOff() {
+        compareReplay(EngineType.OBJECTS, false);
+    }
+
+    /**
+     * Test the deltas of ArrayRoadRage with the active set on.
+     */
+    @Test
+    public void testDeltasArraysActiveSetOn() {
+        compareReplay(EngineType.ARRAYS, true);
+    }
+
+    /**
+     * Test the deltas of ArrayRoadRage with the active set off.
+     */
+    @Test
+    public void testDeltasArraysActiveSetOff() {
+        compareReplay(EngineType.ARRAYS, false);
+    }
+
+    /**
+     * Runs the city, with a reset part way, applying every event a WorldSnapshot follows
+     * to one, and compares it with the vehicles sent after every tick.
+     *
+     * @param theType the engine
+     * @param theActiveSet whether the active set is on
+     */
+    private void compareReplay(final EngineType theType, final boolean theActiveSet) {
+        final CrowdedCity.Run run = new CrowdedCity.Run(myCity, theType);
+        final WorldSnapshot world = new WorldSnapshot();
+        for (final String property : WorldSnapshot.PROPERTIES) {
+            run.engine().addPropertyChangeListener(property, world::update);
+        }
+        run.engine().setActiveSetEnabled(theActiveSet);
+        run.start();
+        compare(world, run.vehicles(), run.engine().getTimeStep(), "start");
+
+        for (int t = 0; t < TICKS; t++) {
+            if (t == RESET_TICK) {
+                run.engine().reset();
+                compare(world, run.vehicles(), run.engine().getTimeStep(), "reset");
+            }
+            run.run(1);
+            compare(world, run.vehicles(), run.engine().getTimeStep(), "tick " + t);
+        }
+    }
+
+    /**
+     * Compares a snapshot with the vehicles sent.
+     *
+     * @param theWorld the snapshot
+     * @param theVehicles the vehicles
+     * @param theTimeStep the time step of the simulation
+     * @param theWhen when, for messages
+     */
+    private static void compare(final WorldSnapshot theWorld,
+                                final List<Vehicle> theVehicles, final long theTimeStep,
+                                final String theWhen) {
+        assertEquals(theTimeStep, theWorld.timeStep(), theWhen + " time step");
+        assertEquals(theVehicles.size(), theWorld.size(), theWhen + " vehicles");
+        for (int i = 0; i < theVehicles.size(); i++) {
+            final Vehicle v = theVehicles.get(i);
+            final String which = theWhen + ", vehicle " + i;
+            assertEquals(v.getKind(), theWorld.kind(i), which + " kind");
+            assertEquals(v.getX(), theWorld.x(i), which + " x");
+            assertEquals(v.getY(), theWorld.y(i), which + " y");
+            assertEquals(v.getDirection(), theWorld.direction(i), which + " direction");
+            assertEquals(v.isAlive(), theWorld.isAlive(i), which + " alive");
+        }
+    }
+}
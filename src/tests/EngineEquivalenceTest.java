@@ -0,0 +1,133 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import logic.EngineType;
+import logic.PropertyChangeEnabledRoadRageControls;
+import model.Direction;
+import model.Light;
+import model.Terrain;
+import model.Vehicle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests that the two simulation engines, RoadRage over vehicle objects and
+ * ArrayRoadRage over arrays, run a city the same.
+ *
+ * @version 1 OCT 2018
+ */
+public class EngineEquivalenceTest {
+
+    /** The number of ticks compared. */
+    private static final int TICKS = 500;
+
+    /** The number of ticks run before the vehicles of ArrayRoadRage are read. */
+    private static final int COPY_TICKS = 150;
+
+    /** A scratch directory for the city. */
+    @TempDir
+    Path myDirectory;
+
+    /**
+     * Test that both engines, from the same city and seed, leave every vehicle in the
+     * same state and count the same moves after every tick, through every light and
+     * through vehicles dying and reviving.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @Test
+    public void testEnginesMatchEveryTick() throws IOException {
+        final CrowdedCity.Run objects =
+            new CrowdedCity.Run(CrowdedCity.read(myDirectory), EngineType.OBJECTS);
+        final CrowdedCity.Run arrays =
+            new CrowdedCity.Run(CrowdedCity.read(myDirectory), EngineType.ARRAYS);
+        final Set<Light> lights = EnumSet.noneOf(Light.class);
+        arrays.engine().addPropertyChangeListener(
+            PropertyChangeEnabledRoadRageControls.PROPERTY_LIGHT,
+            theEvent -> lights.add((Light) theEvent.getNewValue()));
+        objects.start();
+        arrays.start();
+
+        boolean died = false;
+        boolean revived = false;
+        List<String> before = null;
+        for (int t = 0; t < TICKS; t++) {
+            final List<String> expected = objects.run(1);
+            assertEquals(expected, arrays.run(1), "tick " + t);
+            assertEquals(objects.engine().getMoveCount(), arrays.engine().getMoveCount(),
+                         "moves, tick " + t);
+            if (before != null) {
+                for (int i = 0; i < expected.size(); i++) {
+                    final boolean wasAlive = before.get(i).contains(" true ");
+                    final boolean isAlive = expected.get(i).contains(" true ");
+                    died |= wasAlive && !isAlive;
+                    revived |= !wasAlive && isAlive;
+                }
+            }
+            before = expected;
+        }
+        assertEquals(EnumSet.allOf(Light.class), lights, "lights seen");
+        assertTrue(died, "no vehicle died");
+        assertTrue(revived, "no vehicle revived");
+    }
+
+    /**
+     * Test that the vehicles ArrayRoadRage sends are a detached copy: every method of
+     * each works as on the vehicles RoadRage sends, each is the same object on every
+     * read of the list, and changing them does not change the run.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @Test
+    public void testArrayVehiclesAreDetachedCopies() throws IOException {
+        final CrowdedCity.Run objects =
+            new CrowdedCity.Run(CrowdedCity.read(myDirectory), EngineType.OBJECTS);
+        final CrowdedCity.Run arrays =
+            new CrowdedCity.Run(CrowdedCity.read(myDirectory), EngineType.ARRAYS);
+        objects.start();
+        arrays.start();
+        objects.run(COPY_TICKS);
+        arrays.run(COPY_TICKS);
+
+        final List<Vehicle> expected = objects.vehicles();
+        final List<Vehicle> copies = arrays.vehicles();
+        final Map<Direction, Terrain> streets = new EnumMap<>(Direction.class);
+        for (final Direction dir : Direction.values()) {
+            streets.put(dir, Terrain.STREET);
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            final Vehicle copy = copies.get(i);
+            assertSame(copy, copies.get(i), "vehicle " + i + " read twice");
+            assertEquals(expected.get(i).getClass(), copy.getClass(), "vehicle " + i);
+            assertEquals(expected.get(i).getImageFileName(), copy.getImageFileName(),
+                         "vehicle " + i + " image");
+            for (final Terrain terrain : Terrain.values()) {
+                for (final Light light : Light.values()) {
+                    assertEquals(expected.get(i).canPass(terrain, light),
+                                 copy.canPass(terrain, light),
+                                 "vehicle " + i + " on " + terrain + " under " + light);
+                }
+            }
+            copy.chooseDirection(streets);
+            copy.collide(copies.get((i + 1) % copies.size()));
+            copy.poke();
+            copy.setX(0);
+            copy.reset();
+        }
+        assertEquals(objects.run(COPY_TICKS), arrays.run(COPY_TICKS), "after the copies");
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import logic.EngineType;
+import logic.PropertyChangeEnabledRoadRageControls;
+import logic.ReplayRoadRage;
+import logic.SimulationEngine;
+import logic.TickJournal;
+import logic.WorldSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import view.util.CityMap;
+
+/**
+ * Unit tests for recording a run with class TickJournal and playing it back with class
+ * ReplayRoadRage.
+ *
+ * @version 1 OCT 2018
+ */
+public class JournalTest {
+
+    /** The number of ticks recorded. */
+    private static final int TICKS = 400;
+
+    /** The tick at which the recorded run is reset. */
+    private static final int RESET_AT = 250;
+
+    /** The number of frames between keyframes. */
+    private static final int KEYFRAME_INTERVAL = 7;
+
+    /** The number of random seeks. */
+    private static final int SEEKS = 200;
+
+    /** A scratch directory for the files. */
+    @TempDir
+    Path myDirectory;
+
+    /** The city. */
+    private CityMap myCity;
+
+    /** The journal file. */
+    private Path myJournal;
+
+    /**
+     * Reads the city.
+     *
+     * @throws IOException if it cannot be written or read
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        myCity = CrowdedCity.read(myDirectory);
+        myJournal = myDirectory.resolve("run.rrjn");
+    }
+
+    /**
+     * Test that playing a journal back frame by frame shows the run as it was recorded,
+     * from either engine.
+     *
+     * @throws IOException if the journal cannot be written or read
+     */
+    @Test
+    public void testReplayMatchesRun() throws IOException {
+        for (final EngineType type : EngineType.values()) {
+            final List<String> expected = record(type);
+            try (ReplayRoadRage replay = open()) {
+                final WorldSnapshot world = listen(replay);
+                replay.start();
+                final List<String> actual = new ArrayList<>();
+                actual.add(describe(world));
+                for (int t = 0; t < TICKS; t++) {
+                    replay.advance();
+                    actual.add(describe(world));
+                }
+                assertEquals(expected, actual, type.toString());
+                assertEquals(TICKS + 1, replay.getFrameCount(), "frames");
+            }
+        }
+    }
+
+    /**
+     * Test that seeking and stepping back, anywhere in the journal and in any order,
+     * show the frame as it was recorded.
+     *
+     * @throws IOException if the journal cannot be written or read
+     */
+    @Test
+    public void testSeekForwardAndBack() throws IOException {
+        final List<String> expected = record(EngineType.ARRAYS);
+        try (ReplayRoadRage replay = open()) {
+            final WorldSnapshot world = listen(replay);
+            replay.start();
+            final Random random = new Random(CrowdedCity.SEED);
+            for (int i = 0; i < SEEKS; i++) {
+                final int frame = random.nextInt(expected.size());
+                replay.seek(frame);
+                assertEquals(expected.get(frame), describe(world), "seek to " + frame);
+                if (frame > 0) {
+                    replay.stepBack();
+                    assertEquals(expected.get(frame - 1), describe(world),
+                                 "step back to " + (frame - 1));
+                    replay.advance();
+                    assertEquals(expected.get(frame), describe(world),
+                                 "advance to " + frame);
+                }
+            }
+            assertThrows(IllegalArgumentException.class,
+                () -> replay.seek(replay.getFrameCount()));
+        }
+    }
+
+    /**
+     * Test that a journal of a city of another size is refused.
+     *
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testOtherMapRefused() throws IOException {
+        record(EngineType.OBJECTS);
+        final Path other = myDirectory.resolve("other.txt");
+        Files.write(other, "3 3\n|||\n|||\n|||\n0\n".getBytes(StandardCharsets.US_ASCII));
+        final CityMap city = CityMap.read(other);
+        assertThrows(IllegalArgumentException.class,
+            () -> new ReplayRoadRage(city.getGrid(), city.getSignals(), myJournal));
+    }
+
+    /**
+     * Test that a file that is not a journal is refused.
+     */
+    @Test
+    public void testNotAJournalRefused() {
+        final Path file = myDirectory.resolve(CrowdedCity.FILE_NAME);
+        assertThrows(IOException.class,
+            () -> new ReplayRoadRage(myCity.getGrid(), myCity.getSignals(), file));
+    }
+
+    /**
+     * Runs the city with a journal, resetting once along the way, and describes the
+     * state after each frame.
+     *
+     * @param theType the engine
+     * @return the descriptions, from the start on
+     * @throws IOException if the journal cannot be written
+     */
+    private List<String> record(final EngineType theType) throws IOException {
+        final SimulationEngine engine = new CrowdedCity.Run(myCity, theType).engine();
+        final WorldSnapshot world = listen(engine);
+        final List<String> result = new ArrayList<>();
+        try (TickJournal journal = new TickJournal(engine, myJournal, KEYFRAME_INTERVAL)) {
+            engine.start();
+            result.add(describe(world));
+            for (int t = 0; t < TICKS; t++) {
+                if (t == RESET_AT) {
+                    engine.reset();
+                } else {
+                    engine.advance();
+                }
+                result.add(describe(world));
+            }
+            assertEquals(result.size(), journal.getFrameCount(), "frames");
+        }
+        return result;
+    }
+
+    /**
+     * Opens the journal for the city.
+     *
+     * @return the replay
+     * @throws IOException if the journal cannot be read
+     */
+    private ReplayRoadRage open() throws IOException {
+        return new ReplayRoadRage(myCity.getGrid(), myCity.getSignals(), myJournal);
+    }
+
+    /**
+     * Returns a snapshot kept up to date with a simulation.
+     *
+     * @param theSimulation the simulation
+     * @return the snapshot
+     */
+    private static WorldSnapshot listen(final PropertyChangeEnabledRoadRageControls
+                                                    theSimulation) {
+        final WorldSnapshot result = new WorldSnapshot();
+        for (final String property : WorldSnapshot.PROPERTIES) {
+            theSimulation.addPropertyChangeListener(property, result::update);
+        }
+        return result;
+    }
+
+    /**
+     * Describes the time step, light and every vehicle of a snapshot.
+     *
+     * @param theWorld the snapshot
+     * @return the description
+     */
+    private static String describe(final WorldSnapshot theWorld) {
+        final StringBuilder result = new StringBuilder();
+        result.append(theWorld.timeStep()).append(' ').append(theWorld.light());
+        for (int id = 0; id < theWorld.size(); id++) {
+            result.append(' ').append(theWorld.kind(id)).append(theWorld.x(id)).append(',')
+                .append(theWorld.y(id)).append(theWorld.direction(id))
+                .append(theWorld.isAlive(id));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import logic.RoadRage;
+import model.Direction;
+import model.Light;
+import model.Terrain;
+import model.TerrainGrid;
+import model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests that the neighborhoods RoadRage looks up from its precomputed table are
+ * the neighbors found by looking at the grid around each cell, on every cell including
+ * the edges and corners.
+ *
+ * @version 1 OCT 2018
+ */
+public class NeighborhoodTableTest {
+
+    /** The seed of the random terrain. */
+    private static final long SEED = 305;
+
+    /**
+     * Test a grid of a single cell, with no neighbors at all.
+     */
+    @Test
+    public void testSingleCell() {
+        compareNeighbors(randomGrid(1, 1));
+    }
+
+    /**
+     * Test grids of a single row and of a single column.
+     */
+    @Test
+    public void testSingleRowAndColumn() {
+        compareNeighbors(randomGrid(7, 1));
+        compareNeighbors(randomGrid(1, 7));
+    }
+
+    /**
+     * Test a grid of only corners.
+     */
+    @Test
+    public void testTwoByTwo() {
+        compareNeighbors(randomGrid(2, 2));
+    }
+
+    /**
+     * Test a larger grid with every Terrain, much of it on the edges.
+     */
+    @Test
+    public void testRandomGrid() {
+        compareNeighbors(randomGrid(23, 11));
+    }
+
+    /**
+     * Puts a vehicle on every cell of a grid, runs a tick and compares the neighbors
+     * each was given with those around its cell.
+     *
+     * @param theGrid the grid
+     */
+    private static void compareNeighbors(final TerrainGrid theGrid) {
+        final List<Vehicle> probes = new ArrayList<>();
+        for (int y = 0; y < theGrid.getHeight(); y++) {
+            for (int x = 0; x < theGrid.getWidth(); x++) {
+                probes.add(new Probe(x, y));
+            }
+        }
+        final RoadRage rage = new RoadRage(theGrid, probes, SEED);
+        rage.start();
+        rage.advance();
+        for (final Vehicle v : probes) {
+            final Probe probe = (Probe) v;
+            assertEquals(generateNeighbors(theGrid, probe.getX(), probe.getY()),
+                         probe.myNeighbors,
+                         theGrid.getWidth() + "x" + theGrid.getHeight() + " at "
+                             + probe.getX() + "," + probe.getY());
+        }
+    }
+
+    /**
+     * Returns the neighbors of a cell, looked at on the grid, with no entry for the
+     * directions that lead off it.
+     *
+     * @param theGrid the grid
+     * @param theX the x position
+     * @param theY the y position
+     * @return the neighbors
+     */
+    private static Map<Direction, Terrain> generateNeighbors(final TerrainGrid theGrid,
+                                                             final int theX, final int theY) {
+        final Map<Direction, Terrain> result = new EnumMap<>(Direction.class);
+        for (final Direction dir : Direction.values()) {
+            if (theGrid.isValidIndex(theX + dir.dx(), theY + dir.dy())) {
+                result.put(dir, theGrid.get(theX + dir.dx(), theY + dir.dy()));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns a grid of random Terrain.
+     *
+     * @param theWidth the number of columns
+     * @param theHeight the number of rows
+     * @return the grid
+     */
+    private static TerrainGrid randomGrid(final int theWidth, final int theHeight) {
+        final Random random = new Random(SEED);
+        final Terrain[] terrains = Terrain.values();
+        final Terrain[][] rows = new Terrain[theHeight][theWidth];
+        for (final Terrain[] row : rows) {
+            for (int x = 0; x < theWidth; x++) {
+                row[x] = terrains[random.nextInt(terrains.length)];
+            }
+        }
+        return TerrainGrid.of(rows);
+    }
+
+    /**
+     * A vehicle that stays on its cell and keeps the neighbors it is given.
+     */
+    private static final class Probe implements Vehicle {
+
+        /** The x position. */
+        private final int myX;
+
+        /** The y position. */
+        private final int myY;
+
+        /** The neighbors given with the last choice of direction. */
+        private Map<Direction, Terrain> myNeighbors;
+
+        /**
+         * Creates a probe.
+         *
+         * @param theX the x position
+         * @param theY the y position
+         */
+        Probe(final int theX, final int theY) {
+            myX = theX;
+            myY = theY;
+        }
+
+        @Override
+        public boolean canPass(final Terrain theTerrain, final Light theLight) {
+            return false;
+        }
+
+        @Override
+        public Direction chooseDirection(final Map<Direction, Terrain> theNeighbors) {
+            myNeighbors = new EnumMap<>(Direction.class);
+            myNeighbors.putAll(theNeighbors);
+            return Direction.NORTH;
+        }
+
+        @Override
+        public void collide(final Vehicle theOther) {
+            // probes share no cell
+        }
+
+        @Override
+        public int getDeathTime() {
+            return 0;
+        }
+
+        @Override
+        public String getImageFileName() {
+            return "car.gif";
+        }
+
+        @Override
+        public Direction getDirection() {
+            return Direction.NORTH;
+        }
+
+        @Override
+        public int getX() {
+            return myX;
+        }
+
+        @Override
+        public int getY() {
+            return myY;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return true;
+        }
+
+        @Override
+        public void poke() {
+            // never dead
+        }
+
+        @Override
+        public void reset() {
+            // never moves
+        }
+
+        @Override
+        public void setDirection(final Direction theDir) {
+            // always faces north
+        }
+
+        @Override
+        public void setX(final int theX) {
+            // never moves
+        }
+
+        @Override
+        public void setY(final int theY) {
+            // never moves
+        }
+    }
+}
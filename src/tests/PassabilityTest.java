@@ -0,0 +1,82 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import model.Atv;
+import model.Bicycle;
+import model.Car;
+import model.Direction;
+import model.Human;
+import model.Light;
+import model.Passability;
+import model.Taxi;
+import model.Terrain;
+import model.Truck;
+import model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for which vehicles class Passability may look moves up for.
+ *
+ * @version 1 OCT 2018
+ */
+public class PassabilityTest {
+
+    /**
+     * Test that every stock kind that inherits canPass is tabled.
+     */
+    @Test
+    public void testStockKindsTabled() {
+        final List<Vehicle> vehicles = List.of(new Atv(0, 0, Direction.NORTH),
+                                               new Bicycle(0, 0, Direction.NORTH),
+                                               new Car(0, 0, Direction.NORTH),
+                                               new Human(0, 0, Direction.NORTH),
+                                               new Truck(0, 0, Direction.NORTH));
+        for (final Vehicle v : vehicles) {
+            assertTrue(Passability.isTabled(v), v.getKind() + " not tabled");
+        }
+    }
+
+    /**
+     * Test that a Taxi, which overrides canPass, is not tabled.
+     */
+    @Test
+    public void testTaxiNotTabled() {
+        assertFalse(Passability.isTabled(new Taxi(0, 0, Direction.NORTH)));
+    }
+
+    /**
+     * Test that a subclass of a stock kind is tabled unless it overrides canPass.
+     */
+    @Test
+    public void testSubclassTabledUnlessOverridden() {
+        assertTrue(Passability.isTabled(new Car(0, 0, Direction.NORTH) { }),
+                   "subclass that inherits canPass not tabled");
+        assertFalse(Passability.isTabled(new OffRoadCar()),
+                    "subclass that overrides canPass tabled");
+    }
+
+    /**
+     * A Car that may also drive on grass.
+     */
+    private static final class OffRoadCar extends Car {
+
+        /**
+         * Creates the car.
+         */
+        OffRoadCar() {
+            super(0, 0, Direction.NORTH);
+        }
+
+        @Override
+        public boolean canPass(final Terrain theTerrain, final Light theLight) {
+            return theTerrain == Terrain.GRASS || super.canPass(theTerrain, theLight);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import logic.RoadRage;
+import logic.SimulationLoop;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import view.util.CityMap;
+
+/**
+ * Unit tests for class SimulationLoop: catching up, fast-forwarding, and stopping when
+ * the simulation throws.
+ *
+ * @version 1 OCT 2018
+ */
+public class SimulationLoopTest {
+
+    /** The longest wait for the loop, in seconds. */
+    private static final long TIMEOUT = 30;
+
+    /** The rate of ticks asked for, far faster than the slow simulation can run. */
+    private static final double FAST_RATE = 1000;
+
+    /** The time each tick of the slow simulation takes, in nanoseconds. */
+    private static final long SLOW_TICK = TimeUnit.MILLISECONDS.toNanos(3);
+
+    /** The time the loop is left playing, in milliseconds. */
+    private static final long PLAY_MILLIS = 300;
+
+    /** The number of catch-up ticks allowed per frame. */
+    private static final int CATCH_UP = 4;
+
+    /** The time step fast-forwarded to. */
+    private static final long TARGET = 400;
+
+    /** The tick on which the failing simulation throws. */
+    private static final int FAILING_TICK = 10;
+
+    /** A scratch directory for the city. */
+    @TempDir
+    Path myDirectory;
+
+    /** The city. */
+    private CityMap myCity;
+
+    /** The number of frames published. */
+    private AtomicInteger myFrames;
+
+    /**
+     * Reads the city.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        myCity = CrowdedCity.read(myDirectory);
+        myFrames = new AtomicInteger();
+    }
+
+    /**
+     * Test that with no catch-up ticks every tick is published and late ticks are
+     * dropped.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testNoCatchUp() throws InterruptedException {
+        final CountingRoadRage rage = new CountingRoadRage(SLOW_TICK, 0);
+        final SimulationLoop loop = play(rage, 0);
+        assertEquals(rage.ticks(), myFrames.get() - 1, "ticks published");
+        assertTrue(loop.getDroppedTicks() > 0, "no ticks dropped");
+    }
+
+    /**
+     * Test that a simulation behind its rate runs catch-up ticks back to back, publishing
+     * only after the last of them, and drops what is still behind.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testCatchUp() throws InterruptedException {
+        final CountingRoadRage rage = new CountingRoadRage(SLOW_TICK, 0);
+        final SimulationLoop loop = play(rage, CATCH_UP);
+        final int frames = myFrames.get() - 1;
+        assertTrue(frames > 0, "no frames");
+        assertTrue(rage.ticks() > frames, rage.ticks() + " ticks in " + frames + " frames");
+        assertTrue(rage.ticks() <= frames * (CATCH_UP + 1),
+                   rage.ticks() + " ticks in " + frames + " frames");
+        assertTrue(loop.getDroppedTicks() > 0, "no ticks dropped");
+    }
+
+    /**
+     * Test that fast-forwarding to a time step stops there, paused, publishes that step,
+     * and publishes far fewer frames than it runs ticks.
+     *
+     * @throws Exception if the run fails or is not done in time
+     */
+    @Test
+    public void testRunUntil() throws Exception {
+        final CountingRoadRage rage = new CountingRoadRage(0, 0);
+        final SimulationLoop loop = new SimulationLoop(rage, 1, myFrames::incrementAndGet);
+        final CompletableFuture<Long> reached = loop.runUntil(TARGET);
+        assertEquals(TARGET, reached.get(TIMEOUT, TimeUnit.SECONDS), "time step reached");
+        stop(loop);
+        assertEquals(TARGET, rage.ticks(), "ticks");
+        assertEquals(TARGET, loop.snapshots().read().timeStep(), "time step published");
+        assertTrue(myFrames.get() < TARGET, myFrames.get() + " frames");
+    }
+
+    /**
+     * Test that pausing a fast-forward short of its target cancels it.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testPauseCancelsRunUntil() throws InterruptedException {
+        final SimulationLoop loop =
+            new SimulationLoop(new CountingRoadRage(0, 0), 1, myFrames::incrementAndGet);
+        final CompletableFuture<Long> reached = loop.runUntil(Long.MAX_VALUE);
+        loop.pause();
+        stop(loop);
+        assertTrue(reached.isCancelled(), "not cancelled");
+    }
+
+    /**
+     * Test that an exception thrown by the simulation stops the loop thread, fails the
+     * run under way, keeps the last frame, and is reported to the handler.
+     *
+     * @throws Exception if the loop does not stop in time
+     */
+    @Test
+    public void testFailureStopsLoop() throws Exception {
+        final CountingRoadRage rage = new CountingRoadRage(0, FAILING_TICK);
+        final AtomicReference<Throwable> reported = new AtomicReference<>();
+        final SimulationLoop loop = new SimulationLoop(rage, 1, myFrames::incrementAndGet);
+        loop.setUncaughtExceptionHandler((theThread, theError) -> reported.set(theError));
+        final CompletableFuture<Long> reached = loop.runUntil(TARGET);
+        final ExecutionException failure =
+            assertThrows(ExecutionException.class,
+                         () -> reached.get(TIMEOUT, TimeUnit.SECONDS));
+        loop.join();
+        assertSame(loop.getFailure(), failure.getCause(), "failure");
+        assertSame(loop.getFailure(), reported.get(), "reported");
+        assertTrue(loop.snapshots().read().timeStep() < FAILING_TICK, "frame after failure");
+
+        final CompletableFuture<Long> after = loop.runUntil(TARGET);
+        assertThrows(TimeoutException.class, () -> after.get(1, TimeUnit.MILLISECONDS));
+        assertEquals(FAILING_TICK, rage.ticks(), "ticks");
+    }
+
+    /**
+     * Plays the city on a loop far faster than it can run, then pauses and stops it.
+     *
+     * @param theSimulation the simulation
+     * @param theCatchUp the number of catch-up ticks allowed per frame
+     * @return the stopped loop
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private SimulationLoop play(final RoadRage theSimulation, final int theCatchUp)
+        throws InterruptedException {
+        final SimulationLoop loop =
+            new SimulationLoop(theSimulation, FAST_RATE, myFrames::incrementAndGet);
+        loop.setMaxCatchUp(theCatchUp);
+        loop.play();
+        Thread.sleep(PLAY_MILLIS);
+        loop.pause();
+        stop(loop);
+        return loop;
+    }
+
+    /**
+     * Stops a loop once its commands have run, and waits for it.
+     *
+     * @param theLoop the loop
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void stop(final SimulationLoop theLoop) throws InterruptedException {
+        theLoop.shutdown();
+        theLoop.join();
+    }
+
+    /**
+     * The city's simulation, counting its ticks, which may take a while or throw.
+     */
+    private final class CountingRoadRage extends RoadRage {
+
+        /** The time each tick takes, in nanoseconds. */
+        private final long myTickTime;
+
+        /** The tick to throw on, or zero for none. */
+        private final int myFailingTick;
+
+        /** The number of ticks begun. */
+        private final AtomicInteger myTicks;
+
+        /**
+         * Creates the simulation.
+         *
+         * @param theTickTime the time each tick takes, in nanoseconds
+         * @param theFailingTick the tick to throw on, or zero for none
+         */
+        CountingRoadRage(final long theTickTime, final int theFailingTick) {
+            super(myCity.getGrid(), myCity.getVehicles().toVehicles(), CrowdedCity.SEED);
+            myTickTime = theTickTime;
+            myFailingTick = theFailingTick;
+            myTicks = new AtomicInteger();
+        }
+
+        /**
+         * Returns the number of ticks begun.
+         *
+         * @return the number of ticks
+         */
+        int ticks() {
+            return myTicks.get();
+        }
+
+        @Override
+        public void advance() {
+            if (myTicks.incrementAndGet() == myFailingTick) {
+                throw new IllegalStateException("tick " + myFailingTick);
+            }
+            if (myTickTime > 0) {
+                LockSupport.parkNanos(myTickTime);
+            }
+            super.advance();
+        }
+    }
+}
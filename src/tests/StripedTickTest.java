@@ -0,0 +1,110 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import logic.EngineType;
+import logic.RoadRage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import view.util.CityMap;
+
+/**
+ * Unit tests for the striped tick of class RoadRage: its outcome must not depend on the
+ * number of threads it runs on.
+ *
+ * @version 1 OCT 2018
+ */
+public class StripedTickTest {
+
+    /** The number of ticks compared. */
+    private static final int TICKS = 400;
+
+    /** The most threads run on. */
+    private static final int MANY_THREADS =
+        Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    /** A scratch directory for the city. */
+    @TempDir
+    Path myDirectory;
+
+    /** The city. */
+    private CityMap myCity;
+
+    /** Pools of one, two and many threads. */
+    private ForkJoinPool[] myPools;
+
+    /**
+     * Reads the city and starts the pools.
+     *
+     * @throws IOException if the city cannot be written or read
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        myCity = CrowdedCity.read(myDirectory);
+        myPools = new ForkJoinPool[] {new ForkJoinPool(1), new ForkJoinPool(2),
+                                      new ForkJoinPool(MANY_THREADS)};
+    }
+
+    /**
+     * Shuts the pools down.
+     */
+    @AfterEach
+    public void tearDown() {
+        for (final ForkJoinPool pool : myPools) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that the striped tick moves every vehicle the same, tick by tick, on one,
+     * two and many threads, with the active set on.
+     */
+    @Test
+    public void testSameOnAnyThreadsActiveSetOn() {
+        compareThreads(true);
+    }
+
+    /**
+     * Test that the striped tick moves every vehicle the same, tick by tick, on one,
+     * two and many threads, with the active set off.
+     */
+    @Test
+    public void testSameOnAnyThreadsActiveSetOff() {
+        compareThreads(false);
+    }
+
+    /**
+     * Runs the city striped on each pool side by side and compares the vehicles and
+     * move counts after every tick.
+     *
+     * @param theActiveSet whether the active set is on
+     */
+    private void compareThreads(final boolean theActiveSet) {
+        final CrowdedCity.Run[] runs = new CrowdedCity.Run[myPools.length];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = new CrowdedCity.Run(myCity, EngineType.OBJECTS);
+            ((RoadRage) runs[i].engine()).setParallelTick(myPools[i], 0);
+            runs[i].engine().setActiveSetEnabled(theActiveSet);
+            runs[i].start();
+        }
+        for (int t = 0; t < TICKS; t++) {
+            final List<String> expected = runs[0].run(1);
+            for (int i = 1; i < runs.length; i++) {
+                final String threads = myPools[i].getParallelism() + " threads";
+                assertEquals(expected, runs[i].run(1), threads + ", tick " + t);
+                assertEquals(runs[0].engine().getMoveCount(), runs[i].engine().getMoveCount(),
+                             threads + " moves, tick " + t);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+import logic.TripleBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for class TripleBuffer.
+ *
+ * @version 1 OCT 2018
+ */
+public class TripleBufferTest {
+
+    /** The number of values the writer thread publishes. */
+    private static final int VALUES = 200_000;
+
+    /**
+     * Test that the reader starts with the first value and keeps it until something is
+     * published, and that the writer never fills the reader's value.
+     */
+    @Test
+    public void testNothingPublished() {
+        final int[][] values = {{0}, {0}, {0}};
+        final TripleBuffer<int[]> buffer = new TripleBuffer<>(values[0], values[1], values[2]);
+        assertSame(values[0], buffer.read(), "first read");
+        assertSame(values[0], buffer.read(), "second read");
+        assertNotSame(buffer.read(), buffer.back(), "back is the front");
+    }
+
+    /**
+     * Test that each read returns the value published last, and that values published
+     * between two reads are skipped.
+     */
+    @Test
+    public void testReadsLatest() {
+        final TripleBuffer<int[]> buffer =
+            new TripleBuffer<>(new int[1], new int[1], new int[1]);
+        buffer.back()[0] = 1;
+        buffer.publish();
+        assertEquals(1, buffer.read()[0], "one published");
+
+        for (int value = 2; value <= 5; value++) {
+            buffer.back()[0] = value;
+            buffer.publish();
+            assertNotSame(buffer.back(), buffer.read(), "back is the front");
+        }
+        assertEquals(5, buffer.read()[0], "last of many published");
+        assertEquals(5, buffer.read()[0], "read again");
+
+        buffer.back()[0] = 6;
+        assertEquals(5, buffer.read()[0], "read before publish");
+        buffer.publish();
+        assertEquals(6, buffer.read()[0], "read after publish");
+    }
+
+    /**
+     * Test that a reader racing a writer on another thread only ever sees whole values,
+     * in the order they were published.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testReaderSeesWholeValuesInOrder() throws InterruptedException {
+        final TripleBuffer<long[]> buffer =
+            new TripleBuffer<>(new long[2], new long[2], new long[2]);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread writer = new Thread(() -> {
+            for (long value = 1; value <= VALUES; value++) {
+                final long[] back = buffer.back();
+                back[0] = value;
+                back[1] = -value;
+                buffer.publish();
+            }
+        });
+        writer.setUncaughtExceptionHandler((theThread, theError) -> failure.set(theError));
+        writer.start();
+
+        long last = 0;
+        while (last < VALUES) {
+            final long[] front = buffer.read();
+            assertEquals(front[0], -front[1], "torn value");
+            assertTrue(front[0] >= last, front[0] + " read after " + last);
+            last = front[0];
+        }
+        writer.join();
+        assertNull(failure.get(), "writer failed");
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package view;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of a panel that need painting again, kept as a short list of rectangles.
+ *
+ * A rectangle that overlaps or touches one already in the list is merged with it when
+ * their union covers no more than the two of them, so a row of neighboring squares
+ * becomes one strip. Past a number of rectangles the list collapses into their bounds,
+ * which are then cheaper to paint than the many rectangles would be.
+ *
+ * @version 1 OCT 2018
+ */
+final class DirtyRegion {
+
+    /**
+     * The number of rectangles kept before they collapse into their bounds.
+     */
+    static final int MAX_RECTANGLES = 8;
+
+    /**
+     * The rectangles, none of which can be merged with another.
+     */
+    private final List<Rectangle> myRectangles;
+
+    /**
+     * Whether everything needs painting.
+     */
+    private boolean myAll;
+
+    /**
+     * Creates an empty region.
+     */
+    DirtyRegion() {
+        myRectangles = new ArrayList<>(MAX_RECTANGLES + 1);
+    }
+
+    /**
+     * Adds a rectangle to the region.
+     *
+     * @param theX the left edge
+     * @param theY the top edge
+     * @param theWidth the width
+     * @param theHeight the height
+     */
+    void add(final int theX, final int theY, final int theWidth, final int theHeight) {
+        if (myAll || theWidth <= 0 || theHeight <= 0) {
+            return;
+        }
+        final Rectangle added = new Rectangle(theX, theY, theWidth, theHeight);
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < myRectangles.size(); i++) {
+                final Rectangle other = myRectangles.get(i);
+                if (mergeable(added, other)) {
+                    added.add(other);
+                    myRectangles.remove(i);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+        myRectangles.add(added);
+        if (myRectangles.size() > MAX_RECTANGLES) {
+            final Rectangle bounds = bounds();
+            myRectangles.clear();
+            myRectangles.add(bounds);
+        }
+    }
+
+    /**
+     * Adds a rectangle to the region.
+     *
+     * @param theRectangle the rectangle
+     */
+    void add(final Rectangle theRectangle) {
+        add(theRectangle.x, theRectangle.y, theRectangle.width, theRectangle.height);
+    }
+
+    /**
+     * Makes the whole panel need painting.
+     */
+    void addAll() {
+        myAll = true;
+        myRectangles.clear();
+    }
+
+    /**
+     * Returns whether the whole panel needs painting.
+     *
+     * @return whether everything needs painting
+     */
+    boolean isAll() {
+        return myAll;
+    }
+
+    /**
+     * Returns whether nothing needs painting.
+     *
+     * @return whether the region is empty
+     */
+    boolean isEmpty() {
+        return !myAll && myRectangles.isEmpty();
+    }
+
+    /**
+     * Returns the rectangles. Meaningless when the whole panel needs painting.
+     *
+     * @return the rectangles, which the caller may keep
+     */
+    List<Rectangle> rectangles() {
+        return new ArrayList<>(myRectangles);
+    }
+
+    /**
+     * Empties the region.
+     */
+    void clear() {
+        myAll = false;
+        myRectangles.clear();
+    }
+
+    /**
+     * Returns the smallest rectangle holding all the rectangles.
+     *
+     * @return the bounds, empty if there are no rectangles
+     */
+    private Rectangle bounds() {
+        final Rectangle result = new Rectangle(myRectangles.get(0));
+        for (final Rectangle rectangle : myRectangles) {
+            result.add(rectangle);
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether two rectangles overlap or touch and are covered by their union
+     * without wasting more than their overlap.
+     *
+     * @param theFirst one rectangle
+     * @param theSecond the other
+     * @return whether they should be merged
+     */
+    private static boolean mergeable(final Rectangle theFirst, final Rectangle theSecond) {
+        final boolean touching = theFirst.x <= theSecond.x + theSecond.width
+                                 && theSecond.x <= theFirst.x + theFirst.width
+                                 && theFirst.y <= theSecond.y + theSecond.height
+                                 && theSecond.y <= theFirst.y + theFirst.height;
+        if (!touching) {
+            return false;
+        }
+        final Rectangle union = theFirst.union(theSecond);
+        return area(union) <= area(theFirst) + area(theSecond);
+    }
+
+    /**
+     * Returns the area of a rectangle.
+     *
+     * @param theRectangle the rectangle
+     * @return its area
+     */
+    private static long area(final Rectangle theRectangle) {
+        return (long) theRectangle.width * theRectangle.height;
+    }
+}
@@ -11,17 +11,26 @@ import java.awt.FlowLayout;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 import javax.swing.JSlider;
 import javax.swing.SwingConstants;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import logic.EngineType;
 import logic.PropertyChangeEnabledRoadRageControls;
+import logic.ReplayRoadRage;
+import logic.SimulationLoop;
+import logic.WorldSnapshot;
 import view.util.FileLoader;
 
 /**
@@ -75,6 +84,31 @@ public class RoadRageGUI extends JFrame implements ActionListener {
      */
     private static final String RESET_COMMAND = "Reset";
 
+    /**
+     * The Fast Forward command.
+     */
+    private static final String FAST_FORWARD_COMMAND = "Fast Forward";
+
+    /**
+     * The Run To Tick command.
+     */
+    private static final String RUN_TO_TICK_COMMAND = "Run To Tick...";
+
+    /**
+     * The Run Until command.
+     */
+    private static final String RUN_UNTIL_COMMAND = "Run Until...";
+
+    /**
+     * The Step Back command, when replaying.
+     */
+    private static final String STEP_BACK_COMMAND = "Step Back";
+
+    /**
+     * The Seek command, when replaying.
+     */
+    private static final String SEEK_COMMAND = "Seek...";
+
     /**
      * The initial frames per second at which the simulation will run.
      */
@@ -85,11 +119,6 @@ public class RoadRageGUI extends JFrame implements ActionListener {
      */
     private static final int MAX_FRAMES_PER_SECOND = 60;
 
-    /**
-     * The numerator for delay calculations.
-     */
-    private static final int MY_DELAY_NUMERATOR = 1000;
-
     /**
      * The minor tick spacing for the FPS slider.
      */
@@ -104,14 +133,9 @@ public class RoadRageGUI extends JFrame implements ActionListener {
     // Instance Fields
     
     /**
-     * The delay between updates, based on the frames per second setting.
+     * The loop running the simulation on its own thread.
      */
-    private int myDelay;
-
-    /**
-     * A timer used to update the state of the simulation.
-     */
-    private final Timer myTimer;
+    private SimulationLoop myLoop;
 
     /**
      * The slider for "frames per second".
@@ -119,7 +143,17 @@ public class RoadRageGUI extends JFrame implements ActionListener {
     private JSlider mySlider;
     
     /**
-     * The logic for the simulation. 
+     * Shows how the last run to a target ended.
+     */
+    private JLabel myStatus;
+    
+    /**
+     * The run to a target under way, if any.
+     */
+    private CompletableFuture<Long> myTarget;
+    
+    /**
+     * The logic for the simulation. Only the loop thread uses it once the loop runs. 
      */
     private final PropertyChangeEnabledRoadRageControls myRoadRage;
     
@@ -130,17 +164,51 @@ public class RoadRageGUI extends JFrame implements ActionListener {
      * directory.
      */
     public RoadRageGUI() {
+        this(EngineType.OBJECTS);
+    }
+    
+    /**
+     * Constructs a new RoadRageGUI, using the files in the current working
+     * directory and the given simulation implementation.
+     * 
+     * @param theEngine the simulation implementation to run.
+     */
+    public RoadRageGUI(final EngineType theEngine) {
+        this(theEngine, new File(FileLoader.CITY_FILE));
+    }
+    
+    /**
+     * Constructs a new RoadRageGUI, using the given city map file, the files in the 
+     * current working directory and the given simulation implementation.
+     * 
+     * @param theEngine the simulation implementation to run.
+     * @param theCity the city map file.
+     */
+    public RoadRageGUI(final EngineType theEngine, final File theCity) {
         super(TITLE);
         // initialize instance fields
         
-        myDelay = MY_DELAY_NUMERATOR / INITIAL_FRAMES_PER_SECOND;
-        myTimer = new Timer(myDelay, this);        
-
-        myRoadRage = FileLoader.readCity(this);
+        myRoadRage = FileLoader.readCity(this, theEngine, theCity);
+        
+        initGUI();
+        
+        setVisible(true);
+    }
+    
+    /**
+     * Constructs a new RoadRageGUI replaying a journal of a run of the given city map,
+     * which can also step back and seek.
+     * 
+     * @param theJournal the journal file.
+     * @param theCity the city map file the run was of.
+     */
+    public RoadRageGUI(final File theJournal, final File theCity) {
+        super(TITLE);
+        
+        myRoadRage = FileLoader.readReplay(this, theJournal, theCity);
         
         initGUI();
         
-        myRoadRage.start();
         setVisible(true);
     }
     
@@ -155,7 +223,11 @@ public class RoadRageGUI extends JFrame implements ActionListener {
         
         final RoadRagePanel panel = 
                         new RoadRagePanel(myRoadRage.getWidth(), myRoadRage.getHeight()); 
-        myRoadRage.addPropertyChangeListener(panel);
+        myLoop = new SimulationLoop(myRoadRage, INITIAL_FRAMES_PER_SECOND, panel::newFrame);
+        panel.setSnapshots(myLoop.snapshots());
+        myLoop.setUncaughtExceptionHandler((theThread, theError) -> SwingUtilities.invokeLater(
+            () -> JOptionPane.showMessageDialog(this, "The simulation stopped: " + theError,
+                                                TITLE, JOptionPane.ERROR_MESSAGE)));
   
         mySlider = new JSlider(SwingConstants.HORIZONTAL, 0, MAX_FRAMES_PER_SECOND,
                                INITIAL_FRAMES_PER_SECOND);
@@ -169,8 +241,7 @@ public class RoadRageGUI extends JFrame implements ActionListener {
             public void stateChanged(final ChangeEvent theEvent) {
                 final int value = mySlider.getValue();
                 if (value > 0) {
-                    myDelay = MY_DELAY_NUMERATOR / value;
-                    myTimer.setDelay(myDelay);
+                    myLoop.setTicksPerSecond(value);
                 }
             }
         });
@@ -184,19 +255,27 @@ public class RoadRageGUI extends JFrame implements ActionListener {
         northPanel.add(makeButton(STOP_COMMAND));
         northPanel.add(makeButton(STEP_COMMAND));
         northPanel.add(makeButton(RESET_COMMAND));
+        northPanel.add(makeButton(FAST_FORWARD_COMMAND));
+        northPanel.add(makeButton(RUN_TO_TICK_COMMAND));
+        northPanel.add(makeButton(RUN_UNTIL_COMMAND));
+        if (myRoadRage instanceof ReplayRoadRage) {
+            northPanel.add(makeButton(STEP_BACK_COMMAND));
+            northPanel.add(makeButton(SEEK_COMMAND));
+        }
 
         final Container southPanel = new JPanel(new FlowLayout());
         southPanel.add(new JLabel("FPS: "));
         southPanel.add(mySlider);
         southPanel.add(box);
+        myStatus = new JLabel(" ");
+        southPanel.add(myStatus);
 
         final Container masterPanel = new JPanel(new BorderLayout());
-        masterPanel.add(panel, BorderLayout.CENTER);
+        masterPanel.add(new JScrollPane(panel), BorderLayout.CENTER);
         masterPanel.add(northPanel, BorderLayout.NORTH);
         masterPanel.add(southPanel, BorderLayout.SOUTH);
 
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setResizable(false);
         add(masterPanel);
         pack();
         // position the frame in the center of the screen
@@ -223,32 +302,189 @@ public class RoadRageGUI extends JFrame implements ActionListener {
      */
     @Override
     public void actionPerformed(final ActionEvent theEvent) {
-        final Object source = theEvent.getSource();
-        if (source.equals(myTimer)) {
-            // event came from the timer
-            myRoadRage.advance();
-        } else {
-            // event came from one of the buttons
-            final String command = theEvent.getActionCommand().intern();
-            if (command.equals(START_COMMAND)) {
-                myTimer.start();
-            } else if (command.equals(STOP_COMMAND)) {
-                myTimer.stop();
-            } else if (command.equals(STEP_COMMAND)) {
-                myRoadRage.advance();
-            } else if (command.equals(RESET_COMMAND)) {
-                reset();
+        // event came from one of the buttons; the loop thread carries it out
+        final String command = theEvent.getActionCommand().intern();
+        myTarget = null;
+        myStatus.setText(" ");
+        if (command.equals(START_COMMAND)) {
+            myLoop.play();
+        } else if (command.equals(STOP_COMMAND)) {
+            myLoop.pause();
+        } else if (command.equals(STEP_COMMAND)) {
+            myLoop.step();
+        } else if (command.equals(RESET_COMMAND)) {
+            // resets the vehicles and the tick counter, and stops the simulation
+            myLoop.reset();
+        } else if (command.equals(FAST_FORWARD_COMMAND)) {
+            myLoop.fastForward();
+            myStatus.setText("Fast forwarding");
+        } else if (command.equals(RUN_TO_TICK_COMMAND)) {
+            runToTick();
+        } else if (command.equals(RUN_UNTIL_COMMAND)) {
+            runUntil();
+        } else if (command.equals(STEP_BACK_COMMAND)) {
+            myLoop.execute(((ReplayRoadRage) myRoadRage)::stepBack);
+        } else if (command.equals(SEEK_COMMAND)) {
+            seek();
+        }
+    }
+    
+    /**
+     * Asks for a frame of the journal being replayed and moves to it.
+     */
+    private void seek() {
+        final ReplayRoadRage replay = (ReplayRoadRage) myRoadRage;
+        final long last = replay.getFrameCount() - 1;
+        final String answer = JOptionPane.showInputDialog(this, "Seek to frame (0 to "
+                                                          + last + "):", TITLE,
+                                                          JOptionPane.QUESTION_MESSAGE);
+        if (answer != null) {
+            try {
+                final long frame = Long.parseLong(answer.trim());
+                if (frame < 0 || frame > last) {
+                    throw new NumberFormatException();
+                }
+                myLoop.execute(() -> replay.seek(frame));
+            } catch (final NumberFormatException nfe) {
+                JOptionPane.showMessageDialog(this, "Not a frame number: " + answer, TITLE,
+                                              JOptionPane.ERROR_MESSAGE);
             }
         }
     }
-
+    
+    /**
+     * Asks for a time step and fast-forwards to it.
+     */
+    private void runToTick() {
+        final String answer = JOptionPane.showInputDialog(this, "Run to update #:", TITLE,
+                                                          JOptionPane.QUESTION_MESSAGE);
+        if (answer != null) {
+            try {
+                final long timeStep = Long.parseLong(answer.trim());
+                watch(myLoop.runUntil(timeStep), "update # " + timeStep);
+            } catch (final NumberFormatException nfe) {
+                JOptionPane.showMessageDialog(this, "Not an update number: " + answer, TITLE,
+                                              JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
+    /**
+     * Asks for a condition and fast-forwards until it holds.
+     */
+    private void runUntil() {
+        final StopCondition[] conditions = StopCondition.values();
+        final Object answer = JOptionPane.showInputDialog(this, "Run until:", TITLE,
+                                                          JOptionPane.QUESTION_MESSAGE, null,
+                                                          conditions, conditions[0]);
+        if (answer != null) {
+            final StopCondition condition = (StopCondition) answer;
+            watch(myLoop.runUntil(condition.newTest()), condition.toString().toLowerCase());
+        }
+    }
+    
+    /**
+     * Shows that a run to a target is under way, and then how it ended.
+     * 
+     * @param theRun the run
+     * @param theTarget what it runs to, for display
+     */
+    private void watch(final CompletableFuture<Long> theRun, final String theTarget) {
+        myTarget = theRun;
+        myStatus.setText("Running until " + theTarget);
+        theRun.whenComplete((theTimeStep, theError) -> SwingUtilities.invokeLater(() -> {
+            if (myTarget == theRun) {
+                myTarget = null;
+                if (theError == null) {
+                    myStatus.setText("Reached " + theTarget + " at update # " + theTimeStep);
+                } else {
+                    myStatus.setText(" ");
+                }
+            }
+        }));
+    }
+    
     /**
-     * Resets all the vehicles to their initial locations, resets the tick
-     * counter, and stops the simulation.
+     * The conditions a run can be fast-forwarded to.
      */
-    private void reset() {
-        myTimer.stop();
-        myRoadRage.reset();
+    private enum StopCondition {
+        
+        /** Some vehicle dies. */
+        NEXT_DEATH("A vehicle dies") {
+            @Override
+            Predicate<WorldSnapshot> newTest() {
+                return new Predicate<WorldSnapshot>() {
+                    /** The number of dead vehicles at the last test, or -1 before. */
+                    private int myDead = -1;
+                    
+                    @Override
+                    public boolean test(final WorldSnapshot theWorld) {
+                        final int dead = deadCount(theWorld);
+                        final boolean result = myDead >= 0 && dead > myDead;
+                        myDead = dead;
+                        return result;
+                    }
+                };
+            }
+        },
+        
+        /** At least half the vehicles are dead. */
+        HALF_DEAD("Half the vehicles are dead") {
+            @Override
+            Predicate<WorldSnapshot> newTest() {
+                return theWorld -> deadCount(theWorld) * 2 >= theWorld.size();
+            }
+        },
+        
+        /** Every vehicle is alive. */
+        NONE_DEAD("No vehicle is dead") {
+            @Override
+            Predicate<WorldSnapshot> newTest() {
+                return theWorld -> deadCount(theWorld) == 0;
+            }
+        };
+        
+        /**
+         * The description shown.
+         */
+        private final String myDescription;
+        
+        /**
+         * Creates a condition.
+         * 
+         * @param theDescription the description shown
+         */
+        StopCondition(final String theDescription) {
+            myDescription = theDescription;
+        }
+        
+        /**
+         * Returns a new test of this condition, for one run.
+         * 
+         * @return the test
+         */
+        abstract Predicate<WorldSnapshot> newTest();
+        
+        @Override
+        public String toString() {
+            return myDescription;
+        }
+        
+        /**
+         * Counts the dead vehicles.
+         * 
+         * @param theWorld the state of the simulation
+         * @return the number of dead vehicles
+         */
+        private static int deadCount(final WorldSnapshot theWorld) {
+            int result = 0;
+            for (int id = 0; id < theWorld.size(); id++) {
+                if (!theWorld.isAlive(id)) {
+                    result++;
+                }
+            }
+            return result;
+        }
     }
         
  // end class RoadRageGUI
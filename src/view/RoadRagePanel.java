@@ -4,34 +4,40 @@
 
 package view;
 
-import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_GRID;
-import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_LIGHT;
-import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_VEHICLES;
-import static logic.PropertyChangeEnabledRoadRageControls.PROPERTY_TIME;
-
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
-import java.awt.MediaTracker;
 import java.awt.Paint;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.event.MouseWheelEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.util.ArrayList;
 import java.util.List;
-import javax.swing.ImageIcon;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JPanel;
 import javax.swing.JToggleButton;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import logic.PropertyChangeEnabledRoadRageControls;
+import logic.TripleBuffer;
+import logic.VehicleDelta;
+import logic.WorldSnapshot;
 import model.Direction;
 import model.Light;
-import model.Terrain;
-import model.Vehicle;
+import model.TerrainGrid;
+import model.VehicleKind;
 
 /**
  * A drawing panel for the map.
@@ -43,7 +49,8 @@ import model.Vehicle;
  * @author Charles Bryan
  * 
  */
-public class RoadRagePanel extends JPanel implements PropertyChangeListener, ChangeListener {
+public class RoadRagePanel extends JPanel
+                implements PropertyChangeListener, ChangeListener, Scrollable {
 
     /**
      * The UID of this class (to avoid warnings).
@@ -62,11 +69,6 @@ public class RoadRagePanel extends JPanel implements PropertyChangeListener, Cha
                                                               BasicStroke.JOIN_MITER, 2,
                                                               new float[] {2, 2, 2, 2}, 0);
 
-    /**
-     * The offset to use to position cross walk lines and to use for cross walk light size.
-     */
-    private static final double CROSSWALK_SCALE = .25;
-    
     /**
      * The size in pixels of the directional markers drawn on vehicles in debug
      * mode.
@@ -79,17 +81,79 @@ public class RoadRagePanel extends JPanel implements PropertyChangeListener, Cha
     private static final int DEBUG_OFFSET = 10;
     
     /**
-     * The size in pixels of a side of one "square" on the grid.
+     * The size in pixels of a side of one "square" on the grid, until zoomed.
      */
     private static final int SQUARE_SIZE = 40;
     
+    /**
+     * The square sizes zooming steps through, smallest first.
+     */
+    private static final int[] ZOOM_LEVELS = {1, 2, 3, 4, 6, 8, 12, 16, 24, 32, 40, 48, 64};
+    
+    /**
+     * The smallest square size at which vehicles are drawn one by one. Below it, the 
+     * map is shaded by the number of vehicles in each block of squares instead.
+     */
+    private static final int MIN_SPRITE_SIZE = 8;
+    
+    /**
+     * The smallest size in pixels of a side of a shaded block.
+     */
+    private static final int DENSITY_BLOCK_SIZE = 8;
+    
+    /**
+     * The share of a block's squares, as one in this many, that must hold living 
+     * vehicles for the block to get the darkest shade.
+     */
+    private static final int DENSITY_FULL = 4;
+    
+    /**
+     * The shades of blocks, from the fewest vehicles to the most.
+     */
+    private static final Color[] DENSITY_COLORS = densityColors(16);
+    
+    /**
+     * The paint color of each light, indexed by Light ordinal.
+     */
+    private static final Color[] SIGNAL_COLORS = signalColors();
+    
+    /**
+     * The largest size the panel asks of a scroll pane showing it.
+     */
+    private static final Dimension MAX_VIEWPORT = new Dimension(1200, 800);
+    
+    /**
+     * Cached VehicleKind values, indexed by ordinal.
+     */
+    private static final VehicleKind[] KINDS = VehicleKind.values();
+    
+    /**
+     * Cached Direction values, indexed by ordinal.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+    
 
     // Instance Fields
     
     /**
-     * The terrain grid for the simulation.
+     * The terrain of the grid being painted, drawn once per grid and square size.
+     */
+    private TerrainLayer myTerrain;
+    
+    /**
+     * The size in pixels of a side of one square.
+     */
+    private int mySquareSize;
+    
+    /**
+     * The width of the map in squares.
      */
-    private Terrain[][] myGrid;
+    private int myColumns;
+    
+    /**
+     * The height of the map in squares.
+     */
+    private int myRows;
     
     /**
      * A flag indicating whether or not we are running in debug mode.
@@ -97,19 +161,60 @@ public class RoadRagePanel extends JPanel implements PropertyChangeListener, Cha
     private boolean myDebugFlag;
 
     /**
-     * The current timestep of the simulation.
+     * The timestep being painted.
      */
     private long myTimestep;
     
     /**
-     * The current color of lights.
+     * The color of lights being painted.
      */
     private Color myLightColor;
         
     /**
-     * The vehicles to move and display. 
+     * The state of the simulation, kept up to date from its events. 
+     */
+    private final WorldSnapshot myWorld;
+    
+    /**
+     * The snapshots published by a simulation running on another thread, or null to 
+     * paint the state kept from events.
+     */
+    private TripleBuffer<WorldSnapshot> mySnapshots;
+    
+    /**
+     * The vehicle images.
+     */
+    private final SpriteCache mySprites;
+    
+    /**
+     * Whether vehicle images are turned to face the vehicle's direction.
+     */
+    private boolean myRotateSprites;
+    
+    /**
+     * The state being painted: the one kept from events, or the last snapshot read.
+     */
+    private WorldSnapshot myShown;
+    
+    /**
+     * A copy of the last snapshot read, to find what the next one changed.
      */
-    private List<Vehicle> myVehicles;
+    private final WorldSnapshot myPainted;
+    
+    /**
+     * The parts of the panel that changed since they were last painted.
+     */
+    private final DirtyRegion myDirty;
+    
+    /**
+     * Whether painting the dirty region is already scheduled.
+     */
+    private final AtomicBoolean myFlushPending;
+    
+    /**
+     * Whether reading a newly published snapshot is already scheduled.
+     */
+    private final AtomicBoolean myFramePending;
 
     // Constructor
 
@@ -121,17 +226,204 @@ public class RoadRagePanel extends JPanel implements PropertyChangeListener, Cha
     public RoadRagePanel(final int theWidth, final int theHeight) {
         super();
 
-        myVehicles = new ArrayList<Vehicle>();
-        myGrid = new Terrain[0][0];
+        myWorld = new WorldSnapshot();
+        myShown = myWorld;
+        myPainted = new WorldSnapshot();
+        myDirty = new DirtyRegion();
+        myFlushPending = new AtomicBoolean();
+        myFramePending = new AtomicBoolean();
+        mySprites = new SpriteCache("icons");
+        mySprites.preload(SQUARE_SIZE);
+        mySquareSize = SQUARE_SIZE;
+        myTerrain = new TerrainLayer(TerrainGrid.create(0, 0), SQUARE_SIZE, Color.GREEN);
         setLightColor(Light.GREEN);
+        myColumns = theWidth;
+        myRows = theHeight;
         setPreferredSize(new Dimension(theWidth * SQUARE_SIZE,
                                        theHeight * SQUARE_SIZE));
         setBackground(Color.GREEN);
         setFont(FONT);
+        addMouseWheelListener(this::mouseWheelMoved);
     }
 
     // Instance Methods
 
+    /**
+     * Registers this panel for the properties it draws. The panel follows the vehicles 
+     * through vehicle deltas, so the simulation does not copy its vehicle list for it.
+     * 
+     * @param theRoadRage the simulation to draw
+     */
+    public void listenTo(final PropertyChangeEnabledRoadRageControls theRoadRage) {
+        for (final String property : WorldSnapshot.PROPERTIES) {
+            theRoadRage.addPropertyChangeListener(property, this);
+        }
+    }
+    
+    /**
+     * Paints the latest snapshot published by a simulation running on another thread, 
+     * such as a SimulationLoop, instead of following events. The panel becomes the only 
+     * reader of the snapshots, and must be told of each with newFrame.
+     * 
+     * @param theSnapshots the published snapshots
+     */
+    public void setSnapshots(final TripleBuffer<WorldSnapshot> theSnapshots) {
+        mySnapshots = theSnapshots;
+        synchronized (myDirty) {
+            myDirty.addAll();
+        }
+        newFrame();
+    }
+    
+    /**
+     * Tells the panel that a new snapshot was published. Only what changed since the 
+     * last snapshot painted is painted again. Safe to call from any thread, such as a 
+     * SimulationLoop's frame listener; frames published faster than they are painted 
+     * are skipped.
+     */
+    public void newFrame() {
+        if (myFramePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::readFrame);
+        }
+    }
+
+    /**
+     * Chooses whether vehicle images are turned to face the direction each vehicle is 
+     * traveling, taking the images in the icon files to face north.
+     * 
+     * @param theRotate true to turn the images, false to draw them as in the files
+     */
+    public void setRotateSprites(final boolean theRotate) {
+        myRotateSprites = theRotate;
+        repaint();
+    }
+
+    /**
+     * Returns the size in pixels of a side of one square.
+     * 
+     * @return the square size
+     */
+    public int getSquareSize() {
+        return mySquareSize;
+    }
+    
+    /**
+     * Sets the size in pixels of a side of one square, keeping the middle of what is
+     * shown in a scroll pane where it is. Below a size of 8, vehicles are no longer 
+     * drawn one by one; the map is shaded by how many vehicles each block holds.
+     * 
+     * @param theSize the square size
+     */
+    public void setSquareSize(final int theSize) {
+        final Rectangle visible = getVisibleRect();
+        setSquareSize(theSize, new Point((int) visible.getCenterX(),
+                                         (int) visible.getCenterY()));
+    }
+    
+    /**
+     * Zooms in or out by steps, keeping a point of the panel where it is.
+     * 
+     * @param theSteps the number of steps, positive to zoom in and negative to zoom out
+     * @param theAnchor the point that stays put, in the panel's coordinates
+     */
+    public void zoom(final int theSteps, final Point theAnchor) {
+        int level = 0;
+        while (level < ZOOM_LEVELS.length - 1 && ZOOM_LEVELS[level] < mySquareSize) {
+            level++;
+        }
+        level = Math.max(0, Math.min(ZOOM_LEVELS.length - 1, level + theSteps));
+        setSquareSize(ZOOM_LEVELS[level], theAnchor);
+    }
+    
+    /**
+     * Sets the size of a square, keeping a point of the panel where it is in a scroll
+     * pane.
+     * 
+     * @param theSize the square size
+     * @param theAnchor the point that stays put, in the panel's coordinates
+     */
+    private void setSquareSize(final int theSize, final Point theAnchor) {
+        if (theSize <= 0) {
+            throw new IllegalArgumentException("square size must be positive: " + theSize);
+        }
+        final int oldSize = mySquareSize;
+        if (theSize == oldSize) {
+            return;
+        }
+        mySquareSize = theSize;
+        if (theSize >= MIN_SPRITE_SIZE) {
+            mySprites.preload(theSize);
+        }
+        setPreferredSize(new Dimension(myColumns * theSize, myRows * theSize));
+
+        final Container parent = getParent();
+        if (parent instanceof JViewport) {
+            final JViewport viewport = (JViewport) parent;
+            final Point view = viewport.getViewPosition();
+            final Dimension extent = viewport.getExtentSize();
+            setSize(getPreferredSize());
+            final int x = (int) ((long) theAnchor.x * theSize / oldSize)
+                          - (theAnchor.x - view.x);
+            final int y = (int) ((long) theAnchor.y * theSize / oldSize)
+                          - (theAnchor.y - view.y);
+            viewport.setViewPosition(
+                new Point(Math.max(0, Math.min(x, getWidth() - extent.width)),
+                          Math.max(0, Math.min(y, getHeight() - extent.height))));
+        }
+        revalidate();
+        repaint();
+    }
+    
+    /**
+     * Zooms when the wheel is turned with the control key down, and otherwise hands the
+     * event on so that a scroll pane scrolls.
+     * 
+     * @param theEvent the event
+     */
+    private void mouseWheelMoved(final MouseWheelEvent theEvent) {
+        if (theEvent.isControlDown()) {
+            zoom(-theEvent.getWheelRotation(), theEvent.getPoint());
+        } else if (getParent() != null) {
+            getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, theEvent,
+                                                                       getParent()));
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        final Dimension size = getPreferredSize();
+        return new Dimension(Math.min(size.width, MAX_VIEWPORT.width),
+                             Math.min(size.height, MAX_VIEWPORT.height));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(final Rectangle theVisible,
+                                          final int theOrientation, final int theDirection) {
+        return mySquareSize;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(final Rectangle theVisible,
+                                           final int theOrientation, final int theDirection) {
+        final int extent;
+        if (theOrientation == SwingConstants.HORIZONTAL) {
+            extent = theVisible.width;
+        } else {
+            extent = theVisible.height;
+        }
+        return Math.max(mySquareSize, extent - mySquareSize);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
     /**
      * Paints this panel on the screen with the specified Graphics object.
      * 
@@ -146,135 +438,405 @@ public class RoadRagePanel extends JPanel implements PropertyChangeListener, Cha
 
         g2.setStroke(STROKE);
 
+        final WorldSnapshot world = myShown;
+        terrain(world.grid());
+        myTimestep = world.timeStep();
+        setLightColor(world.light());
+
         // draw city map
 
-        drawMap(g2);
+        if (world.signals().isUniform()) {
+            myTerrain.paint(g2, myLightColor);
+        } else {
+            myTerrain.paint(g2, world.signals(), myTimestep, SIGNAL_COLORS);
+        }
+        final Rectangle clip = g2.getClipBounds();
+        if (mySquareSize < MIN_SPRITE_SIZE) {
+            drawDensity(g2, world, clip);
+            return;
+        }
+        if (myDebugFlag) {
+            drawDebugInfo(g2, world.grid());
+        }
 
         // draw vehicles
-        for (final Vehicle v : myVehicles) {
-            final String imageFilename = "icons//" + v.getImageFileName();
-            //final String imageFilename = v.getImageFileName();
-            ImageIcon imgIcon = new ImageIcon(imageFilename);
-
-            if (imgIcon.getImageLoadStatus() != MediaTracker.COMPLETE) {
-                imgIcon = new ImageIcon(getClass().getResource(imageFilename));
+        for (int id = 0; id < world.size(); id++) {
+            final VehicleKind kind = world.kind(id);
+            if (kind == null) {
+                // not a vehicle the panel has an image for
+                continue;
             }
-
-            final Image img = imgIcon.getImage();
-            g2.drawImage(img, v.getX() * SQUARE_SIZE, v.getY() * SQUARE_SIZE,
-                         SQUARE_SIZE, SQUARE_SIZE, this);
+            if (clip != null && !clip.intersects(vehicleBounds(kind, world.x(id), world.y(id),
+                                                               world.direction(id)))) {
+                // not in the part being painted
+                continue;
+            }
+            final Direction facing;
+            if (myRotateSprites) {
+                facing = world.direction(id);
+            } else {
+                facing = null;
+            }
+            final Image img = mySprites.get(kind, world.isAlive(id), facing, mySquareSize);
+            g2.drawImage(img, world.x(id) * mySquareSize, world.y(id) * mySquareSize, this);
 
             if (myDebugFlag) {
-                drawDebugInfo(g2, v);
+                drawDebugInfo(g2, debugLabel(kind, world.direction(id)),
+                              world.x(id), world.y(id), world.direction(id));
             }
         }
 
         if (myDebugFlag) {
             g2.setColor(Color.WHITE);
-            g2.drawString("Update # " + myTimestep, DEBUG_OFFSET / 2,
+            g2.drawString(timeLabel(myTimestep), DEBUG_OFFSET / 2,
                           FONT.getSize() + DEBUG_OFFSET / 2);
         }
     }
     
-
     /**
-     * Draws the city map with the specified Graphics2D object.
+     * Shades each block of squares inside the clip by the number of living vehicles in
+     * it, for when squares are too small to draw vehicles one by one.
      * 
-     * @param theGraphics The Graphics2D object.
-     */
-    private void drawMap(final Graphics2D theGraphics) {
-        for (int y = 0; y < myGrid.length; y++) {
-            final int topy = y * SQUARE_SIZE;
-
-            for (int x = 0; x < myGrid[y].length; x++) {
-                final int leftx = x * SQUARE_SIZE;
-
-                switch (myGrid[y][x]) {
-                    case STREET:
-                        theGraphics.setPaint(Color.LIGHT_GRAY);
-                        theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        drawStreetLines(theGraphics, x, y);
-                        break;
-
-                    case WALL:
-                        theGraphics.setPaint(Color.BLACK);
-                        theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        break;
-
-                    case TRAIL:
-                        theGraphics.setPaint(Color.YELLOW.darker().darker());
-                        theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        break;
-
-                    case LIGHT:
-                        // draw a circle of appropriate color
-                        theGraphics.setPaint(Color.LIGHT_GRAY);
-                        theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        theGraphics.setPaint(myLightColor);
-                        theGraphics.fillOval(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        break;
-                        
-                    case CROSSWALK:
-                        theGraphics.setPaint(Color.LIGHT_GRAY);
-                        theGraphics.fillRect(leftx, topy, SQUARE_SIZE, SQUARE_SIZE);
-                        
-                        drawCrossWalkLines(theGraphics, x, y);
-                        
-                        // draw a small circle of appropriate color centered in the square
-                        theGraphics.setPaint(myLightColor);
-                        theGraphics.fillOval(leftx + (int)  (SQUARE_SIZE * CROSSWALK_SCALE),
-                                             topy  + (int) (SQUARE_SIZE * CROSSWALK_SCALE),
-                                             SQUARE_SIZE / 2, SQUARE_SIZE / 2);
-                        break;
-
-                    default:
+     * @param theGraphics the graphics context
+     * @param theWorld the state to draw
+     * @param theClip the part being painted, or null for all of it
+     */
+    private void drawDensity(final Graphics2D theGraphics, final WorldSnapshot theWorld,
+                             final Rectangle theClip) {
+        final int block = densityBlock();
+        final int blockPixels = block * mySquareSize;
+        int left = 0;
+        int top = 0;
+        int right = (theWorld.grid().getWidth() + block - 1) / block;
+        int bottom = (theWorld.grid().getHeight() + block - 1) / block;
+        if (theClip != null) {
+            left = Math.max(left, theClip.x / blockPixels);
+            top = Math.max(top, theClip.y / blockPixels);
+            right = Math.min(right, (theClip.x + theClip.width - 1) / blockPixels + 1);
+            bottom = Math.min(bottom, (theClip.y + theClip.height - 1) / blockPixels + 1);
+        }
+        if (left >= right || top >= bottom) {
+            return;
+        }
+
+        final int across = right - left;
+        final int[] counts = new int[across * (bottom - top)];
+        for (int id = 0; id < theWorld.size(); id++) {
+            if (theWorld.isAlive(id) && theWorld.kind(id) != null) {
+                final int column = theWorld.x(id) / block - left;
+                final int row = theWorld.y(id) / block - top;
+                if (column >= 0 && column < across && row >= 0 && row < bottom - top) {
+                    counts[row * across + column]++;
                 }
+            }
+        }
 
-                drawDebugInfo(theGraphics, x, y);
+        final int squares = block * block;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                final int shade = Math.min(DENSITY_COLORS.length - 1,
+                                           (counts[i] * DENSITY_FULL * DENSITY_COLORS.length
+                                            - 1) / squares);
+                theGraphics.setColor(DENSITY_COLORS[shade]);
+                theGraphics.fillRect((left + i % across) * blockPixels,
+                                     (top + i / across) * blockPixels,
+                                     blockPixels, blockPixels);
             }
         }
     }
     
     /**
-     * Draws debugging information, if necessary.
+     * Returns the number of squares along a side of a shaded block at the current size.
      * 
-     * @param theGraphics The Graphics context to use for drawing.
-     * @param theX The x-coordinate of the street.
-     * @param theY The y-coordinate of the street.
+     * @return the block size in squares
      */
-    private void drawDebugInfo(final Graphics2D theGraphics, final int theX, final int theY) {
+    private int densityBlock() {
+        return (DENSITY_BLOCK_SIZE + mySquareSize - 1) / mySquareSize;
+    }
+    
+    /**
+     * Makes the shades of blocks: a translucent red, ever less translucent.
+     * 
+     * @param theCount the number of shades
+     * @return the shades, faintest first
+     */
+    private static Color[] densityColors(final int theCount) {
+        final Color[] result = new Color[theCount];
+        final int maxAlpha = 255;
+        for (int i = 0; i < theCount; i++) {
+            result[i] = new Color(Color.RED.getRed(), 0, 0,
+                                  maxAlpha * (i + 1) / theCount);
+        }
+        return result;
+    }
+    
+    /**
+     * Makes the paint colors of the lights.
+     * 
+     * @return the colors, indexed by Light ordinal
+     */
+    private static Color[] signalColors() {
+        final Light[] lights = Light.values();
+        final Color[] result = new Color[lights.length];
+        for (final Light light : lights) {
+            result[light.ordinal()] = lightColor(light);
+        }
+        return result;
+    }
+    
+    /**
+     * Makes the panel the size of the map at the current square size, if the map's 
+     * number of squares changed.
+     * 
+     * @param theGrid the grid being shown
+     */
+    private void fitTo(final TerrainGrid theGrid) {
+        if (theGrid.getWidth() > 0 && theGrid.getHeight() > 0
+            && (theGrid.getWidth() != myColumns || theGrid.getHeight() != myRows)) {
+            myColumns = theGrid.getWidth();
+            myRows = theGrid.getHeight();
+            setPreferredSize(new Dimension(myColumns * mySquareSize, myRows * mySquareSize));
+            revalidate();
+        }
+    }
+    
+    /**
+     * Returns the terrain layer of a grid, making a new one when the grid is new. The
+     * simulation never changes a grid it has fired.
+     * 
+     * @param theGrid the grid
+     * @return the layer drawing it
+     */
+    private TerrainLayer terrain(final TerrainGrid theGrid) {
+        TerrainLayer result = myTerrain;
+        if (result.getGrid() != theGrid || result.getSquareSize() != mySquareSize) {
+            result = new TerrainLayer(theGrid, mySquareSize, getBackground());
+            myTerrain = result;
+        }
+        return result;
+    }
+    
+    /**
+     * Reads the latest published snapshot and paints what it changed.
+     */
+    private void readFrame() {
+        myFramePending.set(false);
+        if (mySnapshots == null) {
+            return;
+        }
+        final WorldSnapshot world = mySnapshots.read();
+        synchronized (myDirty) {
+            if (world.grid() != myPainted.grid() || world.size() != myPainted.size()) {
+                myDirty.addAll();
+            } else {
+                addChanges(myPainted, world);
+            }
+        }
+        myPainted.copyFrom(world);
+        myShown = world;
+        flush();
+    }
+    
+    /**
+     * Adds to the dirty region what differs between two states of the same grid and
+     * vehicles.
+     * 
+     * @param theOld the state painted
+     * @param theNew the state to paint
+     */
+    private void addChanges(final WorldSnapshot theOld, final WorldSnapshot theNew) {
+        for (int id = 0; id < theNew.size(); id++) {
+            if (theOld.x(id) != theNew.x(id) || theOld.y(id) != theNew.y(id)
+                || theOld.direction(id) != theNew.direction(id)
+                || theOld.isAlive(id) != theNew.isAlive(id)
+                || theOld.kind(id) != theNew.kind(id)) {
+                myDirty.add(vehicleBounds(theOld.kind(id), theOld.x(id), theOld.y(id),
+                                          theOld.direction(id)));
+                myDirty.add(vehicleBounds(theNew.kind(id), theNew.x(id), theNew.y(id),
+                                          theNew.direction(id)));
+            }
+        }
+        if (theOld.light() != theNew.light() || theOld.signals() != theNew.signals()
+            || theOld.timeStep() != theNew.timeStep() && !theNew.signals().isUniform()) {
+            addLights(theNew.grid());
+        }
+        if (theOld.timeStep() != theNew.timeStep()) {
+            addTimeLabel(theOld.timeStep(), theNew.timeStep());
+        }
+    }
+    
+    /**
+     * Adds the lights of a grid to the dirty region.
+     * 
+     * @param theGrid the grid
+     */
+    private void addLights(final TerrainGrid theGrid) {
+        for (final Rectangle region : terrain(theGrid).lightRegions()) {
+            myDirty.add(region);
+        }
+    }
+    
+    /**
+     * Adds the time step label to the dirty region, if it is drawn.
+     * 
+     * @param theOld the time step painted
+     * @param theNew the time step to paint
+     */
+    private void addTimeLabel(final long theOld, final long theNew) {
+        if (myDebugFlag && mySquareSize >= MIN_SPRITE_SIZE) {
+            final FontMetrics metrics = getFontMetrics(FONT);
+            final int width = Math.max(metrics.stringWidth(timeLabel(theOld)),
+                                       metrics.stringWidth(timeLabel(theNew)));
+            myDirty.add(0, 0, DEBUG_OFFSET / 2 + width + 1,
+                        FONT.getSize() + DEBUG_OFFSET / 2 + metrics.getDescent() + 1);
+        }
+    }
+    
+    /**
+     * Schedules painting the dirty region, unless it is already scheduled.
+     */
+    private void scheduleFlush() {
+        if (myFlushPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::flush);
+        }
+    }
+    
+    /**
+     * Paints the dirty region now, one rectangle at a time, and empties it.
+     */
+    private void flush() {
+        myFlushPending.set(false);
+        final boolean all;
+        final List<Rectangle> rectangles;
+        synchronized (myDirty) {
+            all = myDirty.isAll();
+            rectangles = myDirty.rectangles();
+            myDirty.clear();
+        }
+        if (all) {
+            fitTo(myShown.grid());
+            repaint();
+        } else {
+            for (final Rectangle rectangle : rectangles) {
+                paintImmediately(rectangle);
+            }
+        }
+    }
+    
+    /**
+     * Returns the part of the panel a vehicle is drawn in, with its label in debug mode.
+     * 
+     * @param theKind the kind of the vehicle, or null if it is not drawn
+     * @param theX the x-coordinate of the vehicle
+     * @param theY the y-coordinate of the vehicle
+     * @param theDirection the direction of the vehicle
+     * @return the bounds
+     */
+    private Rectangle vehicleBounds(final VehicleKind theKind, final int theX, final int theY,
+                                    final Direction theDirection) {
+        if (mySquareSize < MIN_SPRITE_SIZE) {
+            // the shaded block holding the vehicle
+            final int block = densityBlock();
+            final int blockPixels = block * mySquareSize;
+            return new Rectangle(theX / block * blockPixels, theY / block * blockPixels,
+                                 blockPixels, blockPixels);
+        }
+        final Rectangle result = new Rectangle(theX * mySquareSize, theY * mySquareSize,
+                                               mySquareSize, mySquareSize);
+        if (myDebugFlag && theKind != null) {
+            // the label along the bottom, and the marker, which small squares cannot hold
+            final FontMetrics metrics = getFontMetrics(FONT);
+            final int baseline = result.y + mySquareSize;
+            result.add(new Rectangle(result.x, baseline - 1 - metrics.getMaxAscent(),
+                                     metrics.stringWidth(debugLabel(theKind, theDirection))
+                                     + 2, metrics.getMaxAscent() + metrics.getMaxDescent()
+                                     + 2));
+            final int markerOffset = Math.min(0, mySquareSize - MARKER_SIZE);
+            result.add(new Rectangle(result.x + markerOffset, result.y + markerOffset,
+                                     MARKER_SIZE - markerOffset, MARKER_SIZE - markerOffset));
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the label drawn on a vehicle in debug mode.
+     * 
+     * @param theKind the kind of the vehicle
+     * @param theDirection the direction of the vehicle
+     * @return the label
+     */
+    private static String debugLabel(final VehicleKind theKind, final Direction theDirection) {
+        return theKind.displayName() + " Direction: " + theDirection;
+    }
+    
+    /**
+     * Returns the label of a time step drawn in debug mode.
+     * 
+     * @param theTimestep the time step
+     * @return the label
+     */
+    private static String timeLabel(final long theTimestep) {
+        return "Update # " + theTimestep;
+    }
+    
 
-        if (myDebugFlag) {
-            // draw numbers for the row and column
-            final Paint oldPaint = theGraphics.getPaint();
-            theGraphics.setPaint(Color.BLACK);
+    /**
+     * Draws the row and column of each square of the grid inside the clip.
+     * 
+     * @param theGraphics The Graphics context to use for drawing.
+     * @param theGrid The grid.
+     */
+    private void drawDebugInfo(final Graphics2D theGraphics, final TerrainGrid theGrid) {
+        final Rectangle clip = theGraphics.getClipBounds();
+        int left = 0;
+        int top = 0;
+        int right = theGrid.getWidth();
+        int bottom = theGrid.getHeight();
+        if (clip != null) {
+            // labels run into the squares to their right, and below small squares
+            final FontMetrics metrics = getFontMetrics(FONT);
+            final int reach = metrics.stringWidth("(" + (right - 1) + ", " + (bottom - 1) + ")");
+            final int drop = DEBUG_OFFSET + metrics.getMaxDescent();
+            left = Math.max(left, (clip.x - reach) / mySquareSize);
+            top = Math.max(top, (clip.y - drop) / mySquareSize);
+            right = Math.min(right, (clip.x + clip.width) / mySquareSize + 1);
+            bottom = Math.min(bottom, (clip.y + clip.height) / mySquareSize + 1);
+        }
 
-            final int leftx = theX * SQUARE_SIZE;
-            final int topy = theY * SQUARE_SIZE;
-            theGraphics.drawString("(" + theX + ", " + theY + ")", leftx, topy + DEBUG_OFFSET);
-            theGraphics.setPaint(oldPaint);
+        final Paint oldPaint = theGraphics.getPaint();
+        theGraphics.setPaint(Color.BLACK);
+        for (int y = top; y < bottom; y++) {
+            for (int x = left; x < right; x++) {
+                theGraphics.drawString("(" + x + ", " + y + ")", x * mySquareSize,
+                                       y * mySquareSize + DEBUG_OFFSET);
+            }
         }
+        theGraphics.setPaint(oldPaint);
     }
     
     /**
      * Draws the debug information for a single Vehicle.
      * 
      * @param theGraphics The graphic context.
-     * @param theVehicle The Vehicle being drawn.
+     * @param theLabel The description of the Vehicle being drawn.
+     * @param theX The x-coordinate of the Vehicle.
+     * @param theY The y-coordinate of the Vehicle.
+     * @param theDirection The direction of the Vehicle.
      */
-    private void drawDebugInfo(final Graphics2D theGraphics, final Vehicle theVehicle) {
-        int x = theVehicle.getX() * SQUARE_SIZE;
-        int y = theVehicle.getY() * SQUARE_SIZE;
+    private void drawDebugInfo(final Graphics2D theGraphics, final String theLabel,
+                               final int theX, final int theY, final Direction theDirection) {
+        int x = theX * mySquareSize;
+        int y = theY * mySquareSize;
 
         // draw numbers on each vehicle
         theGraphics.setColor(Color.WHITE);
-        theGraphics.drawString(theVehicle.toString(), x, y + SQUARE_SIZE - 1);
+        theGraphics.drawString(theLabel, x, y + mySquareSize - 1);
         theGraphics.setColor(Color.BLACK);
-        theGraphics.drawString(theVehicle.toString(), x + 1, y + SQUARE_SIZE);
+        theGraphics.drawString(theLabel, x + 1, y + mySquareSize);
 
         // draw arrow on vehicle for its direction
-        final Direction dir = theVehicle.getDirection();
-        int dx = (SQUARE_SIZE - MARKER_SIZE) / 2;
+        final Direction dir = theDirection;
+        int dx = (mySquareSize - MARKER_SIZE) / 2;
         int dy = dx;
 
         switch (dir) {
@@ -283,7 +845,7 @@ public class RoadRagePanel extends JPanel implements PropertyChangeListener, Cha
                 break;
 
             case EAST:
-                dx = SQUARE_SIZE - MARKER_SIZE;
+                dx = mySquareSize - MARKER_SIZE;
                 break;
 
             case NORTH:
@@ -291,7 +853,7 @@ public class RoadRagePanel extends JPanel implements PropertyChangeListener, Cha
                 break;
 
             case SOUTH:
-                dy = SQUARE_SIZE - MARKER_SIZE;
+                dy = mySquareSize - MARKER_SIZE;
                 break;
 
             default:
@@ -310,136 +872,84 @@ public class RoadRagePanel extends JPanel implements PropertyChangeListener, Cha
      * @param theLight The Light to base the color on.
      */
     private void setLightColor(final Light theLight) {
+        myLightColor = lightColor(theLight);
+    }
+    
+    /**
+     * Returns the paint color of a light.
+     * 
+     * @param theLight the light
+     * @return the color
+     */
+    private static Color lightColor(final Light theLight) {
+        Color result = null;
         switch (theLight) {
             case GREEN:
-                myLightColor = Color.GREEN.darker();
+                result = Color.GREEN.darker();
                 break;
 
             case RED:
-                myLightColor = Color.RED.darker();
+                result = Color.RED.darker();
                 break;
 
             case YELLOW:
-                myLightColor = Color.YELLOW;
+                result = Color.YELLOW;
                 break;
 
             default:
         }
+        return result;
     }
     
-    /**
-     * Draws dotted lines on cross walks.
-     * 
-     * @param theGraphics The Graphics context to use for drawing.
-     * @param theX The x-coordinate of the cross walk.
-     * @param theY The y-coordinate of the cross walk.
-     */
-    private void drawCrossWalkLines(final Graphics2D theGraphics,
-                                 final int theX, final int theY) {
-        
-        final Paint oldPaint = theGraphics.getPaint();
-        theGraphics.setPaint(Color.WHITE);
-
-        final int leftx = theX * SQUARE_SIZE;
-        final int topy = theY * SQUARE_SIZE;
-
-        final int rightx = leftx + SQUARE_SIZE;
-        final int bottomy = topy + SQUARE_SIZE;
-
-        if (isValidIndex(theY - 1, theX) && myGrid[theY - 1][theX] == Terrain.GRASS) {
-            // GRASS is above. Let's assume GRASS is also below.
-            // DRAW lines on left and right of light
-            theGraphics.drawLine(leftx  + (int) (SQUARE_SIZE * CROSSWALK_SCALE), topy,
-                                 leftx  + (int) (SQUARE_SIZE * CROSSWALK_SCALE), bottomy);
-            theGraphics.drawLine(rightx - (int) (SQUARE_SIZE * CROSSWALK_SCALE), topy,
-                                 rightx - (int) (SQUARE_SIZE * CROSSWALK_SCALE), bottomy);
-        }
-        
-
-        if (isValidIndex(theY, theX - 1) && myGrid[theY][theX - 1] == Terrain.GRASS) {
-            // GRASS is left. Let's assume GRASS is also right.
-            // DRAW lines above and below light
-            theGraphics.drawLine(leftx, topy + (int) (SQUARE_SIZE * CROSSWALK_SCALE),
-                                 rightx, topy + (int) (SQUARE_SIZE * CROSSWALK_SCALE));
-            theGraphics.drawLine(leftx, bottomy - (int) (SQUARE_SIZE * CROSSWALK_SCALE),
-                                 rightx, bottomy - (int) (SQUARE_SIZE * CROSSWALK_SCALE));
+    @Override
+    public void propertyChange(final PropertyChangeEvent theEvent) {
+        synchronized (myDirty) {
+            switch (theEvent.getPropertyName()) {
+                case PropertyChangeEnabledRoadRageControls.PROPERTY_GRID:
+                case PropertyChangeEnabledRoadRageControls.PROPERTY_SIGNALS:
+                    myDirty.addAll();
+                    break;
+                case PropertyChangeEnabledRoadRageControls.PROPERTY_LIGHT:
+                    if (theEvent.getNewValue() != myWorld.light()) {
+                        addLights(myWorld.grid());
+                    }
+                    break;
+                case PropertyChangeEnabledRoadRageControls.PROPERTY_TIME:
+                    addTimeLabel(myWorld.timeStep(), (Long) theEvent.getNewValue());
+                    if (!myWorld.signals().isUniform()) {
+                        addLights(myWorld.grid());
+                    }
+                    break;
+                case PropertyChangeEnabledRoadRageControls.PROPERTY_VEHICLE_DELTA:
+                    addChanges((VehicleDelta) theEvent.getNewValue());
+                    break;
+                default:
+                    break;
+            }
         }
-
-        theGraphics.setPaint(oldPaint);
+        myWorld.update(theEvent);
+        scheduleFlush();
     }
     
     /**
-     * Draws dotted lines on streets.
+     * Adds to the dirty region the old and new squares of the vehicles in a delta. A 
+     * full delta makes the whole panel dirty.
      * 
-     * @param theGraphics The Graphics context to use for drawing.
-     * @param theX The x-coordinate of the street.
-     * @param theY The y-coordinate of the street.
+     * @param theDelta the delta, not yet applied to the state kept from events
      */
-    private void drawStreetLines(final Graphics2D theGraphics,
-                                 final int theX, final int theY) {
-        
-        final Paint oldPaint = theGraphics.getPaint();
-        theGraphics.setPaint(Color.YELLOW);
-
-        final int leftx = theX * SQUARE_SIZE;
-        final int topy = theY * SQUARE_SIZE;
-        final int centerx = leftx + SQUARE_SIZE / 2;
-        final int centery = topy + SQUARE_SIZE / 2;
-        final int rightx = leftx + SQUARE_SIZE;
-        final int bottomy = topy + SQUARE_SIZE;
-
-        if (isValidIndex(theY - 1, theX) && myGrid[theY - 1][theX] == Terrain.STREET) {
-            theGraphics.drawLine(centerx, centery, centerx, topy); // above
-        }
-        if (isValidIndex(theY + 1, theX) && myGrid[theY + 1][theX] == Terrain.STREET) {
-            theGraphics.drawLine(centerx, centery, centerx, bottomy); // below
+    private void addChanges(final VehicleDelta theDelta) {
+        if (theDelta.isFull() || theDelta.vehicleCount() != myWorld.size()) {
+            myDirty.addAll();
+            return;
         }
-        if (isValidIndex(theY, theX - 1) && myGrid[theY][theX - 1] == Terrain.STREET) {
-            theGraphics.drawLine(centerx, centery, leftx, centery); // left
-        }
-        if (isValidIndex(theY, theX + 1) && myGrid[theY][theX + 1] == Terrain.STREET) {
-            theGraphics.drawLine(centerx, centery, rightx, centery); // right
-        }
-
-        theGraphics.setPaint(oldPaint);
-    }
-    
-    /**
-     * Tests whether the square at the given x/y position exists on the map.
-     * 
-     * @param theX The x position.
-     * @param theY The y position.
-     * @return true if the position exists on the map, false otherwise.
-     */
-    private boolean isValidIndex(final int theY, final int theX) {
-        return 0 <= theY && theY < myGrid.length
-            && 0 <= theX && theX < myGrid[theY].length;
-    }
-
-    @Override
-    public void propertyChange(final PropertyChangeEvent theEvent) {
-        switch (theEvent.getPropertyName()) {
-            case PROPERTY_GRID:
-                myGrid = (Terrain[][]) theEvent.getNewValue();
-                repaint();
-                break;
-            case PROPERTY_LIGHT:
-                setLightColor((Light) theEvent.getNewValue());
-                repaint();
-                break;
-            case PROPERTY_VEHICLES:
-                @SuppressWarnings("unchecked") 
-                final List<Vehicle> list = (List<Vehicle>) theEvent.getNewValue();
-                myVehicles = new ArrayList<>(list);
-                repaint();
-                break;
-            case PROPERTY_TIME:
-                myTimestep = (Long) theEvent.getNewValue();
-                repaint();
-                break;
-            default:
-                break;  
-            
+        for (int i = 0; i < theDelta.size(); i++) {
+            final int id = theDelta.id(i);
+            myDirty.add(vehicleBounds(myWorld.kind(id), myWorld.x(id), myWorld.y(id),
+                                      myWorld.direction(id)));
+            final int kind = theDelta.kind(i);
+            myDirty.add(vehicleBounds(kind < 0 ? null : KINDS[kind],
+                                      theDelta.x(i), theDelta.y(i),
+                                      DIRECTIONS[theDelta.direction(i)]));
         }
     }
 
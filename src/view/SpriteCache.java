@@ -0,0 +1,235 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package view;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+import model.Direction;
+import model.VehicleKind;
+
+/**
+ * The vehicle images drawn by the panel, decoded once and kept as images compatible
+ * with the screen so that drawing them never touches the disk or decodes anything.
+ *
+ * Every image is kept at each size asked for, both as drawn in its file and turned to
+ * face each Direction, taking the image in the file to face north.
+ *
+ * @version 1 OCT 2018
+ */
+public final class SpriteCache {
+
+    /**
+     * The number of variants of each image at one size: as in the file, then facing
+     * each Direction.
+     */
+    private static final int VARIANTS = Direction.values().length + 1;
+
+    /**
+     * The image files, indexed by image number.
+     */
+    private static final String[] FILE_NAMES = fileNames();
+
+    /**
+     * The directory the image files are read from.
+     */
+    private final String myDirectory;
+
+    /**
+     * The decoded images, indexed by image number, once loaded.
+     */
+    private final CompletableFuture<BufferedImage[]> mySources;
+
+    /**
+     * The variants of every image, by size in pixels.
+     */
+    private final Map<Integer, Image[]> mySprites;
+
+    /**
+     * Creates a cache of the images in the given directory, and starts decoding them on
+     * a background thread.
+     *
+     * @param theDirectory the directory holding the vehicle image files
+     */
+    public SpriteCache(final String theDirectory) {
+        myDirectory = theDirectory;
+        mySprites = new ConcurrentHashMap<>();
+        mySources = CompletableFuture.supplyAsync(this::loadSources);
+    }
+
+    /**
+     * Prepares the images at the given sizes on a background thread, so that the first
+     * paint at those sizes does not have to.
+     *
+     * @param theSizes the sizes in pixels
+     * @return a future completed once the images are ready
+     */
+    public CompletableFuture<Void> preload(final int... theSizes) {
+        return mySources.thenAccept(theSources -> {
+            for (final int size : theSizes) {
+                sprites(size);
+            }
+        });
+    }
+
+    /**
+     * Returns the image of a vehicle, scaled to a square of the given size. Waits for
+     * the images to be decoded if they are not yet.
+     *
+     * @param theKind the kind of vehicle
+     * @param theAlive whether the vehicle is alive
+     * @param theFacing the direction the image should face, or null for the image as
+     *                  drawn in its file
+     * @param theSize the width and height in pixels
+     * @return the image
+     */
+    public Image get(final VehicleKind theKind, final boolean theAlive,
+                     final Direction theFacing, final int theSize) {
+        final int variant = theFacing == null ? 0 : theFacing.ordinal() + 1;
+        return sprites(theSize)[imageNumber(theKind, theAlive) * VARIANTS + variant];
+    }
+
+    /**
+     * Returns every variant of every image at a size, creating them the first time.
+     *
+     * @param theSize the size in pixels
+     * @return the variants, indexed by image number times VARIANTS plus variant
+     */
+    private Image[] sprites(final int theSize) {
+        Image[] result = mySprites.get(theSize);
+        if (result == null) {
+            result = mySprites.computeIfAbsent(theSize, this::createSprites);
+        }
+        return result;
+    }
+
+    /**
+     * Scales and turns every image to a size.
+     *
+     * @param theSize the size in pixels
+     * @return the variants, indexed by image number times VARIANTS plus variant
+     */
+    private Image[] createSprites(final int theSize) {
+        final BufferedImage[] sources = mySources.join();
+        final Direction[] directions = Direction.values();
+        final Image[] result = new Image[sources.length * VARIANTS];
+        for (int i = 0; i < sources.length; i++) {
+            result[i * VARIANTS] = render(sources[i], theSize, 0);
+            for (final Direction dir : directions) {
+                // clockwise angle from north, the way the file's image faces
+                final double angle = Math.atan2(dir.dx(), -dir.dy());
+                result[i * VARIANTS + dir.ordinal() + 1] = render(sources[i], theSize, angle);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Draws an image into a new compatible image of the given size, turned clockwise
+     * about its center.
+     *
+     * @param theSource the image
+     * @param theSize the size in pixels
+     * @param theAngle the clockwise angle in radians
+     * @return the new image
+     */
+    private static Image render(final BufferedImage theSource, final int theSize,
+                                final double theAngle) {
+        final BufferedImage result = createCompatibleImage(theSize);
+        final Graphics2D g2 = result.createGraphics();
+        g2.rotate(theAngle, theSize / 2.0, theSize / 2.0);
+        g2.drawImage(theSource, 0, 0, theSize, theSize, null);
+        g2.dispose();
+        return result;
+    }
+
+    /**
+     * Creates a translucent image in the format of the screen, or a plain ARGB image
+     * when there is no screen.
+     *
+     * @param theSize the width and height in pixels
+     * @return the new image
+     */
+    private static BufferedImage createCompatibleImage(final int theSize) {
+        final BufferedImage result;
+        if (GraphicsEnvironment.isHeadless()) {
+            result = new BufferedImage(theSize, theSize, BufferedImage.TYPE_INT_ARGB);
+        } else {
+            final GraphicsConfiguration config = GraphicsEnvironment
+                            .getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                            .getDefaultConfiguration();
+            result = config.createCompatibleImage(theSize, theSize, Transparency.TRANSLUCENT);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes every image file. A file that cannot be read becomes an empty image, which
+     * draws nothing.
+     *
+     * @return the images, indexed by image number
+     */
+    private BufferedImage[] loadSources() {
+        final BufferedImage[] result = new BufferedImage[FILE_NAMES.length];
+        for (int i = 0; i < FILE_NAMES.length; i++) {
+            BufferedImage image = null;
+            try {
+                final File file = new File(myDirectory, FILE_NAMES[i]);
+                if (file.isFile()) {
+                    image = ImageIO.read(file);
+                } else {
+                    final URL resource = getClass().getResource(myDirectory + '/'
+                                                                + FILE_NAMES[i]);
+                    if (resource != null) {
+                        image = ImageIO.read(resource);
+                    }
+                }
+            } catch (final IOException ioe) {
+                image = null;
+            }
+            if (image == null) {
+                image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+            }
+            result[i] = image;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of the image of a vehicle.
+     *
+     * @param theKind the kind of vehicle
+     * @param theAlive whether the vehicle is alive
+     * @return the image number
+     */
+    private static int imageNumber(final VehicleKind theKind, final boolean theAlive) {
+        return theKind.ordinal() * 2 + (theAlive ? 0 : 1);
+    }
+
+    /**
+     * Lists the image file names by image number.
+     *
+     * @return the file names
+     */
+    private static String[] fileNames() {
+        final VehicleKind[] kinds = VehicleKind.values();
+        final String[] result = new String[kinds.length * 2];
+        for (final VehicleKind kind : kinds) {
+            result[imageNumber(kind, true)] = kind.imageFileName(true);
+            result[imageNumber(kind, false)] = kind.imageFileName(false);
+        }
+        return result;
+    }
+}
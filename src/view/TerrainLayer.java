@@ -0,0 +1,501 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import model.SignalPlan;
+import model.Terrain;
+import model.TerrainGrid;
+
+/**
+ * The terrain of a grid drawn once into images, so that painting it costs a few image
+ * copies however much terrain there is.
+ *
+ * The grid is cut into square tiles, each drawn the first time it is painted and kept
+ * for as long as it is among the most recently painted. Everything but the lights is in
+ * the tiles. The lights are drawn over them each time they are painted, so that the
+ * tiles stay good when the light changes. A grid is never changed once it is drawn;
+ * a new grid needs a new layer.
+ *
+ * Squares too small to show them are drawn without lines, and their lights as squares.
+ *
+ * @version 1 OCT 2018
+ */
+public final class TerrainLayer {
+
+    /**
+     * The stroke used for the lines on streets and cross walks.
+     */
+    private static final BasicStroke STROKE = new BasicStroke(3, BasicStroke.CAP_BUTT,
+                                                              BasicStroke.JOIN_MITER, 2,
+                                                              new float[] {2, 2, 2, 2}, 0);
+
+    /**
+     * The offset to use to position cross walk lines and to use for cross walk light size.
+     */
+    private static final double CROSSWALK_SCALE = .25;
+
+    /**
+     * The smallest square size at which lines and round lights are drawn. Smaller
+     * squares are plain blocks of color.
+     */
+    private static final int MIN_DETAIL_SIZE = 8;
+
+    /**
+     * The width and height in pixels a tile is kept close to.
+     */
+    private static final int TILE_PIXELS = 256;
+
+    /**
+     * The number of tiles kept before the least recently painted are dropped.
+     */
+    private static final int MAX_TILES = 192;
+
+    /**
+     * The grid.
+     */
+    private final TerrainGrid myGrid;
+
+    /**
+     * The size in pixels of a side of one square of the grid.
+     */
+    private final int mySquareSize;
+
+    /**
+     * The color of the squares without terrain drawn on them.
+     */
+    private final Color myBackground;
+
+    /**
+     * The number of squares along a side of a tile.
+     */
+    private final int myTileSquares;
+
+    /**
+     * The drawn tiles, by tile number, least recently painted first.
+     */
+    private final Map<Integer, Tile> myTiles;
+
+    /**
+     * A few rectangles covering every light, once found.
+     */
+    private volatile List<Rectangle> myLightRegions;
+
+    /**
+     * Creates a layer for a grid. No drawing happens until it is painted.
+     *
+     * @param theGrid the grid, which must not change from now on
+     * @param theSquareSize the size in pixels of a side of one square
+     * @param theBackground the color of squares without terrain drawn on them
+     */
+    public TerrainLayer(final TerrainGrid theGrid, final int theSquareSize,
+                        final Color theBackground) {
+        if (theSquareSize <= 0) {
+            throw new IllegalArgumentException("square size must be positive: "
+                                               + theSquareSize);
+        }
+        myGrid = theGrid;
+        mySquareSize = theSquareSize;
+        myBackground = theBackground;
+        myTileSquares = Math.max(1, TILE_PIXELS / theSquareSize);
+        myTiles = new LinkedHashMap<>(MAX_TILES, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, Tile> theEldest) {
+                return size() > MAX_TILES;
+            }
+        };
+    }
+
+    /**
+     * Returns the grid this layer draws.
+     *
+     * @return the grid
+     */
+    public TerrainGrid getGrid() {
+        return myGrid;
+    }
+
+    /**
+     * Returns the size in pixels of a side of one square.
+     *
+     * @return the square size
+     */
+    public int getSquareSize() {
+        return mySquareSize;
+    }
+
+    /**
+     * Returns a few rectangles covering every light, which are all that needs painting
+     * again when the light changes. The grid is searched for lights the first time.
+     *
+     * @return the rectangles, in the coordinates of the grid's pixels
+     */
+    List<Rectangle> lightRegions() {
+        List<Rectangle> result = myLightRegions;
+        if (result == null) {
+            final DirtyRegion region = new DirtyRegion();
+            for (int y = 0; y < myGrid.getHeight(); y++) {
+                for (int x = 0; x < myGrid.getWidth(); x++) {
+                    final Terrain terrain = myGrid.get(x, y);
+                    if (terrain == Terrain.LIGHT || terrain == Terrain.CROSSWALK) {
+                        region.add(x * mySquareSize, y * mySquareSize,
+                                   mySquareSize, mySquareSize);
+                    }
+                }
+            }
+            result = region.rectangles();
+            myLightRegions = result;
+        }
+        return result;
+    }
+
+    /**
+     * Paints the terrain inside the clip of a graphics context, with the lights in a
+     * color.
+     *
+     * @param theGraphics the graphics context, in the coordinates of the grid's pixels
+     * @param theLightColor the color of the lights
+     */
+    public void paint(final Graphics2D theGraphics, final Color theLightColor) {
+        paint(theGraphics, theLightColor, null, 0, null);
+    }
+
+    /**
+     * Paints the terrain inside the clip of a graphics context, with each light in the
+     * color of its signal group's light at a time step.
+     *
+     * @param theGraphics the graphics context, in the coordinates of the grid's pixels
+     * @param theSignals the signals, the size of the grid
+     * @param theTimeStep the time step
+     * @param theColors the color of each Light ordinal
+     */
+    public void paint(final Graphics2D theGraphics, final SignalPlan theSignals,
+                      final long theTimeStep, final Color[] theColors) {
+        paint(theGraphics, null, theSignals, theTimeStep, theColors);
+    }
+
+    /**
+     * Paints the terrain inside the clip of a graphics context.
+     *
+     * @param theGraphics the graphics context, in the coordinates of the grid's pixels
+     * @param theLightColor the color of every light, if there are no signals
+     * @param theSignals the signals, or null to paint every light in one color
+     * @param theTimeStep the time step of the signals
+     * @param theColors the color of each Light ordinal of the signals
+     */
+    private void paint(final Graphics2D theGraphics, final Color theLightColor,
+                       final SignalPlan theSignals, final long theTimeStep,
+                       final Color[] theColors) {
+        final int tileSize = myTileSquares * mySquareSize;
+        final int tilesAcross = (myGrid.getWidth() + myTileSquares - 1) / myTileSquares;
+        final int tilesDown = (myGrid.getHeight() + myTileSquares - 1) / myTileSquares;
+
+        Rectangle clip = theGraphics.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, tilesAcross * tileSize, tilesDown * tileSize);
+        }
+        final int firstColumn = Math.max(0, clip.x / tileSize);
+        final int firstRow = Math.max(0, clip.y / tileSize);
+        final int lastColumn = Math.min(tilesAcross - 1, (clip.x + clip.width - 1) / tileSize);
+        final int lastRow = Math.min(tilesDown - 1, (clip.y + clip.height - 1) / tileSize);
+
+        final Color oldColor = theGraphics.getColor();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                final Tile tile = tile(column, row, tilesAcross);
+                theGraphics.drawImage(tile.myImage, column * tileSize, row * tileSize, null);
+                if (theSignals == null) {
+                    theGraphics.setColor(theLightColor);
+                }
+                paintLights(theGraphics, tile, column, row, theSignals, theTimeStep,
+                            theColors);
+            }
+        }
+        theGraphics.setColor(oldColor);
+    }
+
+    /**
+     * Paints the lights of a tile.
+     *
+     * @param theGraphics the graphics context
+     * @param theTile the tile
+     * @param theColumn the column of the tile
+     * @param theRow the row of the tile
+     * @param theSignals the signals, or null to paint the lights in the current color
+     * @param theTimeStep the time step of the signals
+     * @param theColors the color of each Light ordinal of the signals
+     */
+    private void paintLights(final Graphics2D theGraphics, final Tile theTile,
+                             final int theColumn, final int theRow,
+                             final SignalPlan theSignals, final long theTimeStep,
+                             final Color[] theColors) {
+        if (theTile.myLights.length == 0) {
+            return;
+        }
+        final Object oldHint = theGraphics.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+        theGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                     RenderingHints.VALUE_ANTIALIAS_ON);
+        final int inset = (int) (mySquareSize * CROSSWALK_SCALE);
+        for (final int light : theTile.myLights) {
+            final int square = light >>> 1;
+            final int x = theColumn * myTileSquares + square % myTileSquares;
+            final int y = theRow * myTileSquares + square / myTileSquares;
+            if (theSignals != null) {
+                theGraphics.setColor(theColors[theSignals.lightAt(x, y, theTimeStep)
+                                               .ordinal()]);
+            }
+            final int leftx = x * mySquareSize;
+            final int topy = y * mySquareSize;
+            if (mySquareSize < MIN_DETAIL_SIZE) {
+                theGraphics.fillRect(leftx, topy, mySquareSize, mySquareSize);
+            } else if ((light & 1) == 0) {
+                theGraphics.fillOval(leftx, topy, mySquareSize, mySquareSize);
+            } else {
+                // a small circle centered in a cross walk
+                theGraphics.fillOval(leftx + inset, topy + inset,
+                                     mySquareSize / 2, mySquareSize / 2);
+            }
+        }
+        theGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, oldHint);
+    }
+
+    /**
+     * Returns a tile, drawing it if it is not kept.
+     *
+     * @param theColumn the column of the tile
+     * @param theRow the row of the tile
+     * @param theTilesAcross the number of columns of tiles
+     * @return the tile
+     */
+    private Tile tile(final int theColumn, final int theRow, final int theTilesAcross) {
+        final Integer number = theRow * theTilesAcross + theColumn;
+        Tile result = myTiles.get(number);
+        if (result == null) {
+            result = drawTile(theColumn, theRow);
+            myTiles.put(number, result);
+        }
+        return result;
+    }
+
+    /**
+     * Draws the terrain of a tile, without its lights.
+     *
+     * @param theColumn the column of the tile
+     * @param theRow the row of the tile
+     * @return the tile
+     */
+    private Tile drawTile(final int theColumn, final int theRow) {
+        final int tileSize = myTileSquares * mySquareSize;
+        final BufferedImage image = createCompatibleImage(tileSize);
+        final Graphics2D g2 = image.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                            RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setStroke(STROKE);
+        g2.setColor(myBackground);
+        g2.fillRect(0, 0, tileSize, tileSize);
+        g2.translate(-theColumn * tileSize, -theRow * tileSize);
+
+        final int[] lights = new int[myTileSquares * myTileSquares];
+        int lightCount = 0;
+        final int left = theColumn * myTileSquares;
+        final int top = theRow * myTileSquares;
+        final int right = Math.min(myGrid.getWidth(), left + myTileSquares);
+        final int bottom = Math.min(myGrid.getHeight(), top + myTileSquares);
+        for (int y = top; y < bottom; y++) {
+            for (int x = left; x < right; x++) {
+                final Terrain terrain = myGrid.get(x, y);
+                drawSquare(g2, terrain, x, y);
+                if (terrain == Terrain.LIGHT || terrain == Terrain.CROSSWALK) {
+                    final int square = (y - top) * myTileSquares + x - left;
+                    lights[lightCount++] = square << 1
+                                           | (terrain == Terrain.CROSSWALK ? 1 : 0);
+                }
+            }
+        }
+        g2.dispose();
+        return new Tile(image, Arrays.copyOf(lights, lightCount));
+    }
+
+    /**
+     * Draws one square of terrain, without its light.
+     *
+     * @param theGraphics the graphics context
+     * @param theTerrain the terrain of the square
+     * @param theX the x-coordinate of the square
+     * @param theY the y-coordinate of the square
+     */
+    private void drawSquare(final Graphics2D theGraphics, final Terrain theTerrain,
+                            final int theX, final int theY) {
+        final int leftx = theX * mySquareSize;
+        final int topy = theY * mySquareSize;
+
+        switch (theTerrain) {
+            case STREET:
+                theGraphics.setPaint(Color.LIGHT_GRAY);
+                theGraphics.fillRect(leftx, topy, mySquareSize, mySquareSize);
+                if (mySquareSize >= MIN_DETAIL_SIZE) {
+                    drawStreetLines(theGraphics, theX, theY);
+                }
+                break;
+
+            case WALL:
+                theGraphics.setPaint(Color.BLACK);
+                theGraphics.fillRect(leftx, topy, mySquareSize, mySquareSize);
+                break;
+
+            case TRAIL:
+                theGraphics.setPaint(Color.YELLOW.darker().darker());
+                theGraphics.fillRect(leftx, topy, mySquareSize, mySquareSize);
+                break;
+
+            case LIGHT:
+                theGraphics.setPaint(Color.LIGHT_GRAY);
+                theGraphics.fillRect(leftx, topy, mySquareSize, mySquareSize);
+                break;
+
+            case CROSSWALK:
+                theGraphics.setPaint(Color.LIGHT_GRAY);
+                theGraphics.fillRect(leftx, topy, mySquareSize, mySquareSize);
+                if (mySquareSize >= MIN_DETAIL_SIZE) {
+                    drawCrossWalkLines(theGraphics, theX, theY);
+                }
+                break;
+
+            default:
+        }
+    }
+
+    /**
+     * Draws dotted lines on cross walks.
+     *
+     * @param theGraphics The Graphics context to use for drawing.
+     * @param theX The x-coordinate of the cross walk.
+     * @param theY The y-coordinate of the cross walk.
+     */
+    private void drawCrossWalkLines(final Graphics2D theGraphics,
+                                    final int theX, final int theY) {
+        theGraphics.setPaint(Color.WHITE);
+
+        final int leftx = theX * mySquareSize;
+        final int topy = theY * mySquareSize;
+        final int rightx = leftx + mySquareSize;
+        final int bottomy = topy + mySquareSize;
+        final int inset = (int) (mySquareSize * CROSSWALK_SCALE);
+
+        if (myGrid.isValidIndex(theX, theY - 1)
+            && myGrid.get(theX, theY - 1) == Terrain.GRASS) {
+            // GRASS is above. Let's assume GRASS is also below.
+            // DRAW lines on left and right of light
+            theGraphics.drawLine(leftx + inset, topy, leftx + inset, bottomy);
+            theGraphics.drawLine(rightx - inset, topy, rightx - inset, bottomy);
+        }
+
+        if (myGrid.isValidIndex(theX - 1, theY)
+            && myGrid.get(theX - 1, theY) == Terrain.GRASS) {
+            // GRASS is left. Let's assume GRASS is also right.
+            // DRAW lines above and below light
+            theGraphics.drawLine(leftx, topy + inset, rightx, topy + inset);
+            theGraphics.drawLine(leftx, bottomy - inset, rightx, bottomy - inset);
+        }
+    }
+
+    /**
+     * Draws dotted lines on streets.
+     *
+     * @param theGraphics The Graphics context to use for drawing.
+     * @param theX The x-coordinate of the street.
+     * @param theY The y-coordinate of the street.
+     */
+    private void drawStreetLines(final Graphics2D theGraphics,
+                                 final int theX, final int theY) {
+        theGraphics.setPaint(Color.YELLOW);
+
+        final int leftx = theX * mySquareSize;
+        final int topy = theY * mySquareSize;
+        final int centerx = leftx + mySquareSize / 2;
+        final int centery = topy + mySquareSize / 2;
+        final int rightx = leftx + mySquareSize;
+        final int bottomy = topy + mySquareSize;
+
+        if (myGrid.isValidIndex(theX, theY - 1)
+            && myGrid.get(theX, theY - 1) == Terrain.STREET) {
+            theGraphics.drawLine(centerx, centery, centerx, topy); // above
+        }
+        if (myGrid.isValidIndex(theX, theY + 1)
+            && myGrid.get(theX, theY + 1) == Terrain.STREET) {
+            theGraphics.drawLine(centerx, centery, centerx, bottomy); // below
+        }
+        if (myGrid.isValidIndex(theX - 1, theY)
+            && myGrid.get(theX - 1, theY) == Terrain.STREET) {
+            theGraphics.drawLine(centerx, centery, leftx, centery); // left
+        }
+        if (myGrid.isValidIndex(theX + 1, theY)
+            && myGrid.get(theX + 1, theY) == Terrain.STREET) {
+            theGraphics.drawLine(centerx, centery, rightx, centery); // right
+        }
+    }
+
+    /**
+     * Creates an opaque image in the format of the screen, or a plain RGB image when
+     * there is no screen.
+     *
+     * @param theSize the width and height in pixels
+     * @return the new image
+     */
+    private static BufferedImage createCompatibleImage(final int theSize) {
+        final BufferedImage result;
+        if (GraphicsEnvironment.isHeadless()) {
+            result = new BufferedImage(theSize, theSize, BufferedImage.TYPE_INT_RGB);
+        } else {
+            final GraphicsConfiguration config = GraphicsEnvironment
+                            .getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                            .getDefaultConfiguration();
+            result = config.createCompatibleImage(theSize, theSize, Transparency.OPAQUE);
+        }
+        return result;
+    }
+
+    /**
+     * A drawn tile and where its lights are.
+     */
+    private static final class Tile {
+
+        /**
+         * The drawn terrain.
+         */
+        private final BufferedImage myImage;
+
+        /**
+         * The lights, each the number of its square within the tile, row by row,
+         * shifted left once and with the low bit set for a cross walk.
+         */
+        private final int[] myLights;
+
+        /**
+         * Creates a tile.
+         *
+         * @param theImage the drawn terrain
+         * @param theLights the lights
+         */
+        Tile(final BufferedImage theImage, final int[] theLights) {
+            myImage = theImage;
+            myLights = theLights;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package view.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import logic.VehicleRecords;
+import model.Direction;
+import model.SignalPlan;
+import model.TerrainGrid;
+import model.VehicleKind;
+
+/**
+ * The binary city map format, read without any parsing.
+ *
+ * A file is a header, the terrain and a table of vehicles, all big-endian:
+ * <pre>
+ *  0  int   MAGIC, "RRMP"
+ *  4  short VERSION
+ *  6  short HEADER_BYTES, the offset of the terrain
+ *  8  int   columns
+ * 12  int   rows
+ * 16  int   vehicles
+ * 20  byte  TERRAIN_NIBBLES, the terrain encoding
+ * 21  byte  RECORD_BYTES, the size of one vehicle record
+ * 22  short zero
+ * 24  long  the size of the terrain in bytes
+ * </pre>
+ * The terrain is the Terrain ordinal of every cell, row-major, packed two to a byte with
+ * even cells in the low four bits. Each vehicle record is its VehicleKind ordinal and
+ * Direction ordinal as bytes, two zero bytes, then its x and y as ints.
+ *
+ * From version 2 the vehicles are followed by the traffic signals: the number G of
+ * signal groups after the city-wide group 0 as an int, the offset, green, yellow and red
+ * ticks of groups 1 to G as ints, then an int that is 0 if every cell is in group 0 and
+ * otherwise 1 followed by the group of every cell, row-major, as shorts. A version 1
+ * file has no signals.
+ *
+ * @version 1 OCT 2018
+ */
+final class BinaryCityMap {
+
+    /**
+     * The first four bytes of every binary city map file.
+     */
+    static final int MAGIC = 'R' << 24 | 'R' << 16 | 'M' << 8 | 'P';
+
+    /**
+     * The version of the format written, and the newest read.
+     */
+    static final short VERSION = 2;
+
+    /**
+     * The size of the header in bytes.
+     */
+    static final short HEADER_BYTES = 32;
+
+    /**
+     * The terrain encoding of two cells per byte.
+     */
+    static final byte TERRAIN_NIBBLES = 1;
+
+    /**
+     * The size of one vehicle record in bytes.
+     */
+    static final byte RECORD_BYTES = 12;
+
+    /**
+     * The number of vehicle records written at once.
+     */
+    private static final int RECORDS_PER_WRITE = 4096;
+
+    /**
+     * The most bytes of terrain mapped, read or written at once.
+     */
+    private static final int CHUNK_BYTES = 1 << 26;
+
+    /**
+     * The offset of the number of columns in the header.
+     */
+    private static final int COLUMNS_OFFSET = 8;
+
+    /**
+     * The offset of the number of vehicles in the header.
+     */
+    private static final int VEHICLES_OFFSET = 16;
+
+    /**
+     * The offset of the terrain encoding in the header.
+     */
+    private static final int ENCODING_OFFSET = 20;
+
+    /**
+     * The offset of the terrain size in the header.
+     */
+    private static final int TERRAIN_SIZE_OFFSET = 24;
+
+    /**
+     * The number of ints describing one signal group.
+     */
+    private static final int GROUP_INTS = 4;
+
+    /**
+     * A private constructor, to prevent external instantiation.
+     */
+    private BinaryCityMap() { }
+
+    /**
+     * Returns whether a file starts as a binary city map file does.
+     *
+     * @param theChannel the file
+     * @return whether the file is binary
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isBinary(final FileChannel theChannel) throws IOException {
+        final ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+        theChannel.read(magic, 0);
+        return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+    }
+
+    /**
+     * Reads a binary city map file.
+     *
+     * @param theChannel the file
+     * @param theFile the file, for messages
+     * @return the map
+     * @throws IOException if the file cannot be read or is not a binary city map
+     */
+    static CityMap read(final FileChannel theChannel, final Path theFile) throws IOException {
+        final long start = System.nanoTime();
+        final long size = theChannel.size();
+        if (size < HEADER_BYTES) {
+            throw malformed(theFile, "truncated header");
+        }
+        final ByteBuffer header = theChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                 HEADER_BYTES);
+        final short version = header.getShort(Integer.BYTES);
+        if (header.getInt(0) != MAGIC) {
+            throw malformed(theFile, "not a binary city map");
+        }
+        if (version < 1 || version > VERSION) {
+            throw malformed(theFile, "unsupported version " + version);
+        }
+        final int headerBytes = header.getShort(Integer.BYTES + Short.BYTES);
+        final int columns = header.getInt(COLUMNS_OFFSET);
+        final int rows = header.getInt(COLUMNS_OFFSET + Integer.BYTES);
+        final int count = header.getInt(VEHICLES_OFFSET);
+        final long terrainBytes = header.getLong(TERRAIN_SIZE_OFFSET);
+        if (header.get(ENCODING_OFFSET) != TERRAIN_NIBBLES
+            || header.get(ENCODING_OFFSET + 1) != RECORD_BYTES) {
+            throw malformed(theFile, "unknown terrain encoding or vehicle record size");
+        }
+        if (headerBytes < HEADER_BYTES || columns < 0 || rows < 0 || count < 0) {
+            throw malformed(theFile, "bad header");
+        }
+        final TerrainGrid grid = TerrainGrid.create(columns, rows);
+        final long vehicleStart = headerBytes + terrainBytes;
+        if (terrainBytes != grid.packedBytes()
+            || vehicleStart + (long) count * RECORD_BYTES > size) {
+            throw malformed(theFile, "truncated terrain or vehicles");
+        }
+
+        for (long done = 0; done < terrainBytes; done += CHUNK_BYTES) {
+            final long length = Math.min(CHUNK_BYTES, terrainBytes - done);
+            grid.readPacked(done, theChannel.map(FileChannel.MapMode.READ_ONLY,
+                                                 headerBytes + done, length));
+        }
+        final long gridEnd = System.nanoTime();
+
+        final VehicleKind[] kinds = VehicleKind.values();
+        final Direction[] directions = Direction.values();
+        final VehicleRecords vehicles = new VehicleRecords(count);
+        final ByteBuffer table = theChannel.map(FileChannel.MapMode.READ_ONLY, vehicleStart,
+                                                (long) count * RECORD_BYTES);
+        for (int i = 0; i < count; i++) {
+            final int kind = table.get();
+            final int direction = table.get();
+            table.getShort();
+            final int x = table.getInt();
+            final int y = table.getInt();
+            if (kind < 0 || kind >= kinds.length || direction < 0
+                || direction >= directions.length) {
+                throw malformed(theFile, "vehicle " + i + " has kind " + kind
+                                         + " and direction " + direction);
+            }
+            vehicles.add(kinds[kind], x, y, directions[direction]);
+        }
+        final SignalPlan signals;
+        if (version < 2) {
+            signals = new SignalPlan(columns, rows);
+        } else {
+            signals = readSignals(theChannel, theFile, vehicleStart
+                                                       + (long) count * RECORD_BYTES,
+                                  columns, rows);
+        }
+        final long end = System.nanoTime();
+
+        return new CityMap(grid, vehicles, signals,
+                           new LoadStats(size, columns, rows, count, 1, true,
+                                         gridEnd - start, end - gridEnd, end - start));
+    }
+
+    /**
+     * Reads the traffic signals of a binary city map file.
+     *
+     * @param theChannel the file
+     * @param theFile the file, for messages
+     * @param theStart the offset of the signals
+     * @param theColumns the number of columns of the grid
+     * @param theRows the number of rows of the grid
+     * @return the signals
+     * @throws IOException if the file cannot be read or the signals are malformed
+     */
+    private static SignalPlan readSignals(final FileChannel theChannel, final Path theFile,
+                                          final long theStart, final int theColumns,
+                                          final int theRows) throws IOException {
+        final SignalPlan result = new SignalPlan(theColumns, theRows);
+        final long size = theChannel.size();
+        if (theStart + Integer.BYTES > size) {
+            throw malformed(theFile, "truncated signals");
+        }
+        final int groups = theChannel.map(FileChannel.MapMode.READ_ONLY, theStart,
+                                          Integer.BYTES).getInt();
+        final long cellsFlag = theStart + Integer.BYTES
+                               + (long) groups * GROUP_INTS * Integer.BYTES;
+        if (groups < 0 || groups >= SignalPlan.MAX_GROUPS
+            || cellsFlag + Integer.BYTES > size) {
+            throw malformed(theFile, "truncated or bad signal groups");
+        }
+        final ByteBuffer table = theChannel.map(FileChannel.MapMode.READ_ONLY,
+                                                theStart + Integer.BYTES,
+                                                cellsFlag + Integer.BYTES
+                                                - (theStart + Integer.BYTES));
+        try {
+            for (int g = 1; g <= groups; g++) {
+                result.addGroup(table.getInt(), table.getInt(), table.getInt(),
+                                table.getInt());
+            }
+            if (table.getInt() != 0) {
+                final long cells = (long) theColumns * theRows;
+                if (cellsFlag + Integer.BYTES + cells * Short.BYTES > size) {
+                    throw malformed(theFile, "truncated signal cells");
+                }
+                final long cellsPerChunk = CHUNK_BYTES / Short.BYTES;
+                for (long done = 0; done < cells; done += cellsPerChunk) {
+                    final long length = Math.min(cellsPerChunk, cells - done);
+                    final ByteBuffer chunk = theChannel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        cellsFlag + Integer.BYTES + done * Short.BYTES,
+                        length * Short.BYTES);
+                    for (long cell = done; cell < done + length; cell++) {
+                        result.setGroup((int) (cell % theColumns), (int) (cell / theColumns),
+                                        chunk.getShort());
+                    }
+                }
+            }
+        } catch (final IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw malformed(theFile, e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Writes a binary city map file, replacing any file of the same name.
+     *
+     * @param theGrid the grid
+     * @param theVehicles the vehicles
+     * @param theSignals the traffic signals, the size of the grid
+     * @param theFile the file
+     * @throws IOException if the file cannot be written
+     */
+    static void write(final TerrainGrid theGrid, final VehicleRecords theVehicles,
+                      final SignalPlan theSignals, final Path theFile) throws IOException {
+        if (theSignals.getWidth() != theGrid.getWidth()
+            || theSignals.getHeight() != theGrid.getHeight()) {
+            throw new IllegalArgumentException("Signal plan of " + theSignals.getWidth() + "x"
+                                               + theSignals.getHeight() + " for a grid of "
+                                               + theGrid.getWidth() + "x"
+                                               + theGrid.getHeight());
+        }
+        try (FileChannel channel = FileChannel.open(theFile, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long terrainBytes = theGrid.packedBytes();
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putShort(VERSION).putShort(HEADER_BYTES);
+            header.putInt(theGrid.getWidth()).putInt(theGrid.getHeight());
+            header.putInt(theVehicles.size());
+            header.put(TERRAIN_NIBBLES).put(RECORD_BYTES).putShort((short) 0);
+            header.putLong(terrainBytes);
+            header.flip();
+            writeFully(channel, header);
+
+            final ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(CHUNK_BYTES,
+                                                                        terrainBytes));
+            for (long done = 0; done < terrainBytes; done += chunk.capacity()) {
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), terrainBytes - done));
+                theGrid.writePacked(done, chunk);
+                chunk.flip();
+                writeFully(channel, chunk);
+            }
+
+            final ByteBuffer table = ByteBuffer.allocate(RECORD_BYTES * RECORDS_PER_WRITE);
+            for (int i = 0; i < theVehicles.size(); i++) {
+                table.put((byte) theVehicles.kind(i)).put((byte) theVehicles.direction(i));
+                table.putShort((short) 0).putInt(theVehicles.x(i)).putInt(theVehicles.y(i));
+                if (!table.hasRemaining()) {
+                    table.flip();
+                    writeFully(channel, table);
+                    table.clear();
+                }
+            }
+            table.flip();
+            writeFully(channel, table);
+            writeSignals(channel, theSignals);
+        }
+    }
+
+    /**
+     * Writes the traffic signals.
+     *
+     * @param theChannel the file, positioned just after the vehicles
+     * @param theSignals the signals
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeSignals(final FileChannel theChannel,
+                                     final SignalPlan theSignals) throws IOException {
+        final int groups = theSignals.getGroupCount() - 1;
+        final ByteBuffer table = ByteBuffer.allocate(Integer.BYTES * (2 + groups
+                                                                      * GROUP_INTS));
+        table.putInt(groups);
+        for (int g = 1; g <= groups; g++) {
+            table.putInt(theSignals.getOffset(g)).putInt(theSignals.getGreen(g));
+            table.putInt(theSignals.getYellow(g)).putInt(theSignals.getRed(g));
+        }
+        table.putInt(theSignals.isUniform() ? 0 : 1);
+        table.flip();
+        writeFully(theChannel, table);
+        if (!theSignals.isUniform()) {
+            final int columns = theSignals.getWidth();
+            final long cells = (long) columns * theSignals.getHeight();
+            final ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(CHUNK_BYTES,
+                                                                        cells * Short.BYTES));
+            for (long cell = 0; cell < cells; cell++) {
+                chunk.putShort((short) theSignals.getGroup((int) (cell % columns),
+                                                           (int) (cell / columns)));
+                if (!chunk.hasRemaining()) {
+                    chunk.flip();
+                    writeFully(theChannel, chunk);
+                    chunk.clear();
+                }
+            }
+            chunk.flip();
+            writeFully(theChannel, chunk);
+        }
+    }
+
+    /**
+     * Writes every remaining byte of a buffer.
+     *
+     * @param theChannel the file
+     * @param theBuffer the bytes
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFully(final FileChannel theChannel, final ByteBuffer theBuffer)
+        throws IOException {
+        while (theBuffer.hasRemaining()) {
+            theChannel.write(theBuffer);
+        }
+    }
+
+    /**
+     * Creates the exception for a file that is not a binary city map.
+     *
+     * @param theFile the file
+     * @param theProblem what is wrong with it
+     * @return the exception
+     */
+    private static IOException malformed(final Path theFile, final String theProblem) {
+        return new IOException("Malformed binary city map file " + theFile + ": "
+                               + theProblem);
+    }
+}
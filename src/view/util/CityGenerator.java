@@ -0,0 +1,638 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package view.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import model.Direction;
+import model.SignalPlan;
+import model.Terrain;
+import model.VehicleKind;
+
+/**
+ * Generates city map files of any size from a seed, in the text format FileLoader and
+ * CityMap read: a wall around a grid of streets, lights at some intersections,
+ * crosswalks beside some lights, and blocks of grass and trail, with vehicles of each
+ * kind placed on terrain they can start on. With a green wave set, each light and its
+ * crosswalks get a signal group whose phase trails its neighbors' by the time it takes
+ * to drive one block.
+ *
+ * Every cell and every vehicle is a function of the seed and its own position or
+ * number, so the map is written a row at a time without ever being held in memory, and
+ * the same settings and seed always write the same file.
+ *
+ * @version 1 OCT 2018
+ */
+public final class CityGenerator {
+
+    /**
+     * The smallest number of rows or columns: a wall around one open cell.
+     */
+    public static final int MIN_SIZE = 3;
+
+    /**
+     * The street density used unless set, one street line in six.
+     */
+    private static final double DEFAULT_STREET_DENSITY = 1.0 / 6;
+
+    /**
+     * The fraction of intersections with lights used unless set.
+     */
+    private static final double DEFAULT_LIGHT_FREQUENCY = 0.5;
+
+    /**
+     * The fraction of light approaches with crosswalks used unless set.
+     */
+    private static final double DEFAULT_CROSSWALK_FREQUENCY = 0.5;
+
+    /**
+     * The fraction of trail among the grass and trail used unless set.
+     */
+    private static final double DEFAULT_TRAIL_RATIO = 0.15;
+
+    /**
+     * The number of candidate cells drawn for a vehicle before leaving it out.
+     */
+    private static final int PLACEMENT_TRIES = 64;
+
+    /**
+     * The size of the buffer the file is written through.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The salt of the hash deciding street line offsets.
+     */
+    private static final long STREET_SALT = 1;
+
+    /**
+     * The salt of the hash deciding lights.
+     */
+    private static final long LIGHT_SALT = 2;
+
+    /**
+     * The salt of the hash deciding crosswalks.
+     */
+    private static final long CROSSWALK_SALT = 3;
+
+    /**
+     * The salt of the hash deciding trails.
+     */
+    private static final long TRAIL_SALT = 4;
+
+    /**
+     * The salt of the hash placing vehicles.
+     */
+    private static final long VEHICLE_SALT = 5;
+
+    /**
+     * The golden ratio increment of the SplitMix64 generator.
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The first multiplier of the SplitMix64 finalizer.
+     */
+    private static final long MIX_1 = 0xBF58476D1CE4E5B9L;
+
+    /**
+     * The second multiplier of the SplitMix64 finalizer.
+     */
+    private static final long MIX_2 = 0x94D049BB133111EBL;
+
+    /**
+     * The number of bits of a double's fraction.
+     */
+    private static final int DOUBLE_BITS = 53;
+
+    /**
+     * The seed.
+     */
+    private final long mySeed;
+
+    /**
+     * The number of vehicles of each kind asked for.
+     */
+    private final Map<VehicleKind, Integer> myCounts;
+
+    /**
+     * The distance between parallel streets.
+     */
+    private int myStreetPeriod;
+
+    /**
+     * The fraction of intersections with lights.
+     */
+    private double myLightFrequency;
+
+    /**
+     * The fraction of light approaches with crosswalks.
+     */
+    private double myCrosswalkFrequency;
+
+    /**
+     * The fraction of trail among the grass and trail.
+     */
+    private double myTrailRatio;
+
+    /**
+     * The ticks to drive one block of the green wave, or 0 for the city-wide light.
+     */
+    private int myWaveTicks;
+
+    /**
+     * The number of columns of the map being written.
+     */
+    private int myWidth;
+
+    /**
+     * The number of rows of the map being written.
+     */
+    private int myHeight;
+
+    /**
+     * The first street column of the map being written.
+     */
+    private int myStreetX;
+
+    /**
+     * The first street row of the map being written.
+     */
+    private int myStreetY;
+
+    /**
+     * Creates a generator with the default settings and no vehicles.
+     *
+     * @param theSeed the seed
+     */
+    public CityGenerator(final long theSeed) {
+        mySeed = theSeed;
+        myCounts = new EnumMap<>(VehicleKind.class);
+        setStreetDensity(DEFAULT_STREET_DENSITY);
+        setLightFrequency(DEFAULT_LIGHT_FREQUENCY);
+        setCrosswalkFrequency(DEFAULT_CROSSWALK_FREQUENCY);
+        setTrailRatio(DEFAULT_TRAIL_RATIO);
+    }
+
+    /**
+     * Sets how densely streets cross the map: the fraction of rows, and of columns, that
+     * are streets, rounded to a whole distance of at least two between streets.
+     *
+     * @param theDensity the fraction, greater than 0 and at most 1/2
+     * @throws IllegalArgumentException if the fraction is out of range
+     */
+    public void setStreetDensity(final double theDensity) {
+        if (!(theDensity > 0 && theDensity <= 0.5)) {
+            throw new IllegalArgumentException("Street density " + theDensity
+                                               + " is not in (0, 0.5]");
+        }
+        myStreetPeriod = (int) Math.max(2, Math.min(Integer.MAX_VALUE / 2,
+                                                    Math.round(1 / theDensity)));
+    }
+
+    /**
+     * Sets the fraction of intersections that have lights; the others are plain street.
+     *
+     * @param theFrequency the fraction, from 0 to 1
+     * @throws IllegalArgumentException if the fraction is out of range
+     */
+    public void setLightFrequency(final double theFrequency) {
+        myLightFrequency = fraction(theFrequency, "Light frequency");
+    }
+
+    /**
+     * Sets the fraction of the street cells beside a light that are crosswalks.
+     *
+     * @param theFrequency the fraction, from 0 to 1
+     * @throws IllegalArgumentException if the fraction is out of range
+     */
+    public void setCrosswalkFrequency(final double theFrequency) {
+        myCrosswalkFrequency = fraction(theFrequency, "Crosswalk frequency");
+    }
+
+    /**
+     * Sets the fraction of the cells between streets that are trail; the others are
+     * grass.
+     *
+     * @param theRatio the fraction, from 0 to 1
+     * @throws IllegalArgumentException if the fraction is out of range
+     */
+    public void setTrailRatio(final double theRatio) {
+        myTrailRatio = fraction(theRatio, "Trail ratio");
+    }
+
+    /**
+     * Sets up a green wave: each light is offset from the one a block west or north of it
+     * by the given number of ticks, so that traffic driving east or south at that pace
+     * keeps meeting green. The lights keep the city-wide durations.
+     *
+     * @param theTicksPerBlock the ticks between neighboring lights, or 0 for one light
+     *            for the whole city
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public void setGreenWave(final int theTicksPerBlock) {
+        if (theTicksPerBlock < 0) {
+            throw new IllegalArgumentException("Negative green wave " + theTicksPerBlock);
+        }
+        myWaveTicks = theTicksPerBlock;
+    }
+
+    /**
+     * Sets the number of vehicles of a kind to place. A vehicle is left out if no cell
+     * it can start on is found for it, as on a map without grass for a Human.
+     *
+     * @param theKind the kind
+     * @param theCount the number, at least 0
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public void setVehicleCount(final VehicleKind theKind, final int theCount) {
+        if (theCount < 0) {
+            throw new IllegalArgumentException("Negative count " + theCount + " of "
+                                               + theKind);
+        }
+        myCounts.put(theKind, theCount);
+    }
+
+    /**
+     * Writes a map, replacing any file of the same name.
+     *
+     * @param theWidth the number of columns, at least MIN_SIZE
+     * @param theHeight the number of rows, at least MIN_SIZE
+     * @param theFile the file
+     * @return the number of vehicles written
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the map is too small
+     */
+    public int write(final int theWidth, final int theHeight, final Path theFile)
+        throws IOException {
+        if (theWidth < MIN_SIZE || theHeight < MIN_SIZE) {
+            throw new IllegalArgumentException("Map of " + theWidth + "x" + theHeight
+                                               + " is smaller than " + MIN_SIZE + "x"
+                                               + MIN_SIZE);
+        }
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myStreetX = 1 + (int) Long.remainderUnsigned(hash(STREET_SALT, 0, 0),
+                                                     myStreetPeriod);
+        myStreetY = 1 + (int) Long.remainderUnsigned(hash(STREET_SALT, 1, 0),
+                                                     myStreetPeriod);
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(theFile),
+                                                         BUFFER_SIZE)) {
+            writeLine(out, theHeight + " " + theWidth);
+            final byte[] row = new byte[theWidth + 1];
+            row[theWidth] = '\n';
+            for (int y = 0; y < theHeight; y++) {
+                for (int x = 0; x < theWidth; x++) {
+                    row[x] = (byte) terrainAt(x, y).letter();
+                }
+                out.write(row);
+            }
+
+            // place every vehicle once to count those that fit, then again to write them
+            final int count = placeVehicles(null);
+            writeLine(out, Integer.toString(count));
+            placeVehicles(out);
+            if (myWaveTicks > 0) {
+                writeSignals(out);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Returns the Terrain of a cell of the map being written.
+     *
+     * @param theX the column
+     * @param theY the row
+     * @return the Terrain
+     */
+    private Terrain terrainAt(final int theX, final int theY) {
+        final Terrain result;
+        final boolean streetX = isStreetX(theX);
+        final boolean streetY = isStreetY(theY);
+        if (theX == 0 || theY == 0 || theX == myWidth - 1 || theY == myHeight - 1) {
+            result = Terrain.WALL;
+        } else if (streetX && streetY) {
+            result = hasLight(theX, theY) ? Terrain.LIGHT : Terrain.STREET;
+        } else if (streetX && isCrosswalk(theX, theY, theX, theY - 1)
+                   || streetX && isCrosswalk(theX, theY, theX, theY + 1)
+                   || streetY && isCrosswalk(theX, theY, theX - 1, theY)
+                   || streetY && isCrosswalk(theX, theY, theX + 1, theY)) {
+            result = Terrain.CROSSWALK;
+        } else if (streetX || streetY) {
+            result = Terrain.STREET;
+        } else if (chance(hash(TRAIL_SALT, theX, theY), myTrailRatio)) {
+            result = Terrain.TRAIL;
+        } else {
+            result = Terrain.GRASS;
+        }
+        return result;
+    }
+
+    /**
+     * Places every vehicle asked for, writing those that fit if there is a stream.
+     *
+     * @param theOut the stream to write them to, or null to only count them
+     * @return the number of vehicles that fit
+     * @throws IOException if the stream cannot be written
+     */
+    private int placeVehicles(final OutputStream theOut) throws IOException {
+        final Direction[] directions = Direction.values();
+        final StringBuilder line = new StringBuilder();
+        int result = 0;
+        int number = 0;
+        for (final Map.Entry<VehicleKind, Integer> entry : myCounts.entrySet()) {
+            final VehicleKind kind = entry.getKey();
+            for (int i = 0; i < entry.getValue(); i++) {
+                number++;
+                for (int tries = 0; tries < PLACEMENT_TRIES; tries++) {
+                    final long bits = hash(VEHICLE_SALT, number, tries);
+                    final int x = candidateX(bits);
+                    final int y = candidateY(kind, x, bits >>> Integer.SIZE);
+                    if (suits(kind, terrainAt(x, y))) {
+                        result++;
+                        if (theOut != null) {
+                            line.setLength(0);
+                            line.append(kind.letter()).append(' ').append(x).append(' ')
+                                .append(y).append(' ').append(directions[
+                                    (int) Long.remainderUnsigned(bits >>> 1,
+                                                                 directions.length)]
+                                    .letter());
+                            writeLine(theOut, line.toString());
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the signal section: one group per phase offset, then the group of every
+     * light and crosswalk.
+     *
+     * @param theOut the stream
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeSignals(final OutputStream theOut) throws IOException {
+        final int duration = SignalPlan.DEFAULT_DURATION;
+        final int cycle = 3 * duration;
+        writeLine(theOut, "signals " + cycle);
+        for (int offset = 0; offset < cycle; offset++) {
+            writeLine(theOut, offset + " " + duration + " " + duration + " " + duration);
+        }
+
+        // visit every light once to count its cells, then again to write them
+        writeLine(theOut, Integer.toString(signalCells(null, cycle)));
+        signalCells(theOut, cycle);
+    }
+
+    /**
+     * Visits every light and its crosswalks, writing the group of each if there is a
+     * stream. Group k + 1 has phase offset k.
+     *
+     * @param theOut the stream to write them to, or null to only count them
+     * @param theCycle the length of a light's cycle
+     * @return the number of cells
+     * @throws IOException if the stream cannot be written
+     */
+    private int signalCells(final OutputStream theOut, final int theCycle)
+        throws IOException {
+        final Direction[] directions = Direction.values();
+        int result = 0;
+        for (int y = myStreetY; y < myHeight - 1; y += myStreetPeriod) {
+            for (int x = myStreetX; x < myWidth - 1; x += myStreetPeriod) {
+                if (!hasLight(x, y)) {
+                    continue;
+                }
+                final long blocks = (long) (x - myStreetX) / myStreetPeriod
+                                    + (y - myStreetY) / myStreetPeriod;
+                final int group = 1 + Math.floorMod(-blocks * myWaveTicks, theCycle);
+                result += signalCell(theOut, x, y, group);
+                for (final Direction dir : directions) {
+                    final int cx = x + dir.dx();
+                    final int cy = y + dir.dy();
+                    if (terrainAt(cx, cy) == Terrain.CROSSWALK) {
+                        result += signalCell(theOut, cx, cy, group);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the group of a cell if there is a stream.
+     *
+     * @param theOut the stream, or null
+     * @param theX the column
+     * @param theY the row
+     * @param theGroup the group
+     * @return 1, the number of cells visited
+     * @throws IOException if the stream cannot be written
+     */
+    private static int signalCell(final OutputStream theOut, final int theX, final int theY,
+                                  final int theGroup) throws IOException {
+        if (theOut != null) {
+            writeLine(theOut, theX + " " + theY + " " + theGroup);
+        }
+        return 1;
+    }
+
+    /**
+     * Draws the column of a candidate cell for a vehicle.
+     *
+     * @param theBits random bits
+     * @return the column
+     */
+    private int candidateX(final long theBits) {
+        return 1 + (int) Long.remainderUnsigned(theBits & 0xFFFFFFFFL, myWidth - 2);
+    }
+
+    /**
+     * Draws the row of a candidate cell for a vehicle. For kinds that start on streets,
+     * the row of a street unless the column is a street.
+     *
+     * @param theKind the kind of vehicle
+     * @param theX the column drawn
+     * @param theBits random bits
+     * @return the row
+     */
+    private int candidateY(final VehicleKind theKind, final int theX, final long theBits) {
+        final int open = myHeight - 2;
+        int result = 1 + (int) (theBits % open);
+        if (needsStreet(theKind) && !isStreetX(theX) && myStreetY < myHeight - 1) {
+            final int streets = (myHeight - 2 - myStreetY) / myStreetPeriod + 1;
+            result = myStreetY + (int) (theBits % streets) * myStreetPeriod;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether a column is a street.
+     *
+     * @param theX the column
+     * @return whether it is a street
+     */
+    private boolean isStreetX(final int theX) {
+        return theX >= myStreetX && (theX - myStreetX) % myStreetPeriod == 0;
+    }
+
+    /**
+     * Returns whether a row is a street.
+     *
+     * @param theY the row
+     * @return whether it is a street
+     */
+    private boolean isStreetY(final int theY) {
+        return theY >= myStreetY && (theY - myStreetY) % myStreetPeriod == 0;
+    }
+
+    /**
+     * Returns whether an intersection has a light.
+     *
+     * @param theX the column of the intersection
+     * @param theY the row of the intersection
+     * @return whether it has a light
+     */
+    private boolean hasLight(final int theX, final int theY) {
+        return chance(hash(LIGHT_SALT, theX, theY), myLightFrequency);
+    }
+
+    /**
+     * Returns whether a street cell beside a neighboring cell is a crosswalk: the
+     * neighbor must be an intersection with a light, inside the wall.
+     *
+     * @param theX the column of the street cell
+     * @param theY the row of the street cell
+     * @param theLightX the column of the neighbor
+     * @param theLightY the row of the neighbor
+     * @return whether the street cell is a crosswalk
+     */
+    private boolean isCrosswalk(final int theX, final int theY, final int theLightX,
+                                final int theLightY) {
+        return theLightX > 0 && theLightY > 0 && theLightX < myWidth - 1
+               && theLightY < myHeight - 1 && isStreetX(theLightX) && isStreetY(theLightY)
+               && hasLight(theLightX, theLightY)
+               && chance(hash(CROSSWALK_SALT, theX, theY), myCrosswalkFrequency);
+    }
+
+    /**
+     * Returns whether a kind of vehicle starts only on streets.
+     *
+     * @param theKind the kind of vehicle
+     * @return whether it needs a street
+     */
+    private static boolean needsStreet(final VehicleKind theKind) {
+        return theKind != VehicleKind.HUMAN && theKind != VehicleKind.ATV;
+    }
+
+    /**
+     * Returns whether a vehicle of the given kind may start on the given terrain:
+     * Humans on grass, ATVs anywhere but walls, Bicycles on streets or trails, the others
+     * on streets.
+     *
+     * @param theKind the kind of vehicle
+     * @param theTerrain the terrain
+     * @return whether it suits the kind
+     */
+    private static boolean suits(final VehicleKind theKind, final Terrain theTerrain) {
+        final boolean result;
+        switch (theKind) {
+            case HUMAN:
+                result = theTerrain == Terrain.GRASS;
+                break;
+
+            case ATV:
+                result = theTerrain != Terrain.WALL;
+                break;
+
+            case BICYCLE:
+                result = theTerrain == Terrain.STREET || theTerrain == Terrain.TRAIL;
+                break;
+
+            default:
+                result = theTerrain == Terrain.STREET;
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Hashes a salt and two numbers with the seed into 64 well-mixed bits.
+     *
+     * @param theSalt what the bits decide
+     * @param theA the first number
+     * @param theB the second number
+     * @return the bits
+     */
+    private long hash(final long theSalt, final long theA, final long theB) {
+        long z = mySeed + theSalt * GOLDEN_GAMMA;
+        z = mix(z ^ theA) + GOLDEN_GAMMA;
+        z = mix(z ^ theB);
+        return z;
+    }
+
+    /**
+     * The SplitMix64 finalizer.
+     *
+     * @param theBits the bits to mix
+     * @return the mixed bits
+     */
+    private static long mix(final long theBits) {
+        long z = theBits + GOLDEN_GAMMA;
+        z = (z ^ z >>> 30) * MIX_1;
+        z = (z ^ z >>> 27) * MIX_2;
+        return z ^ z >>> 31;
+    }
+
+    /**
+     * Returns whether random bits fall under a fraction.
+     *
+     * @param theBits the bits
+     * @param theFraction the fraction, from 0 to 1
+     * @return true with probability theFraction
+     */
+    private static boolean chance(final long theBits, final double theFraction) {
+        return (theBits >>> (Long.SIZE - DOUBLE_BITS)) * 0x1.0p-53 < theFraction;
+    }
+
+    /**
+     * Checks that a number is a fraction.
+     *
+     * @param theFraction the number
+     * @param theName what it is, for the message
+     * @return the number
+     * @throws IllegalArgumentException if it is not from 0 to 1
+     */
+    private static double fraction(final double theFraction, final String theName) {
+        if (!(theFraction >= 0 && theFraction <= 1)) {
+            throw new IllegalArgumentException(theName + " " + theFraction
+                                               + " is not in [0, 1]");
+        }
+        return theFraction;
+    }
+
+    /**
+     * Writes a line of ASCII text.
+     *
+     * @param theOut the stream
+     * @param theLine the text, without a line end
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeLine(final OutputStream theOut, final String theLine)
+        throws IOException {
+        theOut.write(theLine.getBytes(StandardCharsets.US_ASCII));
+        theOut.write('\n');
+    }
+}
@@ -0,0 +1,857 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package view.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import logic.VehicleRecords;
+import model.Direction;
+import model.SignalPlan;
+import model.Terrain;
+import model.TerrainGrid;
+import model.VehicleKind;
+
+/**
+ * A city map file, read into a TerrainGrid and VehicleRecords fast enough for maps of
+ * hundreds of megabytes.
+ *
+ * The grid is memory-mapped rather than read through a Scanner, and its rows are decoded
+ * in parallel, each byte through a table of Terrain ordinals. When every row has the same
+ * length, as in generated maps, the offset of each row is computed; otherwise the rows
+ * are found by searching for line ends first. The vehicles are then parsed as a stream.
+ *
+ * The vehicles may be followed by the traffic signals: a line "signals G", G lines of
+ * "offset green yellow red" for signal groups 1 to G, a line with a count N, and N
+ * lines of "x y group" putting cells in groups. Without it, every cell follows the
+ * city-wide group 0.
+ *
+ * A file may instead be in the binary format of BinaryCityMap, which is loaded with bulk
+ * reads and no parsing at all.
+ *
+ * @version 1 OCT 2018
+ */
+public final class CityMap {
+
+    /**
+     * The number of bytes of the file searched for the size of the grid.
+     */
+    private static final int HEADER_BYTES = 256;
+
+    /**
+     * The most bytes of rows mapped and decoded as one task.
+     */
+    private static final long MAX_BAND_BYTES = 1L << 26;
+
+    /**
+     * The number of tasks the rows are split into per thread, to even out the load.
+     */
+    private static final int BANDS_PER_THREAD = 4;
+
+    /**
+     * The size of the buffer the vehicles are read through.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The number of distinct byte values.
+     */
+    private static final int BYTE_VALUES = 256;
+
+    /**
+     * The Terrain ordinal of each byte, read as an unsigned letter.
+     */
+    private static final byte[] ORDINALS = ordinals();
+
+    /**
+     * The word starting the signal section.
+     */
+    private static final String SIGNALS = "signals";
+
+    /**
+     * The grid.
+     */
+    private final TerrainGrid myGrid;
+
+    /**
+     * The vehicles.
+     */
+    private final VehicleRecords myVehicles;
+
+    /**
+     * The traffic signals.
+     */
+    private final SignalPlan mySignals;
+
+    /**
+     * How the file was read.
+     */
+    private final LoadStats myStats;
+
+    /**
+     * Creates a map read from a file.
+     *
+     * @param theGrid the grid
+     * @param theVehicles the vehicles
+     * @param theSignals the traffic signals
+     * @param theStats how the file was read
+     */
+    CityMap(final TerrainGrid theGrid, final VehicleRecords theVehicles,
+                    final SignalPlan theSignals, final LoadStats theStats) {
+        myGrid = theGrid;
+        myVehicles = theVehicles;
+        mySignals = theSignals;
+        myStats = theStats;
+    }
+
+    /**
+     * Reads a city map file, decoding the rows on the common fork/join pool.
+     *
+     * @param theFile the file
+     * @return the map
+     * @throws IOException if the file cannot be read or is not a city map
+     */
+    public static CityMap read(final Path theFile) throws IOException {
+        return read(theFile, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads a city map file, text or binary, decoding the rows of a text file on a pool.
+     *
+     * @param theFile the file
+     * @param thePool the pool the rows are decoded on
+     * @return the map
+     * @throws IOException if the file cannot be read or is not a city map
+     */
+    public static CityMap read(final Path theFile, final ForkJoinPool thePool)
+        throws IOException {
+        final long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(theFile, StandardOpenOption.READ)) {
+            if (BinaryCityMap.isBinary(channel)) {
+                return BinaryCityMap.read(channel, theFile);
+            }
+            final long size = channel.size();
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                  Math.min(size, HEADER_BYTES));
+            final int rows = nextInt(header, theFile);
+            final int columns = nextInt(header, theFile);
+            if (rows < 0 || columns < 0) {
+                throw malformed(theFile, "negative grid size " + columns + " x " + rows);
+            }
+            skipLine(header);
+            final long gridStart = header.position();
+
+            final TerrainGrid grid = TerrainGrid.create(columns, rows);
+            final Rows layout = new Rows(channel, gridStart, rows, columns);
+            final int bands = bands(layout, thePool.getParallelism());
+            if (!layout.isUniform() || !decode(layout, grid, bands, thePool)) {
+                // some row is not of the common length: find where each one starts
+                layout.search(theFile);
+                decode(layout, grid, bands, thePool);
+            }
+            final long gridEnd = System.nanoTime();
+
+            channel.position(layout.end());
+            final Tokens tokens = new Tokens(channel, theFile);
+            final VehicleRecords vehicles = readVehicles(tokens, theFile);
+            final SignalPlan signals = readSignals(tokens, theFile, columns, rows);
+            final long end = System.nanoTime();
+
+            final LoadStats stats = new LoadStats(size, columns, rows, vehicles.size(),
+                                                  Math.min(bands, thePool.getParallelism()),
+                                                  layout.isUniform(), gridEnd - start,
+                                                  end - gridEnd, end - start);
+            return new CityMap(grid, vehicles, signals, stats);
+        }
+    }
+
+    /**
+     * Writes a city map in the binary format, which read loads without parsing, replacing
+     * any file of the same name.
+     *
+     * @param theGrid the grid
+     * @param theVehicles the vehicles
+     * @param theFile the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeBinary(final TerrainGrid theGrid,
+                                   final VehicleRecords theVehicles, final Path theFile)
+        throws IOException {
+        writeBinary(theGrid, theVehicles,
+                    new SignalPlan(theGrid.getWidth(), theGrid.getHeight()), theFile);
+    }
+
+    /**
+     * Writes a city map with traffic signals in the binary format, replacing any file of
+     * the same name.
+     *
+     * @param theGrid the grid
+     * @param theVehicles the vehicles
+     * @param theSignals the traffic signals, the size of the grid
+     * @param theFile the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeBinary(final TerrainGrid theGrid,
+                                   final VehicleRecords theVehicles,
+                                   final SignalPlan theSignals, final Path theFile)
+        throws IOException {
+        BinaryCityMap.write(theGrid, theVehicles, theSignals, theFile);
+    }
+
+    /**
+     * Returns the grid.
+     *
+     * @return the grid
+     */
+    public TerrainGrid getGrid() {
+        return myGrid;
+    }
+
+    /**
+     * Returns the vehicles.
+     *
+     * @return the vehicles
+     */
+    public VehicleRecords getVehicles() {
+        return myVehicles;
+    }
+
+    /**
+     * Returns the traffic signals.
+     *
+     * @return the signal plan, the size of the grid
+     */
+    public SignalPlan getSignals() {
+        return mySignals;
+    }
+
+    /**
+     * Returns how the file was read.
+     *
+     * @return the statistics
+     */
+    public LoadStats getStats() {
+        return myStats;
+    }
+
+    /**
+     * Chooses how many bands the rows are decoded in: a few per thread, and enough that
+     * no band is too large to map.
+     *
+     * @param theRows the rows
+     * @param theThreads the number of threads
+     * @return the number of bands
+     */
+    private static int bands(final Rows theRows, final int theThreads) {
+        final long bytes = (long) theRows.count() * (theRows.columns() + 1);
+        final long bySize = (bytes + MAX_BAND_BYTES - 1) / MAX_BAND_BYTES;
+        return (int) Math.max(1, Math.min(theRows.count(),
+                                          Math.max(bySize, theThreads * BANDS_PER_THREAD)));
+    }
+
+    /**
+     * Decodes every row into the grid, in parallel bands. Bands start at even rows, so
+     * that no two threads write the same byte even of a grid packing two cells per byte.
+     *
+     * @param theRows where the rows are
+     * @param theGrid the grid to fill
+     * @param theBands the number of bands
+     * @param thePool the pool to decode on
+     * @return false if the rows were taken to have a common length and one did not
+     * @throws IOException if the file cannot be read or a row is too short
+     */
+    private static boolean decode(final Rows theRows, final TerrainGrid theGrid,
+                                  final int theBands, final ForkJoinPool thePool)
+        throws IOException {
+        int bandRows = (theRows.count() + theBands - 1) / theBands;
+        bandRows += bandRows & 1;
+        final int height = Math.max(2, bandRows);
+        final int count = (theRows.count() + height - 1) / height;
+        final AtomicBoolean ragged = new AtomicBoolean();
+        if (count == 0) {
+            return true;
+        }
+        try {
+            thePool.invoke(new BandAction(0, count, theBand -> {
+                if (!ragged.get()) {
+                    final int first = theBand * height;
+                    final int last = Math.min(theRows.count(), first + height);
+                    if (!theRows.decode(first, last, theGrid)) {
+                        ragged.set(true);
+                    }
+                }
+            }));
+        } catch (final UncheckedIOException uioe) {
+            throw uioe.getCause();
+        }
+        return !ragged.get();
+    }
+
+    /**
+     * Reads the vehicle section of a city map file.
+     *
+     * @param theTokens the file, positioned just after the last row of the grid
+     * @param theFile the file, for messages
+     * @return the vehicles
+     * @throws IOException if the file cannot be read or the section is malformed
+     */
+    private static VehicleRecords readVehicles(final Tokens theTokens,
+                                               final Path theFile) throws IOException {
+        final int count = theTokens.nextInt();
+        if (count < 0) {
+            throw malformed(theFile, "negative vehicle count " + count);
+        }
+        theTokens.skipLine();
+        final VehicleRecords result = new VehicleRecords(count);
+        for (int i = 0; i < count; i++) {
+            final char letter = theTokens.nextChar();
+            final int x = theTokens.nextInt();
+            final int y = theTokens.nextInt();
+            final char heading = theTokens.nextChar();
+            final VehicleKind kind = VehicleKind.valueOf(letter);
+            final Direction direction = Direction.valueOf(heading);
+            if (kind == null || direction == null) {
+                throw malformed(theFile, "vehicle " + i + " is '" + letter + "' heading '"
+                                         + heading + "'");
+            }
+            result.add(kind, x, y, direction);
+            theTokens.skipLine();
+        }
+        return result;
+    }
+
+    /**
+     * Reads the signal section of a city map file, if there is one.
+     *
+     * @param theTokens the file, positioned just after the vehicles
+     * @param theFile the file, for messages
+     * @param theColumns the number of columns of the grid
+     * @param theRows the number of rows of the grid
+     * @return the signals, only the city-wide group if there is no section
+     * @throws IOException if the file cannot be read or the section is malformed
+     */
+    private static SignalPlan readSignals(final Tokens theTokens, final Path theFile,
+                                          final int theColumns, final int theRows)
+        throws IOException {
+        final SignalPlan result = new SignalPlan(theColumns, theRows);
+        if (!theTokens.hasNext()) {
+            return result;
+        }
+        final String word = theTokens.nextWord();
+        if (!SIGNALS.equals(word)) {
+            throw malformed(theFile, "expected '" + SIGNALS + "' but found '" + word + "'");
+        }
+        final int groups = theTokens.nextInt();
+        if (groups < 0 || groups >= SignalPlan.MAX_GROUPS) {
+            throw malformed(theFile, "bad signal group count " + groups);
+        }
+        try {
+            for (int g = 1; g <= groups; g++) {
+                final int offset = theTokens.nextInt();
+                final int green = theTokens.nextInt();
+                final int yellow = theTokens.nextInt();
+                result.addGroup(offset, green, yellow, theTokens.nextInt());
+            }
+            final int cells = theTokens.nextInt();
+            if (cells < 0) {
+                throw malformed(theFile, "negative signal cell count " + cells);
+            }
+            for (int i = 0; i < cells; i++) {
+                final int x = theTokens.nextInt();
+                final int y = theTokens.nextInt();
+                result.setGroup(x, y, theTokens.nextInt());
+            }
+        } catch (final IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw malformed(theFile, e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Reads a decimal integer from a buffer, after any white space.
+     *
+     * @param theBuffer the buffer
+     * @param theFile the file, for messages
+     * @return the integer
+     * @throws IOException if there is no integer
+     */
+    private static int nextInt(final ByteBuffer theBuffer, final Path theFile)
+        throws IOException {
+        int b = ' ';
+        while (theBuffer.hasRemaining() && Character.isWhitespace(b)) {
+            b = theBuffer.get();
+        }
+        final StringBuilder digits = new StringBuilder();
+        while (!Character.isWhitespace(b)) {
+            digits.append((char) b);
+            if (!theBuffer.hasRemaining()) {
+                break;
+            }
+            b = theBuffer.get();
+        }
+        if (Character.isWhitespace(b)) {
+            theBuffer.position(theBuffer.position() - 1);
+        }
+        try {
+            return Integer.parseInt(digits.toString());
+        } catch (final NumberFormatException nfe) {
+            throw malformed(theFile, "expected a number but found '" + digits + "'");
+        }
+    }
+
+    /**
+     * Moves a buffer past the end of the current line.
+     *
+     * @param theBuffer the buffer
+     */
+    private static void skipLine(final ByteBuffer theBuffer) {
+        while (theBuffer.hasRemaining() && theBuffer.get() != '\n') {
+            continue;
+        }
+    }
+
+    /**
+     * Creates the exception for a file that is not a city map.
+     *
+     * @param theFile the file
+     * @param theProblem what is wrong with it
+     * @return the exception
+     */
+    private static IOException malformed(final Path theFile, final String theProblem) {
+        return new IOException("Malformed city map file " + theFile + ": " + theProblem);
+    }
+
+    /**
+     * Builds the table of the Terrain ordinal of each byte.
+     *
+     * @return the table
+     */
+    private static byte[] ordinals() {
+        final byte[] result = new byte[BYTE_VALUES];
+        for (int b = 0; b < BYTE_VALUES; b++) {
+            result[b] = (byte) Terrain.valueOf((char) b).ordinal();
+        }
+        return result;
+    }
+
+    /**
+     * Where the rows of the grid are in the file.
+     */
+    private static final class Rows {
+
+        /** The file. */
+        private final FileChannel myChannel;
+
+        /** The offset of the first row. */
+        private final long myStart;
+
+        /** The number of rows. */
+        private final int myCount;
+
+        /** The number of columns. */
+        private final int myColumns;
+
+        /**
+         * The length of the line end after the first row, 1 or 2, or 0 if the rows cannot
+         * all be of that row's length.
+         */
+        private final int myLineEnd;
+
+        /**
+         * The offset of each row, and where the line after the last row starts, once
+         * searched for; null while the rows are taken to be of one length.
+         */
+        private long[] myOffsets;
+
+        /**
+         * Takes the rows to be of the length of the first, line end included.
+         *
+         * @param theChannel the file
+         * @param theStart the offset of the first row
+         * @param theCount the number of rows
+         * @param theColumns the number of columns
+         * @throws IOException if the file cannot be read
+         */
+        Rows(final FileChannel theChannel, final long theStart, final int theCount,
+             final int theColumns) throws IOException {
+            myChannel = theChannel;
+            myStart = theStart;
+            myCount = theCount;
+            myColumns = theColumns;
+            final int lineEnd = lineEnd(theStart + theColumns);
+            final long end = theStart + (long) theCount * (theColumns + lineEnd);
+            if (end > theChannel.size()) {
+                myLineEnd = 0;
+            } else {
+                myLineEnd = lineEnd;
+            }
+        }
+
+        /**
+         * Returns the number of rows.
+         *
+         * @return the number of rows
+         */
+        int count() {
+            return myCount;
+        }
+
+        /**
+         * Returns the number of columns.
+         *
+         * @return the number of columns
+         */
+        int columns() {
+            return myColumns;
+        }
+
+        /**
+         * Returns whether the rows are taken to be of one length.
+         *
+         * @return whether row offsets are computed
+         */
+        boolean isUniform() {
+            return myOffsets == null && myLineEnd > 0;
+        }
+
+        /**
+         * Returns the offset of a row, or of the line after the last row.
+         *
+         * @param theRow the row number, up to the number of rows
+         * @return the offset
+         */
+        long offset(final int theRow) {
+            final long result;
+            if (myOffsets == null) {
+                result = myStart + (long) theRow * (myColumns + myLineEnd);
+            } else {
+                result = myOffsets[theRow];
+            }
+            return result;
+        }
+
+        /**
+         * Returns where the line after the last row starts.
+         *
+         * @return the offset
+         */
+        long end() {
+            return offset(myCount);
+        }
+
+        /**
+         * Finds where each row starts by searching for line ends.
+         *
+         * @param theFile the file, for messages
+         * @throws IOException if the file cannot be read or has too few rows
+         */
+        void search(final Path theFile) throws IOException {
+            final long size = myChannel.size();
+            final long[] offsets = new long[myCount + 1];
+            offsets[0] = myStart;
+            int row = 0;
+            long position = myStart;
+            while (row < myCount && position < size) {
+                final long length = Math.min(MAX_BAND_BYTES, size - position);
+                final ByteBuffer chunk = myChannel.map(FileChannel.MapMode.READ_ONLY,
+                                                       position, length);
+                for (int i = 0; i < length && row < myCount; i++) {
+                    if (chunk.get(i) == '\n') {
+                        offsets[++row] = position + i + 1;
+                    }
+                }
+                position += length;
+            }
+            if (row == myCount - 1 && offsets[row] < size) {
+                // the last row ends the file
+                offsets[++row] = size;
+            }
+            if (row < myCount) {
+                throw malformed(theFile, "expected " + myCount + " rows but found " + row);
+            }
+            myOffsets = offsets;
+        }
+
+        /**
+         * Decodes a band of rows into a grid.
+         *
+         * @param theFirst the first row
+         * @param theLast one past the last row
+         * @param theGrid the grid
+         * @return false if the rows are taken to be uniform and one is not
+         */
+        boolean decode(final int theFirst, final int theLast, final TerrainGrid theGrid) {
+            final long start = offset(theFirst);
+            final long length = offset(theLast) - start;
+            if (length > Integer.MAX_VALUE) {
+                throw new UncheckedIOException(new IOException(
+                    "Rows " + theFirst + " to " + theLast + " are too long to map"));
+            }
+            final ByteBuffer band;
+            try {
+                band = myChannel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            } catch (final IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+
+            final byte[] row = new byte[myColumns];
+            for (int y = theFirst; y < theLast; y++) {
+                final int position = (int) (offset(y) - start);
+                final int available = (int) (offset(y + 1) - start) - position;
+                if (available < myColumns) {
+                    throw new UncheckedIOException(new IOException(
+                        "Row " + y + " has fewer than " + myColumns + " columns"));
+                }
+                band.position(position);
+                band.get(row);
+                if (isUniform() && !endsLine(band)) {
+                    return false;
+                }
+                for (int x = 0; x < myColumns; x++) {
+                    theGrid.setOrdinal(x, y, ORDINALS[row[x] & (BYTE_VALUES - 1)]);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns whether a buffer is at a line end of the uniform length.
+         *
+         * @param theBuffer the buffer
+         * @return whether the next bytes end a line
+         */
+        private boolean endsLine(final ByteBuffer theBuffer) {
+            final boolean result;
+            if (myLineEnd == 1) {
+                result = theBuffer.get() == '\n';
+            } else {
+                result = theBuffer.get() == '\r' && theBuffer.get() == '\n';
+            }
+            return result;
+        }
+
+        /**
+         * Returns the length of the line end at an offset.
+         *
+         * @param theOffset the offset
+         * @return 1 for a newline, 2 for a carriage return and newline, 0 for neither
+         * @throws IOException if the file cannot be read
+         */
+        private int lineEnd(final long theOffset) throws IOException {
+            final ByteBuffer bytes = ByteBuffer.allocate(2);
+            myChannel.read(bytes, theOffset);
+            bytes.flip();
+            int result = 0;
+            if (bytes.remaining() >= 1 && bytes.get(0) == '\n') {
+                result = 1;
+            } else if (bytes.remaining() == 2 && bytes.get(0) == '\r' && bytes.get(1) == '\n') {
+                result = 2;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Reads white-space separated tokens from a file, a buffer at a time.
+     */
+    private static final class Tokens {
+
+        /** The file. */
+        private final FileChannel myChannel;
+
+        /** The file, for messages. */
+        private final Path myFile;
+
+        /** The bytes read but not yet used. */
+        private final ByteBuffer myBuffer;
+
+        /** The byte read but not yet used, or -1 at the end of the file. */
+        private int myNext;
+
+        /**
+         * Creates a reader of tokens.
+         *
+         * @param theChannel the file, positioned at the first token
+         * @param theFile the file, for messages
+         * @throws IOException if the file cannot be read
+         */
+        Tokens(final FileChannel theChannel, final Path theFile) throws IOException {
+            myChannel = theChannel;
+            myFile = theFile;
+            myBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+            myBuffer.flip();
+            myNext = 0;
+            advance();
+        }
+
+        /**
+         * Reads an integer token.
+         *
+         * @return the integer
+         * @throws IOException if the file cannot be read or the token is not an integer
+         */
+        int nextInt() throws IOException {
+            skipWhitespace();
+            boolean negative = false;
+            if (myNext == '-') {
+                negative = true;
+                advance();
+            }
+            if (myNext < '0' || myNext > '9') {
+                throw malformed(myFile, "expected a number");
+            }
+            long result = 0;
+            while (myNext >= '0' && myNext <= '9') {
+                result = result * 10 + myNext - '0';
+                if (result > Integer.MAX_VALUE) {
+                    throw malformed(myFile, "number too large");
+                }
+                advance();
+            }
+            return (int) (negative ? -result : result);
+        }
+
+        /**
+         * Reads a token and returns its first letter.
+         *
+         * @return the letter
+         * @throws IOException if the file cannot be read or has no more tokens
+         */
+        char nextChar() throws IOException {
+            skipWhitespace();
+            if (myNext < 0) {
+                throw malformed(myFile, "unexpected end of file");
+            }
+            final char result = (char) myNext;
+            while (myNext >= 0 && !Character.isWhitespace(myNext)) {
+                advance();
+            }
+            return result;
+        }
+
+        /**
+         * Returns whether any token is left.
+         *
+         * @return whether there is a token before the end of the file
+         * @throws IOException if the file cannot be read
+         */
+        boolean hasNext() throws IOException {
+            skipWhitespace();
+            return myNext >= 0;
+        }
+
+        /**
+         * Reads a token.
+         *
+         * @return the token
+         * @throws IOException if the file cannot be read or has no more tokens
+         */
+        String nextWord() throws IOException {
+            skipWhitespace();
+            if (myNext < 0) {
+                throw malformed(myFile, "unexpected end of file");
+            }
+            final StringBuilder result = new StringBuilder();
+            while (myNext >= 0 && !Character.isWhitespace(myNext)) {
+                result.append((char) myNext);
+                advance();
+            }
+            return result.toString();
+        }
+
+        /**
+         * Skips the rest of the current line.
+         *
+         * @throws IOException if the file cannot be read
+         */
+        void skipLine() throws IOException {
+            while (myNext >= 0 && myNext != '\n') {
+                advance();
+            }
+            advance();
+        }
+
+        /**
+         * Skips white space.
+         *
+         * @throws IOException if the file cannot be read
+         */
+        private void skipWhitespace() throws IOException {
+            while (myNext >= 0 && Character.isWhitespace(myNext)) {
+                advance();
+            }
+        }
+
+        /**
+         * Reads the next byte.
+         *
+         * @throws IOException if the file cannot be read
+         */
+        private void advance() throws IOException {
+            if (myNext >= 0 && !myBuffer.hasRemaining()) {
+                myBuffer.clear();
+                final int read = myChannel.read(myBuffer);
+                myBuffer.flip();
+                if (read < 0) {
+                    myNext = -1;
+                }
+            }
+            if (myNext >= 0) {
+                myNext = myBuffer.get() & (BYTE_VALUES - 1);
+            }
+        }
+    }
+
+    /**
+     * Runs an action over a range of bands, splitting the range across the pool.
+     */
+    private static final class BandAction extends RecursiveAction {
+
+        /** The serial version UID. */
+        private static final long serialVersionUID = 1L;
+
+        /** The first band of the range. */
+        private final int myLow;
+
+        /** One past the last band of the range. */
+        private final int myHigh;
+
+        /** The action to run per band. */
+        private final transient IntConsumer myAction;
+
+        /**
+         * Creates an action over a range of bands.
+         *
+         * @param theLow the first band
+         * @param theHigh one past the last band
+         * @param theAction the action to run per band
+         */
+        BandAction(final int theLow, final int theHigh,
+                   final IntConsumer theAction) {
+            super();
+            myLow = theLow;
+            myHigh = theHigh;
+            myAction = theAction;
+        }
+
+        @Override
+        protected void compute() {
+            if (myHigh - myLow == 1) {
+                myAction.accept(myLow);
+            } else {
+                final int mid = (myLow + myHigh) >>> 1;
+                invokeAll(new BandAction(myLow, mid, myAction),
+                          new BandAction(mid, myHigh, myAction));
+            }
+        }
+    }
+}
@@ -6,19 +6,18 @@ package view.util;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Scanner;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
+import logic.EngineType;
 import logic.PropertyChangeEnabledRoadRageControls;
-import logic.RoadRage;
-import model.Atv;
-import model.Bicycle;
-import model.Car;
-import model.Taxi;
-import model.*;
-import model.Truck;
+import logic.ReplayRoadRage;
+import logic.SimulationEngine;
+import logic.VehicleRecords;
+import model.Direction;
+import model.Terrain;
+import model.TerrainGrid;
+import model.VehicleKind;
 
 
 /**
@@ -30,9 +29,9 @@ import model.Truck;
 public final class FileLoader {
 
     /**
-     * The filename of the city map.
+     * The filename of the city map read when no other is given.
      */
-    private static final String CITY_FILE = "city_map1.txt";
+    public static final String CITY_FILE = "city_map1.txt";
     
     /**
      * A private constructor, to prevent external instantiation.
@@ -45,41 +44,103 @@ public final class FileLoader {
      * @return the RoadRagePanel based on the city text file. 
      */
     public static PropertyChangeEnabledRoadRageControls readCity(final JFrame theFrame) {
+        return readCity(theFrame, EngineType.OBJECTS);
+    }
+    
+    /**
+     * Read the city text file and build the chosen simulation engine based on the file. 
+     * @param theFrame the Frame containing the panel. Needed for error output. 
+     * @param theEngine the simulation implementation to build.
+     * @return the simulation based on the city text file. 
+     */
+    public static PropertyChangeEnabledRoadRageControls readCity(final JFrame theFrame,
+                                                                 final EngineType theEngine) {
+        return readCity(theFrame, theEngine, new File(CITY_FILE));
+    }
+    
+    /**
+     * Read a city text file and build the chosen simulation engine based on the file. 
+     * @param theFrame the Frame containing the panel. Needed for error output. 
+     * @param theEngine the simulation implementation to build.
+     * @param theFile the city text file. 
+     * @return the simulation based on the city text file, or null if it cannot be read. 
+     */
+    public static PropertyChangeEnabledRoadRageControls readCity(final JFrame theFrame,
+                                                                 final EngineType theEngine,
+                                                                 final File theFile) {
         PropertyChangeEnabledRoadRageControls result = null;
         try {
-            final Scanner input;
-
-            input = new Scanner(new File(CITY_FILE));
-
-            // First, we read the map description
-            // Then, we read where the initial vehicles are
-           
-            result = new RoadRage(readGrid(input), readVehicles(input));        
- 
+            final CityMap city = CityMap.read(theFile.toPath());
+            final SimulationEngine engine = theEngine.create(city.getGrid(),
+                                                             city.getVehicles());
+            engine.setSignalPlan(city.getSignals());
+            result = engine;
         } catch (final IOException ioe) {
-            JOptionPane.showMessageDialog(theFrame, "Could not read city map file " + CITY_FILE
+            JOptionPane.showMessageDialog(theFrame, "Could not read city map file " + theFile
                                           + ":\n\n" + ioe.getMessage(), "I/O Error",
                                       JOptionPane.ERROR_MESSAGE);
         }
         return result;
     }
     
+    /**
+     * Read a city text file and a journal of a run of it, and build a replay of the run. 
+     * @param theFrame the Frame containing the panel. Needed for error output. 
+     * @param theJournal the journal file. 
+     * @param theFile the city text file. 
+     * @return the replay, or null if either file cannot be read. 
+     */
+    public static PropertyChangeEnabledRoadRageControls readReplay(final JFrame theFrame,
+                                                                   final File theJournal,
+                                                                   final File theFile) {
+        PropertyChangeEnabledRoadRageControls result = null;
+        try {
+            final CityMap city = CityMap.read(theFile.toPath());
+            result = new ReplayRoadRage(city.getGrid(), city.getSignals(),
+                                        theJournal.toPath());
+        } catch (final IOException | IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(theFrame, "Could not replay journal " + theJournal
+                                          + " of " + theFile + ":\n\n" + e.getMessage(),
+                                          "I/O Error", JOptionPane.ERROR_MESSAGE);
+        }
+        return result;
+    }
     
     /**
-     * Reads the grid portion of the map file.
+     * Read a city text file and build the chosen simulation engine based on the file, 
+     * without any user interface. 
+     * @param theFile the city text file. 
+     * @param theEngine the simulation implementation to build.
+     * @param theSeed the root seed of the vehicles' random choices.
+     * @return the simulation based on the city text file. 
+     * @throws IOException if the file cannot be read or is not a city map. 
+     */
+    public static SimulationEngine readCity(final File theFile, final EngineType theEngine,
+                                            final long theSeed) throws IOException {
+        final CityMap city = CityMap.read(theFile.toPath());
+        final SimulationEngine result = theEngine.create(city.getGrid(), city.getVehicles(),
+                                                         theSeed);
+        result.setSignalPlan(city.getSignals());
+        return result;
+    }
+    
+    
+    /**
+     * Reads the grid portion of the map file through a Scanner. Kept as the baseline 
+     * CityMap is measured against.
      * 
      * @param theInput The input scanner.
      * @return the map of the terrains.
      */
-    private static Terrain[][] readGrid(final Scanner theInput) {
+    static TerrainGrid readGrid(final Scanner theInput) {
         final int numRows = theInput.nextInt();
         final int numColumns = theInput.nextInt();
         theInput.nextLine();
-        final Terrain[][] grid = new Terrain[numRows][numColumns];
+        final TerrainGrid grid = TerrainGrid.create(numColumns, numRows);
         for (int row = 0; row < numRows; row++) {
             final String line = theInput.nextLine();
             for (int column = 0; column < numColumns; column++) {
-                grid[row][column] = Terrain.valueOf(line.charAt(column));
+                grid.set(column, row, Terrain.valueOf(line.charAt(column)));
             }
         }
         return grid;
@@ -89,11 +150,11 @@ public final class FileLoader {
      * Reads the vehicle portion of the map file.
      * 
      * @param theInput The input scanner.
-     * @return the list of Vehicles
+     * @return the starting state of the vehicles
      */
-    private static List<Vehicle> readVehicles(final Scanner theInput) {
-        final List<Vehicle> vehicles = new ArrayList<Vehicle>();
+    static VehicleRecords readVehicles(final Scanner theInput) {
         final int numVehicles = theInput.nextInt();
+        final VehicleRecords vehicles = new VehicleRecords(numVehicles);
         theInput.nextLine();
         for (int lineCount = 0; lineCount < numVehicles; lineCount++) {
             final char vehicleType = theInput.next().charAt(0);
@@ -101,41 +162,12 @@ public final class FileLoader {
             final int vehicleY = theInput.nextInt();
             final char vehicleDirection = theInput.next().charAt(0);
 
-            switch (vehicleType) {
-              case 'B': // Bicycle
-                    vehicles.add(new Bicycle(vehicleX, vehicleY,
-                                               Direction.valueOf(vehicleDirection)));
-                    break;
-
-                case 'A': //ATV
-                    vehicles.add(new Atv(vehicleX, vehicleY,
-                                           Direction.valueOf(vehicleDirection)));
-                    break;
-
-                case 'H': // Human
-                    vehicles.add(new Human(vehicleX, vehicleY,
-                                             Direction.valueOf(vehicleDirection)));
-                    break;
-
-                case 'T': // Truck
-                    vehicles.add(new Truck(vehicleX, vehicleY,
-                                             Direction.valueOf(vehicleDirection)));
-                    break;
-                    
-                case 'X': // Taxi
-                    vehicles.add(new Taxi(vehicleX, vehicleY,
-                                            Direction.valueOf(vehicleDirection)));
-                    break;
-                    
-                case 'C': // Car
-                    vehicles.add(new Car(vehicleX, vehicleY,
-                                            Direction.valueOf(vehicleDirection)));
-                    break;
-
-                default:
-                    // this should never happen
-                    assert false;
-                    break;
+            final VehicleKind kind = VehicleKind.valueOf(vehicleType);
+            if (kind != null) {
+                vehicles.add(kind, vehicleX, vehicleY, Direction.valueOf(vehicleDirection));
+            } else {
+                // this should never happen
+                assert false;
             }
             theInput.nextLine();
         }
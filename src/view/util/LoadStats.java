@@ -0,0 +1,197 @@
+/*
+ * TCSS 305 - Road Rage
+ */
+
+package view.util;
+
+import java.util.Locale;
+
+/**
+ * How long reading a city map file took, and how much it read.
+ *
+ * @version 1 OCT 2018
+ */
+public final class LoadStats {
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Bytes per megabyte.
+     */
+    private static final double BYTES_PER_MEGABYTE = 1 << 20;
+
+    /**
+     * The size of the file in bytes.
+     */
+    private final long myBytes;
+
+    /**
+     * The number of columns of the grid.
+     */
+    private final int myColumns;
+
+    /**
+     * The number of rows of the grid.
+     */
+    private final int myRows;
+
+    /**
+     * The number of vehicles.
+     */
+    private final int myVehicles;
+
+    /**
+     * The number of threads the rows were decoded on.
+     */
+    private final int myThreads;
+
+    /**
+     * Whether every row had the same length, so that row offsets were computed rather
+     * than searched for.
+     */
+    private final boolean myUniformRows;
+
+    /**
+     * Nanoseconds spent reading the grid.
+     */
+    private final long myGridNanos;
+
+    /**
+     * Nanoseconds spent reading the vehicles.
+     */
+    private final long myVehicleNanos;
+
+    /**
+     * Nanoseconds spent in all.
+     */
+    private final long myTotalNanos;
+
+    /**
+     * Creates the statistics of one load.
+     *
+     * @param theBytes the size of the file in bytes
+     * @param theColumns the number of columns of the grid
+     * @param theRows the number of rows of the grid
+     * @param theVehicles the number of vehicles
+     * @param theThreads the number of threads the rows were decoded on
+     * @param theUniformRows whether every row had the same length
+     * @param theGridNanos nanoseconds spent reading the grid
+     * @param theVehicleNanos nanoseconds spent reading the vehicles
+     * @param theTotalNanos nanoseconds spent in all
+     */
+    LoadStats(final long theBytes, final int theColumns, final int theRows,
+              final int theVehicles, final int theThreads, final boolean theUniformRows,
+              final long theGridNanos, final long theVehicleNanos, final long theTotalNanos) {
+        myBytes = theBytes;
+        myColumns = theColumns;
+        myRows = theRows;
+        myVehicles = theVehicles;
+        myThreads = theThreads;
+        myUniformRows = theUniformRows;
+        myGridNanos = theGridNanos;
+        myVehicleNanos = theVehicleNanos;
+        myTotalNanos = theTotalNanos;
+    }
+
+    /**
+     * Returns the size of the file.
+     *
+     * @return the size in bytes
+     */
+    public long getBytes() {
+        return myBytes;
+    }
+
+    /**
+     * Returns the number of cells of the grid.
+     *
+     * @return the number of cells
+     */
+    public long getCells() {
+        return (long) myColumns * myRows;
+    }
+
+    /**
+     * Returns the number of vehicles read.
+     *
+     * @return the number of vehicles
+     */
+    public int getVehicles() {
+        return myVehicles;
+    }
+
+    /**
+     * Returns the number of threads the rows were decoded on.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return myThreads;
+    }
+
+    /**
+     * Returns whether every row had the same length, so that the offset of each row was
+     * computed rather than searched for.
+     *
+     * @return whether the rows were uniform
+     */
+    public boolean hasUniformRows() {
+        return myUniformRows;
+    }
+
+    /**
+     * Returns the time spent reading the grid.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getGridNanos() {
+        return myGridNanos;
+    }
+
+    /**
+     * Returns the time spent reading the vehicles.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getVehicleNanos() {
+        return myVehicleNanos;
+    }
+
+    /**
+     * Returns the time spent reading the whole file.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return myTotalNanos;
+    }
+
+    /**
+     * Returns the rate at which the file was read.
+     *
+     * @return megabytes per second
+     */
+    public double getMegabytesPerSecond() {
+        return myBytes / BYTES_PER_MEGABYTE / Math.max(myTotalNanos, 1) * NANOS_PER_SECOND;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "loaded %.1f MB in %.1f ms (%.1f MB/s): "
+                             + "grid %d x %d in %.1f ms on %d threads%s, "
+                             + "%d vehicles in %.1f ms",
+                             myBytes / BYTES_PER_MEGABYTE, myTotalNanos / NANOS_PER_MILLI,
+                             getMegabytesPerSecond(), myColumns, myRows,
+                             myGridNanos / NANOS_PER_MILLI, myThreads,
+                             myUniformRows ? "" : " (rows searched)", myVehicles,
+                             myVehicleNanos / NANOS_PER_MILLI);
+    }
+}